@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.examples.animated;
+
+import static java.lang.Math.*;
+
+import com.metsci.glimpse.examples.Example;
+import com.metsci.glimpse.examples.basic.HeatMapExample;
+import com.metsci.glimpse.layout.GlimpseLayoutProvider;
+import com.metsci.glimpse.painter.info.FpsPainter;
+import com.metsci.glimpse.painter.texture.HeatMapPainter;
+import com.metsci.glimpse.plot.ColorAxisPlot2D;
+import com.metsci.glimpse.support.projection.FlatProjection;
+import com.metsci.glimpse.support.texture.FloatTextureProjected2D;
+
+/**
+ * Demonstrates a scrolling waterfall display, such as a spectrogram, which
+ * appends a new column of data to a heat map at regular intervals. Only the
+ * new column is uploaded to the graphics card each time.
+ */
+public class WaterfallExample implements GlimpseLayoutProvider
+{
+    public static void main( String[] args ) throws Exception
+    {
+        Example.showWithSwing( new WaterfallExample( ) );
+    }
+
+    protected static final int TIME_BINS = 2000;
+    protected static final int FREQUENCY_BINS = 1000;
+
+    @Override
+    public ColorAxisPlot2D getLayout( )
+    {
+        ColorAxisPlot2D plot = new ColorAxisPlot2D( );
+
+        plot.setTitle( "Waterfall Example" );
+        plot.setAxisLabelX( "time" );
+        plot.setAxisLabelY( "frequency" );
+
+        plot.setMinX( 0 );
+        plot.setMaxX( TIME_BINS );
+        plot.setMinY( 0 );
+        plot.setMaxY( FREQUENCY_BINS );
+        plot.setMinZ( 0 );
+        plot.setMaxZ( 1 );
+
+        // the texture is a circular buffer along the x (time) axis: appendColumn drops
+        // the oldest column from the left edge and adds the new one at the right edge
+        final FloatTextureProjected2D texture = new FloatTextureProjected2D( TIME_BINS, FREQUENCY_BINS );
+        texture.setProjection( new FlatProjection( 0, TIME_BINS, 0, FREQUENCY_BINS ) );
+
+        HeatMapPainter painter = new HeatMapPainter( plot.getAxisZ( ) );
+        painter.setData( texture );
+        painter.setColorScale( HeatMapExample.newColorTexture( ) );
+        plot.addPainter( painter );
+
+        plot.setColorScale( painter.getColorScale( ) );
+
+        // paints an estimate of how many times per second the display is being updated
+        plot.addPainter( new FpsPainter( ) );
+
+        // setup a thread that will append a new column of data at regular intervals
+        Thread thread = new Thread( new Runnable( )
+        {
+            @Override
+            public void run( )
+            {
+                float[] column = new float[FREQUENCY_BINS];
+
+                for ( int t = 0;; t++ )
+                {
+                    // a tone sweeping up and down in frequency, over a noisy background
+                    double tone = FREQUENCY_BINS * ( 0.5 + 0.4 * sin( 2 * PI * t / 500.0 ) );
+
+                    for ( int f = 0; f < FREQUENCY_BINS; f++ )
+                    {
+                        double d = ( f - tone ) / 10.0;
+                        column[f] = ( float ) ( 0.3 * random( ) + exp( -d * d ) );
+                    }
+
+                    texture.appendColumn( column );
+
+                    try
+                    {
+                        Thread.sleep( 30 );
+                    }
+                    catch ( InterruptedException e )
+                    {
+                        return;
+                    }
+                }
+            }
+        } );
+        thread.setDaemon( true );
+        thread.start( );
+
+        return plot;
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.examples.benchmark;
+
+import java.util.Random;
+
+import com.metsci.glimpse.util.geo.LatLonGeo;
+import com.metsci.glimpse.util.geo.datum.Datum;
+import com.metsci.glimpse.util.geo.util.DistanceAzimuth;
+import com.metsci.glimpse.util.geo.util.PositionAzimuth;
+import com.metsci.glimpse.util.geo.util.SpheroidUtil;
+
+/**
+ * Compares the scalar {@link SpheroidUtil#forward(Datum, LatLonGeo, double, double)} and
+ * {@link SpheroidUtil#inverse(Datum, LatLonGeo, LatLonGeo)} with their batch versions over
+ * primitive arrays, on the WGS-84 datum.
+ *
+ * <p>Forward solutions go from one origin to many (like the vertices of range rings), inverse
+ * solutions from one origin to many contacts and between many pairs of positions. Sizes below
+ * and above {@link SpheroidUtil#PARALLEL_THRESHOLD} are timed. The number of batch results
+ * which differ from the scalar results is also reported.</p>
+ */
+public class GeodesicBenchmark
+{
+    protected static final int[] SIZES = { 1000, 10000, 100000, 1000000 };
+    protected static final int WARMUP_ITERATIONS = 5;
+    protected static final int TIMED_ITERATIONS = 5;
+
+    public static void main( String[] args )
+    {
+        Datum datum = Datum.wgs84;
+        Random random = new Random( 1234 );
+
+        double originLat = Math.toRadians( 36.8 );
+        double originLon = Math.toRadians( -76.0 );
+        LatLonGeo origin = LatLonGeo.fromRad( originLat, originLon );
+
+        for ( int size : SIZES )
+        {
+            double[] fromLats = new double[size];
+            double[] fromLons = new double[size];
+            double[] toLats = new double[size];
+            double[] toLons = new double[size];
+            double[] dists = new double[size];
+            double[] azimuths = new double[size];
+            LatLonGeo[] froms = new LatLonGeo[size];
+            LatLonGeo[] tos = new LatLonGeo[size];
+            for ( int i = 0; i < size; i++ )
+            {
+                fromLats[i] = originLat + Math.toRadians( ( random.nextDouble( ) - 0.5 ) * 10 );
+                fromLons[i] = originLon + Math.toRadians( ( random.nextDouble( ) - 0.5 ) * 10 );
+                toLats[i] = originLat + Math.toRadians( ( random.nextDouble( ) - 0.5 ) * 10 );
+                toLons[i] = originLon + Math.toRadians( ( random.nextDouble( ) - 0.5 ) * 10 );
+                dists[i] = random.nextDouble( ) * 500000;
+                azimuths[i] = random.nextDouble( ) * 2 * Math.PI;
+                froms[i] = LatLonGeo.fromRad( fromLats[i], fromLons[i] );
+                tos[i] = LatLonGeo.fromRad( toLats[i], toLons[i] );
+            }
+
+            double[] out1 = new double[size];
+            double[] out2 = new double[size];
+            double[] out3 = new double[size];
+            double[] batch1 = new double[size];
+            double[] batch2 = new double[size];
+            double[] batch3 = new double[size];
+
+            System.out.println( String.format( "%d geodesics:", size ) );
+
+            long scalar = Long.MAX_VALUE;
+            long batch = Long.MAX_VALUE;
+            for ( int i = 0; i < WARMUP_ITERATIONS + TIMED_ITERATIONS; i++ )
+            {
+                long t0 = System.nanoTime( );
+                for ( int j = 0; j < size; j++ )
+                {
+                    PositionAzimuth result = SpheroidUtil.forward( datum, origin, dists[j], azimuths[j] );
+                    out1[j] = result.getPosition( ).getLatRad( );
+                    out2[j] = result.getPosition( ).getLonRad( );
+                    out3[j] = result.getAzimuth( );
+                }
+                long t1 = System.nanoTime( );
+                SpheroidUtil.forward( datum, originLat, originLon, dists, azimuths, 0, batch1, batch2, batch3, 0, size );
+                long t2 = System.nanoTime( );
+
+                if ( i >= WARMUP_ITERATIONS )
+                {
+                    scalar = Math.min( scalar, t1 - t0 );
+                    batch = Math.min( batch, t2 - t1 );
+                }
+            }
+            print( "forward one-to-many", scalar, batch, size, countDifferences( out1, out2, out3, batch1, batch2, batch3 ) );
+
+            scalar = Long.MAX_VALUE;
+            batch = Long.MAX_VALUE;
+            for ( int i = 0; i < WARMUP_ITERATIONS + TIMED_ITERATIONS; i++ )
+            {
+                long t0 = System.nanoTime( );
+                for ( int j = 0; j < size; j++ )
+                {
+                    DistanceAzimuth result = SpheroidUtil.inverse( datum, origin, tos[j] );
+                    out1[j] = result.getDistance( );
+                    out2[j] = result.getAzimuth( );
+                }
+                long t1 = System.nanoTime( );
+                SpheroidUtil.inverse( datum, originLat, originLon, toLats, toLons, 0, batch1, batch2, 0, size );
+                long t2 = System.nanoTime( );
+
+                if ( i >= WARMUP_ITERATIONS )
+                {
+                    scalar = Math.min( scalar, t1 - t0 );
+                    batch = Math.min( batch, t2 - t1 );
+                }
+            }
+            print( "inverse one-to-many", scalar, batch, size, countDifferences( out1, out2, out2, batch1, batch2, batch2 ) );
+
+            scalar = Long.MAX_VALUE;
+            batch = Long.MAX_VALUE;
+            for ( int i = 0; i < WARMUP_ITERATIONS + TIMED_ITERATIONS; i++ )
+            {
+                long t0 = System.nanoTime( );
+                for ( int j = 0; j < size; j++ )
+                {
+                    DistanceAzimuth result = SpheroidUtil.inverse( datum, froms[j], tos[j] );
+                    out1[j] = result.getDistance( );
+                    out2[j] = result.getAzimuth( );
+                }
+                long t1 = System.nanoTime( );
+                SpheroidUtil.inverse( datum, fromLats, fromLons, toLats, toLons, 0, batch1, batch2, 0, size );
+                long t2 = System.nanoTime( );
+
+                if ( i >= WARMUP_ITERATIONS )
+                {
+                    scalar = Math.min( scalar, t1 - t0 );
+                    batch = Math.min( batch, t2 - t1 );
+                }
+            }
+            print( "inverse pairwise", scalar, batch, size, countDifferences( out1, out2, out2, batch1, batch2, batch2 ) );
+        }
+    }
+
+    protected static int countDifferences( double[] a1, double[] a2, double[] a3, double[] b1, double[] b2, double[] b3 )
+    {
+        int count = 0;
+        for ( int i = 0; i < a1.length; i++ )
+        {
+            if ( a1[i] != b1[i] || a2[i] != b2[i] || a3[i] != b3[i] ) count++;
+        }
+        return count;
+    }
+
+    protected static void print( String name, long scalarNanos, long batchNanos, int size, int differences )
+    {
+        System.out.println( String.format( "    %-20s scalar %10.3f ms  batch %10.3f ms  %8.2f ns/geodesic  %d differences", name, scalarNanos / 1e6, batchNanos / 1e6, batchNanos / ( double ) size, differences ) );
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.examples.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Random;
+
+import com.metsci.glimpse.support.interval.IntervalQuadTree;
+import com.metsci.glimpse.support.interval.LongIntervalIndex;
+import com.metsci.glimpse.support.interval.LongIntervalIndex.IntervalVisitor;
+
+/**
+ * Compares {@link IntervalQuadTree} with the primitive array based {@link LongIntervalIndex}
+ * on one million random intervals, similar to the Events of a busy timeline.
+ *
+ * <p>Both structures are timed building the index (in random order, and for the
+ * {@code LongIntervalIndex} also in start time order and in bulk) and answering overlap queries for windows of several widths. Queries against the
+ * {@code LongIntervalIndex} go through its visitor, which allocates nothing. Where the JVM
+ * supports it, the bytes allocated per query are also reported.</p>
+ */
+public class IntervalIndexBenchmark
+{
+    protected static final int INTERVAL_COUNT = 1000000;
+    protected static final int QUERY_COUNT = 2000;
+    protected static final int WARMUP_ITERATIONS = 3;
+
+    // one day of intervals, mostly short with a few long ones
+    protected static final long TIME_SPAN = 24 * 60 * 60 * 1000L;
+
+    protected static class Interval
+    {
+        long start;
+        long end;
+
+        public Interval( long start, long end )
+        {
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    protected static class IntervalCounter implements IntervalVisitor<Interval>
+    {
+        long count;
+
+        @Override
+        public void visit( Interval value, long start, long end )
+        {
+            count++;
+        }
+    }
+
+    public static void main( String[] args )
+    {
+        Random random = new Random( 1234 );
+
+        Interval[] intervals = new Interval[INTERVAL_COUNT];
+        for ( int i = 0; i < INTERVAL_COUNT; i++ )
+        {
+            long start = ( long ) ( random.nextDouble( ) * TIME_SPAN );
+            long duration = random.nextInt( 100 ) == 0 ? random.nextInt( 3600000 ) : random.nextInt( 60000 );
+            intervals[i] = new Interval( start, start + duration );
+        }
+
+        Interval[] sorted = intervals.clone( );
+        Arrays.sort( sorted, new Comparator<Interval>( )
+        {
+            @Override
+            public int compare( Interval o1, Interval o2 )
+            {
+                return Long.compare( o1.start, o2.start );
+            }
+        } );
+
+        System.out.println( String.format( "%d intervals:", INTERVAL_COUNT ) );
+
+        IntervalQuadTree<Interval> tree = null;
+        LongIntervalIndex<Interval> index = null;
+
+        for ( int i = 0; i <= WARMUP_ITERATIONS; i++ )
+        {
+            boolean print = i == WARMUP_ITERATIONS;
+
+            long t0 = System.nanoTime( );
+            tree = buildTree( intervals );
+            long t1 = System.nanoTime( );
+            index = buildIndex( intervals );
+            long t2 = System.nanoTime( );
+            buildIndex( sorted );
+            long t3 = System.nanoTime( );
+            buildIndexBulk( intervals );
+            long t4 = System.nanoTime( );
+
+            if ( print )
+            {
+                System.out.println( String.format( "    build %-22s %10.3f ms", "IntervalQuadTree", ( t1 - t0 ) / 1e6 ) );
+                System.out.println( String.format( "    build %-22s %10.3f ms", "LongIntervalIndex", ( t2 - t1 ) / 1e6 ) );
+                System.out.println( String.format( "    build %-22s %10.3f ms", "LongIntervalIndex sorted", ( t3 - t2 ) / 1e6 ) );
+                System.out.println( String.format( "    build %-22s %10.3f ms", "LongIntervalIndex addAll", ( t4 - t3 ) / 1e6 ) );
+            }
+        }
+
+        for ( long window : new long[] { 1000L, 60000L, 3600000L } )
+        {
+            long[] queryStarts = new long[QUERY_COUNT];
+            for ( int i = 0; i < QUERY_COUNT; i++ )
+            {
+                queryStarts[i] = ( long ) ( random.nextDouble( ) * ( TIME_SPAN - window ) );
+            }
+
+            System.out.println( String.format( "%d queries with %d ms window:", QUERY_COUNT, window ) );
+
+            for ( int i = 0; i < WARMUP_ITERATIONS; i++ )
+            {
+                queryTree( tree, queryStarts, window );
+                queryIndex( index, queryStarts, window );
+            }
+
+            long allocated0 = allocatedBytes( );
+            long t0 = System.nanoTime( );
+            long treeCount = queryTree( tree, queryStarts, window );
+            long t1 = System.nanoTime( );
+            long allocated1 = allocatedBytes( );
+            long indexCount = queryIndex( index, queryStarts, window );
+            long t2 = System.nanoTime( );
+            long allocated2 = allocatedBytes( );
+
+            print( "IntervalQuadTree", t1 - t0, treeCount, allocated1 - allocated0 );
+            print( "LongIntervalIndex", t2 - t1, indexCount, allocated2 - allocated1 );
+
+            if ( treeCount != indexCount )
+            {
+                System.out.println( "    result counts differ!" );
+            }
+        }
+    }
+
+    protected static void print( String name, long nanos, long count, long allocated )
+    {
+        String bytes = allocated < 0 ? "n/a" : String.format( "%d", allocated / QUERY_COUNT );
+        System.out.println( String.format( "    %-22s %10.3f us/query  %10d results  %10s bytes/query", name, nanos / 1e3 / QUERY_COUNT, count, bytes ) );
+    }
+
+    protected static IntervalQuadTree<Interval> buildTree( Interval[] intervals )
+    {
+        IntervalQuadTree<Interval> tree = new IntervalQuadTree<Interval>( 100 )
+        {
+            @Override
+            public long getStartTimeMillis( Interval v )
+            {
+                return v.start;
+            }
+
+            @Override
+            public long getEndTimeMillis( Interval v )
+            {
+                return v.end;
+            }
+        };
+
+        for ( Interval interval : intervals )
+        {
+            tree.add( interval );
+        }
+
+        return tree;
+    }
+
+    protected static LongIntervalIndex<Interval> buildIndex( Interval[] intervals )
+    {
+        LongIntervalIndex<Interval> index = newIndex( );
+
+        for ( Interval interval : intervals )
+        {
+            index.add( interval );
+        }
+
+        // bring the block summaries up to date, as the first query would
+        index.visit( 0, 0, new IntervalCounter( ) );
+
+        return index;
+    }
+
+    protected static LongIntervalIndex<Interval> buildIndexBulk( Interval[] intervals )
+    {
+        LongIntervalIndex<Interval> index = newIndex( );
+
+        index.addAll( Arrays.asList( intervals ) );
+
+        index.visit( 0, 0, new IntervalCounter( ) );
+
+        return index;
+    }
+
+    protected static LongIntervalIndex<Interval> newIndex( )
+    {
+        return new LongIntervalIndex<Interval>( )
+        {
+            @Override
+            public long getStartTimeMillis( Interval v )
+            {
+                return v.start;
+            }
+
+            @Override
+            public long getEndTimeMillis( Interval v )
+            {
+                return v.end;
+            }
+        };
+    }
+
+    protected static long queryTree( IntervalQuadTree<Interval> tree, long[] queryStarts, long window )
+    {
+        long count = 0;
+        for ( long start : queryStarts )
+        {
+            Collection<Interval> results = tree.get( start, true, start + window, true );
+            count += results.size( );
+        }
+        return count;
+    }
+
+    protected static long queryIndex( LongIntervalIndex<Interval> index, long[] queryStarts, long window )
+    {
+        IntervalCounter counter = new IntervalCounter( );
+        for ( long start : queryStarts )
+        {
+            index.visit( start, start + window, counter );
+        }
+        return counter.count;
+    }
+
+    // bytes allocated by the current thread, or -1 if the JVM does not report it
+    protected static long allocatedBytes( )
+    {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean( );
+        if ( bean instanceof com.sun.management.ThreadMXBean )
+        {
+            com.sun.management.ThreadMXBean sunBean = ( com.sun.management.ThreadMXBean ) bean;
+            if ( sunBean.isThreadAllocatedMemorySupported( ) && sunBean.isThreadAllocatedMemoryEnabled( ) )
+            {
+                return sunBean.getThreadAllocatedBytes( Thread.currentThread( ).getId( ) );
+            }
+        }
+        return -1;
+    }
+}
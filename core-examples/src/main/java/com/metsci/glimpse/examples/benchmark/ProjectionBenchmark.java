@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.examples.benchmark;
+
+import java.nio.DoubleBuffer;
+import java.util.Random;
+
+import com.metsci.glimpse.util.geo.LatLonGeo;
+import com.metsci.glimpse.util.geo.projection.BulkGeoProjection;
+import com.metsci.glimpse.util.geo.projection.BulkProjections;
+import com.metsci.glimpse.util.geo.projection.GeoProjection;
+import com.metsci.glimpse.util.geo.projection.MercatorProjection;
+import com.metsci.glimpse.util.geo.projection.TangentPlane;
+import com.metsci.glimpse.util.vector.Vector2d;
+
+/**
+ * Compares the per-point {@link GeoProjection#project(LatLonGeo)} path with the bulk
+ * array and {@link DoubleBuffer} methods of {@link BulkGeoProjection}, for {@link TangentPlane} and {@link MercatorProjection}.
+ *
+ * <p>Inputs are random points in a few degrees around the tangent point, similar to
+ * shoreline or track data. Sizes below and above {@link BulkProjections#PARALLEL_THRESHOLD}
+ * are timed, so both the serial and the fork/join paths are exercised. The largest
+ * difference between the per-point and the bulk results is also reported.</p>
+ */
+public class ProjectionBenchmark
+{
+    protected static final int[] SIZES = { 1000, 10000, 100000, 1000000, 4000000 };
+    protected static final int WARMUP_ITERATIONS = 5;
+    protected static final int TIMED_ITERATIONS = 5;
+
+    public static void main( String[] args )
+    {
+        BulkGeoProjection[] projections = { new TangentPlane( LatLonGeo.fromDeg( 36.8, -76.0 ) ), new MercatorProjection( ) };
+        String[] names = { "TangentPlane", "MercatorProjection" };
+
+        Random random = new Random( 1234 );
+
+        for ( int size : SIZES )
+        {
+            double[] lats = new double[size];
+            double[] lons = new double[size];
+            DoubleBuffer latLons = DoubleBuffer.allocate( 2 * size );
+            for ( int i = 0; i < size; i++ )
+            {
+                lats[i] = 36.8 + ( random.nextDouble( ) - 0.5 ) * 5;
+                lons[i] = -76.0 + ( random.nextDouble( ) - 0.5 ) * 5;
+                latLons.put( lats[i] ).put( lons[i] );
+            }
+
+            double[] xs = new double[size];
+            double[] ys = new double[size];
+            double[] bulkXs = new double[size];
+            double[] bulkYs = new double[size];
+            DoubleBuffer xys = DoubleBuffer.allocate( 2 * size );
+
+            System.out.println( String.format( "%d points:", size ) );
+
+            for ( int p = 0; p < projections.length; p++ )
+            {
+                BulkGeoProjection projection = projections[p];
+
+                long perPoint = Long.MAX_VALUE;
+                long bulk = Long.MAX_VALUE;
+                long buffer = Long.MAX_VALUE;
+
+                for ( int i = 0; i < WARMUP_ITERATIONS + TIMED_ITERATIONS; i++ )
+                {
+                    long t0 = System.nanoTime( );
+                    projectPerPoint( projection, lats, lons, xs, ys );
+                    long t1 = System.nanoTime( );
+                    projection.project( lats, lons, 0, bulkXs, bulkYs, 0, size );
+                    long t2 = System.nanoTime( );
+                    latLons.rewind( );
+                    xys.rewind( );
+                    projection.project( latLons, xys, size );
+                    long t3 = System.nanoTime( );
+
+                    if ( i >= WARMUP_ITERATIONS )
+                    {
+                        perPoint = Math.min( perPoint, t1 - t0 );
+                        bulk = Math.min( bulk, t2 - t1 );
+                        buffer = Math.min( buffer, t3 - t2 );
+                    }
+                }
+
+                double maxDiff = 0;
+                for ( int i = 0; i < size; i++ )
+                {
+                    maxDiff = Math.max( maxDiff, Math.abs( xs[i] - bulkXs[i] ) );
+                    maxDiff = Math.max( maxDiff, Math.abs( ys[i] - bulkYs[i] ) );
+                    maxDiff = Math.max( maxDiff, Math.abs( xs[i] - xys.get( 2 * i ) ) );
+                    maxDiff = Math.max( maxDiff, Math.abs( ys[i] - xys.get( 2 * i + 1 ) ) );
+                }
+
+                print( names[p], "per-point", perPoint, size );
+                print( names[p], "bulk arrays", bulk, size );
+                print( names[p], "bulk DoubleBuffer", buffer, size );
+                System.out.println( String.format( "    %-20s max difference %g", names[p], maxDiff ) );
+            }
+        }
+    }
+
+    protected static void projectPerPoint( GeoProjection projection, double[] lats, double[] lons, double[] xs, double[] ys )
+    {
+        for ( int i = 0; i < lats.length; i++ )
+        {
+            Vector2d v = projection.project( LatLonGeo.fromDeg( lats[i], lons[i] ) );
+            xs[i] = v.getX( );
+            ys[i] = v.getY( );
+        }
+    }
+
+    protected static void print( String projection, String method, long nanos, int size )
+    {
+        System.out.println( String.format( "    %-20s %-18s %10.3f ms  %8.2f ns/point", projection, method, nanos / 1e6, nanos / ( double ) size ) );
+    }
+}
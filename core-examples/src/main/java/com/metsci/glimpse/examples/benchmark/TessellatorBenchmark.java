@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.examples.benchmark;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.metsci.glimpse.support.polygon.EarClippingTessellator;
+import com.metsci.glimpse.support.polygon.Polygon;
+import com.metsci.glimpse.support.polygon.Polygon.Interior;
+import com.metsci.glimpse.support.polygon.Polygon.Loop.LoopBuilder;
+import com.metsci.glimpse.support.polygon.PolygonTessellator;
+import com.metsci.glimpse.support.polygon.SimpleVertexAccumulator;
+import com.metsci.glimpse.support.polygon.Tessellator;
+
+/**
+ * Compares the GLU based {@link PolygonTessellator} with the pure Java
+ * {@link EarClippingTessellator} on randomly generated, shoreline-like
+ * polygons (a jagged outer loop with a number of jagged lakes cut out of it).
+ *
+ * <p>For each polygon size, both tessellators run a number of warm-up iterations
+ * before being timed. The area covered by the output triangles is checked against
+ * the area of the polygon. The ear clipping tessellator is also timed tessellating
+ * many polygons in parallel with a single shared instance.</p>
+ */
+public class TessellatorBenchmark
+{
+    protected static final int WARMUP_ITERATIONS = 5;
+    protected static final int TIMED_ITERATIONS = 10;
+    protected static final int LAKE_COUNT = 20;
+
+    public static void main( String[] args ) throws Exception
+    {
+        Random random = new Random( 1234 );
+
+        for ( int vertexCount : new int[] { 1000, 10000, 50000 } )
+        {
+            Polygon polygon = buildShoreline( random, vertexCount, LAKE_COUNT );
+            double area = area( polygon );
+
+            System.out.println( String.format( "polygon with %d vertices and %d lakes:", vertexCount, LAKE_COUNT ) );
+
+            PolygonTessellator glu = new PolygonTessellator( );
+            try
+            {
+                time( "GLU", glu, polygon, area );
+            }
+            finally
+            {
+                glu.destroy( );
+            }
+
+            time( "ear clipping", new EarClippingTessellator( ), polygon, area );
+        }
+
+        timeParallel( random );
+    }
+
+    protected static void time( String name, Tessellator tessellator, Polygon polygon, double expectedArea ) throws Exception
+    {
+        float[] triangles = null;
+
+        for ( int i = 0; i < WARMUP_ITERATIONS; i++ )
+        {
+            triangles = tessellate( tessellator, polygon );
+        }
+
+        long start = System.nanoTime( );
+        for ( int i = 0; i < TIMED_ITERATIONS; i++ )
+        {
+            triangles = tessellate( tessellator, polygon );
+        }
+        long end = System.nanoTime( );
+
+        double millis = ( end - start ) / 1e6 / TIMED_ITERATIONS;
+        double areaError = Math.abs( triangleArea( triangles ) - expectedArea ) / expectedArea;
+
+        System.out.println( String.format( "    %-14s %10.3f ms/op  %8d triangles  relative area error %.2e", name, millis, triangles.length / 6, areaError ) );
+    }
+
+    protected static void timeParallel( Random random ) throws Exception
+    {
+        int threads = Runtime.getRuntime( ).availableProcessors( );
+        int polygonCount = 200;
+
+        final List<Polygon> polygons = new ArrayList<Polygon>( );
+        for ( int i = 0; i < polygonCount; i++ )
+        {
+            polygons.add( buildShoreline( random, 2000, 2 ) );
+        }
+
+        final EarClippingTessellator tessellator = new EarClippingTessellator( );
+
+        System.out.println( String.format( "%d polygons with 2000 vertices:", polygonCount ) );
+
+        long start = System.nanoTime( );
+        for ( Polygon polygon : polygons )
+        {
+            tessellate( tessellator, polygon );
+        }
+        long end = System.nanoTime( );
+        System.out.println( String.format( "    %-14s %10.3f ms", "1 thread", ( end - start ) / 1e6 ) );
+
+        ExecutorService executor = Executors.newFixedThreadPool( threads );
+        try
+        {
+            List<Callable<float[]>> tasks = new ArrayList<Callable<float[]>>( );
+            for ( final Polygon polygon : polygons )
+            {
+                tasks.add( new Callable<float[]>( )
+                {
+                    @Override
+                    public float[] call( ) throws Exception
+                    {
+                        return tessellate( tessellator, polygon );
+                    }
+                } );
+            }
+
+            // warm up the pool threads
+            executor.invokeAll( tasks );
+
+            start = System.nanoTime( );
+            List<Future<float[]>> results = executor.invokeAll( tasks );
+            for ( Future<float[]> result : results )
+            {
+                result.get( );
+            }
+            end = System.nanoTime( );
+            System.out.println( String.format( "    %-14s %10.3f ms", threads + " threads", ( end - start ) / 1e6 ) );
+        }
+        finally
+        {
+            executor.shutdown( );
+        }
+    }
+
+    protected static float[] tessellate( Tessellator tessellator, Polygon polygon ) throws Exception
+    {
+        SimpleVertexAccumulator accumulator = new SimpleVertexAccumulator( );
+        tessellator.tessellate( polygon, accumulator );
+        return accumulator.getVertices( );
+    }
+
+    /**
+     * Builds a jagged outer loop around the origin with smaller jagged lakes inside it.
+     */
+    protected static Polygon buildShoreline( Random random, int vertexCount, int lakeCount )
+    {
+        Polygon polygon = new Polygon( );
+
+        int lakeVertexCount = vertexCount / ( 10 * Math.max( 1, lakeCount ) );
+        int outerVertexCount = vertexCount - lakeCount * lakeVertexCount;
+
+        polygon.add( buildLoop( random, 0, 0, 100, 0.3, outerVertexCount ) );
+
+        // place the lakes on a ring well inside the shoreline
+        for ( int i = 0; i < lakeCount; i++ )
+        {
+            double angle = 2 * Math.PI * i / lakeCount;
+            polygon.add( buildLoop( random, 40 * Math.cos( angle ), 40 * Math.sin( angle ), 4, 0.3, lakeVertexCount ) );
+        }
+
+        return polygon;
+    }
+
+    protected static Polygon.Loop buildLoop( Random random, double centerX, double centerY, double radius, double jaggedness, int vertexCount )
+    {
+        double[] vertices = new double[2 * vertexCount];
+        for ( int i = 0; i < vertexCount; i++ )
+        {
+            double angle = 2 * Math.PI * i / vertexCount;
+            double r = radius * ( 1 - jaggedness * random.nextDouble( ) );
+            vertices[2 * i] = centerX + r * Math.cos( angle );
+            vertices[2 * i + 1] = centerY + r * Math.sin( angle );
+        }
+
+        LoopBuilder builder = new LoopBuilder( );
+        builder.addVertices( vertices, vertexCount );
+        return builder.complete( Interior.onLeft );
+    }
+
+    // area of the outer loop minus the area of the lakes
+    protected static double area( Polygon polygon )
+    {
+        double area = 0;
+        boolean first = true;
+
+        Iterator<Polygon.Loop> iter = polygon.getIterator( );
+        while ( iter.hasNext( ) )
+        {
+            Polygon.Loop loop = iter.next( );
+
+            double loopArea = 0;
+            for ( int i = 0, j = loop.size( ) - 1; i < loop.size( ); j = i++ )
+            {
+                loopArea += loop.getX( j ) * loop.getY( i ) - loop.getX( i ) * loop.getY( j );
+            }
+            loopArea = Math.abs( loopArea / 2 );
+
+            area += first ? loopArea : -loopArea;
+            first = false;
+        }
+
+        return area;
+    }
+
+    protected static double triangleArea( float[] triangles )
+    {
+        double area = 0;
+        for ( int i = 0; i + 5 < triangles.length; i += 6 )
+        {
+            double ax = triangles[i];
+            double ay = triangles[i + 1];
+            double bx = triangles[i + 2];
+            double by = triangles[i + 3];
+            double cx = triangles[i + 4];
+            double cy = triangles[i + 5];
+
+            area += Math.abs( ( bx - ax ) * ( cy - ay ) - ( by - ay ) * ( cx - ax ) ) / 2;
+        }
+        return area;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.examples.benchmark;
+
+import java.nio.FloatBuffer;
+import java.util.Random;
+
+import com.jogamp.common.nio.Buffers;
+import com.metsci.glimpse.painter.plot.XYLineDecimator;
+import com.metsci.glimpse.painter.plot.XYLineDecimator.Envelope;
+
+/**
+ * Measures the per frame work of drawing a dense {@code XYLinePainter} series through
+ * an {@link XYLineDecimator}, for series of increasing length.
+ *
+ * <p>A 2000 pixel wide plot is first zoomed out to show the whole series, then panned
+ * and zoomed. For each frame, the time spent finding (or computing) the min/max envelope
+ * and the number of vertices drawn and uploaded are reported. Without decimation, every
+ * frame showing the whole series draws all of its samples, and every change of data
+ * uploads all of them.</p>
+ *
+ * <p>This measures the CPU side of a frame only (no OpenGL context is needed). The largest
+ * series needs about 1GB of direct memory, e.g. {@code -Xmx2g -XX:MaxDirectMemorySize=2g}.</p>
+ */
+public class XYLineDecimationBenchmark
+{
+    protected static final int PIXEL_WIDTH = 2000;
+    protected static final int FRAMES = 500;
+
+    public static void main( String[] args )
+    {
+        for ( int size : new int[] { 100000, 1000000, 10000000, 50000000 } )
+        {
+            FloatBuffer data = buildSeries( new Random( 1234 ), size );
+            float maxX = data.get( 2 * ( size - 1 ) );
+
+            System.out.println( String.format( "%d samples:", size ) );
+
+            XYLineDecimator decimator = new XYLineDecimator( );
+
+            long start = System.nanoTime( );
+            decimator.setData( data, null, size );
+            Envelope envelope = decimator.getEnvelope( 0, maxX, maxX / PIXEL_WIDTH );
+            long end = System.nanoTime( );
+
+            System.out.println( String.format( "    %-24s %10.3f ms  %8d vertices", "first frame (full view)", ( end - start ) / 1e6, envelope.getSize( ) ) );
+
+            // pan a view showing a tenth of the series by 1% of its width per frame
+            double width = maxX / 10;
+            double minX = 0;
+            Stats pan = new Stats( );
+            for ( int frame = 0; frame < FRAMES; frame++ )
+            {
+                frame( decimator, minX, minX + width, pan );
+                minX += width / 100;
+            }
+            pan.print( "pan" );
+
+            // zoom in and out around the middle of the series by 5% per frame
+            double center = maxX / 2;
+            width = maxX;
+            Stats zoom = new Stats( );
+            for ( int frame = 0; frame < FRAMES; frame++ )
+            {
+                frame( decimator, center - width / 2, center + width / 2, zoom );
+                width *= frame < FRAMES / 2 ? 0.95 : 1 / 0.95;
+            }
+            zoom.print( "zoom" );
+        }
+    }
+
+    protected static class Stats
+    {
+        long nanos;
+        long verticesDrawn;
+        long verticesUploaded;
+        Envelope previous;
+
+        void print( String name )
+        {
+            System.out.println( String.format( "    %-24s %10.3f ms/frame  %8d vertices drawn/frame  %8d vertices uploaded/frame", name, nanos / 1e6 / FRAMES, verticesDrawn / FRAMES, verticesUploaded / FRAMES ) );
+        }
+    }
+
+    protected static void frame( XYLineDecimator decimator, double minX, double maxX, Stats stats )
+    {
+        long start = System.nanoTime( );
+
+        // the same decision XYLinePainter makes each frame
+        int visible = decimator.upperBound( maxX ) - decimator.lowerBound( minX );
+        if ( visible <= 4 * PIXEL_WIDTH )
+        {
+            stats.verticesDrawn += visible;
+        }
+        else
+        {
+            Envelope envelope = decimator.getEnvelope( minX, maxX, ( maxX - minX ) / PIXEL_WIDTH );
+            stats.verticesDrawn += envelope.getEndIndex( maxX ) - envelope.getFirstIndex( minX );
+
+            if ( envelope != stats.previous )
+            {
+                stats.verticesUploaded += envelope.getSize( );
+                stats.previous = envelope;
+            }
+        }
+
+        stats.nanos += System.nanoTime( ) - start;
+    }
+
+    // a noisy random walk sampled at slightly irregular intervals
+    protected static FloatBuffer buildSeries( Random random, int size )
+    {
+        FloatBuffer data = Buffers.newDirectFloatBuffer( 2 * size );
+
+        float x = 0;
+        float y = 0;
+        for ( int i = 0; i < size; i++ )
+        {
+            x += 0.5f + random.nextFloat( );
+            y += random.nextGaussian( );
+            data.put( x ).put( y + 10 * ( float ) random.nextGaussian( ) );
+        }
+
+        return ( FloatBuffer ) data.rewind( );
+    }
+}
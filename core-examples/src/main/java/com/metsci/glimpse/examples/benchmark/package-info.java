@@ -0,0 +1,6 @@
+/**
+ * Simple timing harnesses comparing alternative implementations of
+ * performance sensitive Glimpse components. Each class has a main
+ * method which runs warm-up iterations before timing.
+ */
+package com.metsci.glimpse.examples.benchmark;
@@ -196,9 +196,11 @@ public class TimeXAxisPainter extends TimeAxisPainter
 
         // Time labels
         int jTimeText = Integer.MAX_VALUE;
-        for ( TimeStamp t : tickTimes )
+        String[] labels = handler.tickLabels( tickTimes, format );
+        for ( int k = 0; k < labels.length; k++ )
         {
-            String string = t.toString( format );
+            TimeStamp t = tickTimes.get( k );
+            String string = labels[k];
             Rectangle2D textBounds = textRenderer.getBounds( string );
 
             double textWidth = textBounds.getWidth( );
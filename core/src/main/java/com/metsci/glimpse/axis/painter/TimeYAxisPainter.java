@@ -198,9 +198,11 @@ public class TimeYAxisPainter extends TimeAxisPainter
         textRenderer.beginRendering( width, height );
         try
         {
-            for ( TimeStamp t : tickTimes )
+            String[] labels = handler.tickLabels( tickTimes, format );
+            for ( int k = 0; k < labels.length; k++ )
             {
-                String string = t.toString( format );
+                TimeStamp t = tickTimes.get( k );
+                String string = labels[k];
                 Rectangle2D textBounds = textRenderer.getBounds( string );
 
                 double textHeight = textBounds.getHeight( );
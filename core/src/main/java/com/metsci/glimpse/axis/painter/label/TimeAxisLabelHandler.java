@@ -28,7 +28,10 @@ package com.metsci.glimpse.axis.painter.label;
 
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.TimeZone;
 
 import com.metsci.glimpse.axis.Axis1D;
@@ -41,6 +44,7 @@ import com.metsci.glimpse.util.units.time.format.TimeStampFormatStandard;
 public class TimeAxisLabelHandler implements AxisLabelHandler
 {
     protected static final TimeZone defaultTimeZone = TimeZone.getTimeZone( "UTC" );
+    protected static final TimeZone utcTimeZone = TimeZone.getTimeZone( "UTC" );
 
     protected static final String defaultMinuteSecondFormat = "%m:%S";
     protected static final String defaultHourDayMonthFormat = "%d %3N %H:00 ";
@@ -59,6 +63,16 @@ public class TimeAxisLabelHandler implements AxisLabelHandler
     protected static final TimeStructFactory monthStructFactory = new MonthStructFactory( );
     protected static final TimeStructFactory yearStructFactory = new YearStructFactory( );
 
+    protected static final long millisPerHour = 60L * 60L * 1000L;
+    protected static final long millisPerDay = 24L * millisPerHour;
+
+    // recently computed ticks, shared by every handler (and therefore every painter) of the same
+    // class which asks for the same axis bounds, pixel length, time zone, and tick settings --
+    // entries are keyed on the handler class because subclasses may compute ticks differently
+    protected static final int tickCacheSize = 16;
+    protected static final TickEntry[] tickCache = new TickEntry[tickCacheSize];
+    protected static int tickCacheNext = 0;
+
     protected TimeStampFormat minuteSecondFormat;
     protected TimeStampFormat hourDayMonthFormat;
     protected TimeStampFormat hourMinuteFormat;
@@ -279,10 +293,52 @@ public class TimeAxisLabelHandler implements AxisLabelHandler
         return numSteps * yearStep;
     }
 
+    /**
+     * Returns the times at which ticks should be placed along the given axis. Results are
+     * memoized by axis bounds, pixel length, time zone, epoch, and tick spacing and shared
+     * between all handlers of the same class, so painters bound to the same Axis1D (or to
+     * linked axes with identical bounds) compute their ticks only once per change of the axis.
+     *
+     * The returned list is shared and must not be modified.
+     */
     public List<TimeStamp> tickTimes( Axis1D axis, double axisLengthPixels )
     {
-        TimeStamp t0 = toTimeStamp( axis.getMin( ) );
-        TimeStamp t1 = toTimeStamp( axis.getMax( ) );
+        double min = axis.getMin( );
+        double max = axis.getMax( );
+        TimeStamp epochTime = epoch.getTimeStamp( );
+
+        synchronized ( tickCache )
+        {
+            for ( TickEntry entry : tickCache )
+            {
+                if ( entry != null && entry.matches( getClass( ), min, max, axisLengthPixels, timeZone, epochTime, pixelsBetweenTicks, yearOrderFactor ) )
+                {
+                    return entry.ticks;
+                }
+            }
+        }
+
+        List<TimeStamp> ticks = Collections.unmodifiableList( computeTickTimes( min, max, axisLengthPixels ) );
+        TickEntry entry = new TickEntry( getClass( ), min, max, axisLengthPixels, timeZone, epochTime, pixelsBetweenTicks, yearOrderFactor, ticks );
+
+        synchronized ( tickCache )
+        {
+            tickCache[tickCacheNext] = entry;
+            tickCacheNext = ( tickCacheNext + 1 ) % tickCacheSize;
+        }
+
+        return ticks;
+    }
+
+    /**
+     * Calculates tick times without consulting the tick cache. Year, month, and day ticks are
+     * computed from posix milliseconds using proleptic Gregorian arithmetic in UTC rather
+     * than with a {@link java.util.Calendar}.
+     */
+    protected List<TimeStamp> computeTickTimes( double min, double max, double axisLengthPixels )
+    {
+        TimeStamp t0 = toTimeStamp( min );
+        TimeStamp t1 = toTimeStamp( max );
         double approxTickInterval_SU = pixelsBetweenTicks * t1.durationAfter( t0 ) / axisLengthPixels;
 
         // ticks are placed differently depending on the span of time between each tick:
@@ -295,32 +351,25 @@ public class TimeAxisLabelHandler implements AxisLabelHandler
         //
         if ( approxTickInterval_SU > Time.fromDays( 60 ) )
         {
-            Calendar cal = t0.toCalendar( );
-            cal.setTimeZone( defaultTimeZone );
+            int[] ymd = civilFromDays( floorDiv( t0.toPosixMillis( ), millisPerDay ), new int[3] );
 
-            int currentYear = cal.get( Calendar.YEAR );
+            int currentYear = ymd[0];
             double daysPerYear = 365.25; // assume 365.25 days in every year as a heuristic
             double approxTickInterval_Years = Time.toDays( approxTickInterval_SU ) / daysPerYear;
 
             int stepYears = getYearStep( approxTickInterval_Years * yearOrderFactor );
             int startYear = getRoundedYear( currentYear, stepYears );
 
-            cal.set( Calendar.YEAR, startYear );
-            cal.set( Calendar.MONTH, 0 );
-            cal.set( Calendar.DAY_OF_MONTH, 1 );
-            cal.set( Calendar.HOUR_OF_DAY, 0 );
-            cal.set( Calendar.MINUTE, 0 );
-            cal.set( Calendar.SECOND, 0 );
-            cal.set( Calendar.MILLISECOND, 0 );
-
             // calculate end time and number of minutes between ticks
             long endTime = t1.toPosixMillis( );
 
             List<TimeStamp> times = new ArrayList<TimeStamp>( );
-            while ( cal.getTimeInMillis( ) <= endTime )
+            for ( int year = startYear;; year += stepYears )
             {
-                times.add( TimeStamp.fromCalendar( cal ) );
-                cal.add( Calendar.YEAR, stepYears );
+                long time = daysFromCivil( year, 1, 1 ) * millisPerDay;
+                if ( time > endTime ) break;
+
+                times.add( TimeStamp.fromPosixMillis( time ) );
             }
 
             return times;
@@ -328,22 +377,26 @@ public class TimeAxisLabelHandler implements AxisLabelHandler
         }
         else if ( approxTickInterval_SU > Time.fromDays( 10 ) )
         {
-            Calendar cal = t0.toCalendar( );
-            cal.setTimeZone( defaultTimeZone );
-            cal.set( Calendar.DAY_OF_MONTH, 1 );
-            cal.set( Calendar.HOUR_OF_DAY, 0 );
-            cal.set( Calendar.MINUTE, 0 );
-            cal.set( Calendar.SECOND, 0 );
-            cal.set( Calendar.MILLISECOND, 0 );
+            int[] ymd = civilFromDays( floorDiv( t0.toPosixMillis( ), millisPerDay ), new int[3] );
+            int year = ymd[0];
+            int month = ymd[1];
 
             // calculate end time and number of minutes between ticks
             long endTime = t1.toPosixMillis( );
 
             List<TimeStamp> times = new ArrayList<TimeStamp>( );
-            while ( cal.getTimeInMillis( ) <= endTime )
+            while ( true )
             {
-                times.add( TimeStamp.fromCalendar( cal ) );
-                cal.add( Calendar.MONTH, 1 );
+                long time = daysFromCivil( year, month, 1 ) * millisPerDay;
+                if ( time > endTime ) break;
+
+                times.add( TimeStamp.fromPosixMillis( time ) );
+
+                if ( ++month > 12 )
+                {
+                    month = 1;
+                    year++;
+                }
             }
 
             return times;
@@ -352,39 +405,45 @@ public class TimeAxisLabelHandler implements AxisLabelHandler
         {
             int tickInterval_Days = tickInterval_Days( approxTickInterval_SU );
 
-            // initialize calendar off start time and reset fields less than month
-            Calendar cal = t0.toCalendar( );
-            cal.setTimeZone( defaultTimeZone );
-            cal.set( Calendar.DAY_OF_MONTH, 1 );
-            cal.set( Calendar.HOUR_OF_DAY, 0 );
-            cal.set( Calendar.MINUTE, 0 );
-            cal.set( Calendar.SECOND, 0 );
-            cal.set( Calendar.MILLISECOND, 0 );
+            // start from the first day of the month containing the start time
+            int[] ymd = civilFromDays( floorDiv( t0.toPosixMillis( ), millisPerDay ), new int[3] );
+            int year = ymd[0];
+            int month = ymd[1];
+            int day = 1;
 
             // calculate end time and number of minutes between ticks
             long endTime = t1.toPosixMillis( ) + ( long ) Time.daysToMilliseconds( tickInterval_Days );
-            int currentMonth = cal.get( Calendar.MONTH );
+            int currentMonth = month;
 
             List<TimeStamp> times = new ArrayList<TimeStamp>( );
-            while ( cal.getTimeInMillis( ) <= endTime )
+            while ( daysFromCivil( year, month, day ) * millisPerDay <= endTime )
             {
                 // ensure ticks always fall on the first day of the month
-                int newMonth = cal.get( Calendar.MONTH );
-                if ( newMonth != currentMonth )
+                if ( month != currentMonth )
                 {
-                    cal.set( Calendar.DAY_OF_MONTH, 1 );
-                    currentMonth = newMonth;
+                    day = 1;
+                    currentMonth = month;
                 }
 
+                long time = daysFromCivil( year, month, day ) * millisPerDay;
+
                 // don't display ticks too close to the end of the month
-                int max_day = cal.getActualMaximum( Calendar.DAY_OF_MONTH );
-                int day = cal.get( Calendar.DAY_OF_MONTH );
+                int max_day = daysInMonth( year, month );
                 if ( max_day - day + 1 >= tickInterval_Days / 2 )
                 {
-                    times.add( TimeStamp.fromCalendar( cal ) );
+                    times.add( TimeStamp.fromPosixMillis( time ) );
                 }
 
-                cal.add( Calendar.DAY_OF_MONTH, tickInterval_Days );
+                day += tickInterval_Days;
+                if ( day > max_day )
+                {
+                    day -= max_day;
+                    if ( ++month > 12 )
+                    {
+                        month = 1;
+                        year++;
+                    }
+                }
             }
 
             return times;
@@ -406,6 +465,183 @@ public class TimeAxisLabelHandler implements AxisLabelHandler
             return times;
         }
     }
+
+    /**
+     * Returns tick labels for the given tick times, formatted with the given format. When
+     * tickTimes was returned by {@link #tickTimes(Axis1D, double)} the labels are memoized
+     * along with the ticks.
+     *
+     * The returned array is shared and must not be modified.
+     */
+    public String[] tickLabels( List<TimeStamp> tickTimes, TimeStampFormat format )
+    {
+        TickEntry entry = findTickEntry( tickTimes );
+        if ( entry == null ) return computeTickLabels( tickTimes, format );
+
+        synchronized ( entry )
+        {
+            String[] labels = entry.labels.get( format );
+            if ( labels == null )
+            {
+                labels = computeTickLabels( tickTimes, format );
+                entry.labels.put( format, labels );
+            }
+
+            return labels;
+        }
+    }
+
+    protected String[] computeTickLabels( List<TimeStamp> tickTimes, TimeStampFormat format )
+    {
+        String[] labels = new String[tickTimes.size( )];
+        for ( int i = 0; i < labels.length; i++ )
+        {
+            labels[i] = tickTimes.get( i ).toString( format );
+        }
+        return labels;
+    }
+
+    protected TickEntry findTickEntry( List<TimeStamp> tickTimes )
+    {
+        TimeStamp epochTime = epoch.getTimeStamp( );
+
+        synchronized ( tickCache )
+        {
+            for ( TickEntry entry : tickCache )
+            {
+                if ( entry != null && entry.ticks == tickTimes && entry.handlerClass == getClass( ) && entry.timeZone.equals( timeZone ) && entry.epoch.equals( epochTime ) )
+                {
+                    return entry;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the number of days between the posix epoch and the given proleptic
+     * Gregorian date (month and day are one-based).
+     */
+    public static long daysFromCivil( int year, int month, int day )
+    {
+        long y = month <= 2 ? year - 1 : year;
+        long era = ( y >= 0 ? y : y - 399 ) / 400;
+        long yoe = y - era * 400;
+        long doy = ( 153 * ( month + ( month > 2 ? -3 : 9 ) ) + 2 ) / 5 + day - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    /**
+     * Inverse of {@link #daysFromCivil(int, int, int)}. Stores year, one-based month, and
+     * one-based day of month into the provided array, which is returned.
+     */
+    public static int[] civilFromDays( long days, int[] ymd )
+    {
+        long z = days + 719468;
+        long era = ( z >= 0 ? z : z - 146096 ) / 146097;
+        long doe = z - era * 146097;
+        long yoe = ( doe - doe / 1460 + doe / 36524 - doe / 146096 ) / 365;
+        long doy = doe - ( 365 * yoe + yoe / 4 - yoe / 100 );
+        long mp = ( 5 * doy + 2 ) / 153;
+        int month = ( int ) ( mp < 10 ? mp + 3 : mp - 9 );
+
+        ymd[0] = ( int ) ( yoe + era * 400 + ( month <= 2 ? 1 : 0 ) );
+        ymd[1] = month;
+        ymd[2] = ( int ) ( doy - ( 153 * mp + 2 ) / 5 + 1 );
+        return ymd;
+    }
+
+    public static int daysInMonth( int year, int month )
+    {
+        switch ( month )
+        {
+            case 2:
+                boolean leap = ( year % 4 == 0 ) && ( year % 100 != 0 || year % 400 == 0 );
+                return leap ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    public static long floorDiv( long a, long b )
+    {
+        long q = a / b;
+        return ( a % b != 0 && ( ( a ^ b ) < 0 ) ) ? q - 1 : q;
+    }
+
+    /**
+     * Converts posix milliseconds into local wall-clock milliseconds (the posix milliseconds
+     * at which a UTC clock would read the same as a clock in this handler's time zone).
+     */
+    protected long toLocalMillis( long posixMillis )
+    {
+        return posixMillis + timeZone.getOffset( posixMillis );
+    }
+
+    /**
+     * Inverse of {@link #toLocalMillis(long)}. Wall-clock times which are ambiguous or skipped
+     * because of a daylight savings transition resolve to the offset in effect afterwards.
+     */
+    protected long fromLocalMillis( long localMillis )
+    {
+        long guess = localMillis - timeZone.getOffset( localMillis );
+        return localMillis - timeZone.getOffset( guess );
+    }
+
+    protected static class TickEntry
+    {
+        protected final Class<?> handlerClass;
+        protected final double min;
+        protected final double max;
+        protected final double axisLengthPixels;
+        protected final TimeZone timeZone;
+        protected final TimeStamp epoch;
+        protected final int pixelsBetweenTicks;
+        protected final double yearOrderFactor;
+
+        protected final List<TimeStamp> ticks;
+
+        // guarded by this entry
+        protected final Map<TimeStampFormat, String[]> labels;
+        protected final Map<TimeStructFactory, List<TimeStruct>> structs;
+
+        public TickEntry( Class<?> handlerClass, double min, double max, double axisLengthPixels, TimeZone timeZone, TimeStamp epoch, int pixelsBetweenTicks, double yearOrderFactor, List<TimeStamp> ticks )
+        {
+            this.handlerClass = handlerClass;
+            this.min = min;
+            this.max = max;
+            this.axisLengthPixels = axisLengthPixels;
+            this.timeZone = timeZone;
+            this.epoch = epoch;
+            this.pixelsBetweenTicks = pixelsBetweenTicks;
+            this.yearOrderFactor = yearOrderFactor;
+            this.ticks = ticks;
+
+            this.labels = new HashMap<TimeStampFormat, String[]>( );
+            this.structs = new HashMap<TimeStructFactory, List<TimeStruct>>( );
+        }
+
+        public boolean matches( Class<?> handlerClass, double min, double max, double axisLengthPixels, TimeZone timeZone, TimeStamp epoch, int pixelsBetweenTicks, double yearOrderFactor )
+        {
+            //@formatter:off
+            return this.handlerClass == handlerClass &&
+                   this.min == min &&
+                   this.max == max &&
+                   this.axisLengthPixels == axisLengthPixels &&
+                   this.pixelsBetweenTicks == pixelsBetweenTicks &&
+                   this.yearOrderFactor == yearOrderFactor &&
+                   this.timeZone.equals( timeZone ) &&
+                   this.epoch.equals( epoch );
+            //@formatter:on
+        }
+    }
     
     //@formatter:off
     public static int[] rungs_days_SU = { 2, 3, 4, 5, 8, 10 };
@@ -464,6 +700,41 @@ public class TimeAxisLabelHandler implements AxisLabelHandler
         public abstract void setCalendar( TimeStamp time, Calendar cal );
 
         public abstract void incrementCalendar( Calendar cal );
+
+        /**
+         * Returns true if this struct overrides {@link #truncateLocal(long)} and
+         * {@link #incrementLocal(long)} so that they do not need a Calendar.
+         */
+        public boolean isCalendarFree( )
+        {
+            return false;
+        }
+
+        /**
+         * Equivalent of {@link #setCalendar(TimeStamp, Calendar)}, operating on local
+         * wall-clock milliseconds (see {@link TimeAxisLabelHandler#toLocalMillis(long)}).
+         * The default implementation applies {@link #setCalendar(TimeStamp, Calendar)}
+         * to a UTC Calendar, which reads wall-clock milliseconds as local time.
+         */
+        public long truncateLocal( long localMillis )
+        {
+            Calendar calendar = Calendar.getInstance( utcTimeZone );
+            setCalendar( TimeStamp.fromPosixMillis( localMillis ), calendar );
+            return calendar.getTimeInMillis( );
+        }
+
+        /**
+         * Equivalent of {@link #incrementCalendar(Calendar)}, operating on local wall-clock
+         * milliseconds. The default implementation applies {@link #incrementCalendar(Calendar)}
+         * to a UTC Calendar.
+         */
+        public long incrementLocal( long localMillis )
+        {
+            Calendar calendar = Calendar.getInstance( utcTimeZone );
+            calendar.setTimeInMillis( localMillis );
+            incrementCalendar( calendar );
+            return calendar.getTimeInMillis( );
+        }
     }
 
     public static class YearStruct extends TimeStruct
@@ -486,6 +757,27 @@ public class TimeAxisLabelHandler implements AxisLabelHandler
             calendar.add( Calendar.YEAR, 1 );
         }
 
+
+        @Override
+        public boolean isCalendarFree( )
+        {
+            return true;
+        }
+
+        @Override
+        public long truncateLocal( long localMillis )
+        {
+            int[] ymd = civilFromDays( floorDiv( localMillis, millisPerDay ), new int[3] );
+            return daysFromCivil( ymd[0], 1, 1 ) * millisPerDay;
+        }
+
+        @Override
+        public long incrementLocal( long localMillis )
+        {
+            int[] ymd = civilFromDays( floorDiv( localMillis, millisPerDay ), new int[3] );
+            return daysFromCivil( ymd[0] + 1, 1, 1 ) * millisPerDay;
+        }
+
     }
 
     public static class MonthStruct extends TimeStruct
@@ -507,6 +799,27 @@ public class TimeAxisLabelHandler implements AxisLabelHandler
             calendar.add( Calendar.MONTH, 1 );
         }
 
+
+        @Override
+        public boolean isCalendarFree( )
+        {
+            return true;
+        }
+
+        @Override
+        public long truncateLocal( long localMillis )
+        {
+            int[] ymd = civilFromDays( floorDiv( localMillis, millisPerDay ), new int[3] );
+            return daysFromCivil( ymd[0], ymd[1], 1 ) * millisPerDay;
+        }
+
+        @Override
+        public long incrementLocal( long localMillis )
+        {
+            int[] ymd = civilFromDays( floorDiv( localMillis, millisPerDay ), new int[3] );
+            return ymd[1] == 12 ? daysFromCivil( ymd[0] + 1, 1, 1 ) * millisPerDay : daysFromCivil( ymd[0], ymd[1] + 1, 1 ) * millisPerDay;
+        }
+
     }
 
     public static class DayStruct extends TimeStruct
@@ -527,6 +840,25 @@ public class TimeAxisLabelHandler implements AxisLabelHandler
             calendar.add( Calendar.DATE, 1 );
         }
 
+
+        @Override
+        public boolean isCalendarFree( )
+        {
+            return true;
+        }
+
+        @Override
+        public long truncateLocal( long localMillis )
+        {
+            return floorDiv( localMillis, millisPerDay ) * millisPerDay;
+        }
+
+        @Override
+        public long incrementLocal( long localMillis )
+        {
+            return localMillis + millisPerDay;
+        }
+
     }
 
     public static class HourStruct extends TimeStruct
@@ -546,6 +878,25 @@ public class TimeAxisLabelHandler implements AxisLabelHandler
             calendar.add( Calendar.HOUR_OF_DAY, 1 );
         }
 
+
+        @Override
+        public boolean isCalendarFree( )
+        {
+            return true;
+        }
+
+        @Override
+        public long truncateLocal( long localMillis )
+        {
+            return floorDiv( localMillis, millisPerHour ) * millisPerHour;
+        }
+
+        @Override
+        public long incrementLocal( long localMillis )
+        {
+            return localMillis + millisPerHour;
+        }
+
     }
 
     public static interface TimeStructFactory
@@ -599,14 +950,44 @@ public class TimeAxisLabelHandler implements AxisLabelHandler
         return ( a.compareTo( b ) > 0 ? a : b );
     }
 
+    /**
+     * Returns the spans (hours, days, months, or years, depending on factory) containing
+     * the given tick times. When tickTimes was returned by {@link #tickTimes(Axis1D, double)}
+     * for the current bounds of axis the result is memoized along with the ticks.
+     *
+     * The returned list is shared and must not be modified.
+     */
     public List<TimeStruct> timeStructs( Axis1D axis, List<TimeStamp> tickTimes, TimeStructFactory factory )
     {
-        TimeStamp viewStart = toTimeStamp( axis.getMin( ) );
-        TimeStamp viewEnd = toTimeStamp( axis.getMax( ) );
+        TickEntry entry = findTickEntry( tickTimes );
+        if ( entry == null || entry.min != axis.getMin( ) || entry.max != axis.getMax( ) )
+        {
+            return computeTimeStructs( axis.getMin( ), axis.getMax( ), tickTimes, factory );
+        }
+
+        synchronized ( entry )
+        {
+            List<TimeStruct> structs = entry.structs.get( factory );
+            if ( structs == null )
+            {
+                structs = Collections.unmodifiableList( computeTimeStructs( entry.min, entry.max, tickTimes, factory ) );
+                entry.structs.put( factory, structs );
+            }
+
+            return structs;
+        }
+    }
+
+    protected List<TimeStruct> computeTimeStructs( double min, double max, List<TimeStamp> tickTimes, TimeStructFactory factory )
+    {
+        TimeStamp viewStart = toTimeStamp( min );
+        TimeStamp viewEnd = toTimeStamp( max );
 
         List<TimeStruct> days = new ArrayList<TimeStruct>( );
         double maxDayViewDuration = Double.NEGATIVE_INFINITY;
-        Calendar calendar = Calendar.getInstance( timeZone );
+
+        // only needed for TimeStruct implementations which are not calendar-free
+        Calendar calendar = null;
 
         TimeStamp previousStart = null;
         
@@ -614,14 +995,29 @@ public class TimeAxisLabelHandler implements AxisLabelHandler
         {
             TimeStruct day = factory.newTimeStruct( );
 
-            day.setCalendar( t, calendar );
-            day.start = TimeStamp.fromPosixMillis( calendar.getTimeInMillis( ) );
+            if ( day.isCalendarFree( ) )
+            {
+                long startLocal = day.truncateLocal( toLocalMillis( t.toPosixMillis( ) ) );
+                day.start = TimeStamp.fromPosixMillis( fromLocalMillis( startLocal ) );
 
-            if ( previousStart != null && previousStart.equals( day.start ) ) continue;
-            previousStart = day.start;
-            
-            day.incrementCalendar( calendar );
-            day.end = TimeStamp.fromPosixMillis( calendar.getTimeInMillis( ) );
+                if ( previousStart != null && previousStart.equals( day.start ) ) continue;
+                previousStart = day.start;
+
+                day.end = TimeStamp.fromPosixMillis( fromLocalMillis( day.incrementLocal( startLocal ) ) );
+            }
+            else
+            {
+                if ( calendar == null ) calendar = Calendar.getInstance( timeZone );
+
+                day.setCalendar( t, calendar );
+                day.start = TimeStamp.fromPosixMillis( calendar.getTimeInMillis( ) );
+
+                if ( previousStart != null && previousStart.equals( day.start ) ) continue;
+                previousStart = day.start;
+                
+                day.incrementCalendar( calendar );
+                day.end = TimeStamp.fromPosixMillis( calendar.getTimeInMillis( ) );
+            }
 
             day.viewStart = min( day.end, max( day.start, viewStart ) );
             day.viewEnd = min( day.end, max( day.start, viewEnd ) );
@@ -35,16 +35,68 @@ import javax.media.opengl.GL;
 import javax.media.opengl.GL2;
 
 import com.jogamp.common.nio.Buffers;
+import com.metsci.glimpse.util.primitives.IntsArray;
 
 public abstract class GLBuffer
 {
+    /**
+     * How changed data is transferred to the device buffer.
+     */
+    public static enum UploadMode
+    {
+        /**
+         * Uploads each dirty range with glBufferSubData. Suits buffers where a few vertices
+         * change between frames.
+         */
+        SUB_DATA,
+
+        /**
+         * Orphans the device buffer and uploads all of the data whenever anything changed, so
+         * the driver need not wait for draws still reading the old contents. Suits buffers which
+         * are mostly rewritten every frame.
+         */
+        ORPHAN,
+
+        /**
+         * Maps each dirty range with glMapBufferRange, invalidating its old contents, and copies
+         * the new data into the mapping. Falls back to {@link #SUB_DATA} where glMapBufferRange
+         * is unavailable.
+         */
+        MAP_RANGE
+    }
+
+    // dirty byte ranges separated by fewer bytes than this are uploaded as one range
+    public static final int COALESCE_GAP_BYTES = 4096;
+
+    // when there are more dirty ranges than this, the closest ones are merged
+    public static final int MAX_DIRTY_RANGES = 64;
+
+    // when at least this fraction of the data is dirty, it is uploaded as a single range
+    public static final double COALESCE_ALL_FRACTION = 0.5;
+
     protected ReentrantLock lock = new ReentrantLock( );
 
     protected int elementSize; // 1, 2, 3, or 4
 
     protected int glHandle;
     protected boolean dirty;
-    
+
+    // sorted, disjoint byte ranges [from, to) to upload when the buffer is not entirely dirty,
+    // stored as consecutive (from, to) pairs
+    protected IntsArray dirtyRanges;
+
+    // receives the ranges reported by RangeMutators
+    protected DirtyRanges dirtyRangeTracker;
+
+    // size in bytes and usage hint of the device buffer, as last allocated with glBufferData
+    protected int deviceSize;
+    protected int deviceUsage;
+
+    // explicit usage hint, or 0 to choose one automatically
+    protected int usage;
+    protected int uploadCount;
+    protected UploadMode uploadMode;
+
     protected ByteBuffer data;
     
     protected GLVertexAttribute boundType;
@@ -56,6 +108,18 @@ public abstract class GLBuffer
 
         this.glHandle = -1;
         this.dirty = true;
+        this.dirtyRanges = new IntsArray( );
+        this.dirtyRangeTracker = new DirtyRanges( )
+        {
+            @Override
+            public void add( int fromVertex, int toVertex )
+            {
+                makeDirty( fromVertex, toVertex );
+            }
+        };
+
+        this.usage = 0;
+        this.uploadMode = UploadMode.SUB_DATA;
 
         this.elementSize = elementSize;
         
@@ -104,6 +168,88 @@ public abstract class GLBuffer
         dirty = true;
     }
 
+    /**
+     * Indicates that only the vertices in [fromVertex, toVertex) have changed. Unless the
+     * whole buffer is already dirty, only the changed ranges are uploaded the next time the
+     * buffer is prepared. Ranges which overlap or lie close together are coalesced.
+     */
+    public void makeDirty( int fromVertex, int toVertex )
+    {
+        if ( fromVertex >= toVertex ) return;
+
+        lock.lock( );
+        try
+        {
+            int bytesPerVertex = elementSize * getBytesPerElement( );
+            addDirtyRange( fromVertex * bytesPerVertex, toVertex * bytesPerVertex );
+        }
+        finally
+        {
+            lock.unlock( );
+        }
+    }
+
+    protected void addDirtyRange( int from, int to )
+    {
+        int[] a = dirtyRanges.a;
+        int n = dirtyRanges.n;
+
+        // skip ranges ending well before the new one
+        int i = 0;
+        while ( i < n && a[i + 1] + COALESCE_GAP_BYTES < from )
+        {
+            i += 2;
+        }
+
+        // absorb ranges starting before (or shortly after) the new one ends
+        int j = i;
+        while ( j < n && a[j] <= to + COALESCE_GAP_BYTES )
+        {
+            from = Math.min( from, a[j] );
+            to = Math.max( to, a[j + 1] );
+            j += 2;
+        }
+
+        if ( j > i )
+        {
+            a[i] = from;
+            a[i + 1] = to;
+            dirtyRanges.removeRange( i + 2, j );
+        }
+        else
+        {
+            dirtyRanges.prepForInsert( i, 2 );
+            dirtyRanges.a[i] = from;
+            dirtyRanges.a[i + 1] = to;
+        }
+
+        while ( dirtyRanges.n > 2 * MAX_DIRTY_RANGES )
+        {
+            mergeClosestDirtyRanges( );
+        }
+    }
+
+    protected void mergeClosestDirtyRanges( )
+    {
+        int[] a = dirtyRanges.a;
+        int n = dirtyRanges.n;
+
+        int closest = 0;
+        int closestGap = Integer.MAX_VALUE;
+        for ( int i = 0; i + 2 < n; i += 2 )
+        {
+            int gap = a[i + 2] - a[i + 1];
+            if ( gap < closestGap )
+            {
+                closest = i;
+                closestGap = gap;
+            }
+        }
+
+        a[closest + 1] = a[closest + 3];
+        dirtyRanges.removeRange( closest + 2, closest + 4 );
+    }
+
     public int getNumVertices( )
     {
         return data.limit( ) / elementSize / getBytesPerElement( );
@@ -114,6 +260,58 @@ public abstract class GLBuffer
         return data.capacity( ) / elementSize / getBytesPerElement( );
     }
 
+    /**
+     * Sets the usage hint passed to glBufferData, such as GL_STATIC_DRAW or GL_DYNAMIC_DRAW.
+     * A value of 0 (the default) chooses a hint automatically: GL_STREAM_DRAW for
+     * {@link UploadMode#ORPHAN}, otherwise GL_STATIC_DRAW until the buffer is changed after
+     * its first upload, then GL_DYNAMIC_DRAW.
+     */
+    public void setUsage( int usage )
+    {
+        lock.lock( );
+        try
+        {
+            this.usage = usage;
+        }
+        finally
+        {
+            lock.unlock( );
+        }
+    }
+
+    public int getUsage( )
+    {
+        lock.lock( );
+        try
+        {
+            if ( usage != 0 ) return usage;
+            if ( uploadMode == UploadMode.ORPHAN ) return GL2.GL_STREAM_DRAW;
+            return uploadCount > 0 ? GL2.GL_DYNAMIC_DRAW : GL2.GL_STATIC_DRAW;
+        }
+        finally
+        {
+            lock.unlock( );
+        }
+    }
+
+    public void setUploadMode( UploadMode uploadMode )
+    {
+        lock.lock( );
+        try
+        {
+            this.uploadMode = uploadMode;
+        }
+        finally
+        {
+            lock.unlock( );
+        }
+    }
+
+    public UploadMode getUploadMode( )
+    {
+        return uploadMode;
+    }
+
     public void bind( GLVertexAttribute type, GL2 gl )
     {
         lock.lock( );
@@ -180,12 +378,30 @@ public abstract class GLBuffer
 
             gl.glBindBuffer( GL2.GL_ARRAY_BUFFER, glHandle );
 
-            if ( isDirty( ) )
+            int size = data.limit( );
+            boolean changed = isDirty( ) || !dirtyRanges.isEmpty( );
+
+            if ( changed )
             {
-                gl.glBufferData( GL2.GL_ARRAY_BUFFER, data.limit( ), data.rewind( ), GL2.GL_STATIC_DRAW );
-                dirty = false;
+                // with the automatic hint, a static buffer which keeps changing is
+                // reallocated once as a dynamic one
+                boolean usageChanged = getUsage( ) != deviceUsage;
+
+                if ( isDirty( ) || size > deviceSize || usageChanged || uploadMode == UploadMode.ORPHAN )
+                {
+                    uploadAll( gl, size );
+                }
+                else
+                {
+                    uploadDirtyRanges( gl, size );
+                }
+
+                uploadCount++;
             }
 
+            dirty = false;
+            dirtyRanges.clear( );
+
             return !isDirty( );
         }
         finally
@@ -194,6 +410,67 @@ public abstract class GLBuffer
         }
     }
 
+    protected void uploadAll( GL gl, int size )
+    {
+        int usage = getUsage( );
+
+        if ( uploadMode == UploadMode.ORPHAN && size == deviceSize && usage == deviceUsage )
+        {
+            // detach the old storage from the buffer, draws still using it keep their copy
+            gl.glBufferData( GL2.GL_ARRAY_BUFFER, size, null, usage );
+            gl.glBufferSubData( GL2.GL_ARRAY_BUFFER, 0, size, data.rewind( ) );
+        }
+        else
+        {
+            gl.glBufferData( GL2.GL_ARRAY_BUFFER, size, data.rewind( ), usage );
+        }
+
+        deviceSize = size;
+        deviceUsage = usage;
+    }
+
+    protected void uploadDirtyRanges( GL gl, int size )
+    {
+        int[] a = dirtyRanges.a;
+        int n = dirtyRanges.n;
+
+        // when most of the data is dirty, one upload beats many small ones
+        long dirtyBytes = 0;
+        for ( int i = 0; i < n; i += 2 )
+        {
+            dirtyBytes += a[i + 1] - a[i];
+        }
+        if ( dirtyBytes >= COALESCE_ALL_FRACTION * size )
+        {
+            a[1] = a[n - 1];
+            n = 2;
+        }
+
+        boolean map = uploadMode == UploadMode.MAP_RANGE && gl.isFunctionAvailable( "glMapBufferRange" );
+
+        for ( int i = 0; i < n; i += 2 )
+        {
+            int from = a[i];
+            int to = Math.min( a[i + 1], size );
+            if ( from >= to ) continue;
+
+            data.limit( to ).position( from );
+
+            ByteBuffer mapped = map ? gl.glMapBufferRange( GL2.GL_ARRAY_BUFFER, from, to - from, GL2.GL_MAP_WRITE_BIT | GL2.GL_MAP_INVALIDATE_RANGE_BIT ) : null;
+            if ( mapped != null )
+            {
+                mapped.put( data );
+                gl.glUnmapBuffer( GL2.GL_ARRAY_BUFFER );
+            }
+            else
+            {
+                gl.glBufferSubData( GL2.GL_ARRAY_BUFFER, from, to - from, data );
+            }
+        }
+
+        data.limit( size ).rewind( );
+    }
+
     public boolean dispose( GL gl )
     {
         lock.lock( );
@@ -203,6 +480,8 @@ public abstract class GLBuffer
             {
                 gl.glDeleteBuffers( 1, new int[] { glHandle }, 0 );
                 glHandle = -1;
+                deviceSize = 0;
+                deviceUsage = 0;
             }
         }
         finally
@@ -229,8 +508,48 @@ public abstract class GLBuffer
         }
     }
 
+    /**
+     * Like {@link #mutate(Mutator)}, but for mutators which change data in place, leaving the
+     * number of vertices unchanged, and report the vertices they change. Only the reported
+     * vertices are uploaded to the device.
+     */
+    public void mutate( RangeMutator mutator )
+    {
+        lock.lock( );
+        try
+        {
+            int limit = data.limit( );
+            data.position( 0 );
+
+            mutator.mutate( data, elementSize, dirtyRangeTracker );
+
+            data.limit( limit ).position( 0 );
+        }
+        finally
+        {
+            lock.unlock( );
+        }
+    }
+
     public static interface Mutator
     {
         public void mutate( ByteBuffer data, int length );
     }
+
+    public static interface RangeMutator
+    {
+        /**
+         * Changes vertices of data in place. Each changed range of vertices must be reported
+         * to dirty before it is written.
+         */
+        public void mutate( ByteBuffer data, int length, DirtyRanges dirty );
+    }
+
+    /**
+     * Receives the ranges of vertices changed by a {@link RangeMutator}.
+     */
+    public static interface DirtyRanges
+    {
+        public void add( int fromVertex, int toVertex );
+    }
 }
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.gl.attribute;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Bookkeeping for sub-allocations within a large shared vertex buffer. Sizes and
+ * offsets are measured in vertices. Free space is kept as a map of non-overlapping
+ * blocks keyed by offset, allocation is first-fit and adjacent free blocks are
+ * coalesced when space is released.
+ *
+ * This class does no GL calls itself, it only decides where data should live in
+ * the device buffer.
+ */
+public class GLBufferAllocator
+{
+    // offset of each free block to its size
+    protected TreeMap<Integer, Integer> freeBlocks;
+    protected int capacity;
+    protected int used;
+
+    public GLBufferAllocator( int capacity )
+    {
+        this.freeBlocks = new TreeMap<Integer, Integer>( );
+        this.capacity = 0;
+        this.used = 0;
+
+        grow( capacity );
+    }
+
+    public int getCapacity( )
+    {
+        return capacity;
+    }
+
+    public int getUsed( )
+    {
+        return used;
+    }
+
+    /**
+     * @return the offset of a block of the requested size, or -1 if no free block is large enough
+     */
+    public int allocate( int size )
+    {
+        if ( size <= 0 ) size = 1;
+
+        for ( Map.Entry<Integer, Integer> entry : freeBlocks.entrySet( ) )
+        {
+            int blockOffset = entry.getKey( );
+            int blockSize = entry.getValue( );
+
+            if ( blockSize >= size )
+            {
+                freeBlocks.remove( blockOffset );
+                if ( blockSize > size ) freeBlocks.put( blockOffset + size, blockSize - size );
+
+                used += size;
+                return blockOffset;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Returns a block obtained from {@link #allocate(int)} to the free list.
+     */
+    public void free( int offset, int size )
+    {
+        if ( size <= 0 ) size = 1;
+
+        used -= size;
+
+        // merge with the following free block
+        Integer nextSize = freeBlocks.get( offset + size );
+        if ( nextSize != null )
+        {
+            freeBlocks.remove( offset + size );
+            size += nextSize;
+        }
+
+        // merge with the preceding free block
+        Map.Entry<Integer, Integer> previous = freeBlocks.lowerEntry( offset );
+        if ( previous != null && previous.getKey( ) + previous.getValue( ) == offset )
+        {
+            offset = previous.getKey( );
+            size += previous.getValue( );
+        }
+
+        freeBlocks.put( offset, size );
+    }
+
+    /**
+     * Extends the managed region. Existing allocations keep their offsets.
+     */
+    public void grow( int newCapacity )
+    {
+        if ( newCapacity <= capacity ) return;
+
+        free( capacity, newCapacity - capacity );
+        used += newCapacity - capacity;
+
+        capacity = newCapacity;
+    }
+}
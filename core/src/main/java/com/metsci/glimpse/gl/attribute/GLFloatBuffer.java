@@ -76,8 +76,73 @@ public class GLFloatBuffer extends GLBuffer
         }
     }
 
+    /**
+     * Like {@link #mutate(Mutator)}, but for mutators which only change the vertices in
+     * [fromVertex, toVertex) and leave the number of vertices unchanged. Only that range
+     * is uploaded to the device.
+     */
+    public void mutate( Mutator mutator, int fromVertex, int toVertex )
+    {
+        lock.lock( );
+        try
+        {
+            int limit = data.limit( );
+
+            data.clear( );
+            FloatBuffer floatData = data.asFloatBuffer( );
+            floatData.limit( limit / getBytesPerElement( ) );
+
+            mutator.mutate( floatData, elementSize );
+
+            data.position( 0 );
+            data.limit( limit );
+
+            makeDirty( fromVertex, toVertex );
+        }
+        finally
+        {
+            lock.unlock( );
+        }
+    }
+
+    /**
+     * Like {@link #mutate(Mutator)}, but for mutators which change data in place, leaving the
+     * number of vertices unchanged, and report the vertices they change. Only the reported
+     * vertices are uploaded to the device.
+     */
+    public void mutate( RangeMutator mutator )
+    {
+        lock.lock( );
+        try
+        {
+            int limit = data.limit( );
+
+            data.clear( );
+            FloatBuffer floatData = data.asFloatBuffer( );
+            floatData.limit( limit / getBytesPerElement( ) );
+
+            mutator.mutate( floatData, elementSize, dirtyRangeTracker );
+
+            data.position( 0 );
+            data.limit( limit );
+        }
+        finally
+        {
+            lock.unlock( );
+        }
+    }
+
     public static interface Mutator
     {
         public void mutate( FloatBuffer data, int length );
     }
+
+    public static interface RangeMutator
+    {
+        /**
+         * Changes vertices of data in place. Each changed range of vertices must be reported
+         * to dirty before it is written.
+         */
+        public void mutate( FloatBuffer data, int length, DirtyRanges dirty );
+    }
 }
\ No newline at end of file
@@ -27,7 +27,9 @@
 package com.metsci.glimpse.gl.attribute;
 
 import java.nio.FloatBuffer;
+import java.util.BitSet;
 
+import com.metsci.glimpse.util.primitives.IntsArray;
 import com.metsci.glimpse.util.primitives.IntsModifiable;
 import com.metsci.glimpse.util.quadtree.FilterInt;
 import com.metsci.glimpse.util.quadtree.QuadTreeInts;
@@ -40,6 +42,9 @@ public class GLFloatBuffer2D extends GLFloatBuffer
     protected QuadTreeInts xyIndex;
     protected boolean indexEnabled;
 
+    // vertices reported by the RangeMutator currently running, see mutate( RangeMutator )
+    protected BitSet reportedVertices = new BitSet( );
+
     public GLFloatBuffer2D( int length, boolean indexEnabled )
     {
         super( length, 2 );
@@ -229,6 +234,8 @@ public class GLFloatBuffer2D extends GLFloatBuffer
         {
             pruneIndex( mutator.getUpdateIndex( ) );
 
+            int oldLimit = data.limit( );
+
             data.clear( );
             FloatBuffer floatData = data.asFloatBuffer( );
 
@@ -241,7 +248,15 @@ public class GLFloatBuffer2D extends GLFloatBuffer
             data.position( 0 );
             data.limit( floatData.limit( ) * getBytesPerElement( ) );
 
-            makeDirty();
+            // vertices below the update index are unchanged
+            if ( data.limit( ) == oldLimit )
+            {
+                makeDirty( mutator.getUpdateIndex( ), getNumVertices( ) );
+            }
+            else
+            {
+                makeDirty();
+            }
         }
         finally
         {
@@ -274,6 +289,110 @@ public class GLFloatBuffer2D extends GLFloatBuffer
         }
     }
 
+    /**
+     * Like {@link GLFloatBuffer#mutate(Mutator, int, int)}, but also updates the spatial
+     * index for the vertices in [fromVertex, toVertex).
+     */
+    @Override
+    public void mutate( Mutator mutator, int fromVertex, int toVertex )
+    {
+        lock.lock();
+        try
+        {
+            if ( xyIndex == null )
+            {
+                super.mutate( mutator, fromVertex, toVertex );
+                createIndex( );
+            }
+            else
+            {
+                removeFromIndex( fromVertex, toVertex );
+                super.mutate( mutator, fromVertex, toVertex );
+                addToIndex( fromVertex, toVertex );
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Like {@link GLFloatBuffer#mutate(RangeMutator)}, but also updates the spatial index
+     * for the reported vertices, rather than rebuilding it.
+     */
+    @Override
+    public void mutate( final RangeMutator mutator )
+    {
+        lock.lock();
+        try
+        {
+            final IntsArray reported = new IntsArray( );
+
+            super.mutate( new RangeMutator( )
+            {
+                @Override
+                public void mutate( FloatBuffer data, int length, final DirtyRanges dirty )
+                {
+                    mutator.mutate( data, length, new DirtyRanges( )
+                    {
+                        @Override
+                        public void add( int fromVertex, int toVertex )
+                        {
+                            // remove vertices from the index while they are still at their old positions
+                            for ( int i = fromVertex; i < toVertex; i++ )
+                            {
+                                if ( !reportedVertices.get( i ) )
+                                {
+                                    reportedVertices.set( i );
+                                    reported.append( i );
+                                    if ( xyIndex != null ) xyIndex.remove( i );
+                                }
+                            }
+                            dirty.add( fromVertex, toVertex );
+                        }
+                    } );
+                }
+            } );
+
+            for ( int i = 0; i < reported.n; i++ )
+            {
+                int v = reported.a[i];
+                reportedVertices.clear( v );
+                if ( xyIndex != null ) xyIndex.add( v );
+            }
+
+            // the index is built lazily, by the first mutation
+            if ( xyIndex == null ) createIndex( );
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    protected void removeFromIndex( int fromVertex, int toVertex )
+    {
+        if ( xyIndex == null ) return;
+
+        int to = Math.min( toVertex, getNumVertices( ) );
+        for ( int i = fromVertex; i < to; i++ )
+        {
+            xyIndex.remove( i );
+        }
+    }
+
+    protected void addToIndex( int fromVertex, int toVertex )
+    {
+        if ( xyIndex == null ) return;
+
+        int to = Math.min( toVertex, getNumVertices( ) );
+        for ( int i = fromVertex; i < to; i++ )
+        {
+            xyIndex.add( i );
+        }
+    }
+
     public static interface IndexedMutator extends Mutator
     {
         /**
@@ -0,0 +1,899 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.painter.plot;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import com.metsci.glimpse.util.concurrent.ConcurrencyUtils;
+
+/**
+ * A fixed bin width histogram which can be updated incrementally, used by {@link HistogramPainter}.
+ *
+ * <p>Counts are kept in an array over a contiguous range of bins, which grows geometrically
+ * as samples arrive outside it, so adding or removing a sample is an array update in the common
+ * case. The range only grows while at least an eighth of it would be non-empty, and never beyond
+ * {@link #MAX_DENSE_BINS} displayed bins. Bins outside the range (outliers) are counted in a hash
+ * map, so widely separated samples cost no more than nearby ones. When the range grows, outliers
+ * which fall inside it move into the array.</p>
+ *
+ * <p>The displayed bins are numbered by slot: the bins of the dense range in order, then the
+ * outlier bins in the order they were first used. {@link #getBinX(int)} gives the position of each.
+ * An outlier slot whose count drops to zero is kept (as an empty bin) until more than half the
+ * outlier slots are empty, when they are compacted.</p>
+ *
+ * <p>Samples are also counted in a fine grained base histogram whose bins are a fraction of
+ * the displayed bin width. Changing the displayed bin width or start only regroups the base
+ * bins, and never revisits the samples. The result is exact when the new bin edges fall on
+ * base bin edges. Otherwise each base bin is counted in the displayed bin which contains its
+ * center. The displayed bins themselves are always counted from the sample values.</p>
+ *
+ * <p>Bulk loads through {@link #addAll(double[], int)} count large arrays in parallel on
+ * a shared fork/join pool. Samples can also be counted apart from the model with {@link #newCounts()},
+ * and added to it later with {@link #addAll(Counts)}.</p>
+ *
+ * <p>The base histogram's dense range holds at most {@link #MAX_BASE_BINS} bins, and it never holds
+ * more than {@link #MAX_BASE_BINS} outlier bins. If samples arrive which would require more, its bins
+ * are repeatedly merged in pairs, halving its resolution. This only affects later calls to
+ * {@link #setBinning(double, double)}.</p>
+ *
+ * <p>The slots which changed since the last call to {@link #clearChanges()} are tracked, so
+ * that a painter only needs to update those bins.</p>
+ *
+ * <p>This class is not thread safe.</p>
+ */
+public class HistogramModel
+{
+    public static final int DEFAULT_SUBDIVISIONS = 16;
+    public static final int MAX_BASE_BINS = 1 << 20;
+    public static final int MAX_DENSE_BINS = 1 << 20;
+    protected static final int PARALLEL_THRESHOLD = 1 << 16;
+    protected static final int INITIAL_CAPACITY = 16;
+
+    protected double baseBinSize;
+    protected double baseBinStart;
+    protected BinCounts base;
+
+    protected double binSize;
+    protected double binStart;
+    protected BinCounts bins;
+
+    protected long total;
+
+    // lowest and highest non-empty displayed bins and the largest count,
+    // recalculated when needed if removals have made them stale
+    protected long minBin;
+    protected long maxBin;
+    protected int maxCount;
+    protected boolean statsStale;
+
+    public HistogramModel( double binSize, double binStart )
+    {
+        this( binSize, binStart, DEFAULT_SUBDIVISIONS );
+    }
+
+    /**
+     * @param subdivisions the number of base bins per displayed bin
+     */
+    public HistogramModel( double binSize, double binStart, int subdivisions )
+    {
+        this.binSize = binSize;
+        this.binStart = binStart;
+        this.baseBinSize = binSize / subdivisions;
+        this.baseBinStart = binStart;
+        this.base = new BinCounts( MAX_BASE_BINS );
+        this.clearBins( );
+    }
+
+    public double getBinSize( )
+    {
+        return binSize;
+    }
+
+    public double getBinStart( )
+    {
+        return binStart;
+    }
+
+    /**
+     * @return the total number of samples in the histogram
+     */
+    public long getTotal( )
+    {
+        return total;
+    }
+
+    /**
+     * @return the number of displayed bin slots (some of which may be empty)
+     */
+    public int getBinCount( )
+    {
+        return bins.size( );
+    }
+
+    /**
+     * @return the number of slots which fit in the current arrays, slots
+     *         beyond {@link #getBinCount()} are added without setting {@link #isResized()}
+     */
+    public int getBinCapacity( )
+    {
+        return bins.capacity( );
+    }
+
+    /**
+     * @return the number of samples in the i-th slot
+     */
+    public int getCount( int i )
+    {
+        return bins.getCount( i );
+    }
+
+    /**
+     * @return the left edge of the displayed bin in the i-th slot
+     */
+    public double getBinX( int i )
+    {
+        return binStart + bins.getBin( i ) * binSize;
+    }
+
+    /**
+     * @return the largest number of samples in any displayed bin
+     */
+    public int getMaxCount( )
+    {
+        updateStats( );
+        return maxCount;
+    }
+
+    /**
+     * @return the left edge of the lowest non-empty displayed bin, or NaN if the histogram is empty
+     */
+    public double getFirstBinX( )
+    {
+        updateStats( );
+        return maxCount == 0 ? Double.NaN : binStart + minBin * binSize;
+    }
+
+    /**
+     * @return the left edge of the highest non-empty displayed bin, or NaN if the histogram is empty
+     */
+    public double getLastBinX( )
+    {
+        updateStats( );
+        return maxCount == 0 ? Double.NaN : binStart + maxBin * binSize;
+    }
+
+    /**
+     * @return the first slot changed since the last call to {@link #clearChanges()}
+     */
+    public int getChangedFrom( )
+    {
+        return bins.changedFrom;
+    }
+
+    /**
+     * @return one past the last slot changed since the last call to {@link #clearChanges()}
+     */
+    public int getChangedTo( )
+    {
+        return bins.changedTo;
+    }
+
+    /**
+     * @return true if the slots were reallocated or rearranged since the last call to
+     *         {@link #clearChanges()}, so every slot must be updated
+     */
+    public boolean isResized( )
+    {
+        return bins.resized;
+    }
+
+    public void clearChanges( )
+    {
+        bins.clearChanges( );
+    }
+
+    public void add( double value )
+    {
+        add( value, 1 );
+    }
+
+    /**
+     * Adds {@code count} samples with the given value. NaN and infinite values are ignored.
+     */
+    public void add( double value, int count )
+    {
+        if ( Double.isNaN( value ) || Double.isInfinite( value ) ) return;
+
+        base.add( baseBin( value ), count );
+        coarsen( );
+
+        addToBin( displayBin( value ), count );
+        total += count;
+    }
+
+    /**
+     * @return false if there was no sample in the value's bin to remove
+     */
+    public boolean remove( double value )
+    {
+        if ( Double.isNaN( value ) || Double.isInfinite( value ) ) return false;
+
+        long bin = displayBin( value );
+        if ( bins.get( bin ) <= 0 ) return false;
+
+        // after setBinning the base bins only approximate the displayed bins
+        long baseBin = baseBin( value );
+        if ( base.get( baseBin ) > 0 ) base.add( baseBin, -1 );
+
+        addToBin( bin, -1 );
+        total--;
+        return true;
+    }
+
+    public void addAll( double[] data, int size )
+    {
+        addAll( new DoubleSamples( data ), size );
+    }
+
+    public void addAll( float[] data, int size )
+    {
+        addAll( new FloatSamples( data ), size );
+    }
+
+    /**
+     * Adds samples counted against this model's binning by {@link #newCounts()}. The base
+     * histogram of whichever of the two has the finer resolution is coarsened to match the other.
+     *
+     * @return false, without adding anything, if the displayed bins have changed since the
+     *         counts were created
+     */
+    public boolean addAll( Counts counts )
+    {
+        if ( counts.binSize != binSize || counts.binStart != binStart || counts.baseBinStart != baseBinStart ) return false;
+
+        while ( baseBinSize < counts.baseBinSize )
+        {
+            coarsen0( );
+        }
+
+        while ( counts.baseBinSize < baseBinSize )
+        {
+            counts.coarsen0( );
+        }
+
+        // the base bins were computed at the current base resolution, so coarsen only once they are all added
+        base.addAll( counts.base );
+        coarsen( );
+
+        BinCounts other = counts.bins;
+        for ( int i = 0, n = other.size( ); i < n; i++ )
+        {
+            int count = other.getCount( i );
+            if ( count != 0 ) addToBin( other.getBin( i ), count );
+        }
+
+        total += counts.total;
+        return true;
+    }
+
+    /**
+     * @return an empty set of counts using this model's current binning, which may be
+     *         filled without modifying the model and added to it with {@link #addAll(Counts)}
+     */
+    public Counts newCounts( )
+    {
+        return new Counts( binSize, binStart, baseBinSize, baseBinStart );
+    }
+
+    public void removeAll( double[] data, int size )
+    {
+        for ( int i = 0; i < size; i++ )
+        {
+            remove( data[i] );
+        }
+    }
+
+    public void removeAll( float[] data, int size )
+    {
+        for ( int i = 0; i < size; i++ )
+        {
+            remove( data[i] );
+        }
+    }
+
+    public void clear( )
+    {
+        base = new BinCounts( MAX_BASE_BINS );
+        clearBins( );
+        total = 0;
+    }
+
+    /**
+     * Changes the displayed bins, regrouping the base histogram. If the new bins are
+     * much narrower than the base bins, many of them will be empty.
+     */
+    public void setBinning( double binSize, double binStart )
+    {
+        this.binSize = binSize;
+        this.binStart = binStart;
+
+        clearBins( );
+
+        for ( int i = 0, n = base.size( ); i < n; i++ )
+        {
+            int count = base.getCount( i );
+            if ( count <= 0 ) continue;
+
+            double center = baseBinStart + ( base.getBin( i ) + 0.5 ) * baseBinSize;
+            addToBin( displayBin( center ), count );
+        }
+    }
+
+    protected void addAll( Samples samples, int size )
+    {
+        if ( size < PARALLEL_THRESHOLD )
+        {
+            for ( int i = 0; i < size; i++ )
+            {
+                add( samples.get( i ), 1 );
+            }
+            return;
+        }
+
+        Counts counts = newCounts( );
+        counts.addAll( samples, size );
+        addAll( counts );
+    }
+
+    protected void addToBin( long bin, int count )
+    {
+        int newCount = bins.add( bin, count );
+        int oldCount = newCount - count;
+
+        if ( newCount > 0 )
+        {
+            if ( newCount > maxCount ) maxCount = newCount;
+            if ( bin < minBin ) minBin = bin;
+            if ( bin > maxBin ) maxBin = bin;
+        }
+
+        if ( newCount < oldCount && oldCount >= maxCount ) statsStale = true;
+
+        if ( newCount <= 0 && oldCount > 0 && ( bin == minBin || bin == maxBin ) ) statsStale = true;
+    }
+
+    protected void clearBins( )
+    {
+        bins = new BinCounts( MAX_DENSE_BINS );
+
+        minBin = Long.MAX_VALUE;
+        maxBin = Long.MIN_VALUE;
+        maxCount = 0;
+        statsStale = false;
+    }
+
+    protected void updateStats( )
+    {
+        if ( !statsStale ) return;
+
+        minBin = Long.MAX_VALUE;
+        maxBin = Long.MIN_VALUE;
+        maxCount = 0;
+
+        for ( int i = 0, n = bins.size( ); i < n; i++ )
+        {
+            int count = bins.getCount( i );
+            if ( count <= 0 ) continue;
+
+            long bin = bins.getBin( i );
+            if ( count > maxCount ) maxCount = count;
+            if ( bin < minBin ) minBin = bin;
+            if ( bin > maxBin ) maxBin = bin;
+        }
+
+        statsStale = false;
+    }
+
+    protected long baseBin( double value )
+    {
+        return ( long ) Math.floor( ( value - baseBinStart ) / baseBinSize );
+    }
+
+    protected long displayBin( double value )
+    {
+        return ( long ) Math.floor( ( value - binStart ) / binSize );
+    }
+
+    // merges pairs of base bins until there are few enough outliers
+    protected void coarsen( )
+    {
+        while ( base.getOutlierSlotCount( ) > MAX_BASE_BINS )
+        {
+            coarsen0( );
+        }
+    }
+
+    // merges pairs of base bins, halving the resolution of the base histogram
+    protected void coarsen0( )
+    {
+        base = base.coarsen( );
+        baseBinSize *= 2;
+    }
+
+    /**
+     * Samples counted against a {@link HistogramModel}'s binning, created by {@link HistogramModel#newCounts()}.
+     * Counting does not touch the model, so it can be done without holding whatever lock guards the model,
+     * then added to the model with {@link HistogramModel#addAll(Counts)}. Large arrays are counted in parallel
+     * on a shared fork/join pool.
+     *
+     * <p>This class is not thread safe.</p>
+     */
+    public static class Counts
+    {
+        protected final double binSize;
+        protected final double binStart;
+        protected final double baseBinStart;
+        protected double baseBinSize;
+
+        protected BinCounts bins;
+        protected BinCounts base;
+        protected long total;
+
+        protected Counts( double binSize, double binStart, double baseBinSize, double baseBinStart )
+        {
+            this.binSize = binSize;
+            this.binStart = binStart;
+            this.baseBinSize = baseBinSize;
+            this.baseBinStart = baseBinStart;
+            this.bins = new BinCounts( MAX_DENSE_BINS );
+            this.base = new BinCounts( MAX_BASE_BINS );
+        }
+
+        public long getTotal( )
+        {
+            return total;
+        }
+
+        public void addAll( double[] data, int size )
+        {
+            addAll( new DoubleSamples( data ), size );
+        }
+
+        public void addAll( float[] data, int size )
+        {
+            addAll( new FloatSamples( data ), size );
+        }
+
+        protected void addAll( Samples samples, int size )
+        {
+            if ( size < PARALLEL_THRESHOLD )
+            {
+                addAll( samples, 0, size );
+                return;
+            }
+
+            ForkJoinPool pool = ConcurrencyUtils.getSharedForkJoinPool( );
+            int leafSize = Math.max( PARALLEL_THRESHOLD / 4, size / ( 2 * pool.getParallelism( ) ) );
+
+            // count the samples into per task counts, which are merged as the tasks complete
+            merge( pool.invoke( new CountTask( samples, 0, size, leafSize ) ) );
+        }
+
+        protected void addAll( Samples samples, int from, int to )
+        {
+            for ( int i = from; i < to; i++ )
+            {
+                double value = samples.get( i );
+                if ( Double.isNaN( value ) || Double.isInfinite( value ) ) continue;
+
+                bins.add( ( long ) Math.floor( ( value - binStart ) / binSize ), 1 );
+                base.add( ( long ) Math.floor( ( value - baseBinStart ) / baseBinSize ), 1 );
+                total++;
+            }
+
+            while ( base.getOutlierSlotCount( ) > MAX_BASE_BINS )
+            {
+                coarsen0( );
+            }
+        }
+
+        // adds counts with the same displayed bins to these, matching base resolutions first
+        protected Counts merge( Counts other )
+        {
+            while ( baseBinSize < other.baseBinSize )
+            {
+                coarsen0( );
+            }
+
+            while ( other.baseBinSize < baseBinSize )
+            {
+                other.coarsen0( );
+            }
+
+            bins.addAll( other.bins );
+            base.addAll( other.base );
+            total += other.total;
+
+            while ( base.getOutlierSlotCount( ) > MAX_BASE_BINS )
+            {
+                coarsen0( );
+            }
+
+            return this;
+        }
+
+        protected void coarsen0( )
+        {
+            base = base.coarsen( );
+            baseBinSize *= 2;
+        }
+
+        // counts samples by displayed bin and by base bin
+        protected class CountTask extends RecursiveTask<Counts>
+        {
+            private static final long serialVersionUID = 1L;
+
+            protected Samples samples;
+            protected int from;
+            protected int to;
+            protected int leafSize;
+
+            public CountTask( Samples samples, int from, int to, int leafSize )
+            {
+                this.samples = samples;
+                this.from = from;
+                this.to = to;
+                this.leafSize = leafSize;
+            }
+
+            @Override
+            protected Counts compute( )
+            {
+                if ( to - from > leafSize )
+                {
+                    int mid = ( from + to ) >>> 1;
+                    CountTask left = new CountTask( samples, from, mid, leafSize );
+                    left.fork( );
+                    Counts right = new CountTask( samples, mid, to, leafSize ).compute( );
+                    return left.join( ).merge( right );
+                }
+
+                Counts counts = new Counts( binSize, binStart, baseBinSize, baseBinStart );
+                counts.addAll( samples, from, to );
+                return counts;
+            }
+        }
+    }
+
+    /**
+     * Counts by bin index, in an array over a contiguous range of bins and in a hash map
+     * outside it. Bins are numbered by slot: the bins of the dense range in order, then the
+     * outlier bins in the order they were first used.
+     */
+    protected static class BinCounts
+    {
+        protected int maxDenseBins;
+
+        // counts of the bins from denseStart to denseStart + dense.length - 1
+        protected long denseStart;
+        protected int[] dense;
+
+        // bins outside the dense range, and the index of each in the outlier arrays
+        protected long[] outlierBins;
+        protected int[] outlierCounts;
+        protected int outlierCount;
+        protected int emptyOutlierCount;
+        protected Long2IntOpenHashMap outlierSlots;
+
+        protected int nonEmptyCount;
+
+        // range of slots changed since the last call to clearChanges( )
+        protected int changedFrom;
+        protected int changedTo;
+        // true if the slots have been reallocated or rearranged since the last call to clearChanges( )
+        protected boolean resized;
+
+        public BinCounts( int maxDenseBins )
+        {
+            this.maxDenseBins = maxDenseBins;
+            this.dense = new int[0];
+            this.outlierBins = new long[INITIAL_CAPACITY];
+            this.outlierCounts = new int[INITIAL_CAPACITY];
+            this.outlierSlots = new Long2IntOpenHashMap( );
+            this.outlierSlots.defaultReturnValue( -1 );
+            this.clearChanges( );
+            this.resized = true;
+        }
+
+        public int size( )
+        {
+            return dense.length + outlierCount;
+        }
+
+        public int capacity( )
+        {
+            return dense.length + outlierBins.length;
+        }
+
+        public int getOutlierSlotCount( )
+        {
+            return outlierCount;
+        }
+
+        public long getBin( int slot )
+        {
+            return slot < dense.length ? denseStart + slot : outlierBins[slot - dense.length];
+        }
+
+        public int getCount( int slot )
+        {
+            return slot < dense.length ? dense[slot] : outlierCounts[slot - dense.length];
+        }
+
+        public int get( long bin )
+        {
+            long offset = bin - denseStart;
+            if ( offset >= 0 && offset < dense.length ) return dense[( int ) offset];
+
+            int j = outlierSlots.get( bin );
+            return j < 0 ? 0 : outlierCounts[j];
+        }
+
+        /**
+         * @return the new count of the bin
+         */
+        public int add( long bin, int count )
+        {
+            // an overflowing subtraction gives a negative or very large offset, either of which is out of range
+            long offset = bin - denseStart;
+            if ( offset >= 0 && offset < dense.length )
+            {
+                return addToSlot( ( int ) offset, count );
+            }
+
+            int j = outlierSlots.get( bin );
+            if ( j < 0 && growDense( bin ) )
+            {
+                return addToSlot( ( int ) ( bin - denseStart ), count );
+            }
+
+            if ( j < 0 ) j = newOutlier( bin );
+
+            int newCount = addToSlot( dense.length + j, count );
+            if ( emptyOutlierCount > outlierCount / 2 && outlierCount > INITIAL_CAPACITY ) compactOutliers( );
+            return newCount;
+        }
+
+        public void addAll( BinCounts other )
+        {
+            for ( int i = 0, n = other.size( ); i < n; i++ )
+            {
+                int count = other.getCount( i );
+                if ( count != 0 ) add( other.getBin( i ), count );
+            }
+        }
+
+        // merges pairs of bins, the new bin index is the old index shifted right one place
+        public BinCounts coarsen( )
+        {
+            BinCounts coarse = new BinCounts( maxDenseBins );
+
+            for ( int i = 0, n = size( ); i < n; i++ )
+            {
+                int count = getCount( i );
+                if ( count > 0 ) coarse.add( getBin( i ) >> 1, count );
+            }
+
+            return coarse;
+        }
+
+        public void clearChanges( )
+        {
+            changedFrom = Integer.MAX_VALUE;
+            changedTo = 0;
+            resized = false;
+        }
+
+        protected int addToSlot( int slot, int count )
+        {
+            int oldCount;
+            int newCount;
+
+            if ( slot < dense.length )
+            {
+                oldCount = dense[slot];
+                newCount = oldCount + count;
+                dense[slot] = newCount;
+            }
+            else
+            {
+                int j = slot - dense.length;
+                oldCount = outlierCounts[j];
+                newCount = oldCount + count;
+                outlierCounts[j] = newCount;
+
+                if ( newCount > 0 && oldCount <= 0 ) emptyOutlierCount--;
+                if ( newCount <= 0 && oldCount > 0 ) emptyOutlierCount++;
+            }
+
+            if ( newCount > 0 && oldCount <= 0 ) nonEmptyCount++;
+            if ( newCount <= 0 && oldCount > 0 ) nonEmptyCount--;
+
+            changedFrom = Math.min( changedFrom, slot );
+            changedTo = Math.max( changedTo, slot + 1 );
+
+            return newCount;
+        }
+
+        // extends the dense range to include the bin, unless that would make it too long or too sparse
+        protected boolean growDense( long bin )
+        {
+            int length = dense.length;
+            long newStart;
+            int newLength;
+
+            if ( length == 0 )
+            {
+                newStart = bin;
+                newLength = Math.min( INITIAL_CAPACITY, maxDenseBins );
+            }
+            else
+            {
+                long end = denseStart + length;
+                long span = bin < denseStart ? end - bin : bin - denseStart + 1;
+                if ( span <= 0 || span > maxDenseBins || span > 8L * ( nonEmptyCount + INITIAL_CAPACITY ) ) return false;
+
+                newLength = ( int ) Math.min( maxDenseBins, Math.max( span, 2L * length ) );
+                newStart = bin < denseStart ? end - newLength : denseStart;
+            }
+
+            int[] newDense = new int[newLength];
+            if ( length > 0 ) System.arraycopy( dense, 0, newDense, ( int ) ( denseStart - newStart ), length );
+            denseStart = newStart;
+            dense = newDense;
+
+            // move the outliers which now fall in the dense range into it
+            if ( outlierCount > 0 )
+            {
+                outlierSlots.clear( );
+
+                int k = 0;
+                for ( int j = 0; j < outlierCount; j++ )
+                {
+                    long offset = outlierBins[j] - denseStart;
+                    if ( offset >= 0 && offset < newLength )
+                    {
+                        dense[( int ) offset] = outlierCounts[j];
+                    }
+                    else
+                    {
+                        outlierBins[k] = outlierBins[j];
+                        outlierCounts[k] = outlierCounts[j];
+                        outlierSlots.put( outlierBins[k], k );
+                        k++;
+                    }
+                }
+
+                outlierCount = k;
+                emptyOutlierCount = countEmptyOutliers( );
+            }
+
+            resized = true;
+            return true;
+        }
+
+        protected int newOutlier( long bin )
+        {
+            if ( outlierCount == outlierBins.length )
+            {
+                int newCapacity = 2 * outlierBins.length;
+                outlierBins = Arrays.copyOf( outlierBins, newCapacity );
+                outlierCounts = Arrays.copyOf( outlierCounts, newCapacity );
+                resized = true;
+            }
+
+            outlierBins[outlierCount] = bin;
+            outlierCounts[outlierCount] = 0;
+            outlierSlots.put( bin, outlierCount );
+            emptyOutlierCount++;
+            return outlierCount++;
+        }
+
+        // removes the empty outlier slots, which rearranges the remaining slots
+        protected void compactOutliers( )
+        {
+            outlierSlots.clear( );
+
+            int k = 0;
+            for ( int j = 0; j < outlierCount; j++ )
+            {
+                if ( outlierCounts[j] > 0 )
+                {
+                    outlierBins[k] = outlierBins[j];
+                    outlierCounts[k] = outlierCounts[j];
+                    outlierSlots.put( outlierBins[k], k );
+                    k++;
+                }
+            }
+
+            outlierCount = k;
+            emptyOutlierCount = 0;
+            resized = true;
+        }
+
+        protected int countEmptyOutliers( )
+        {
+            int empty = 0;
+            for ( int j = 0; j < outlierCount; j++ )
+            {
+                if ( outlierCounts[j] <= 0 ) empty++;
+            }
+            return empty;
+        }
+    }
+
+    protected static abstract class Samples
+    {
+        public abstract double get( int i );
+    }
+
+    protected static class DoubleSamples extends Samples
+    {
+        protected double[] data;
+
+        public DoubleSamples( double[] data )
+        {
+            this.data = data;
+        }
+
+        @Override
+        public double get( int i )
+        {
+            return data[i];
+        }
+    }
+
+    protected static class FloatSamples extends Samples
+    {
+        protected float[] data;
+
+        public FloatSamples( float[] data )
+        {
+            this.data = data;
+        }
+
+        @Override
+        public double get( int i )
+        {
+            return data[i];
+        }
+    }
+}
@@ -27,7 +27,6 @@
 package com.metsci.glimpse.painter.plot;
 
 import it.unimi.dsi.fastutil.floats.Float2IntMap;
-import it.unimi.dsi.fastutil.floats.Float2IntOpenHashMap;
 
 import java.nio.FloatBuffer;
 import java.util.concurrent.locks.ReentrantLock;
@@ -47,6 +46,13 @@ import com.metsci.glimpse.painter.base.GlimpseDataPainter2D;
  * Construct with asDensity = true to scale as a density 
  * estimate instead of as a frequency histogram.
  *
+ * <p>The bins are kept in a {@link HistogramModel}, so samples can also be added and
+ * removed incrementally (see {@link #addData(double)} and {@link #removeData(double)})
+ * and the binning changed without the original samples (see {@link #setBinning(float, float)}).
+ * Bar heights are uploaded as raw counts and normalized when drawn, so only the bars
+ * whose counts changed are uploaded to the device. The device buffer is sized to the
+ * model's bin capacity, so it is only reallocated when that capacity grows.</p>
+ *
  * @author ulman
  */
 public class HistogramPainter extends GlimpseDataPainter2D
@@ -60,6 +66,8 @@ public class HistogramPainter extends GlimpseDataPainter2D
     protected FloatBuffer dataBuffer = null;
     protected ReentrantLock dataBufferLock = null;
     protected volatile boolean newData = false;
+    // true if every bar must be uploaded, for instance after the model is replaced
+    protected boolean uploadAll = true;
     protected volatile boolean bufferInitialized = false;
 
     protected float binSize;
@@ -72,6 +80,12 @@ public class HistogramPainter extends GlimpseDataPainter2D
     
     protected final boolean asDensity;
 
+    protected HistogramModel model;
+    // if non-negative, used in place of the model's total when normalizing counts
+    protected long normalizationTotal = -1;
+    // scales the raw counts in dataBuffer to frequencies (or densities)
+    protected float countScale;
+
     public HistogramPainter( boolean asDensity )
     {
         dataBufferLock = new ReentrantLock( );
@@ -98,10 +112,19 @@ public class HistogramPainter extends GlimpseDataPainter2D
 
     public void autoAdjustAxisBounds( Axis2D axis )
     {
-        axis.getAxisX( ).setMin( minX );
-        axis.getAxisX( ).setMax( maxX );
-        axis.getAxisY( ).setMin( minY );
-        axis.getAxisY( ).setMax( maxY );
+        dataBufferLock.lock( );
+        try
+        {
+            updateBounds( );
+            axis.getAxisX( ).setMin( minX );
+            axis.getAxisX( ).setMax( maxX );
+            axis.getAxisY( ).setMin( minY );
+            axis.getAxisY( ).setMax( maxY );
+        }
+        finally
+        {
+            dataBufferLock.unlock( );
+        }
     }
 
     public void setData( double[] data )
@@ -161,27 +184,11 @@ public class HistogramPainter extends GlimpseDataPainter2D
 
     public void setData( double[] data, int size, double binSize, double binStart )
     {
-        this.binStart = (float) binStart;
-
-        Float2IntMap counts = new Float2IntOpenHashMap();
+        // bin on the caller's thread (in parallel for large arrays) before taking the lock
+        HistogramModel model = new HistogramModel( binSize, binStart );
+        model.addAll( data, size );
 
-        for ( int i = 0 ; i < size ; i++ )
-        {
-            double value = data[i];
-
-            float bin = getBin( value, binSize, binStart );
-
-            if ( !counts.containsKey( bin ) )
-            {
-                counts.put( bin, 1 );
-            }
-            else
-            {
-                counts.put( bin, counts.get( bin ) + 1 );
-            }
-        }
-
-        setData( counts, size, (float) binSize );
+        setModel( model, -1 );
     }
 
     /**
@@ -189,45 +196,103 @@ public class HistogramPainter extends GlimpseDataPainter2D
      */
     public void setData( Float2IntMap counts, int totalSize, float binSize )
     {
-        this.binSize = binSize;
+        // the map is keyed by the left edge of each bin
+        float binStart = Float.POSITIVE_INFINITY;
+        for ( Float2IntMap.Entry entry : counts.float2IntEntrySet( ) )
+        {
+            binStart = Math.min( binStart, entry.getFloatKey( ) );
+        }
 
-        dataBufferLock.lock( );
-        try
+        HistogramModel model = new HistogramModel( binSize, counts.isEmpty( ) ? 0 : binStart, 1 );
+        for ( Float2IntMap.Entry entry : counts.float2IntEntrySet( ) )
         {
-            minY = 0;
-            maxY = 0;
+            model.add( entry.getFloatKey( ) + binSize / 2, entry.getIntValue( ) );
+        }
 
-            minX = Float.POSITIVE_INFINITY;
-            maxX = Float.NEGATIVE_INFINITY;
+        setModel( model, totalSize );
+    }
+
+    public void setData( double[] data, float binSize, float binStart )
+    {
+        setData( data, data.length, binSize, binStart );
+    }
 
-            dataSize = counts.size( );
+    public void setData( float[] data, int size, float binSize, float binStart )
+    {
+        HistogramModel model = new HistogramModel( binSize, binStart );
+        model.addAll( data, size );
 
-            if ( dataBuffer == null || dataBuffer.rewind( ).capacity( ) < dataSize * FLOATS_PER_BAR )
-            {
-                dataBuffer = Buffers.newDirectFloatBuffer( dataSize * FLOATS_PER_BAR );
-            }
+        setModel( model, -1 );
+    }
 
-            final float denom = (asDensity) ? (binSize * totalSize) : totalSize;
-            
-            for ( Float2IntMap.Entry entry : counts.float2IntEntrySet() )
-            {
-                float bin = entry.getFloatKey( );
-                int count = entry.getIntValue( );
+    /**
+     * Replaces the histogram model.
+     *
+     * @param normalizationTotal if non-negative, the total used to normalize the counts
+     *        (otherwise the model's total is used)
+     */
+    public void setModel( HistogramModel model, long normalizationTotal )
+    {
+        dataBufferLock.lock( );
+        try
+        {
+            this.model = model;
+            this.normalizationTotal = normalizationTotal;
+            this.binSize = ( float ) model.getBinSize( );
+            this.binStart = ( float ) model.getBinStart( );
 
-                float freq = ( float ) count / denom;
+            uploadAll = true;
+            newData = true;
+        }
+        finally
+        {
+            dataBufferLock.unlock( );
+        }
+    }
 
-                if ( freq > maxY ) maxY = freq;
+    /**
+     * Adds a sample to the histogram, using the current bin size and start.
+     */
+    public void addData( double value )
+    {
+        dataBufferLock.lock( );
+        try
+        {
+            getModel0( ).add( value );
+            newData = true;
+        }
+        finally
+        {
+            dataBufferLock.unlock( );
+        }
+    }
 
-                if ( bin < minX ) minX = bin;
+    /**
+     * Adds samples to the histogram, using the current bin size and start.
+     */
+    public void addData( double[] data, int size )
+    {
+        HistogramModel.Counts counts;
 
-                if ( bin > maxX ) maxX = bin;
+        dataBufferLock.lock( );
+        try
+        {
+            counts = getModel0( ).newCounts( );
+        }
+        finally
+        {
+            dataBufferLock.unlock( );
+        }
 
-                dataBuffer.put( bin ).put( 0 );
-                dataBuffer.put( bin ).put( freq );
-                dataBuffer.put( bin + this.binSize ).put( freq );
-                dataBuffer.put( bin + this.binSize ).put( 0 );
-            }
+        // count the samples without holding the lock, so painting is not held up by a large load
+        counts.addAll( data, size );
 
+        dataBufferLock.lock( );
+        try
+        {
+            // if the bins changed while counting, count the samples again against the new bins
+            HistogramModel model = getModel0( );
+            if ( !model.addAll( counts ) ) model.addAll( data, size );
             newData = true;
         }
         finally
@@ -236,34 +301,74 @@ public class HistogramPainter extends GlimpseDataPainter2D
         }
     }
 
-    public void setData( double[] data, float binSize, float binStart )
+    /**
+     * Removes a sample previously added to the histogram.
+     */
+    public void removeData( double value )
     {
-        setData( data, data.length, binSize, binStart );
+        dataBufferLock.lock( );
+        try
+        {
+            if ( getModel0( ).remove( value ) ) newData = true;
+        }
+        finally
+        {
+            dataBufferLock.unlock( );
+        }
     }
 
-    public void setData( float[] data, int size, float binSize, float binStart )
+    /**
+     * Removes samples previously added to the histogram.
+     */
+    public void removeData( double[] data, int size )
     {
-        this.binStart = binStart;
-
-        Float2IntMap counts = new Float2IntOpenHashMap();
-
-        for ( int i = 0 ; i < size ; i++ )
+        dataBufferLock.lock( );
+        try
         {
-            float value = data[i];
+            getModel0( ).removeAll( data, size );
+            newData = true;
+        }
+        finally
+        {
+            dataBufferLock.unlock( );
+        }
+    }
 
-            float bin = getBin( value, binSize, binStart );
+    /**
+     * Changes the bin size and start without the original samples.
+     *
+     * @see HistogramModel#setBinning(double, double)
+     */
+    public void setBinning( float binSize, float binStart )
+    {
+        dataBufferLock.lock( );
+        try
+        {
+            this.binSize = binSize;
+            this.binStart = binStart;
 
-            if ( !counts.containsKey( bin ) )
+            if ( model != null )
             {
-                counts.put( bin, 1 );
-            }
-            else
-            {
-                counts.put( bin, counts.get( bin ) + 1 );
+                model.setBinning( binSize, binStart );
+                newData = true;
             }
         }
+        finally
+        {
+            dataBufferLock.unlock( );
+        }
+    }
+
+    // must be called while holding dataBufferLock
+    protected HistogramModel getModel0( )
+    {
+        if ( model == null )
+        {
+            if ( binSize <= 0 ) throw new IllegalStateException( "Bin size must be set before adding data." );
+            model = new HistogramModel( binSize, binStart );
+        }
 
-        setData( counts, size, binSize );
+        return model;
     }
 
     public float getBinSize( )
@@ -278,24 +383,67 @@ public class HistogramPainter extends GlimpseDataPainter2D
 
     public float getMinY( )
     {
+        updateBounds( );
         return minY;
     }
 
     public float getMaxY( )
     {
+        updateBounds( );
         return maxY;
     }
 
     public float getMinX( )
     {
+        updateBounds( );
         return minX;
     }
 
     public float getMaxX( )
     {
+        updateBounds( );
         return maxX;
     }
 
+    /**
+     * Updates the values returned by {@link #getMinX()}, {@link #getMaxX()},
+     * {@link #getMinY()} and {@link #getMaxY()} from the model. The getters call
+     * this themselves, so they reflect samples added or removed since.
+     */
+    public void updateBounds( )
+    {
+        dataBufferLock.lock( );
+        try
+        {
+            minY = 0;
+            maxY = 0;
+            minX = Float.POSITIVE_INFINITY;
+            maxX = Float.NEGATIVE_INFINITY;
+
+            if ( model == null ) return;
+
+            // the model tracks these as samples are added, and only
+            // rescans its bins after a removal empties an extreme bin
+            if ( model.getMaxCount( ) == 0 ) return;
+
+            minX = ( float ) model.getFirstBinX( );
+            maxX = ( float ) model.getLastBinX( );
+            maxY = model.getMaxCount( ) * getCountScale( );
+        }
+        finally
+        {
+            dataBufferLock.unlock( );
+        }
+    }
+
+    // must be called while holding dataBufferLock
+    protected float getCountScale( )
+    {
+        long total = normalizationTotal >= 0 ? normalizationTotal : model.getTotal( );
+        float denom = asDensity ? binSize * total : total;
+        return denom == 0 ? 0 : 1 / denom;
+    }
+
     protected static float getBin( double data, double binSize, double binStart )
     {
         return ( float ) ( Math.floor( ( data - binStart ) / binSize ) * binSize + binStart );
@@ -313,7 +461,7 @@ public class HistogramPainter extends GlimpseDataPainter2D
     @Override
     public void paintTo( GL2 gl, GlimpseBounds bounds, Axis2D axis )
     {
-        if ( dataSize == 0 ) return;
+        if ( model == null ) return;
 
         if ( !bufferInitialized )
         {
@@ -329,8 +477,7 @@ public class HistogramPainter extends GlimpseDataPainter2D
             dataBufferLock.lock( );
             try
             {
-                // copy data from the host memory buffer to the device
-                gl.glBufferData( GL2.GL_ARRAY_BUFFER, dataSize * FLOATS_PER_BAR * BYTES_PER_FLOAT, dataBuffer.rewind( ), GL2.GL_DYNAMIC_DRAW );
+                uploadChanges( gl );
 
                 glHandleError( gl );
 
@@ -342,12 +489,78 @@ public class HistogramPainter extends GlimpseDataPainter2D
             }
         }
 
+        if ( dataSize == 0 ) return;
+
         gl.glBindBuffer( GL2.GL_ARRAY_BUFFER, bufferHandle[0] );
         gl.glVertexPointer( 2, GL2.GL_FLOAT, 0, 0 );
         gl.glEnableClientState( GL2.GL_VERTEX_ARRAY );
 
         gl.glColor4fv( barColor, 0 );
 
+        // the buffer holds raw counts, scale them to frequencies
+        gl.glMatrixMode( GL2.GL_MODELVIEW );
+        gl.glPushMatrix( );
+        gl.glScalef( 1, countScale, 1 );
+
         gl.glDrawArrays( GL2.GL_QUADS, 0, dataSize * 4 );
+
+        gl.glPopMatrix( );
+    }
+
+    // must be called while holding dataBufferLock
+    protected void uploadChanges( GL2 gl )
+    {
+        int bins = model.getBinCount( );
+        int capacity = model.getBinCapacity( );
+
+        if ( uploadAll || model.isResized( ) || dataBuffer == null || dataBuffer.capacity( ) < capacity * FLOATS_PER_BAR )
+        {
+            if ( dataBuffer == null || dataBuffer.capacity( ) < capacity * FLOATS_PER_BAR )
+            {
+                dataBuffer = Buffers.newDirectFloatBuffer( capacity * FLOATS_PER_BAR );
+            }
+
+            putBars( 0, bins );
+
+            // copy data from the host memory buffer to the device, reserving room for the model's capacity
+            gl.glBufferData( GL2.GL_ARRAY_BUFFER, dataBuffer.capacity( ) * BYTES_PER_FLOAT, dataBuffer.rewind( ), GL2.GL_DYNAMIC_DRAW );
+
+            uploadAll = false;
+        }
+        else if ( model.getChangedFrom( ) < model.getChangedTo( ) )
+        {
+            // only copy the bars whose counts changed
+            int from = model.getChangedFrom( );
+            int to = model.getChangedTo( );
+
+            putBars( from, to );
+
+            dataBuffer.position( from * FLOATS_PER_BAR );
+            gl.glBufferSubData( GL2.GL_ARRAY_BUFFER, from * FLOATS_PER_BAR * BYTES_PER_FLOAT, ( to - from ) * FLOATS_PER_BAR * BYTES_PER_FLOAT, dataBuffer );
+            dataBuffer.rewind( );
+        }
+
+        dataSize = bins;
+        model.clearChanges( );
+
+        countScale = getCountScale( );
+    }
+
+    // must be called while holding dataBufferLock
+    protected void putBars( int from, int to )
+    {
+        float width = ( float ) model.getBinSize( );
+
+        for ( int i = from; i < to; i++ )
+        {
+            float bin = ( float ) model.getBinX( i );
+            float count = model.getCount( i );
+
+            int index = i * FLOATS_PER_BAR;
+            dataBuffer.put( index, bin ).put( index + 1, 0 );
+            dataBuffer.put( index + 2, bin ).put( index + 3, count );
+            dataBuffer.put( index + 4, bin + width ).put( index + 5, count );
+            dataBuffer.put( index + 6, bin + width ).put( index + 7, 0 );
+        }
     }
 }
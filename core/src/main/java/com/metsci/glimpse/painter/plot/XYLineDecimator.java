@@ -0,0 +1,458 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.painter.plot;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.jogamp.common.nio.Buffers;
+
+/**
+ * Min/max envelope decimation of a dense x-y line whose x values are sorted.
+ *
+ * <p>The x axis is divided into columns no wider than a screen pixel. For each column, only
+ * the first and last samples and the samples with the minimum and maximum y value are
+ * kept, in their original order. A line strip through those vertices covers exactly the
+ * same pixels as a line strip through every sample, but the number of vertices depends
+ * on the width of the plot in pixels rather than on the number of samples.</p>
+ *
+ * <p>To find the extrema of each column quickly, the samples are summarized by a pyramid
+ * of blocks: level 0 stores the index of the minimum and maximum y of each
+ * {@link #BLOCK_SIZE} samples, and each higher level combines pairs of blocks from the
+ * level below. The pyramid is built the first time an envelope is requested after the
+ * data changes.</p>
+ *
+ * <p>Column widths are rounded down to a power of two (in axis units), so that small
+ * changes in zoom reuse the same columns. For each column width, an envelope covering
+ * the visible range plus one window width on either side is computed and cached, so
+ * panning does not recompute it until the view moves past the cached range.</p>
+ *
+ * <p>This class is not thread safe, {@link XYLinePainter} uses it while holding its data lock.</p>
+ */
+public class XYLineDecimator
+{
+    public static final int BLOCK_SIZE = 64;
+    protected static final int MAX_CACHED_ENVELOPES = 4;
+
+    /**
+     * Vertices (and optionally colors) of a decimated line covering a range of columns.
+     */
+    public static class Envelope
+    {
+        protected int level;
+        protected double columnWidth;
+        protected long firstColumn;
+        protected long lastColumn;
+
+        protected FloatBuffer vertices;
+        protected FloatBuffer colors;
+        protected int size;
+
+        public FloatBuffer getVertices( )
+        {
+            return vertices;
+        }
+
+        /**
+         * @return per vertex colors, or null if the line has no per vertex colors
+         */
+        public FloatBuffer getColors( )
+        {
+            return colors;
+        }
+
+        /**
+         * @return the number of vertices in the envelope
+         */
+        public int getSize( )
+        {
+            return size;
+        }
+
+        public boolean covers( double minX, double maxX )
+        {
+            return Math.floor( minX / columnWidth ) >= firstColumn && Math.floor( maxX / columnWidth ) <= lastColumn;
+        }
+
+        /**
+         * @return the index of the first vertex needed to draw the line from the given x value
+         */
+        public int getFirstIndex( double minX )
+        {
+            // the last vertex before minX is needed to draw the segment entering the view
+            return Math.max( 0, lowerBound( vertices, 2, size, minX ) - 1 );
+        }
+
+        /**
+         * @return one past the index of the last vertex needed to draw the line to the given x value
+         */
+        public int getEndIndex( double maxX )
+        {
+            return Math.min( size, upperBound( vertices, 2, size, maxX ) + 1 );
+        }
+    }
+
+    // interleaved x, y values
+    protected FloatBuffer data;
+    // interleaved r, g, b, a values (may be null)
+    protected FloatBuffer colors;
+    protected int size;
+
+    // per level, the index of the sample with the minimum and maximum y in each block
+    protected int[][] minIndex;
+    protected int[][] maxIndex;
+    protected int[] levelSize;
+    // number of samples summarized by the pyramid
+    protected int builtSize;
+
+    protected Map<Integer, Envelope> envelopes;
+
+    // reused when sorting the vertices of a column
+    protected int[] columnIndices = new int[4];
+
+    public XYLineDecimator( )
+    {
+        this.minIndex = new int[0][];
+        this.maxIndex = new int[0][];
+        this.levelSize = new int[0];
+
+        this.envelopes = new LinkedHashMap<Integer, Envelope>( 16, 0.75f, true )
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<Integer, Envelope> eldest )
+            {
+                return size( ) > MAX_CACHED_ENVELOPES;
+            }
+        };
+    }
+
+    /**
+     * Replaces the data to decimate. The x values must be sorted in increasing order.
+     *
+     * @param data interleaved x, y values
+     * @param colors interleaved r, g, b, a values (or null)
+     * @param size the number of samples
+     */
+    public void setData( FloatBuffer data, FloatBuffer colors, int size )
+    {
+        this.data = data;
+        this.colors = colors;
+        this.size = size;
+        this.builtSize = 0;
+        this.envelopes.clear( );
+    }
+
+    public int getSize( )
+    {
+        return size;
+    }
+
+    /**
+     * @return the index of the first sample whose x value is greater than or equal to x
+     */
+    public int lowerBound( double x )
+    {
+        return lowerBound( data, 2, size, x );
+    }
+
+    /**
+     * @return the index of the first sample whose x value is greater than x
+     */
+    public int upperBound( double x )
+    {
+        return upperBound( data, 2, size, x );
+    }
+
+    /**
+     * Returns an envelope covering [minX, maxX] with columns no wider than {@code pixelWidth}.
+     * The envelope is cached and reused while the view stays within its range at the same
+     * zoom level.
+     *
+     * @param pixelWidth the width of a screen pixel in axis units
+     */
+    public Envelope getEnvelope( double minX, double maxX, double pixelWidth )
+    {
+        int level = ( int ) Math.floor( Math.log( pixelWidth ) / Math.log( 2 ) );
+
+        Envelope envelope = envelopes.get( level );
+        if ( envelope != null && envelope.covers( minX, maxX ) ) return envelope;
+
+        updatePyramid( );
+
+        double columnWidth = Math.pow( 2, level );
+        long margin = ( long ) Math.ceil( ( maxX - minX ) / columnWidth );
+
+        envelope = new Envelope( );
+        envelope.level = level;
+        envelope.columnWidth = columnWidth;
+        envelope.firstColumn = ( long ) Math.floor( minX / columnWidth ) - margin;
+        envelope.lastColumn = ( long ) Math.floor( maxX / columnWidth ) + margin;
+        buildEnvelope( envelope );
+
+        envelopes.put( level, envelope );
+        return envelope;
+    }
+
+    protected void buildEnvelope( Envelope envelope )
+    {
+        double columnWidth = envelope.columnWidth;
+
+        int from = lowerBound( envelope.firstColumn * columnWidth );
+        int to = lowerBound( ( envelope.lastColumn + 1 ) * columnWidth );
+
+        // include the samples just outside the range so lines leaving it are drawn
+        if ( from > 0 ) from--;
+        if ( to < size ) to++;
+
+        // at most four vertices per column (plus the two extra samples)
+        long columns = envelope.lastColumn - envelope.firstColumn + 1;
+        int capacity = ( int ) Math.min( to - from, 4 * columns + 2 );
+        FloatBuffer vertices = Buffers.newDirectFloatBuffer( 2 * capacity );
+        FloatBuffer vertexColors = colors == null ? null : Buffers.newDirectFloatBuffer( 4 * capacity );
+
+        int count = 0;
+        int a = from;
+        while ( a < to )
+        {
+            // the column containing sample a ends at the first sample in a later column
+            long column = ( long ) Math.floor( data.get( 2 * a ) / columnWidth );
+            int b = Math.min( to, lowerBound( ( column + 1 ) * columnWidth ) );
+            if ( b <= a ) b = a + 1;
+
+            int n = columnVertices( a, b );
+            for ( int i = 0; i < n; i++ )
+            {
+                int index = columnIndices[i];
+                vertices.put( data.get( 2 * index ) ).put( data.get( 2 * index + 1 ) );
+                if ( vertexColors != null )
+                {
+                    for ( int c = 0; c < 4; c++ )
+                        vertexColors.put( colors.get( 4 * index + c ) );
+                }
+            }
+            count += n;
+
+            a = b;
+        }
+
+        envelope.vertices = ( FloatBuffer ) vertices.rewind( );
+        envelope.colors = vertexColors == null ? null : ( FloatBuffer ) vertexColors.rewind( );
+        envelope.size = count;
+    }
+
+    // fills columnIndices with the distinct first, last, min and max sample indices of [a, b) in order
+    protected int columnVertices( int a, int b )
+    {
+        int[] indices = columnIndices;
+        indices[0] = a;
+        indices[1] = b - 1;
+
+        if ( b - a <= 2 )
+        {
+            return b - a;
+        }
+
+        findExtrema( a, b );
+        Arrays.sort( indices, 0, 4 );
+
+        int n = 1;
+        for ( int i = 1; i < 4; i++ )
+        {
+            if ( indices[i] != indices[n - 1] ) indices[n++] = indices[i];
+        }
+        return n;
+    }
+
+    // stores the indices of the minimum and maximum y in [a, b) in columnIndices[2] and [3]
+    protected void findExtrema( int a, int b )
+    {
+        int min = a;
+        int max = a;
+
+        int blockA = ( a + BLOCK_SIZE - 1 ) / BLOCK_SIZE;
+        int blockB = Math.min( b / BLOCK_SIZE, builtSize / BLOCK_SIZE );
+
+        if ( blockA >= blockB )
+        {
+            for ( int i = a; i < b; i++ )
+            {
+                if ( y( i ) < y( min ) ) min = i;
+                if ( y( i ) > y( max ) ) max = i;
+            }
+        }
+        else
+        {
+            // partial blocks at either end are scanned directly
+            for ( int i = a; i < blockA * BLOCK_SIZE; i++ )
+            {
+                if ( y( i ) < y( min ) ) min = i;
+                if ( y( i ) > y( max ) ) max = i;
+            }
+            for ( int i = blockB * BLOCK_SIZE; i < b; i++ )
+            {
+                if ( y( i ) < y( min ) ) min = i;
+                if ( y( i ) > y( max ) ) max = i;
+            }
+
+            // whole blocks are covered by O(log n) pyramid entries
+            int lo = blockA;
+            int hi = blockB;
+            for ( int level = 0; lo < hi; level++ )
+            {
+                if ( ( lo & 1 ) == 1 )
+                {
+                    if ( y( minIndex[level][lo] ) < y( min ) ) min = minIndex[level][lo];
+                    if ( y( maxIndex[level][lo] ) > y( max ) ) max = maxIndex[level][lo];
+                    lo++;
+                }
+                if ( ( hi & 1 ) == 1 )
+                {
+                    hi--;
+                    if ( y( minIndex[level][hi] ) < y( min ) ) min = minIndex[level][hi];
+                    if ( y( maxIndex[level][hi] ) > y( max ) ) max = maxIndex[level][hi];
+                }
+                lo >>= 1;
+                hi >>= 1;
+            }
+        }
+
+        columnIndices[2] = min;
+        columnIndices[3] = max;
+    }
+
+    protected float y( int i )
+    {
+        return data.get( 2 * i + 1 );
+    }
+
+    // builds the pyramid over the whole blocks among the first size samples
+    protected void updatePyramid( )
+    {
+        int blocks = size / BLOCK_SIZE;
+        if ( builtSize == size ) return;
+
+        int levels = 1;
+        for ( int n = blocks; n > 1; n >>= 1 )
+            levels++;
+
+        if ( minIndex.length < levels )
+        {
+            minIndex = Arrays.copyOf( minIndex, levels );
+            maxIndex = Arrays.copyOf( maxIndex, levels );
+            levelSize = Arrays.copyOf( levelSize, levels );
+        }
+
+        for ( int level = 0; level < levels; level++ )
+        {
+            int n = level == 0 ? blocks : levelSize[level - 1] / 2;
+
+            if ( minIndex[level] == null || minIndex[level].length < n )
+            {
+                int capacity = Math.max( n, minIndex[level] == null ? 0 : minIndex[level].length * 2 );
+                minIndex[level] = minIndex[level] == null ? new int[capacity] : Arrays.copyOf( minIndex[level], capacity );
+                maxIndex[level] = maxIndex[level] == null ? new int[capacity] : Arrays.copyOf( maxIndex[level], capacity );
+            }
+
+            int[] mins = minIndex[level];
+            int[] maxs = maxIndex[level];
+
+            for ( int j = 0; j < n; j++ )
+            {
+                int min;
+                int max;
+
+                if ( level == 0 )
+                {
+                    min = max = j * BLOCK_SIZE;
+                    for ( int i = j * BLOCK_SIZE + 1; i < ( j + 1 ) * BLOCK_SIZE; i++ )
+                    {
+                        if ( y( i ) < y( min ) ) min = i;
+                        if ( y( i ) > y( max ) ) max = i;
+                    }
+                }
+                else
+                {
+                    int[] childMins = minIndex[level - 1];
+                    int[] childMaxs = maxIndex[level - 1];
+                    min = y( childMins[2 * j + 1] ) < y( childMins[2 * j] ) ? childMins[2 * j + 1] : childMins[2 * j];
+                    max = y( childMaxs[2 * j + 1] ) > y( childMaxs[2 * j] ) ? childMaxs[2 * j + 1] : childMaxs[2 * j];
+                }
+
+                mins[j] = min;
+                maxs[j] = max;
+            }
+
+            levelSize[level] = n;
+        }
+
+        builtSize = size;
+    }
+
+    // index of the first of size entries (with the given stride) whose value is greater than or equal to x
+    protected static int lowerBound( FloatBuffer buffer, int stride, int size, double x )
+    {
+        int lo = 0;
+        int hi = size;
+        while ( lo < hi )
+        {
+            int mid = ( lo + hi ) >>> 1;
+            if ( buffer.get( stride * mid ) < x )
+            {
+                lo = mid + 1;
+            }
+            else
+            {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // index of the first of size entries (with the given stride) whose value is greater than x
+    protected static int upperBound( FloatBuffer buffer, int stride, int size, double x )
+    {
+        int lo = 0;
+        int hi = size;
+        while ( lo < hi )
+        {
+            int mid = ( lo + hi ) >>> 1;
+            if ( buffer.get( stride * mid ) <= x )
+            {
+                lo = mid + 1;
+            }
+            else
+            {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
@@ -42,10 +42,24 @@ import com.metsci.glimpse.support.colormap.ColorMap;
  * Plots a simple x-y lineplot. Provides options for modifying
  * line thickness and color.
  *
+ * <p>For strip charts which receive a steady stream of samples, {@link #setRingCapacity(int)}
+ * switches the painter into a ring buffer mode. Samples are then added with
+ * {@link #appendData(float, float)}, the oldest samples are evicted once the capacity is
+ * reached, and only the newly written vertices are uploaded to the device, so the cost
+ * of each sample does not depend on the window length.</p>
+ *
+ * <p>When the x values of the data are sorted and there are many more visible samples
+ * than horizontal pixels, the painter draws a min/max envelope of the data computed by
+ * an {@link XYLineDecimator} instead of every sample. The envelope covers the same pixels,
+ * and the full data is only uploaded to the device if it is drawn undecimated.</p>
+ *
  * @author ulman
  */
 public class XYLinePainter extends GlimpseDataPainter2D
 {
+    // decimate when there are more than this many visible samples per horizontal pixel
+    protected static final int DECIMATION_THRESHOLD = 4;
+
     protected float[] lineColor = new float[] { 1.0f, 1.0f, 1.0f, 1.0f };
     protected float lineThickness = 1;
     protected boolean showLines = true;
@@ -72,6 +86,26 @@ public class XYLinePainter extends GlimpseDataPainter2D
     protected volatile boolean newData = false;
     protected volatile boolean bufferInitialized = false;
 
+    // maximum number of vertices in ring buffer mode (0 if not in ring buffer mode)
+    protected int ringCapacity = 0;
+    // ring index of the oldest vertex
+    protected int ringStart = 0;
+    // vertices written since the last upload to the device, starting at ring index ringDirtyStart
+    protected int ringDirtyStart = 0;
+    protected int ringDirtyCount = 0;
+    // true if the device buffers must be reallocated rather than updated in place
+    protected boolean ringReallocate = false;
+
+    protected boolean decimate = true;
+    // true if the x values of the data are sorted (required for decimation)
+    protected boolean dataSorted = false;
+    protected XYLineDecimator decimator = new XYLineDecimator( );
+    // true if the data has not been uploaded to the device since it last changed
+    protected boolean deviceDataStale = false;
+
+    protected int[] envelopeHandle = null;
+    protected XYLineDecimator.Envelope uploadedEnvelope = null;
+
     public XYLinePainter( )
     {
         this.dataBufferLock = new ReentrantLock( );
@@ -110,6 +144,7 @@ public class XYLinePainter extends GlimpseDataPainter2D
         this.dataBufferLock.lock( );
         try
         {
+            ringCapacity = 0;
             dataSize = Math.min( dataX.length, dataY.length );
 
             if ( dataBuffer == null || dataBuffer.rewind( ).capacity( ) < dataSize * 2 )
@@ -118,11 +153,15 @@ public class XYLinePainter extends GlimpseDataPainter2D
             }
 
             // copy data from the provided arrays into the host memory buffer
+            boolean sorted = true;
             for ( int i = 0; i < dataSize; i++ )
             {
                 this.dataBuffer.put( dataX[i] ).put( dataY[i] );
+                if ( i > 0 && dataX[i] < dataX[i - 1] ) sorted = false;
             }
 
+            this.dataSorted = sorted;
+
             this.newData = true;
         }
         finally
@@ -136,6 +175,7 @@ public class XYLinePainter extends GlimpseDataPainter2D
         this.dataBufferLock.lock( );
         try
         {
+            ringCapacity = 0;
             dataSize = Math.min( dataX.length, dataY.length );
 
             if ( dataBuffer == null || dataBuffer.rewind( ).capacity( ) < dataSize * 2 )
@@ -144,11 +184,15 @@ public class XYLinePainter extends GlimpseDataPainter2D
             }
 
             // copy data from the provided arrays into the host memory buffer
+            boolean sorted = true;
             for ( int i = 0; i < dataSize; i++ )
             {
                 this.dataBuffer.put( ( float ) dataX[i] ).put( ( float ) dataY[i] );
+                if ( i > 0 && ( float ) dataX[i] < ( float ) dataX[i - 1] ) sorted = false;
             }
 
+            this.dataSorted = sorted;
+
             this.newData = true;
         }
         finally
@@ -178,6 +222,7 @@ public class XYLinePainter extends GlimpseDataPainter2D
             }
 
             this.useColorHost = true;
+            this.newData = true;
         }
         finally
         {
@@ -206,6 +251,86 @@ public class XYLinePainter extends GlimpseDataPainter2D
             }
 
             this.useColorHost = true;
+            this.newData = true;
+        }
+        finally
+        {
+            this.dataBufferLock.unlock( );
+        }
+    }
+
+    /**
+     * Switches to ring buffer mode, discarding any existing data. At most {@code capacity}
+     * vertices are kept: once the ring is full, each appended vertex replaces the oldest one.
+     * Calling {@code setData} returns the painter to its normal mode.
+     *
+     * @see #appendData(float, float)
+     */
+    public void setRingCapacity( int capacity )
+    {
+        this.dataBufferLock.lock( );
+        try
+        {
+            this.ringCapacity = capacity;
+            this.ringStart = 0;
+            this.ringDirtyStart = 0;
+            this.ringDirtyCount = 0;
+            this.ringReallocate = true;
+            this.dataSize = 0;
+            this.useColorHost = false;
+
+            // one extra vertex after the end of the ring mirrors the vertex at index 0,
+            // so the line strip stays connected across the wrap point
+            this.dataBuffer = Buffers.newDirectFloatBuffer( ( capacity + 1 ) * 2 );
+
+            this.newData = true;
+        }
+        finally
+        {
+            this.dataBufferLock.unlock( );
+        }
+    }
+
+    /**
+     * @return the ring buffer capacity in vertices, or 0 if not in ring buffer mode
+     */
+    public int getRingCapacity( )
+    {
+        return this.ringCapacity;
+    }
+
+    /**
+     * Appends a vertex in ring buffer mode, evicting the oldest vertex if the ring is full.
+     * If per-vertex colors are in use, the vertex is given the line color.
+     *
+     * @see #setRingCapacity(int)
+     */
+    public void appendData( float x, float y )
+    {
+        this.dataBufferLock.lock( );
+        try
+        {
+            append0( x, y, lineColor );
+        }
+        finally
+        {
+            this.dataBufferLock.unlock( );
+        }
+    }
+
+    /**
+     * @see #appendData(float, float)
+     */
+    public void appendData( float[] dataX, float[] dataY )
+    {
+        this.dataBufferLock.lock( );
+        try
+        {
+            int size = Math.min( dataX.length, dataY.length );
+            for ( int i = 0; i < size; i++ )
+            {
+                append0( dataX[i], dataY[i], lineColor );
+            }
         }
         finally
         {
@@ -213,6 +338,111 @@ public class XYLinePainter extends GlimpseDataPainter2D
         }
     }
 
+    /**
+     * Appends vertices with per-vertex colors in ring buffer mode. Vertices already in
+     * the ring which were appended without a color are given the line color.
+     *
+     * @see #appendData(float, float)
+     */
+    public void appendDataAndColor( float[] dataX, float[] dataY, float[] dataZ, ColorMap scale )
+    {
+        this.dataBufferLock.lock( );
+        try
+        {
+            checkRingMode( );
+
+            if ( !useColorHost )
+            {
+                this.colorBuffer = Buffers.newDirectFloatBuffer( ( ringCapacity + 1 ) * 4 );
+                for ( int i = 0; i <= ringCapacity; i++ )
+                {
+                    this.colorBuffer.put( lineColor );
+                }
+
+                this.useColorHost = true;
+                this.ringReallocate = true;
+            }
+
+            float[] color = new float[4];
+
+            int size = Math.min( Math.min( dataX.length, dataY.length ), dataZ.length );
+            for ( int i = 0; i < size; i++ )
+            {
+                scale.toColor( dataZ[i], color );
+                append0( dataX[i], dataY[i], color );
+            }
+        }
+        finally
+        {
+            this.dataBufferLock.unlock( );
+        }
+    }
+
+    // must be called while holding dataBufferLock
+    protected void append0( float x, float y, float[] rgba )
+    {
+        checkRingMode( );
+
+        int index;
+        if ( dataSize < ringCapacity )
+        {
+            index = ( ringStart + dataSize ) % ringCapacity;
+            dataSize++;
+        }
+        else
+        {
+            // the ring is full, overwrite the oldest vertex
+            index = ringStart;
+            ringStart = ( ringStart + 1 ) % ringCapacity;
+        }
+
+        putRing( index, x, y, rgba );
+        if ( index == 0 ) putRing( ringCapacity, x, y, rgba );
+
+        if ( ringDirtyCount == 0 ) ringDirtyStart = index;
+        ringDirtyCount = Math.min( ringCapacity, ringDirtyCount + 1 );
+
+        this.newData = true;
+    }
+
+    protected void putRing( int index, float x, float y, float[] rgba )
+    {
+        dataBuffer.put( index * 2, x );
+        dataBuffer.put( index * 2 + 1, y );
+
+        if ( useColorHost )
+        {
+            for ( int i = 0; i < 4; i++ )
+            {
+                colorBuffer.put( index * 4 + i, rgba[i] );
+            }
+        }
+    }
+
+    protected void checkRingMode( )
+    {
+        if ( ringCapacity <= 0 )
+        {
+            throw new IllegalStateException( "Ring buffer mode is not enabled. Call setRingCapacity( ) first." );
+        }
+    }
+
+    /**
+     * If true (the default), data with sorted x values is drawn as a min/max envelope
+     * when there are many more visible samples than horizontal pixels.
+     *
+     * @see XYLineDecimator
+     */
+    public void setDecimationEnabled( boolean decimate )
+    {
+        this.decimate = decimate;
+    }
+
+    public boolean isDecimationEnabled( )
+    {
+        return this.decimate;
+    }
+
     public void setLineStipple( boolean activate )
     {
         this.stippleOn = activate;
@@ -264,6 +494,7 @@ public class XYLinePainter extends GlimpseDataPainter2D
         {
             context.getGL( ).glDeleteBuffers( 1, colorHandle, 0 );
             context.getGL( ).glDeleteBuffers( 1, bufferHandle, 0 );
+            context.getGL( ).glDeleteBuffers( 2, envelopeHandle, 0 );
         }
     }
 
@@ -280,52 +511,70 @@ public class XYLinePainter extends GlimpseDataPainter2D
             colorHandle = new int[1];
             gl.glGenBuffers( 1, colorHandle, 0 );
 
+            envelopeHandle = new int[2];
+            gl.glGenBuffers( 2, envelopeHandle, 0 );
+
             bufferInitialized = true;
         }
 
-        if ( newData )
+        XYLineDecimator.Envelope envelope = null;
+        int envelopeFirst = 0;
+        int envelopeEnd = 0;
+
+        this.dataBufferLock.lock( );
+        try
         {
-            this.dataBufferLock.lock( );
-            try
+            if ( newData )
             {
-                gl.glPixelStorei( GL2.GL_UNPACK_ALIGNMENT, 1 );
-
-                gl.glBindBuffer( GL2.GL_ARRAY_BUFFER, bufferHandle[0] );
-
-                // copy data from the host memory buffer to the device
-                gl.glBufferData( GL2.GL_ARRAY_BUFFER, dataSize * 2 * BYTES_PER_FLOAT, dataBuffer.rewind( ), GL2.GL_DYNAMIC_DRAW );
-
-                glHandleError( gl );
-
-                useColorDevice = useColorHost;
-                if ( useColorDevice )
+                if ( ringCapacity > 0 && !ringReallocate )
                 {
-                    gl.glBindBuffer( GL2.GL_ARRAY_BUFFER, colorHandle[0] );
-
-                    // copy data from the host memory buffer to the device
-                    gl.glBufferData( GL2.GL_ARRAY_BUFFER, dataSize * 4 * BYTES_PER_FLOAT, colorBuffer.rewind( ), GL2.GL_DYNAMIC_DRAW );
-
-                    glHandleError( gl );
+                    uploadRing( gl );
+                }
+                else if ( ringCapacity > 0 )
+                {
+                    uploadAll( gl );
+                }
+                else
+                {
+                    // defer the upload, the full data may never need to be drawn
+                    decimator.setData( dataBuffer, useColorHost ? colorBuffer : null, dataSize );
+                    deviceDataStale = true;
                 }
 
                 newData = false;
             }
-            finally
+
+            envelope = getEnvelope( axis, bounds );
+
+            if ( envelope != null )
+            {
+                if ( envelope != uploadedEnvelope ) uploadEnvelope( gl, envelope );
+
+                envelopeFirst = envelope.getFirstIndex( axis.getMinX( ) );
+                envelopeEnd = envelope.getEndIndex( axis.getMaxX( ) );
+            }
+            else if ( deviceDataStale )
             {
-                this.dataBufferLock.unlock( );
+                uploadAll( gl );
+                deviceDataStale = false;
             }
         }
+        finally
+        {
+            this.dataBufferLock.unlock( );
+        }
 
         gl.glShadeModel( GL2.GL_FLAT );
 
-        if ( useColorDevice )
+        boolean useColor = envelope != null ? envelope.getColors( ) != null : useColorDevice;
+        if ( useColor )
         {
-            gl.glBindBuffer( GL2.GL_ARRAY_BUFFER, colorHandle[0] );
+            gl.glBindBuffer( GL2.GL_ARRAY_BUFFER, envelope != null ? envelopeHandle[1] : colorHandle[0] );
             gl.glColorPointer( 4, GL2.GL_FLOAT, 0, 0 );
             gl.glEnableClientState( GL2.GL_COLOR_ARRAY );
         }
 
-        gl.glBindBuffer( GL2.GL_ARRAY_BUFFER, bufferHandle[0] );
+        gl.glBindBuffer( GL2.GL_ARRAY_BUFFER, envelope != null ? envelopeHandle[0] : bufferHandle[0] );
         gl.glVertexPointer( 2, GL2.GL_FLOAT, 0, 0 );
         gl.glEnableClientState( GL2.GL_VERTEX_ARRAY );
 
@@ -340,13 +589,148 @@ public class XYLinePainter extends GlimpseDataPainter2D
                 gl.glLineStipple( stippleFactor, stipplePattern );
             }
 
-            gl.glDrawArrays( GL2.GL_LINE_STRIP, 0, dataSize );
+            if ( envelope != null )
+            {
+                gl.glDrawArrays( GL2.GL_LINE_STRIP, envelopeFirst, envelopeEnd - envelopeFirst );
+            }
+            else
+            {
+                drawArrays( gl, GL2.GL_LINE_STRIP, true );
+            }
         }
 
         if ( showPoints )
         {
             gl.glPointSize( pointSize );
-            gl.glDrawArrays( GL2.GL_POINTS, 0, dataSize );
+            if ( envelope != null )
+            {
+                gl.glDrawArrays( GL2.GL_POINTS, envelopeFirst, envelopeEnd - envelopeFirst );
+            }
+            else
+            {
+                drawArrays( gl, GL2.GL_POINTS, false );
+            }
+        }
+    }
+
+    // must be called while holding dataBufferLock, returns null if the data should not be decimated
+    protected XYLineDecimator.Envelope getEnvelope( Axis2D axis, GlimpseBounds bounds )
+    {
+        if ( !decimate || ringCapacity > 0 || !dataSorted || bounds.getWidth( ) <= 0 ) return null;
+
+        double minX = axis.getMinX( );
+        double maxX = axis.getMaxX( );
+        int width = bounds.getWidth( );
+
+        int visible = decimator.upperBound( maxX ) - decimator.lowerBound( minX );
+        if ( visible <= DECIMATION_THRESHOLD * width ) return null;
+
+        return decimator.getEnvelope( minX, maxX, ( maxX - minX ) / width );
+    }
+
+    // must be called while holding dataBufferLock
+    protected void uploadEnvelope( GL2 gl, XYLineDecimator.Envelope envelope )
+    {
+        gl.glBindBuffer( GL2.GL_ARRAY_BUFFER, envelopeHandle[0] );
+        gl.glBufferData( GL2.GL_ARRAY_BUFFER, envelope.getSize( ) * 2 * BYTES_PER_FLOAT, envelope.getVertices( ).rewind( ), GL2.GL_DYNAMIC_DRAW );
+
+        if ( envelope.getColors( ) != null )
+        {
+            gl.glBindBuffer( GL2.GL_ARRAY_BUFFER, envelopeHandle[1] );
+            gl.glBufferData( GL2.GL_ARRAY_BUFFER, envelope.getSize( ) * 4 * BYTES_PER_FLOAT, envelope.getColors( ).rewind( ), GL2.GL_DYNAMIC_DRAW );
+        }
+
+        glHandleError( gl );
+
+        uploadedEnvelope = envelope;
+    }
+
+    protected void drawArrays( GL2 gl, int mode, boolean connect )
+    {
+        if ( ringCapacity > 0 )
+        {
+            // draw from the oldest vertex to the end of the ring, then wrap around to index 0
+            // (the mirrored vertex after the end of the ring connects the two line strips)
+            int tailCount = Math.min( dataSize, ringCapacity - ringStart );
+            int headCount = dataSize - tailCount;
+
+            gl.glDrawArrays( mode, ringStart, connect && headCount > 0 ? tailCount + 1 : tailCount );
+            if ( headCount > 0 ) gl.glDrawArrays( mode, 0, headCount );
+        }
+        else
+        {
+            gl.glDrawArrays( mode, 0, dataSize );
+        }
+    }
+
+    // must be called while holding dataBufferLock
+    protected void uploadRing( GL2 gl )
+    {
+        if ( ringDirtyCount > 0 )
+        {
+            gl.glBindBuffer( GL2.GL_ARRAY_BUFFER, bufferHandle[0] );
+            uploadRing( gl, dataBuffer, 2 );
+
+            if ( useColorDevice )
+            {
+                gl.glBindBuffer( GL2.GL_ARRAY_BUFFER, colorHandle[0] );
+                uploadRing( gl, colorBuffer, 4 );
+            }
+
+            glHandleError( gl );
+        }
+
+        ringDirtyCount = 0;
+    }
+
+    // copies the vertices written since the last upload (which may wrap around the end of the ring)
+    protected void uploadRing( GL2 gl, FloatBuffer buffer, int components )
+    {
+        int tailCount = Math.min( ringDirtyCount, ringCapacity - ringDirtyStart );
+        int headCount = ringDirtyCount - tailCount;
+
+        uploadRange( gl, buffer, components, ringDirtyStart, tailCount );
+        if ( headCount > 0 ) uploadRange( gl, buffer, components, 0, headCount );
+
+        // keep the mirrored copy of vertex 0 current
+        if ( ringDirtyStart == 0 || headCount > 0 ) uploadRange( gl, buffer, components, ringCapacity, 1 );
+
+        buffer.rewind( );
+    }
+
+    protected void uploadRange( GL2 gl, FloatBuffer buffer, int components, int first, int count )
+    {
+        buffer.position( first * components );
+        gl.glBufferSubData( GL2.GL_ARRAY_BUFFER, first * components * BYTES_PER_FLOAT, count * components * BYTES_PER_FLOAT, buffer );
+    }
+
+    // must be called while holding dataBufferLock
+    protected void uploadAll( GL2 gl )
+    {
+        // in ring buffer mode, allocate device buffers for the whole ring (including the mirrored vertex)
+        int vertexCount = ringCapacity > 0 ? ringCapacity + 1 : dataSize;
+
+        gl.glPixelStorei( GL2.GL_UNPACK_ALIGNMENT, 1 );
+
+        gl.glBindBuffer( GL2.GL_ARRAY_BUFFER, bufferHandle[0] );
+
+        // copy data from the host memory buffer to the device
+        gl.glBufferData( GL2.GL_ARRAY_BUFFER, vertexCount * 2 * BYTES_PER_FLOAT, dataBuffer.rewind( ), GL2.GL_DYNAMIC_DRAW );
+
+        glHandleError( gl );
+
+        useColorDevice = useColorHost;
+        if ( useColorDevice )
+        {
+            gl.glBindBuffer( GL2.GL_ARRAY_BUFFER, colorHandle[0] );
+
+            // copy data from the host memory buffer to the device
+            gl.glBufferData( GL2.GL_ARRAY_BUFFER, vertexCount * 4 * BYTES_PER_FLOAT, colorBuffer.rewind( ), GL2.GL_DYNAMIC_DRAW );
+
+            glHandleError( gl );
         }
+
+        ringReallocate = false;
+        ringDirtyCount = 0;
     }
 }
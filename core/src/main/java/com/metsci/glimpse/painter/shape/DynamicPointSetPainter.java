@@ -39,10 +39,10 @@ import javax.media.opengl.GL2;
 
 import com.metsci.glimpse.axis.Axis2D;
 import com.metsci.glimpse.context.GlimpseBounds;
+import com.metsci.glimpse.gl.attribute.GLBuffer.DirtyRanges;
 import com.metsci.glimpse.gl.attribute.GLFloatBuffer;
-import com.metsci.glimpse.gl.attribute.GLFloatBuffer.Mutator;
+import com.metsci.glimpse.gl.attribute.GLFloatBuffer.RangeMutator;
 import com.metsci.glimpse.gl.attribute.GLFloatBuffer2D;
-import com.metsci.glimpse.gl.attribute.GLFloatBuffer2D.IndexedMutator;
 import com.metsci.glimpse.gl.attribute.GLVertexAttribute;
 import com.metsci.glimpse.painter.base.GlimpseDataPainter2D;
 import com.metsci.glimpse.support.color.GlimpseColor;
@@ -247,11 +247,12 @@ public class DynamicPointSetPainter extends GlimpseDataPainter2D
 
     protected void mutateColor( final int index, final float[] color )
     {
-        this.colorBuffer.mutate( new Mutator( )
+        this.colorBuffer.mutate( new RangeMutator( )
         {
             @Override
-            public void mutate( FloatBuffer data, int length )
+            public void mutate( FloatBuffer data, int length, DirtyRanges dirty )
             {
+                dirty.add( index, index + 1 );
                 data.position( index * length );
                 data.put( color[0] );
                 data.put( color[1] );
@@ -263,17 +264,12 @@ public class DynamicPointSetPainter extends GlimpseDataPainter2D
 
     protected void mutatePosition( final int index, final float posX, final float posY )
     {
-        this.pointBuffer.mutateIndexed( new IndexedMutator( )
+        this.pointBuffer.mutate( new RangeMutator( )
         {
             @Override
-            public int getUpdateIndex( )
-            {
-                return index;
-            }
-
-            @Override
-            public void mutate( FloatBuffer data, int length )
+            public void mutate( FloatBuffer data, int length, DirtyRanges dirty )
             {
+                dirty.add( index, index + 1 );
                 data.position( index * length );
                 data.put( posX );
                 data.put( posY );
@@ -281,19 +277,14 @@ public class DynamicPointSetPainter extends GlimpseDataPainter2D
         } );
     }
 
-    protected int getIndexArray( List<Object> ids, boolean grow, int[] listIndex )
+    protected void getIndexArray( List<Object> ids, boolean grow, int[] listIndex )
     {
         int size = ids.size( );
-        int minIndex = size;
 
         for ( int i = 0; i < size; i++ )
         {
-            int index = getIndex( ids.get( i ), grow );
-            listIndex[i] = index;
-            if ( minIndex > index ) minIndex = index;
+            listIndex[i] = getIndex( ids.get( i ), grow );
         }
-
-        return minIndex;
     }
 
     protected void mutatePositions( BulkPointAccumulator accumulator )
@@ -304,34 +295,31 @@ public class DynamicPointSetPainter extends GlimpseDataPainter2D
         final int size = accumulator.getSize( );
 
         final int[] indexList = new int[size];
-        final int minIndex = getIndexArray( ids, true, indexList );
+        getIndexArray( ids, true, indexList );
 
-        this.pointBuffer.mutateIndexed( new IndexedMutator( )
+        // only the changed points are uploaded and re-indexed
+        this.pointBuffer.mutate( new RangeMutator( )
         {
             @Override
-            public int getUpdateIndex( )
-            {
-                return minIndex;
-            }
-
-            @Override
-            public void mutate( FloatBuffer data, int length )
+            public void mutate( FloatBuffer data, int length, DirtyRanges dirty )
             {
                 for ( int i = 0; i < size; i++ )
                 {
+                    dirty.add( indexList[i], indexList[i] + 1 );
                     data.position( indexList[i] * length );
                     data.put( v, i * stride, length );
                 }
             }
         } );
 
-        this.colorBuffer.mutate( new Mutator( )
+        this.colorBuffer.mutate( new RangeMutator( )
         {
             @Override
-            public void mutate( FloatBuffer data, int length )
+            public void mutate( FloatBuffer data, int length, DirtyRanges dirty )
             {
                 for ( int i = 0; i < size; i++ )
                 {
+                    dirty.add( indexList[i], indexList[i] + 1 );
                     data.position( indexList[i] * length );
                     data.put( v, i * stride + 2, length );
                 }
@@ -349,13 +337,14 @@ public class DynamicPointSetPainter extends GlimpseDataPainter2D
         final int[] indexList = new int[size];
         getIndexArray( ids, false, indexList );
 
-        this.colorBuffer.mutate( new Mutator( )
+        this.colorBuffer.mutate( new RangeMutator( )
         {
             @Override
-            public void mutate( FloatBuffer data, int length )
+            public void mutate( FloatBuffer data, int length, DirtyRanges dirty )
             {
                 for ( int i = 0; i < size; i++ )
                 {
+                    dirty.add( indexList[i], indexList[i] + 1 );
                     data.position( indexList[i] * length );
                     data.put( v, i * stride, length );
                 }
@@ -34,13 +34,26 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 
 import javax.media.opengl.GL;
@@ -50,8 +63,10 @@ import javax.media.opengl.GLContext;
 import com.metsci.glimpse.axis.Axis2D;
 import com.metsci.glimpse.context.GlimpseBounds;
 import com.metsci.glimpse.context.GlimpseContext;
+import com.metsci.glimpse.gl.attribute.GLBufferAllocator;
 import com.metsci.glimpse.painter.base.GlimpsePainter2D;
-import com.metsci.glimpse.support.interval.IntervalQuadTree;
+import com.metsci.glimpse.support.interval.LongIntervalIndex;
+import com.metsci.glimpse.support.interval.LongIntervalIndex.IntervalVisitor;
 import com.metsci.glimpse.support.polygon.Polygon;
 import com.metsci.glimpse.support.polygon.Polygon.Interior;
 import com.metsci.glimpse.support.polygon.Polygon.Loop;
@@ -65,11 +80,25 @@ import com.metsci.glimpse.support.polygon.SimpleVertexAccumulator;
  * Polygons can have timestamps associated with them, and can be efficiently filtered
  * by time (only drawing those polygons which fall within a particular time window.
  *
+ * <p>By default polygons are tessellated on the thread which adds them. Painters constructed
+ * with a number of tessellation threads or an executor instead tessellate on background
+ * workers, so adding a polygon returns quickly and the polygon appears once its tessellation
+ * finishes. The GL thread only uploads finished triangles, and each polygon occupies
+ * its own slice of its group's vertex buffers so adding or deleting a polygon
+ * rewrites only that slice.</p>
+ *
+ * <p>Each group indexes its polygons by time, and lays them out in its vertex buffers
+ * in order of start time whenever the buffers are rebuilt. Changing the displayed time
+ * range then only touches the polygons in the new range, and polygons which are adjacent
+ * in time are usually adjacent in the buffers, so they are filled with a single draw call.</p>
+ *
  * @author ulman
  */
 public class PolygonPainter extends GlimpsePainter2D
 {
     protected static final double DELETE_EXPAND_FACTOR = 1.2;
+    // seconds an idle tessellation worker thread waits for work before exiting
+    protected static final long TESSELLATION_THREAD_KEEP_ALIVE = 5;
 
     //@formatter:off
     protected byte halftone[] = {
@@ -101,8 +130,20 @@ public class PolygonPainter extends GlimpsePainter2D
             (byte) 0x55, (byte) 0x55, (byte) 0x55 };
     //@formatter:on
 
+    // used to tessellate polygons synchronously (when there is no tessellationExecutor)
     protected PolygonTessellator tessellator;
 
+    // worker pool which tessellates polygons, or null to tessellate on the calling thread
+    protected ExecutorService tessellationExecutor;
+    // true if the tessellationExecutor was created by this painter and should be shut down with it
+    protected boolean ownsTessellationExecutor;
+    // GLU tessellators are not thread safe, so each worker thread gets its own
+    protected ThreadLocal<PolygonTessellator> workerTessellators;
+    // polygons whose tessellation has finished, waiting to be added to their Group
+    protected Queue<IdPolygon> tessellatedPolygons;
+    // number of polygons submitted to the tessellationExecutor which have not finished
+    protected AtomicInteger pendingTessellationCount;
+
     protected int dataBufferSize = 0;
     protected FloatBuffer dataBuffer = null;
 
@@ -120,10 +161,52 @@ public class PolygonPainter extends GlimpsePainter2D
     protected Long globalSelectionStart;
     protected Long globalSelectionEnd;
 
+    /**
+     * Creates a PolygonPainter which tessellates polygons on the thread which adds them.
+     */
     public PolygonPainter( )
+    {
+        this( 0 );
+    }
+
+    /**
+     * @param tessellationThreads the number of background threads used to tessellate polygons,
+     *                            or zero to tessellate polygons on the thread which adds them
+     */
+    public PolygonPainter( int tessellationThreads )
+    {
+        this( tessellationThreads > 0 ? newTessellationExecutor( tessellationThreads ) : null, true );
+    }
+
+    /**
+     * Creates a PolygonPainter which tessellates polygons using the provided executor. The
+     * executor may be shared between painters and is not shut down when this painter is disposed.
+     *
+     * @param tessellationExecutor executor used to tessellate polygons, or null to tessellate
+     *                             polygons on the thread which adds them
+     */
+    public PolygonPainter( ExecutorService tessellationExecutor )
+    {
+        this( tessellationExecutor, false );
+    }
+
+    protected PolygonPainter( ExecutorService tessellationExecutor, boolean ownsTessellationExecutor )
     {
         this.tessellator = new PolygonTessellator( );
 
+        this.tessellationExecutor = tessellationExecutor;
+        this.ownsTessellationExecutor = ownsTessellationExecutor;
+        this.tessellatedPolygons = new ConcurrentLinkedQueue<IdPolygon>( );
+        this.pendingTessellationCount = new AtomicInteger( );
+        this.workerTessellators = new ThreadLocal<PolygonTessellator>( )
+        {
+            @Override
+            protected PolygonTessellator initialValue( )
+            {
+                return new PolygonTessellator( );
+            }
+        };
+
         this.groups = new LinkedHashMap<Object, Group>( );
         this.updatedGroups = new LinkedHashSet<Group>( );
         this.loadedGroups = new LinkedHashMap<Object, LoadedGroup>( );
@@ -131,6 +214,32 @@ public class PolygonPainter extends GlimpsePainter2D
         this.updateLock = new ReentrantLock( );
     }
 
+    protected static ExecutorService newTessellationExecutor( int threads )
+    {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor( threads, threads, TESSELLATION_THREAD_KEEP_ALIVE, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>( ), new ThreadFactory( )
+        {
+            @Override
+            public Thread newThread( Runnable runnable )
+            {
+                Thread thread = new Thread( runnable, "PolygonPainter Tessellator" );
+                thread.setDaemon( true );
+                return thread;
+            }
+        } );
+
+        executor.allowCoreThreadTimeOut( true );
+
+        return executor;
+    }
+
+    /**
+     * @return the number of added polygons which are still waiting to be tessellated
+     */
+    public int getPendingTessellationCount( )
+    {
+        return pendingTessellationCount.get( );
+    }
+
     public void addPolygon( Object groupId, Object polygonId, float[] dataX, float[] dataY, float z )
     {
         this.updateLock.lock( );
@@ -557,7 +666,17 @@ public class PolygonPainter extends GlimpsePainter2D
         {
             Group group = getOrCreateGroup( groupId );
 
-            group.addPolygon( polygon );
+            if ( tessellationExecutor == null )
+            {
+                polygon.setFillVertices( tessellate( tessellator, polygon.geometry ) );
+                group.addPolygon( polygon );
+            }
+            else
+            {
+                // the polygon is added to the group once its tessellation finishes
+                group.addPendingPolygon( polygon );
+                submitTessellation( polygon );
+            }
 
             this.updatedGroups.add( group );
             this.newData = true;
@@ -568,6 +687,77 @@ public class PolygonPainter extends GlimpsePainter2D
         }
     }
 
+    protected void submitTessellation( final IdPolygon polygon )
+    {
+        // counted before submission, so the count never drops to zero while a polygon is queued
+        this.pendingTessellationCount.incrementAndGet( );
+
+        try
+        {
+            this.tessellationExecutor.execute( newTessellationTask( polygon ) );
+        }
+        catch ( RejectedExecutionException e )
+        {
+            // for instance, the executor was shut down by dispose( )
+            this.pendingTessellationCount.decrementAndGet( );
+            throw e;
+        }
+    }
+
+    protected Runnable newTessellationTask( final IdPolygon polygon )
+    {
+        return new Runnable( )
+        {
+            @Override
+            public void run( )
+            {
+                try
+                {
+                    polygon.fillVertices = tessellate( workerTessellators.get( ), polygon.geometry );
+                    tessellatedPolygons.add( polygon );
+                }
+                finally
+                {
+                    pendingTessellationCount.decrementAndGet( );
+                    newData = true;
+                }
+            }
+        };
+    }
+
+    // must be called while holding updateLock
+    protected void addTessellatedPolygons( )
+    {
+        IdPolygon polygon;
+        while ( ( polygon = tessellatedPolygons.poll( ) ) != null )
+        {
+            // the group may have been deleted, or the polygon deleted or replaced,
+            // while it was being tessellated
+            Group group = groups.get( polygon.groupId );
+            if ( group != null && group.completePendingPolygon( polygon ) )
+            {
+                this.updatedGroups.add( group );
+            }
+        }
+    }
+
+    protected float[] tessellate( PolygonTessellator tessellator, Polygon geometry )
+    {
+        if ( geometry == null ) return new float[0];
+
+        try
+        {
+            SimpleVertexAccumulator accumulator = new SimpleVertexAccumulator( );
+            tessellator.tessellate( geometry, accumulator );
+            return accumulator.getVertices( );
+        }
+        catch ( TessellationException e )
+        {
+            logWarning( logger, "Problem tessellating polygon.", e );
+            return new float[0];
+        }
+    }
+
     // must be called while holding trackUpdateLock
     protected Group getOrCreateGroup( Object groupId )
     {
@@ -625,6 +815,12 @@ public class PolygonPainter extends GlimpsePainter2D
             this.updateLock.lock( );
             try
             {
+                // clear the flag before collecting tessellation results so that
+                // polygons finishing during this update trigger another one
+                this.newData = false;
+
+                addTessellatedPolygons( );
+
                 // loop through all Groups with updates
                 for ( Group group : updatedGroups )
                 {
@@ -639,7 +835,7 @@ public class PolygonPainter extends GlimpsePainter2D
 
                         // If the group was deleted then recreated in between calls to display0(),
                         // (both isDataInserted() and isDeletePending() are true) then don't remove the group
-                        if ( group.groupDeleted && !group.polygonsInserted )
+                        if ( group.groupDeleted && !group.polygonsInserted && group.pendingPolygons.isEmpty( ) )
                         {
                             groups.remove( id );
                             continue;
@@ -652,23 +848,30 @@ public class PolygonPainter extends GlimpsePainter2D
                     // copy settings from the Group to the LoadedGroup
                     loaded.loadSettings( group );
 
-                    if ( group.polygonsInserted )
+                    boolean rebuilt = false;
+                    if ( group.polygonsInserted || !group.deletedPolygons.isEmpty( ) )
                     {
-                        updateVertices( gl, loaded, group, true );
-                        updateVertices( gl, loaded, group, false );
+                        rebuilt |= updateVertices( gl, loaded, group, true );
+                        rebuilt |= updateVertices( gl, loaded, group, false );
                     }
 
-                    if ( group.polygonsSelected )
+                    // if polygons moved within the device buffers, or the selection changed,
+                    // all the offsets must be reloaded, otherwise only new ones are appended
+                    if ( group.polygonsSelected || rebuilt )
+                    {
+                        loaded.loadLineSelectionIntoBuffer( group.selectedPolygons );
+                        loaded.loadFillSelectionIntoBuffer( group.selectedPolygons );
+                    }
+                    else if ( group.polygonsInserted )
                     {
-                        loaded.loadLineSelectionIntoBuffer( group.selectedPolygons, group.selectedLinePrimitiveCount, 0 );
-                        loaded.loadFillSelectionIntoBuffer( group.selectedPolygons, group.selectedFillPrimitiveCount, 0 );
+                        loaded.appendLineSelectionIntoBuffer( group.newSelectedPolygons );
+                        loaded.appendFillSelectionIntoBuffer( group.newSelectedPolygons );
                     }
 
                     group.reset( );
                 }
 
                 this.updatedGroups.clear( );
-                this.newData = false;
             }
             finally
             {
@@ -702,118 +905,204 @@ public class PolygonPainter extends GlimpsePainter2D
         gl.glDisable( GL2.GL_LINE_SMOOTH );
     }
 
-    protected void updateVertices( GL gl, LoadedGroup loaded, Group group, boolean fill )
+    /**
+     * Copies new polygon vertices into the group's fill or line device buffer. Each polygon
+     * occupies its own slice of the buffer, so only the slices of new polygons are written.
+     * If the free space left by deleted polygons cannot hold the new ones, the buffer is
+     * reallocated (growing it if needed) and all the group's polygons are copied into it.
+     *
+     * @return true if the device buffer was rebuilt and polygon offsets have changed
+     */
+    protected boolean updateVertices( GL gl, LoadedGroup loaded, Group group, boolean fill )
     {
         boolean initialized = fill ? loaded.glFillBufferInitialized : loaded.glLineBufferInitialized;
         int maxSize = fill ? loaded.glFillBufferMaxSize : loaded.glLineBufferMaxSize;
-        int currentSize = fill ? loaded.glFillBufferCurrentSize : loaded.glLineBufferCurrentSize;
-        int insertSize = fill ? group.fillInsertVertexCount : group.lineInsertVertexCount;
         int totalSize = fill ? group.totalFillVertexCount : group.totalLineVertexCount;
         int handle = fill ? loaded.glFillBufferHandle : loaded.glLineBufferHandle;
+        GLBufferAllocator allocator = fill ? loaded.fillAllocator : loaded.lineAllocator;
 
-        // the size needed is the current buffer location plus new inserts (we cannot use
-        // group.totalLineVertexCount because that will be smaller than lineSizeNeeded if
-        // polygons have been deleted
-        int sizeNeeded = currentSize + insertSize;
-
-        if ( !initialized || maxSize < sizeNeeded )
+        if ( initialized )
         {
-            // if we've deleted vertices, but are still close to the max buffer size, then
-            // go ahead and expand the max buffer size anyway
-            // if we're far below the max because of deletions, don't expand the array
-            if ( !initialized || maxSize < DELETE_EXPAND_FACTOR * totalSize )
+            // release the slices of deleted polygons so their space can be reused
+            for ( IdPolygon polygon : group.deletedPolygons )
             {
-                // if the track doesn't have a gl buffer or it is too small we must
-                // copy all the track's data into a new, larger buffer
-
-                // if this is the first time we have allocated memory for this track
-                // don't allocate any extra, it may never get added to
-                // however, once a track has been updated once, we assume it is likely
-                // to be updated again and give it extra memory
-                if ( initialized )
-                {
-                    if ( handle > 0 ) gl.glDeleteBuffers( 1, new int[] { handle }, 0 );
-                    maxSize = Math.max( ( int ) ( maxSize * 1.5 ), totalSize );
-                }
-                else
-                {
-                    maxSize = totalSize;
-                }
-
-                // create a new device buffer handle
-                int[] bufferHandle = new int[1];
-                gl.glGenBuffers( 1, bufferHandle, 0 );
-                handle = bufferHandle[0];
+                freeSlice( allocator, polygon, fill );
             }
 
-            // copy all the track data into a host buffer
-            ensureDataBufferSize( maxSize );
-
-            if ( fill )
+            // place each new polygon in a free slice of the existing device buffer
+            boolean fits = true;
+            for ( IdPolygon polygon : group.newPolygons )
             {
-                loaded.loadFillVerticesIntoBuffer( group, dataBuffer, 0, group.polygonMap.values( ) );
-                loaded.loadFillSelectionIntoBuffer( group.selectedPolygons, group.selectedFillPrimitiveCount, 0 );
+                if ( !allocateSlice( allocator, polygon, fill ) )
+                {
+                    fits = false;
+                    break;
+                }
             }
-            else
+
+            if ( fits )
             {
-                loaded.loadLineVerticesIntoBuffer( group, dataBuffer, 0, group.polygonMap.values( ) );
-                loaded.loadLineSelectionIntoBuffer( group.selectedPolygons, group.selectedLinePrimitiveCount, 0 );
+                uploadSlices( gl, handle, group.newPolygons, fill );
+                return false;
             }
+        }
 
-            // copy data from the host buffer into the device buffer
-            gl.glBindBuffer( GL2.GL_ARRAY_BUFFER, handle );
-            glHandleError( gl, "glBindBuffer Error  (Case 1)" );
-            gl.glBufferData( GL2.GL_ARRAY_BUFFER, maxSize * 3 * BYTES_PER_FLOAT, dataBuffer.rewind( ), GL2.GL_DYNAMIC_DRAW );
-            glHandleError( gl, "glBufferData Error" );
-
-            if ( fill )
+        // if we've deleted vertices, but are still close to the max buffer size, then
+        // go ahead and expand the max buffer size anyway
+        // if we're far below the max because of deletions, don't expand the array,
+        // just compact the existing polygons into it
+        if ( !initialized || maxSize < DELETE_EXPAND_FACTOR * totalSize )
+        {
+            // if this is the first time we have allocated memory for this group
+            // don't allocate any extra, it may never get added to
+            // however, once a group has been updated once, we assume it is likely
+            // to be updated again and give it extra memory
+            if ( initialized )
             {
-                loaded.glFillBufferInitialized = true;
-                loaded.glFillBufferCurrentSize = totalSize;
-                loaded.glFillBufferHandle = handle;
-                loaded.glFillBufferMaxSize = maxSize;
+                if ( handle > 0 ) gl.glDeleteBuffers( 1, new int[] { handle }, 0 );
+                maxSize = Math.max( ( int ) ( maxSize * 1.5 ), totalSize );
             }
             else
             {
-                loaded.glLineBufferInitialized = true;
-                loaded.glLineBufferCurrentSize = totalSize;
-                loaded.glLineBufferHandle = handle;
-                loaded.glLineBufferMaxSize = maxSize;
+                maxSize = totalSize;
             }
+
+            // create a new device buffer handle
+            int[] bufferHandle = new int[1];
+            gl.glGenBuffers( 1, bufferHandle, 0 );
+            handle = bufferHandle[0];
+        }
+
+        // lay out all the group's polygons from the start of the buffer in start time order,
+        // so that polygons selected together by a time range tend to be contiguous
+        allocator = new GLBufferAllocator( maxSize );
+        ensureDataBufferSize( maxSize );
+
+        for ( IdPolygon polygon : group.map.get( Long.MIN_VALUE, Long.MAX_VALUE ) )
+        {
+            allocateSlice( allocator, polygon, fill );
+            dataBuffer.position( polygon.getSliceOffset( fill ) * 3 );
+            polygon.loadVerticesIntoBuffer( fill, dataBuffer, polygon.getSliceOffset( fill ) );
+        }
+
+        // copy data from the host buffer into the device buffer
+        gl.glBindBuffer( GL2.GL_ARRAY_BUFFER, handle );
+        glHandleError( gl, "glBindBuffer Error  (Case 1)" );
+        gl.glBufferData( GL2.GL_ARRAY_BUFFER, maxSize * 3 * BYTES_PER_FLOAT, dataBuffer.rewind( ), GL2.GL_DYNAMIC_DRAW );
+        glHandleError( gl, "glBufferData Error" );
+
+        if ( fill )
+        {
+            loaded.glFillBufferInitialized = true;
+            loaded.glFillBufferHandle = handle;
+            loaded.glFillBufferMaxSize = maxSize;
+            loaded.fillAllocator = allocator;
         }
         else
         {
-            // there is enough empty space in the device buffer to accommodate all the new data
+            loaded.glLineBufferInitialized = true;
+            loaded.glLineBufferHandle = handle;
+            loaded.glLineBufferMaxSize = maxSize;
+            loaded.lineAllocator = allocator;
+        }
 
-            // copy all the new track data into a host buffer
-            ensureDataBufferSize( insertSize );
+        return true;
+    }
 
-            if ( fill )
-            {
-                loaded.loadFillVerticesIntoBuffer( group, dataBuffer, currentSize, group.newPolygons );
-                loaded.loadFillSelectionIntoBuffer( group.newSelectedPolygons, group.selectedFillPrimitiveCount );
-            }
-            else
+    protected boolean allocateSlice( GLBufferAllocator allocator, IdPolygon polygon, boolean fill )
+    {
+        int size = polygon.getVertexCount( fill );
+
+        // empty polygons (for example, ones which failed to tessellate) take no space
+        int offset = size > 0 ? allocator.allocate( size ) : 0;
+        if ( offset < 0 ) return false;
+
+        polygon.setSliceOffset( fill, offset );
+        return true;
+    }
+
+    protected void freeSlice( GLBufferAllocator allocator, IdPolygon polygon, boolean fill )
+    {
+        int size = polygon.getVertexCount( fill );
+        int offset = polygon.getSliceOffset( fill );
+
+        if ( size > 0 && offset >= 0 ) allocator.free( offset, size );
+
+        polygon.setSliceOffset( fill, -1 );
+    }
+
+    /**
+     * Writes the vertices of the provided polygons, which must already have slices allocated,
+     * into the device buffer. Polygons whose slices are adjacent are uploaded together.
+     */
+    protected void uploadSlices( GL gl, int handle, Collection<IdPolygon> polygons, final boolean fill )
+    {
+        if ( polygons.isEmpty( ) ) return;
+
+        List<IdPolygon> sorted = new ArrayList<IdPolygon>( polygons );
+        Collections.sort( sorted, new Comparator<IdPolygon>( )
+        {
+            @Override
+            public int compare( IdPolygon p1, IdPolygon p2 )
             {
-                loaded.loadLineVerticesIntoBuffer( group, dataBuffer, currentSize, group.newPolygons );
-                loaded.loadLineSelectionIntoBuffer( group.newSelectedPolygons, group.selectedLinePrimitiveCount );
+                int o1 = p1.getSliceOffset( fill );
+                int o2 = p2.getSliceOffset( fill );
+                return o1 < o2 ? -1 : ( o1 > o2 ? 1 : 0 );
             }
+        } );
 
-            // update the device buffer with the new data
-            gl.glBindBuffer( GL2.GL_ARRAY_BUFFER, handle );
-            glHandleError( gl, "glBindBuffer Error  (Case 2)" );
-            gl.glBufferSubData( GL2.GL_ARRAY_BUFFER, currentSize * 3 * BYTES_PER_FLOAT, insertSize * 3 * BYTES_PER_FLOAT, dataBuffer.rewind( ) );
-            glHandleError( gl, "glBufferSubData Error" );
+        int totalSize = 0;
+        for ( IdPolygon polygon : sorted )
+        {
+            totalSize += polygon.getVertexCount( fill );
+        }
 
-            if ( fill )
+        ensureDataBufferSize( totalSize );
+
+        gl.glBindBuffer( GL2.GL_ARRAY_BUFFER, handle );
+        glHandleError( gl, "glBindBuffer Error  (Case 2)" );
+
+        // a run is a sequence of polygons whose slices are contiguous in the device buffer
+        int written = 0;
+        int runStart = 0;
+        int runOffset = 0;
+        int runSize = 0;
+
+        for ( IdPolygon polygon : sorted )
+        {
+            int size = polygon.getVertexCount( fill );
+            if ( size == 0 ) continue;
+
+            int offset = polygon.getSliceOffset( fill );
+
+            if ( runSize > 0 && offset != runOffset + runSize )
             {
-                loaded.glFillBufferCurrentSize = sizeNeeded;
+                uploadRun( gl, runStart, runOffset, runSize );
+                runSize = 0;
             }
-            else
+
+            if ( runSize == 0 )
             {
-                loaded.glLineBufferCurrentSize = sizeNeeded;
+                runStart = written;
+                runOffset = offset;
             }
+
+            dataBuffer.position( written * 3 );
+            polygon.loadVerticesIntoBuffer( fill, dataBuffer, offset );
+
+            written += size;
+            runSize += size;
         }
+
+        if ( runSize > 0 ) uploadRun( gl, runStart, runOffset, runSize );
+    }
+
+    // copies runSize vertices starting at vertex runStart of the dataBuffer to vertex runOffset of the bound device buffer
+    protected void uploadRun( GL gl, int runStart, int runOffset, int runSize )
+    {
+        dataBuffer.position( runStart * 3 );
+        gl.glBufferSubData( GL2.GL_ARRAY_BUFFER, runOffset * 3 * BYTES_PER_FLOAT, runSize * 3 * BYTES_PER_FLOAT, dataBuffer );
+        glHandleError( gl, "glBufferSubData Error" );
     }
 
     protected void drawGroup( GL2 gl, LoadedGroup loaded )
@@ -990,6 +1279,11 @@ public class PolygonPainter extends GlimpsePainter2D
         }
 
         tessellator.destroy( );
+
+        if ( ownsTessellationExecutor && tessellationExecutor != null )
+        {
+            tessellationExecutor.shutdownNow( );
+        }
     }
 
     /**
@@ -1022,6 +1316,10 @@ public class PolygonPainter extends GlimpsePainter2D
         int[] fillOffsets;
         int[] fillSizes;
 
+        // the first vertex of this polygon's slice of its group's device buffers, or -1 if unallocated
+        int lineSliceOffset = -1;
+        int fillSliceOffset = -1;
+
         protected IdPolygon( Object groupId, Object polygonId, long startTime, long endTime, Polygon geometry, float depth )
         {
             this.groupId = groupId;
@@ -1034,13 +1332,14 @@ public class PolygonPainter extends GlimpsePainter2D
             if ( this.geometry != null )
             {
                 this.calculateLineCounts( );
-                this.calculateFillCounts( );
 
                 this.lineOffsets = new int[linePrimitiveCount];
                 this.lineSizes = new int[linePrimitiveCount];
-                this.fillOffsets = new int[fillPrimitiveCount];
-                this.fillSizes = new int[fillPrimitiveCount];
             }
+
+            // there is always only one fill primitive for a polygon
+            this.fillOffsets = new int[1];
+            this.fillSizes = new int[1];
         }
 
         protected IdPolygon( Object groupId, Object polygonId, Polygon geometry, float z )
@@ -1066,13 +1365,52 @@ public class PolygonPainter extends GlimpsePainter2D
             linePrimitiveCount = primitiveCount;
         }
 
+        protected void setFillVertices( float[] fillVertices )
+        {
+            this.fillVertices = fillVertices;
+            this.calculateFillCounts( );
+        }
+
         protected void calculateFillCounts( )
         {
-            fillVertices = tessellate( );
-            fillVertexCount = fillVertices.length / 2;
+            fillVertexCount = fillVertices == null ? 0 : fillVertices.length / 2;
             fillPrimitiveCount = 1;
         }
 
+        protected int getVertexCount( boolean fill )
+        {
+            return fill ? fillVertexCount : lineVertexCount;
+        }
+
+        protected int getSliceOffset( boolean fill )
+        {
+            return fill ? fillSliceOffset : lineSliceOffset;
+        }
+
+        protected void setSliceOffset( boolean fill, int offset )
+        {
+            if ( fill )
+            {
+                fillSliceOffset = offset;
+            }
+            else
+            {
+                lineSliceOffset = offset;
+            }
+        }
+
+        protected void loadVerticesIntoBuffer( boolean fill, FloatBuffer vertexBuffer, int offsetVertex )
+        {
+            if ( fill )
+            {
+                loadFillVerticesIntoBuffer( depth + 0.5f, vertexBuffer, offsetVertex );
+            }
+            else
+            {
+                loadLineVerticesIntoBuffer( depth, vertexBuffer, offsetVertex );
+            }
+        }
+
         /**
          * Load the geometry for the outline of this polygon into
          * the provided FloatBuffer.
@@ -1132,27 +1470,6 @@ public class PolygonPainter extends GlimpsePainter2D
             return fillVertexCount;
         }
 
-        public void loadFillIntoBuffer( IntBuffer offsetBuffer, IntBuffer sizeBuffer )
-        {
-            // there is always only one fill primitive for a polygon
-            offsetBuffer.put( fillOffsets[0] );
-            sizeBuffer.put( fillSizes[0] );
-        }
-
-        protected float[] tessellate( )
-        {
-            try
-            {
-                SimpleVertexAccumulator accumulator = new SimpleVertexAccumulator( );
-                tessellator.tessellate( geometry, accumulator );
-                return accumulator.getVertices( );
-            }
-            catch ( TessellationException e )
-            {
-                logWarning( logger, "Problem tessellating polygon.", e );
-                return new float[0];
-            }
-        }
 
         private PolygonPainter getOuterType( )
         {
@@ -1237,9 +1554,9 @@ public class PolygonPainter extends GlimpsePainter2D
         // the maximum allocated size of the device buffer for this track
         int glFillBufferMaxSize;
         int glLineBufferMaxSize;
-        // the currently used size of the device buffer for this track
-        int glFillBufferCurrentSize;
-        int glLineBufferCurrentSize;
+        // tracks which slices of the device buffers are occupied by polygons
+        GLBufferAllocator fillAllocator;
+        GLBufferAllocator lineAllocator;
 
         // offset into geometry buffers for each shape
         IntBuffer glLineOffsetBuffer;
@@ -1261,9 +1578,6 @@ public class PolygonPainter extends GlimpsePainter2D
 
         public void loadSettings( Group group )
         {
-            this.glTotalLinePrimitives = group.selectedLinePrimitiveCount;
-            this.glTotalFillPrimitives = group.selectedFillPrimitiveCount;
-
             this.lineColor[0] = group.lineColor[0];
             this.lineColor[1] = group.lineColor[1];
             this.lineColor[2] = group.lineColor[2];
@@ -1355,31 +1669,38 @@ public class PolygonPainter extends GlimpsePainter2D
             }
         }
 
-        public void loadLineSelectionIntoBuffer( Collection<IdPolygon> polygons, int size )
+        /**
+         * Replaces the line primitives to draw with the outlines of the provided polygons.
+         */
+        public void loadLineSelectionIntoBuffer( Collection<IdPolygon> polygons )
         {
-            int primitiveCount = 0;
-            for ( IdPolygon polygon : polygons )
-            {
-                primitiveCount += polygon.linePrimitiveCount;
-            }
-
-            loadLineSelectionIntoBuffer( polygons, size, size - primitiveCount );
+            glTotalLinePrimitives = 0;
+            appendLineSelectionIntoBuffer( polygons );
         }
 
-        public void loadLineSelectionIntoBuffer( Collection<IdPolygon> polygons, int size, int offset )
+        /**
+         * Adds the outlines of the provided polygons to the line primitives to draw.
+         */
+        public void appendLineSelectionIntoBuffer( Collection<IdPolygon> polygons )
         {
-            if ( size <= 0 || offset < 0 ) return;
+            int size = glTotalLinePrimitives;
+            for ( IdPolygon polygon : polygons )
+            {
+                size += polygon.linePrimitiveCount;
+            }
 
             ensureLineOffsetBufferSize( size );
             ensureLineCountBufferSize( size );
 
-            glLineOffsetBuffer.position( offset );
-            glLineCountBuffer.position( offset );
+            glLineOffsetBuffer.position( glTotalLinePrimitives );
+            glLineCountBuffer.position( glTotalLinePrimitives );
 
             for ( IdPolygon polygon : polygons )
             {
                 polygon.loadLineIntoBuffer( glLineOffsetBuffer, glLineCountBuffer );
             }
+
+            glTotalLinePrimitives = size;
         }
 
         public void loadFillVerticesIntoBuffer( Group group, FloatBuffer vertexBuffer, int offsetVertex, Collection<IdPolygon> polygons )
@@ -1391,32 +1712,45 @@ public class PolygonPainter extends GlimpsePainter2D
             }
         }
 
-        public void loadFillSelectionIntoBuffer( Collection<IdPolygon> polygons, int size )
+        /**
+         * Replaces the fill ranges to draw with the triangles of the provided polygons.
+         */
+        public void loadFillSelectionIntoBuffer( Collection<IdPolygon> polygons )
         {
-            if ( size <= 0 ) return;
-
-            int primitiveCount = 0;
-            for ( IdPolygon polygon : polygons )
-            {
-                primitiveCount += polygon.fillPrimitiveCount;
-            }
-
-            loadFillSelectionIntoBuffer( polygons, size, size - primitiveCount );
+            glTotalFillPrimitives = 0;
+            appendFillSelectionIntoBuffer( polygons );
         }
 
-        public void loadFillSelectionIntoBuffer( Collection<IdPolygon> polygons, int size, int offset )
+        /**
+         * Adds the triangles of the provided polygons to the fill ranges to draw. Polygons
+         * whose triangles directly follow the previous range in the device buffer extend
+         * that range rather than starting a new one.
+         */
+        public void appendFillSelectionIntoBuffer( Collection<IdPolygon> polygons )
         {
+            int size = glTotalFillPrimitives + polygons.size( );
+
             ensureFillOffsetBufferSize( size );
             ensureFillCountBufferSize( size );
 
-            if ( size <= 0 || offset < 0 ) return;
-
-            glFillOffsetBuffer.position( offset );
-            glFillCountBuffer.position( offset );
-
             for ( IdPolygon polygon : polygons )
             {
-                polygon.loadFillIntoBuffer( glFillOffsetBuffer, glFillCountBuffer );
+                int count = polygon.fillSizes[0];
+                if ( count == 0 ) continue;
+
+                int offset = polygon.fillOffsets[0];
+                int last = glTotalFillPrimitives - 1;
+
+                if ( last >= 0 && glFillOffsetBuffer.get( last ) + glFillCountBuffer.get( last ) == offset )
+                {
+                    glFillCountBuffer.put( last, glFillCountBuffer.get( last ) + count );
+                }
+                else
+                {
+                    glFillOffsetBuffer.put( glTotalFillPrimitives, offset );
+                    glFillCountBuffer.put( glTotalFillPrimitives, count );
+                    glTotalFillPrimitives++;
+                }
             }
         }
 
@@ -1467,22 +1801,26 @@ public class PolygonPainter extends GlimpsePainter2D
 
         // mapping from polygonId to IdPolygon object
         Map<Object, IdPolygon> polygonMap;
+        // mapping from polygonId to polygons waiting to be tessellated
+        Map<Object, IdPolygon> pendingPolygons;
         // polygons added since last display( ) call 
         Set<IdPolygon> newPolygons;
+        // polygons deleted since last display( ) call, whose buffer slices must be released
+        List<IdPolygon> deletedPolygons;
         // polygons selected since the last display( ) call
         // (always a subset of newPolygons)
         Set<IdPolygon> newSelectedPolygons;
         // all selected polygons (based on selectionStart and selectionEnd)
         Set<IdPolygon> selectedPolygons;
 
-        IntervalQuadTree<IdPolygon> map;
+        // all polygons, ordered by start time
+        LongIntervalIndex<IdPolygon> map;
+        // adds visited polygons to selectedPolygons
+        IntervalVisitor<IdPolygon> selectionVisitor;
 
         Long selectionStart;
         Long selectionEnd;
 
-        int selectedFillPrimitiveCount;
-        int selectedLinePrimitiveCount;
-
         // vertices in the above counts refer to tesselated triangle vertices
 
         // current total vertex count
@@ -1508,9 +1846,11 @@ public class PolygonPainter extends GlimpsePainter2D
             this.selectedPolygons = new LinkedHashSet<IdPolygon>( );
             this.newSelectedPolygons = new LinkedHashSet<IdPolygon>( );
             this.newPolygons = new LinkedHashSet<IdPolygon>( );
+            this.deletedPolygons = new ArrayList<IdPolygon>( );
             this.polygonMap = new HashMap<Object, IdPolygon>( );
+            this.pendingPolygons = new HashMap<Object, IdPolygon>( );
 
-            this.map = new IntervalQuadTree<IdPolygon>( 100 )
+            this.map = new LongIntervalIndex<IdPolygon>( )
             {
 
                 @Override
@@ -1527,6 +1867,15 @@ public class PolygonPainter extends GlimpsePainter2D
 
             };
 
+            this.selectionVisitor = new IntervalVisitor<IdPolygon>( )
+            {
+                @Override
+                public void visit( IdPolygon polygon, long start, long end )
+                {
+                    selectedPolygons.add( polygon );
+                }
+            };
+
             this.selectionStart = -Long.MAX_VALUE;
             this.selectionEnd = Long.MAX_VALUE;
         }
@@ -1540,8 +1889,10 @@ public class PolygonPainter extends GlimpsePainter2D
         public void clearGroup( )
         {
             this.polygonMap.clear( );
+            this.pendingPolygons.clear( );
 
             this.newPolygons.clear( );
+            this.deletedPolygons.clear( );
             this.selectedPolygons.clear( );
             this.newSelectedPolygons.clear( );
 
@@ -1553,9 +1904,6 @@ public class PolygonPainter extends GlimpsePainter2D
             this.totalFillVertexCount = 0;
             this.fillInsertVertexCount = 0;
 
-            this.selectedFillPrimitiveCount = 0;
-            this.selectedLinePrimitiveCount = 0;
-
             this.polygonsInserted = false;
             this.polygonsSelected = false;
 
@@ -1564,15 +1912,17 @@ public class PolygonPainter extends GlimpsePainter2D
 
         public void deletePolygon( Object polygonId )
         {
+            this.pendingPolygons.remove( polygonId );
+
             IdPolygon polygon = this.polygonMap.remove( polygonId );
 
             if ( polygon != null )
             {
-                this.newPolygons.remove( polygon );
+                if ( !this.newPolygons.remove( polygon ) ) this.deletedPolygons.add( polygon );
                 this.map.remove( polygon );
 
                 // if the polygon was selected when it is deleted, mark the selection changed
-                this.polygonsSelected = this.selectedPolygons.remove( polygon );
+                if ( this.selectedPolygons.remove( polygon ) ) this.polygonsSelected = true;
                 boolean newDeleted = this.newSelectedPolygons.remove( polygon );
 
                 int lineVertexCount = polygon.lineVertexCount;
@@ -1582,14 +1932,41 @@ public class PolygonPainter extends GlimpsePainter2D
                 int fillVertexCount = polygon.fillVertexCount;
                 this.totalFillVertexCount -= fillVertexCount;
                 if ( newDeleted ) this.fillInsertVertexCount -= fillVertexCount;
-
-                this.selectedFillPrimitiveCount -= polygon.fillPrimitiveCount;
-                this.selectedLinePrimitiveCount -= polygon.linePrimitiveCount;
             }
         }
 
+        /**
+         * Removes any existing polygon with the same id and holds the new polygon
+         * until {@link #completePendingPolygon(IdPolygon)} is called for it.
+         */
+        public void addPendingPolygon( IdPolygon polygon )
+        {
+            this.deletePolygon( polygon.polygonId );
+            this.pendingPolygons.put( polygon.polygonId, polygon );
+        }
+
+        /**
+         * Adds a polygon previously passed to {@link #addPendingPolygon(IdPolygon)} whose
+         * tessellation has finished.
+         *
+         * @return false if the polygon was deleted or replaced while it was being tessellated
+         */
+        public boolean completePendingPolygon( IdPolygon polygon )
+        {
+            if ( this.pendingPolygons.get( polygon.polygonId ) != polygon ) return false;
+
+            this.pendingPolygons.remove( polygon.polygonId );
+            polygon.calculateFillCounts( );
+            this.addPolygon( polygon );
+
+            return true;
+        }
+
         public void addPolygon( IdPolygon polygon )
         {
+            // replacing a polygon releases the old polygon's vertices
+            this.deletePolygon( polygon.polygonId );
+
             this.polygonMap.put( polygon.polygonId, polygon );
 
             this.newPolygons.add( polygon );
@@ -1606,8 +1983,6 @@ public class PolygonPainter extends GlimpsePainter2D
 
             if ( polygon.startTime <= selectionEnd && polygon.endTime >= selectionStart )
             {
-                this.selectedFillPrimitiveCount += polygon.fillPrimitiveCount;
-                this.selectedLinePrimitiveCount += polygon.linePrimitiveCount;
                 this.selectedPolygons.add( polygon );
                 this.newSelectedPolygons.add( polygon );
             }
@@ -1627,16 +2002,10 @@ public class PolygonPainter extends GlimpsePainter2D
         {
             if ( this.selectionStart == null || this.selectionEnd == null ) return;
 
+            // polygons are selected in start time order, which is also the
+            // order they are laid out in the device buffers
             this.selectedPolygons.clear( );
-            this.selectedPolygons.addAll( this.map.get( this.selectionStart, true, this.selectionEnd, true ) );
-
-            this.selectedFillPrimitiveCount = 0;
-            this.selectedLinePrimitiveCount = 0;
-            for ( IdPolygon polygon : this.selectedPolygons )
-            {
-                this.selectedFillPrimitiveCount += polygon.fillPrimitiveCount;
-                this.selectedLinePrimitiveCount += polygon.linePrimitiveCount;
-            }
+            this.map.visit( this.selectionStart, this.selectionEnd, this.selectionVisitor );
 
             this.polygonsSelected = true;
         }
@@ -1707,6 +2076,7 @@ public class PolygonPainter extends GlimpsePainter2D
         {
             this.newSelectedPolygons.clear( );
             this.newPolygons.clear( );
+            this.deletedPolygons.clear( );
 
             this.lineInsertVertexCount = 0;
             this.fillInsertVertexCount = 0;
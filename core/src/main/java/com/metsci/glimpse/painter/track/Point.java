@@ -29,9 +29,9 @@ package com.metsci.glimpse.painter.track;
 import java.nio.FloatBuffer;
 import java.util.Comparator;
 
-import com.metsci.glimpse.util.quadtree.Xy;
+import com.metsci.glimpse.util.quadtree.Xyt;
 
-public class Point implements Xy
+public class Point implements Xyt
 {
     protected Object trackId;
     protected Object pointId;
@@ -111,6 +111,12 @@ public class Point implements Xy
         return y;
     }
 
+    @Override
+    public long t( )
+    {
+        return time;
+    }
+
     @Override
     public int hashCode( )
     {
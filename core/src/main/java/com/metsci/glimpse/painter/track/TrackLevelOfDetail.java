@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.painter.track;
+
+import java.util.Arrays;
+
+/**
+ * A multi-resolution pyramid of decimated copies of a track, used to avoid drawing
+ * many fixes which fall within the same screen pixel when the plot is zoomed out.
+ *
+ * Level 0 is the full resolution track (stored by the caller). Level k (k &gt; 0) is
+ * built from level k-1 by radial distance simplification: a point is kept only if it
+ * lies more than {@code baseTolerance * 2^(k-1)} (in axis units) from the last kept point.
+ * Because each level only depends on the points before it in time, the pyramid is
+ * updated incrementally: when points are added, each level is truncated to the data
+ * preceding the first changed time and rebuilt from there. In-order appends therefore
+ * cost O(levels * log n).
+ *
+ * The drawn line may deviate from the full resolution track by less than twice the
+ * tolerance of the level being drawn.
+ */
+public class TrackLevelOfDetail
+{
+    protected final TrackPoints[] levels;
+    protected final double[] tolerances;
+    // per level, the lowest index modified since the last call to resetModified( )
+    protected final int[] modifiedIndex;
+
+    /**
+     * @param baseTolerance the decimation tolerance of level 1, in axis units
+     * @param levelCount the number of decimated levels (not including the full resolution level)
+     */
+    public TrackLevelOfDetail( double baseTolerance, int levelCount )
+    {
+        this.levels = new TrackPoints[levelCount + 1];
+        this.tolerances = new double[levelCount + 1];
+        this.modifiedIndex = new int[levelCount + 1];
+
+        for ( int k = 1; k <= levelCount; k++ )
+        {
+            this.levels[k] = new TrackPoints( TrackPainter.TRACK_SIZE_ESTIMATE );
+            this.tolerances[k] = baseTolerance * Math.pow( 2, k - 1 );
+        }
+
+        resetModified( );
+    }
+
+    /**
+     * @return the number of levels, including the full resolution level 0
+     */
+    public int getLevelCount( )
+    {
+        return levels.length;
+    }
+
+    public double getTolerance( int level )
+    {
+        return tolerances[level];
+    }
+
+    /**
+     * @return the points making up the given level, level 0 is the provided full resolution data
+     */
+    public TrackPoints getLevel( TrackPoints full, int level )
+    {
+        return level == 0 ? full : levels[level];
+    }
+
+    /**
+     * @return the lowest index of the given level modified since the last call to {@link #resetModified()}
+     *         (or {@code Integer.MAX_VALUE} if the level has not changed)
+     */
+    public int getModifiedIndex( int level )
+    {
+        return modifiedIndex[level];
+    }
+
+    public void resetModified( )
+    {
+        Arrays.fill( modifiedIndex, Integer.MAX_VALUE );
+    }
+
+    /**
+     * Updates all levels after the full resolution data changed at and after fromIndex.
+     */
+    public void update( TrackPoints full, int fromIndex )
+    {
+        modifiedIndex[0] = Math.min( modifiedIndex[0], fromIndex );
+
+        TrackPoints source = full;
+        int sourceFrom = fromIndex;
+
+        for ( int k = 1; k < levels.length; k++ )
+        {
+            if ( sourceFrom >= source.size( ) ) break;
+
+            TrackPoints level = levels[k];
+            double tolerance2 = tolerances[k] * tolerances[k];
+
+            // discard everything at or after the first changed time, then rescan the source from there
+            long time = source.getTime( sourceFrom );
+            int keep = level.firstIndexBeforeTime( time ) + 1;
+            int resume = source.firstIndexBeforeTime( time ) + 1;
+            level.truncate( keep );
+
+            boolean hasLast = keep > 0;
+            float lastX = hasLast ? level.getX( keep - 1 ) : 0;
+            float lastY = hasLast ? level.getY( keep - 1 ) : 0;
+
+            for ( int i = resume; i < source.size( ); i++ )
+            {
+                float x = source.getX( i );
+                float y = source.getY( i );
+
+                double dx = x - lastX;
+                double dy = y - lastY;
+
+                if ( !hasLast || dx * dx + dy * dy > tolerance2 )
+                {
+                    level.append( source.getTime( i ), x, y, source.getPointId( i ) );
+                    lastX = x;
+                    lastY = y;
+                    hasLast = true;
+                }
+            }
+
+            modifiedIndex[k] = Math.min( modifiedIndex[k], keep );
+
+            source = level;
+            sourceFrom = keep;
+        }
+    }
+
+    public void clear( )
+    {
+        for ( int k = 1; k < levels.length; k++ )
+        {
+            levels[k].clear( );
+        }
+
+        Arrays.fill( modifiedIndex, 0 );
+    }
+
+    /**
+     * Chooses the coarsest level whose tolerance does not exceed maxError.
+     *
+     * @param baseTolerance the tolerance of level 1
+     * @param levelCount the number of decimated levels
+     * @param maxError the largest acceptable tolerance, in axis units
+     */
+    public static int chooseLevel( double baseTolerance, int levelCount, double maxError )
+    {
+        if ( levelCount <= 0 || !( baseTolerance > 0 ) || !( maxError >= baseTolerance ) ) return 0;
+
+        int level = ( int ) Math.floor( Math.log( maxError / baseTolerance ) / Math.log( 2 ) ) + 1;
+
+        return Math.max( 0, Math.min( levelCount, level ) );
+    }
+}
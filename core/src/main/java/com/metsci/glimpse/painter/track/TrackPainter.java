@@ -32,16 +32,21 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 
 import javax.media.opengl.GL;
@@ -53,12 +58,16 @@ import com.metsci.glimpse.axis.Axis1D;
 import com.metsci.glimpse.axis.Axis2D;
 import com.metsci.glimpse.context.GlimpseBounds;
 import com.metsci.glimpse.event.mouse.GlimpseMouseEvent;
+import com.metsci.glimpse.gl.attribute.GLBufferAllocator;
 import com.metsci.glimpse.painter.base.GlimpseDataPainter2D;
 import com.metsci.glimpse.support.font.FontUtils;
 import com.metsci.glimpse.support.selection.SpatialSelectionAxisListener;
 import com.metsci.glimpse.support.selection.SpatialSelectionListener;
 import com.metsci.glimpse.support.selection.TemporalSelectionListener;
-import com.metsci.glimpse.util.quadtree.QuadTreeXys;
+import com.metsci.glimpse.util.primitives.FloatsArray;
+import com.metsci.glimpse.util.primitives.IntsArray;
+import com.metsci.glimpse.util.quadtree.FilterObject;
+import com.metsci.glimpse.util.quadtree.OctTreeXyts;
 
 /**
  * Paints groups of line segments of points with associated timestamps.
@@ -67,6 +76,12 @@ import com.metsci.glimpse.util.quadtree.QuadTreeXys;
  * selection of specified time segments within the set of tracks, hiding
  * all segments outside this time window.
  *
+ * <p>Methods which modify tracks may be called from any thread and never block:
+ * they place an update on a lock-free queue which is drained in batches when the
+ * painter is next drawn (or when a query method such as {@link #getTrackHead(Object)}
+ * is called). Queue depth and drain times are available via
+ * {@link #getUpdateQueueDepth()} and {@link #getLastDrainTimeNanos()}.</p>
+ *
  * @author ulman
  * @see com.metsci.glimpse.examples.animated.AnimatedGeoPlotExample
  */
@@ -77,6 +92,11 @@ public class TrackPainter extends GlimpseDataPainter2D
     public static final long SPATIAL_SELECTION_UPDATE_RATE = 50;
 
     public static final int TRACK_SIZE_ESTIMATE = 100;
+
+    // initial size (in vertices) of the shared device buffer used in batched rendering mode
+    public static final int SHARED_BUFFER_INITIAL_SIZE = 1 << 16;
+    // a count > 65535 causes problems on some ATI cards (see PolygonPainter), so batched draws are split
+    public static final int MAX_DRAW_COUNT = 60000;
     public static final int TRACK_LABEL_OFFSET_X = 8;
     public static final int TRACK_LABEL_OFFSET_Y = 8;
 
@@ -86,16 +106,40 @@ public class TrackPainter extends GlimpseDataPainter2D
     protected FloatBuffer dataBuffer = null;
     protected ReentrantLock trackUpdateLock = null;
 
+    // updates from feed threads waiting to be applied to the tracks (lock-free, multi-producer)
+    protected Queue<Update> updateQueue;
+    // approximate number of updates currently in updateQueue
+    protected AtomicInteger updateQueueDepth;
+    // the maximum number of queued updates applied per call to paintTo
+    protected volatile int maxUpdatesPerFrame = Integer.MAX_VALUE;
+    // statistics on the most recent drain of updateQueue
+    protected volatile int lastDrainCount;
+    protected volatile long lastDrainTimeNanos;
+    protected volatile long maxDrainTimeNanos;
+
     // mapping from id to Track
     protected Map<Object, Track> tracks;
     // true indicates that new data must be loaded onto the GPU
     protected volatile boolean newData = false;
     // tracks with new data which must be loaded onto the GPU
     protected Set<Track> updatedTracks;
+    // track heads changed by applied updates, reported to TemporalSelectionListeners once the lock is released
+    protected Map<Object, Point> pendingTrackHeads;
     // mapping from id to LoadedTrack (GPU-side track information)
     protected Map<Object, LoadedTrack> loadedTracks;
-    // spatial index on Points
-    protected QuadTreeXys<Point> spatialIndex;
+    // spatio-temporal index on Points (x, y, time)
+    protected OctTreeXyts<Point> spatialIndex;
+    // accepts only Points within the time span selected for their track
+    protected FilterObject<Point> selectionFilter = new FilterObject<Point>( )
+    {
+        @Override
+        public boolean include( Point point )
+        {
+            Track track = tracks.get( point.getTrackId( ) );
+            if ( track == null || track.selectionStart == null || track.selectionEnd == null ) return false;
+            return comparator.compare( point, track.selectionStart ) >= 0 && comparator.compare( point, track.selectionEnd ) < 0;
+        }
+    };
 
     // the overall start and end times set by displayTimeRange
     // when new tracks are created, they inherit these time bounds
@@ -108,6 +152,28 @@ public class TrackPainter extends GlimpseDataPainter2D
     private static final Font textFont = FontUtils.getDefaultBold( 12 );
     protected TextRenderer fontRenderer;
 
+    // if true, all tracks share one device buffer and tracks with the same style are
+    // drawn together with glMultiDrawArrays (see TrackPainter( boolean, boolean ))
+    protected boolean batchedRendering;
+    // GL-thread state for batched rendering
+    protected GLBufferAllocator sharedAllocator;
+    protected boolean sharedBufferInitialized = false;
+    protected int sharedBufferHandle;
+    protected boolean headBufferInitialized = false;
+    protected int headBufferHandle;
+    // draw batches, rebuilt whenever new data is loaded
+    protected boolean batchesDirty = false;
+    protected Collection<DrawBatch> lineBatches;
+    protected Collection<DrawBatch> pointBatches;
+    protected Collection<DrawBatch> headBatches;
+
+    // level of detail settings (see setLevelOfDetail), disabled when lodLevelCount is zero
+    protected volatile double lodBaseTolerance = 0;
+    protected volatile int lodLevelCount = 0;
+    protected volatile double lodPixelTolerance = 0.5;
+    // the level of detail currently loaded onto the GPU, -1 forces a reload
+    protected int displayLevel = 0;
+
     public TrackPainter( )
     {
         this( false );
@@ -115,15 +181,38 @@ public class TrackPainter extends GlimpseDataPainter2D
 
     public TrackPainter( boolean enableSpatialIndex )
     {
-        if ( enableSpatialIndex ) this.spatialIndex = new QuadTreeXys<Point>( QUAD_TREE_BIN_MAX );
+        this( enableSpatialIndex, false );
+    }
+
+    /**
+     * @param enableSpatialIndex if true, a spatial index on track points is maintained to support
+     *                           the getGeoRange, getTimeGeoRange and getNearestPoint methods
+     * @param batchedRendering if true, the vertices for all tracks are packed into a single shared device
+     *                         buffer and tracks which share a style are drawn with a single glMultiDrawArrays
+     *                         call (head points are drawn from a separate head position buffer). This greatly
+     *                         reduces the number of GL calls per frame when displaying thousands of tracks.
+     */
+    public TrackPainter( boolean enableSpatialIndex, boolean batchedRendering )
+    {
+        this.batchedRendering = batchedRendering;
+        this.sharedAllocator = new GLBufferAllocator( 0 );
+        this.lineBatches = Collections.emptyList( );
+        this.pointBatches = Collections.emptyList( );
+        this.headBatches = Collections.emptyList( );
+
+        if ( enableSpatialIndex ) this.spatialIndex = new OctTreeXyts<Point>( QUAD_TREE_BIN_MAX );
 
         this.temporalSelectionListeners = new CopyOnWriteArrayList<TemporalSelectionListener<Point>>( );
 
         this.tracks = new HashMap<>( );
         this.updatedTracks = new HashSet<>( );
+        this.pendingTrackHeads = new LinkedHashMap<Object, Point>( );
         this.loadedTracks = new HashMap<>( );
         this.trackUpdateLock = new ReentrantLock( );
 
+        this.updateQueue = new ConcurrentLinkedQueue<Update>( );
+        this.updateQueueDepth = new AtomicInteger( );
+
         this.fontRenderer = new TextRenderer( textFont );
     }
 
@@ -142,11 +231,103 @@ public class TrackPainter extends GlimpseDataPainter2D
         axis.addAxisListener( new SpatialSelectionAxisListener( this, listener ) );
     }
 
+    /**
+     * <p>Enables level of detail (decimation) for track display. Each track maintains a pyramid of
+     * progressively simplified copies of its points, where level k drops points closer than
+     * {@code baseTolerance * 2^(k-1)} axis units to the previously kept point. When painting, the
+     * coarsest level whose tolerance is below {@link #setLevelOfDetailPixelTolerance(double)} pixels
+     * at the current zoom is drawn, so draw cost depends on screen resolution rather than the
+     * number of fixes.</p>
+     *
+     * <p>Only the drawn vertices are affected. Spatial queries and {@code getNearestPoint} always
+     * use full resolution data.</p>
+     *
+     * @param baseTolerance the tolerance of the finest decimated level, in axis units
+     * @param levelCount the number of decimated levels to maintain, zero disables level of detail
+     */
+    public void setLevelOfDetail( final double baseTolerance, final int levelCount )
+    {
+        enqueue( new Update( )
+        {
+            @Override
+            public void apply( )
+            {
+                lodBaseTolerance = baseTolerance;
+                lodLevelCount = Math.max( 0, levelCount );
+
+                for ( Track track : tracks.values( ) )
+                {
+                    track.setLevelOfDetail( newLevelOfDetail( ) );
+                }
+
+                updatedTracks.addAll( tracks.values( ) );
+
+                // force the display level to be chosen again on the next paint
+                displayLevel = -1;
+            }
+        } );
+    }
+
+    /**
+     * Sets the maximum deviation, in pixels, between a decimated track and the full resolution track
+     * (see {@link #setLevelOfDetail(double, int)}). Defaults to 0.5 pixels.
+     */
+    public void setLevelOfDetailPixelTolerance( double pixels )
+    {
+        this.lodPixelTolerance = pixels;
+        this.newData = true;
+    }
+
+    /**
+     * Limits the number of queued track updates which are applied each time the painter
+     * is drawn. Remaining updates stay queued and are applied on subsequent frames. By default
+     * all queued updates are applied each frame.
+     */
+    public void setMaxUpdatesPerFrame( int maxUpdatesPerFrame )
+    {
+        this.maxUpdatesPerFrame = maxUpdatesPerFrame;
+    }
+
+    /**
+     * @return the number of track updates (points and style changes) which have been queued
+     *         but not yet applied
+     */
+    public int getUpdateQueueDepth( )
+    {
+        return this.updateQueueDepth.get( );
+    }
+
+    /**
+     * @return the number of updates applied by the most recent drain of the update queue
+     */
+    public int getLastDrainCount( )
+    {
+        return this.lastDrainCount;
+    }
+
+    /**
+     * @return the time in nanoseconds spent applying updates during the most recent drain of the update queue
+     */
+    public long getLastDrainTimeNanos( )
+    {
+        return this.lastDrainTimeNanos;
+    }
+
+    /**
+     * @return the longest time in nanoseconds spent in a single drain of the update queue
+     */
+    public long getMaxDrainTimeNanos( )
+    {
+        return this.maxDrainTimeNanos;
+    }
+
     public Collection<Point> getTrackHeads( )
     {
         this.trackUpdateLock.lock( );
         try
         {
+            drainUpdates( Integer.MAX_VALUE );
+
             Collection<Point> trackHeads = new ArrayList<Point>( tracks.size( ) );
 
             for ( Track track : tracks.values( ) )
@@ -162,6 +343,7 @@ public class TrackPainter extends GlimpseDataPainter2D
         finally
         {
             this.trackUpdateLock.unlock( );
+            notifyPendingTrackHeads( );
         }
     }
 
@@ -170,6 +352,8 @@ public class TrackPainter extends GlimpseDataPainter2D
         this.trackUpdateLock.lock( );
         try
         {
+            drainUpdates( Integer.MAX_VALUE );
+
             Track track = this.tracks.get( trackId );
 
             if ( track != null )
@@ -184,85 +368,66 @@ public class TrackPainter extends GlimpseDataPainter2D
         finally
         {
             this.trackUpdateLock.unlock( );
+            notifyPendingTrackHeads( );
         }
     }
 
     public void deleteAll( )
     {
-        this.trackUpdateLock.lock( );
-        try
+        enqueue( new Update( )
         {
-            for ( Track track : tracks.values( ) )
+            @Override
+            public void apply( )
             {
-                track.deletePending = true;
-                track.points.clear( );
-            }
+                for ( Track track : tracks.values( ) )
+                {
+                    track.deletePending = true;
+                    track.points.clear( );
+                    // the track may receive points again before the next paint
+                    if ( track.lod != null ) track.lod.clear( );
+                }
 
-            if ( this.spatialIndex != null ) this.spatialIndex = new QuadTreeXys<Point>( QUAD_TREE_BIN_MAX );
+                if ( spatialIndex != null ) spatialIndex.clear( );
 
-            this.updatedTracks.addAll( tracks.values( ) );
-            this.newData = true;
-        }
-        finally
-        {
-            this.trackUpdateLock.unlock( );
-        }
+                updatedTracks.addAll( tracks.values( ) );
+            }
+        } );
     }
 
-    public void deleteTrack( Object trackId )
+    public void deleteTrack( final Object trackId )
     {
-        this.trackUpdateLock.lock( );
-        try
+        enqueue( new Update( )
         {
-            if ( !tracks.containsKey( trackId ) ) return;
-
-            Track track = tracks.get( trackId );
-
-            if ( this.spatialIndex != null )
+            @Override
+            public void apply( )
             {
-                for ( Point p : track.points )
-                {
-                    this.spatialIndex.remove( p );
-                }
-            }
+                Track track = tracks.get( trackId );
+                if ( track == null ) return;
 
-            track.delete( );
+                removeFromSpatialIndex( track );
+                track.delete( );
 
-            this.updatedTracks.add( track );
-            this.newData = true;
-        }
-        finally
-        {
-            this.trackUpdateLock.unlock( );
-        }
+                updatedTracks.add( track );
+            }
+        } );
     }
 
-    public void clearTrack( Object trackId )
+    public void clearTrack( final Object trackId )
     {
-        this.trackUpdateLock.lock( );
-        try
+        enqueue( new Update( )
         {
-            if ( !tracks.containsKey( trackId ) ) return;
-
-            Track track = tracks.get( trackId );
-
-            if ( this.spatialIndex != null )
+            @Override
+            public void apply( )
             {
-                for ( Point p : track.points )
-                {
-                    this.spatialIndex.remove( p );
-                }
-            }
+                Track track = tracks.get( trackId );
+                if ( track == null ) return;
 
-            track.clear( );
+                removeFromSpatialIndex( track );
+                track.clear( );
 
-            this.updatedTracks.add( track );
-            this.newData = true;
-        }
-        finally
-        {
-            this.trackUpdateLock.unlock( );
-        }
+                updatedTracks.add( track );
+            }
+        } );
     }
 
     public void addPoint( Object trackId, Object pointId, double x, double y, long time )
@@ -270,22 +435,19 @@ public class TrackPainter extends GlimpseDataPainter2D
         addPoint( trackId, new Point( trackId, pointId, x, y, time ) );
     }
 
-    public void addPoints( Object trackId, List<Point> points )
+    public void addPoints( Object trackId, List<Point> _points )
     {
-        this.trackUpdateLock.lock( );
-        try
-        {
-            Track track = getOrCreateTrack( trackId );
-
-            track.add( points );
+        // the update is applied later on the rendering thread, so copy the caller's list now
+        final List<Point> points = new ArrayList<Point>( _points );
 
-            this.updatedTracks.add( track );
-            this.newData = true;
-        }
-        finally
+        enqueue( new TrackUpdate( trackId )
         {
-            this.trackUpdateLock.unlock( );
-        }
+            @Override
+            protected void apply( Track track )
+            {
+                track.add( points );
+            }
+        } );
     }
 
     public void setLineColor( Object trackId, float[] color )
@@ -293,40 +455,28 @@ public class TrackPainter extends GlimpseDataPainter2D
         setLineColor( trackId, color[0], color[1], color[2], color[3] );
     }
 
-    public void setLineColor( Object trackId, float r, float g, float b, float a )
+    public void setLineColor( final Object trackId, final float r, final float g, final float b, final float a )
     {
-        this.trackUpdateLock.lock( );
-        try
+        enqueue( new TrackUpdate( trackId )
         {
-            Track track = getOrCreateTrack( trackId );
-
-            track.setLineColor( r, g, b, a );
-
-            this.updatedTracks.add( track );
-            this.newData = true;
-        }
-        finally
-        {
-            this.trackUpdateLock.unlock( );
-        }
+            @Override
+            protected void apply( Track track )
+            {
+                track.setLineColor( r, g, b, a );
+            }
+        } );
     }
 
-    public void setLineWidth( Object trackId, float width )
+    public void setLineWidth( final Object trackId, final float width )
     {
-        this.trackUpdateLock.lock( );
-        try
+        enqueue( new TrackUpdate( trackId )
         {
-            Track track = getOrCreateTrack( trackId );
-
-            track.setLineWidth( width );
-
-            this.updatedTracks.add( track );
-            this.newData = true;
-        }
-        finally
-        {
-            this.trackUpdateLock.unlock( );
-        }
+            @Override
+            protected void apply( Track track )
+            {
+                track.setLineWidth( width );
+            }
+        } );
     }
 
     public void setPointColor( Object trackId, float[] color )
@@ -334,58 +484,40 @@ public class TrackPainter extends GlimpseDataPainter2D
         setPointColor( trackId, color[0], color[1], color[2], color[3] );
     }
 
-    public void setPointColor( Object trackId, float r, float g, float b, float a )
+    public void setPointColor( final Object trackId, final float r, final float g, final float b, final float a )
     {
-        this.trackUpdateLock.lock( );
-        try
-        {
-            Track track = getOrCreateTrack( trackId );
-
-            track.setPointColor( r, g, b, a );
-
-            this.updatedTracks.add( track );
-            this.newData = true;
-        }
-        finally
+        enqueue( new TrackUpdate( trackId )
         {
-            this.trackUpdateLock.unlock( );
-        }
+            @Override
+            protected void apply( Track track )
+            {
+                track.setPointColor( r, g, b, a );
+            }
+        } );
     }
 
-    public void setPointSize( Object trackId, float size )
+    public void setPointSize( final Object trackId, final float size )
     {
-        this.trackUpdateLock.lock( );
-        try
+        enqueue( new TrackUpdate( trackId )
         {
-            Track track = getOrCreateTrack( trackId );
-
-            track.setPointSize( size );
-
-            this.updatedTracks.add( track );
-            this.newData = true;
-        }
-        finally
-        {
-            this.trackUpdateLock.unlock( );
-        }
+            @Override
+            protected void apply( Track track )
+            {
+                track.setPointSize( size );
+            }
+        } );
     }
 
-    public void setShowPoints( Object trackId, boolean show )
+    public void setShowPoints( final Object trackId, final boolean show )
     {
-        this.trackUpdateLock.lock( );
-        try
-        {
-            Track track = getOrCreateTrack( trackId );
-
-            track.setShowPoints( show );
-
-            this.updatedTracks.add( track );
-            this.newData = true;
-        }
-        finally
+        enqueue( new TrackUpdate( trackId )
         {
-            this.trackUpdateLock.unlock( );
-        }
+            @Override
+            protected void apply( Track track )
+            {
+                track.setShowPoints( show );
+            }
+        } );
     }
 
     public void setHeadPointColor( Object trackId, float[] color )
@@ -393,113 +525,77 @@ public class TrackPainter extends GlimpseDataPainter2D
         setHeadPointColor( trackId, color[0], color[1], color[2], color[3] );
     }
 
-    public void setHeadPointColor( Object trackId, float r, float g, float b, float a )
+    public void setHeadPointColor( final Object trackId, final float r, final float g, final float b, final float a )
     {
-        this.trackUpdateLock.lock( );
-        try
+        enqueue( new TrackUpdate( trackId )
         {
-            Track track = getOrCreateTrack( trackId );
-
-            track.setHeadPointColor( r, g, b, a );
-
-            this.updatedTracks.add( track );
-            this.newData = true;
-        }
-        finally
-        {
-            this.trackUpdateLock.unlock( );
-        }
+            @Override
+            protected void apply( Track track )
+            {
+                track.setHeadPointColor( r, g, b, a );
+            }
+        } );
     }
 
-    public void setHeadPointSize( Object trackId, float size )
+    public void setHeadPointSize( final Object trackId, final float size )
     {
-        this.trackUpdateLock.lock( );
-        try
+        enqueue( new TrackUpdate( trackId )
         {
-            Track track = getOrCreateTrack( trackId );
-
-            track.setHeadPointSize( size );
-
-            this.updatedTracks.add( track );
-            this.newData = true;
-        }
-        finally
-        {
-            this.trackUpdateLock.unlock( );
-        }
+            @Override
+            protected void apply( Track track )
+            {
+                track.setHeadPointSize( size );
+            }
+        } );
     }
 
-    public void setShowHeadPoint( Object trackId, boolean show )
+    public void setShowHeadPoint( final Object trackId, final boolean show )
     {
-        this.trackUpdateLock.lock( );
-        try
-        {
-            Track track = getOrCreateTrack( trackId );
-
-            track.setShowHeadPoint( show );
-
-            this.updatedTracks.add( track );
-            this.newData = true;
-        }
-        finally
+        enqueue( new TrackUpdate( trackId )
         {
-            this.trackUpdateLock.unlock( );
-        }
+            @Override
+            protected void apply( Track track )
+            {
+                track.setShowHeadPoint( show );
+            }
+        } );
     }
 
-    public void setShowLines( Object trackId, boolean show )
+    public void setShowLines( final Object trackId, final boolean show )
     {
-        this.trackUpdateLock.lock( );
-        try
+        enqueue( new TrackUpdate( trackId )
         {
-            Track track = getOrCreateTrack( trackId );
-
-            track.setShowLines( show );
-
-            this.updatedTracks.add( track );
-            this.newData = true;
-        }
-        finally
-        {
-            this.trackUpdateLock.unlock( );
-        }
+            @Override
+            protected void apply( Track track )
+            {
+                track.setShowLines( show );
+            }
+        } );
     }
 
-    public void setDotted( Object trackId, boolean dotted )
+    public void setDotted( final Object trackId, final boolean dotted )
     {
-        this.trackUpdateLock.lock( );
-        try
-        {
-            Track track = getOrCreateTrack( trackId );
-
-            track.setTrackStipple( dotted );
-
-            this.updatedTracks.add( track );
-            this.newData = true;
-        }
-        finally
+        enqueue( new TrackUpdate( trackId )
         {
-            this.trackUpdateLock.unlock( );
-        }
+            @Override
+            protected void apply( Track track )
+            {
+                track.setTrackStipple( dotted );
+            }
+        } );
     }
 
-    public void setDotted( Object trackId, int stippleFactor, short stipplePattern )
+    public void setDotted( final Object trackId, final int stippleFactor, final short stipplePattern )
     {
-        this.trackUpdateLock.lock( );
-        try
+        enqueue( new TrackUpdate( trackId )
         {
-            Track track = getOrCreateTrack( trackId );
-
-            track.setTrackStipple( true );
-            track.setTrackStipple( stippleFactor, stipplePattern );
-
-            this.updatedTracks.add( track );
-            this.newData = true;
-        }
-        finally
-        {
-            this.trackUpdateLock.unlock( );
-        }
+            @Override
+            protected void apply( Track track )
+            {
+                track.setTrackStipple( true );
+                track.setTrackStipple( stippleFactor, stipplePattern );
+            }
+        } );
     }
 
     public void setLabelColor( Object trackId, float[] color )
@@ -507,22 +603,16 @@ public class TrackPainter extends GlimpseDataPainter2D
         setLabelColor( trackId, color[0], color[1], color[2], color[3] );
     }
 
-    public void setLabelColor( Object trackId, float r, float g, float b, float a )
+    public void setLabelColor( final Object trackId, final float r, final float g, final float b, final float a )
     {
-        this.trackUpdateLock.lock( );
-        try
-        {
-            Track track = getOrCreateTrack( trackId );
-
-            track.setLabelColor( r, g, b, a );
-
-            this.updatedTracks.add( track );
-            this.newData = true;
-        }
-        finally
+        enqueue( new TrackUpdate( trackId )
         {
-            this.trackUpdateLock.unlock( );
-        }
+            @Override
+            protected void apply( Track track )
+            {
+                track.setLabelColor( r, g, b, a );
+            }
+        } );
     }
 
     public void setLabelLineColor( Object trackId, float[] color )
@@ -530,77 +620,53 @@ public class TrackPainter extends GlimpseDataPainter2D
         setLabelLineColor( trackId, color[0], color[1], color[2], color[3] );
     }
 
-    public void setLabelLineColor( Object trackId, float r, float g, float b, float a )
+    public void setLabelLineColor( final Object trackId, final float r, final float g, final float b, final float a )
     {
-        this.trackUpdateLock.lock( );
-        try
+        enqueue( new TrackUpdate( trackId )
         {
-            Track track = getOrCreateTrack( trackId );
-
-            track.setLabelLineColor( r, g, b, a );
-
-            this.updatedTracks.add( track );
-            this.newData = true;
-        }
-        finally
-        {
-            this.trackUpdateLock.unlock( );
-        }
+            @Override
+            protected void apply( Track track )
+            {
+                track.setLabelLineColor( r, g, b, a );
+            }
+        } );
     }
 
-    public void setShowLabelLine( Object trackId, boolean show )
+    public void setShowLabelLine( final Object trackId, final boolean show )
     {
-        this.trackUpdateLock.lock( );
-        try
-        {
-            Track track = getOrCreateTrack( trackId );
-
-            track.setShowLabelLine( show );
-
-            this.updatedTracks.add( track );
-            this.newData = true;
-        }
-        finally
+        enqueue( new TrackUpdate( trackId )
         {
-            this.trackUpdateLock.unlock( );
-        }
+            @Override
+            protected void apply( Track track )
+            {
+                track.setShowLabelLine( show );
+            }
+        } );
     }
 
-    public void setLabel( Object trackId, String label )
+    public void setLabel( final Object trackId, final String label )
     {
-        this.trackUpdateLock.lock( );
-        try
+        enqueue( new TrackUpdate( trackId )
         {
-            Track track = getOrCreateTrack( trackId );
-
-            track.setShowLabel( true );
-            track.setLabel( label );
-
-            this.updatedTracks.add( track );
-            this.newData = true;
-        }
-        finally
-        {
-            this.trackUpdateLock.unlock( );
-        }
+            @Override
+            protected void apply( Track track )
+            {
+                track.setShowLabel( true );
+                track.setLabel( label );
+            }
+        } );
     }
 
-    public void setShowLabel( Object trackId, boolean show )
+    public void setShowLabel( final Object trackId, final boolean show )
     {
-        this.trackUpdateLock.lock( );
-        try
+        enqueue( new TrackUpdate( trackId )
         {
-            Track track = getOrCreateTrack( trackId );
-
-            track.setShowLabel( show );
-
-            this.updatedTracks.add( track );
-            this.newData = true;
-        }
-        finally
-        {
-            this.trackUpdateLock.unlock( );
-        }
+            @Override
+            protected void apply( Track track )
+            {
+                track.setShowLabel( show );
+            }
+        } );
     }
 
     public void displayTimeRange( Object trackId, double startTime, double endTime )
@@ -620,24 +686,18 @@ public class TrackPainter extends GlimpseDataPainter2D
 
     public void displayTimeRange( Object trackId, long startTime, long endTime, long selectedTime )
     {
-        Point startPoint = getStartPoint( startTime );
-        Point endPoint = getEndPoint( endTime );
-        Point selectedPoint = getEndPoint( selectedTime );
-
-        this.trackUpdateLock.lock( );
-        try
-        {
-            Track track = getOrCreateTrack( trackId );
-
-            track.setTimeRange( startPoint, endPoint, selectedPoint );
+        final Point startPoint = getStartPoint( startTime );
+        final Point endPoint = getEndPoint( endTime );
+        final Point selectedPoint = getEndPoint( selectedTime );
 
-            this.updatedTracks.add( track );
-            this.newData = true;
-        }
-        finally
+        enqueue( new TrackUpdate( trackId )
         {
-            this.trackUpdateLock.unlock( );
-        }
+            @Override
+            protected void apply( Track track )
+            {
+                track.setTimeRange( startPoint, endPoint, selectedPoint );
+            }
+        } );
     }
 
     public void displayTimeRange( long startTime, long endTime )
@@ -647,25 +707,27 @@ public class TrackPainter extends GlimpseDataPainter2D
 
     public void displayTimeRange( long startTime, long endTime, long selectedTime )
     {
-        startTimeRange = getStartPoint( startTime );
-        endTimeRange = getEndPoint( endTime );
-        selectedTimeRange = getEndPoint( selectedTime );
+        final Point startPoint = getStartPoint( startTime );
+        final Point endPoint = getEndPoint( endTime );
+        final Point selectedPoint = getEndPoint( selectedTime );
 
-        this.trackUpdateLock.lock( );
-        try
+        enqueue( new Update( )
         {
-            for ( Track track : tracks.values( ) )
+            @Override
+            public void apply( )
             {
-                track.setTimeRange( startTimeRange, endTimeRange, selectedTimeRange );
-            }
+                startTimeRange = startPoint;
+                endTimeRange = endPoint;
+                selectedTimeRange = selectedPoint;
 
-            this.updatedTracks.addAll( tracks.values( ) );
-            this.newData = true;
-        }
-        finally
-        {
-            this.trackUpdateLock.unlock( );
-        }
+                for ( Track track : tracks.values( ) )
+                {
+                    track.setTimeRange( startTimeRange, endTimeRange, selectedTimeRange );
+                }
+
+                updatedTracks.addAll( tracks.values( ) );
+            }
+        } );
     }
 
     /**
@@ -685,11 +747,13 @@ public class TrackPainter extends GlimpseDataPainter2D
             this.trackUpdateLock.lock( );
             try
             {
-                return spatialIndex.search( ( float ) minX, ( float ) maxX, ( float ) minY, ( float ) maxY );
+                drainUpdates( Integer.MAX_VALUE );
+                return spatialIndex.search( ( float ) minX, ( float ) maxX, ( float ) minY, ( float ) maxY, Long.MIN_VALUE, Long.MAX_VALUE );
             }
             finally
             {
                 this.trackUpdateLock.unlock( );
+                notifyPendingTrackHeads( );
             }
         }
         else
@@ -699,11 +763,18 @@ public class TrackPainter extends GlimpseDataPainter2D
     }
 
     /**
+     * Like {@link #getPixelRange(Axis2D, double, double, int, int)}, but only returns Points
+     * which fall between minTime and maxTime (inclusive) and within the time span specified
+     * for their track using displayTimeRange.
+     *
      * @see #getPixelRange(Axis2D, double, double, int, int)
      */
     public Collection<Point> getTimePixelRange( Axis2D axis, double minTime, double maxTime, double centerX, double centerY, int pixelWidth, int pixelHeight )
     {
-        return filter( getPixelRange( axis, centerX, centerY, pixelWidth, pixelHeight ) );
+        double width = pixelWidth / axis.getAxisX( ).getPixelsPerValue( );
+        double height = pixelHeight / axis.getAxisY( ).getPixelsPerValue( );
+
+        return getSelectedGeoRange( ( long ) Math.ceil( minTime ), ( long ) Math.floor( maxTime ), centerX - width / 2, centerX + width / 2, centerY - height / 2, centerY + height / 2 );
     }
 
     /**
@@ -787,7 +858,10 @@ public class TrackPainter extends GlimpseDataPainter2D
         double centerX = axisX.screenPixelToValue( centerPixelX );
         double centerY = axisY.screenPixelToValue( axisY.getSizePixels( ) - centerPixelY );
 
-        Collection<Point> points = getTimePixelRange( axis, startTimeRange.time, endTimeRange.time, centerX, centerY, maxPixelDistance * 2, maxPixelDistance * 2 );
+        double width = maxPixelDistance * 2 / axisX.getPixelsPerValue( );
+        double height = maxPixelDistance * 2 / axisY.getPixelsPerValue( );
+
+        Collection<Point> points = getSelectedGeoRange( Long.MIN_VALUE, Long.MAX_VALUE, centerX - width / 2, centerX + width / 2, centerY - height / 2, centerY + height / 2 );
 
         Point minPoint = null;
         double minDistance = 0;
@@ -827,11 +901,15 @@ public class TrackPainter extends GlimpseDataPainter2D
             this.trackUpdateLock.lock( );
             try
             {
-                return filter( spatialIndex.search( ( float ) minX, ( float ) maxX, ( float ) minY, ( float ) maxY ), minTime, maxTime );
+                drainUpdates( Integer.MAX_VALUE );
+                // preserve the historical (minTime, maxTime] semantics of this query
+                if ( minTime == Long.MAX_VALUE ) return Collections.emptyList( );
+                return spatialIndex.search( ( float ) minX, ( float ) maxX, ( float ) minY, ( float ) maxY, minTime + 1, maxTime );
             }
             finally
             {
                 this.trackUpdateLock.unlock( );
+                notifyPendingTrackHeads( );
             }
         }
         else
@@ -845,17 +923,48 @@ public class TrackPainter extends GlimpseDataPainter2D
      *         span specified for their track using displayTimeRange.
      */
     public Collection<Point> getTimeGeoRange( double minX, double maxX, double minY, double maxY )
+    {
+        return getSelectedGeoRange( Long.MIN_VALUE, Long.MAX_VALUE, minX, maxX, minY, maxY );
+    }
+
+    /**
+     * @return all the points within a specified bounding box which fall between minTime and
+     *         maxTime (inclusive) and within the time span specified for their track using
+     *         displayTimeRange.
+     */
+    protected Collection<Point> getSelectedGeoRange( long minTime, long maxTime, double minX, double maxX, double minY, double maxY )
     {
         if ( spatialIndex != null )
         {
             this.trackUpdateLock.lock( );
             try
             {
-                return filter( spatialIndex.search( ( float ) minX, ( float ) maxX, ( float ) minY, ( float ) maxY ) );
+                drainUpdates( Integer.MAX_VALUE );
+
+                // the union of the per-track selected time spans bounds the time axis
+                // of the search, so points outside every selection are never visited
+                long selectedMin = Long.MAX_VALUE;
+                long selectedMax = Long.MIN_VALUE;
+                for ( Track track : tracks.values( ) )
+                {
+                    if ( track.selectionStart == null || track.selectionEnd == null ) continue;
+                    selectedMin = Math.min( selectedMin, track.selectionStart.getTime( ) );
+                    selectedMax = Math.max( selectedMax, track.selectionEnd.getTime( ) );
+                }
+
+                Collection<Point> result = new ArrayList<Point>( );
+                long tMin = Math.max( minTime, selectedMin );
+                long tMax = Math.min( maxTime, selectedMax );
+                if ( tMin <= tMax )
+                {
+                    spatialIndex.search( ( float ) minX, ( float ) maxX, ( float ) minY, ( float ) maxY, tMin, tMax, selectionFilter, result );
+                }
+                return result;
             }
             finally
             {
                 this.trackUpdateLock.unlock( );
+                notifyPendingTrackHeads( );
             }
         }
         else
@@ -935,24 +1044,82 @@ public class TrackPainter extends GlimpseDataPainter2D
         return result;
     }
 
-    protected void addPoint( Object trackId, Point point )
+    protected void addPoint( final Object trackId, final Point point )
     {
-        this.trackUpdateLock.lock( );
-        try
+        enqueue( new TrackUpdate( trackId )
         {
-            Track track = getOrCreateTrack( trackId );
+            @Override
+            protected void apply( Track track )
+            {
+                track.add( point );
+            }
+        } );
+    }
 
-            track.add( point );
+    // may be called from any thread, does not block
+    protected void enqueue( Update update )
+    {
+        this.updateQueue.add( update );
+        this.updateQueueDepth.incrementAndGet( );
+        this.newData = true;
+    }
 
-            this.updatedTracks.add( track );
-            this.newData = true;
+    // must be called while holding trackUpdateLock
+    protected int drainUpdates( int maxUpdates )
+    {
+        long startTime = System.nanoTime( );
+
+        int count = 0;
+        Update update;
+        while ( count < maxUpdates && ( update = this.updateQueue.poll( ) ) != null )
+        {
+            this.updateQueueDepth.decrementAndGet( );
+            update.apply( );
+            count++;
         }
-        finally
+
+        if ( count > 0 )
         {
-            this.trackUpdateLock.unlock( );
+            long drainTime = System.nanoTime( ) - startTime;
+            this.lastDrainCount = count;
+            this.lastDrainTimeNanos = drainTime;
+            if ( drainTime > this.maxDrainTimeNanos ) this.maxDrainTimeNanos = drainTime;
+        }
+
+        // leave the newData flag set if updates remain, so they are picked up next frame
+        if ( !this.updateQueue.isEmpty( ) ) this.newData = true;
+
+        return count;
+    }
+
+    // must be called while holding trackUpdateLock
+    protected void removeFromSpatialIndex( Track track )
+    {
+        if ( this.spatialIndex == null ) return;
+
+        for ( int i = 0; i < track.points.size( ); i++ )
+        {
+            this.spatialIndex.remove( track.points.getPoint( track.trackId, i ) );
         }
     }
 
+    // returns null if level of detail is disabled
+    protected TrackLevelOfDetail newLevelOfDetail( )
+    {
+        return lodLevelCount > 0 ? new TrackLevelOfDetail( lodBaseTolerance, lodLevelCount ) : null;
+    }
+
+    // chooses the level of detail to draw based on the current size of a pixel in axis units
+    protected int chooseDisplayLevel( Axis2D axis )
+    {
+        int levelCount = this.lodLevelCount;
+        if ( levelCount <= 0 ) return 0;
+
+        double pixelsPerValue = Math.max( axis.getAxisX( ).getPixelsPerValue( ), axis.getAxisY( ).getPixelsPerValue( ) );
+
+        return TrackLevelOfDetail.chooseLevel( lodBaseTolerance, levelCount, lodPixelTolerance / pixelsPerValue );
+    }
+
     // must be called while holding trackUpdateLock
     protected Track getOrCreateTrack( Object trackId )
     {
@@ -962,6 +1129,7 @@ public class TrackPainter extends GlimpseDataPainter2D
         {
             track = new Track( trackId );
             track.setTimeRange( startTimeRange, endTimeRange, selectedTimeRange );
+            track.setDisplayLevel( displayLevel );
             this.tracks.put( trackId, track );
         }
 
@@ -977,6 +1145,34 @@ public class TrackPainter extends GlimpseDataPainter2D
         }
     }
 
+    /**
+     * Reports track heads changed by applied updates to the TemporalSelectionListeners. Updates
+     * are applied while holding trackUpdateLock (often on the paint thread), so listeners are
+     * called afterwards, by the outermost holder of the lock once it has released it. This lets
+     * listeners query the painter without re-entering a drain of the update queue.
+     */
+    protected void notifyPendingTrackHeads( )
+    {
+        if ( this.trackUpdateLock.isHeldByCurrentThread( ) ) return;
+
+        Map<Object, Point> newTrackHeads;
+
+        this.trackUpdateLock.lock( );
+        try
+        {
+            if ( this.pendingTrackHeads.isEmpty( ) ) return;
+
+            newTrackHeads = this.pendingTrackHeads;
+            this.pendingTrackHeads = new LinkedHashMap<Object, Point>( );
+        }
+        finally
+        {
+            this.trackUpdateLock.unlock( );
+        }
+
+        notifyTemporalSelectionListeners( newTrackHeads );
+    }
+
     protected void notifyTemporalSelectionListeners( Map<Object, Point> newTrackHeads )
     {
         for ( TemporalSelectionListener<Point> listener : temporalSelectionListeners )
@@ -1004,11 +1200,30 @@ public class TrackPainter extends GlimpseDataPainter2D
         int width = bounds.getWidth( );
         int height = bounds.getHeight( );
 
-        if ( this.newData )
+        if ( this.newData || chooseDisplayLevel( axis ) != this.displayLevel )
         {
             this.trackUpdateLock.lock( );
             try
             {
+                // clear the flag before draining: updates enqueued after this point set it again
+                this.newData = false;
+
+                // apply queued updates from feed threads to the tracks
+                drainUpdates( this.maxUpdatesPerFrame );
+
+                // switch level of detail if the zoom level has changed
+                int level = chooseDisplayLevel( axis );
+                if ( level != this.displayLevel )
+                {
+                    for ( Track track : tracks.values( ) )
+                    {
+                        track.setDisplayLevel( level );
+                    }
+
+                    this.updatedTracks.addAll( tracks.values( ) );
+                    this.displayLevel = level;
+                }
+
                 // loop through all tracks with new posits
                 for ( Track track : updatedTracks )
                 {
@@ -1017,7 +1232,7 @@ public class TrackPainter extends GlimpseDataPainter2D
                     if ( track.isDeletePending( ) || track.isClearPending( ) )
                     {
                         LoadedTrack loaded = getOrCreateLoadedTrack( id, track );
-                        loaded.dispose( gl );
+                        disposeLoadedTrack( gl, loaded );
                         loadedTracks.remove( id );
 
                         // If the track was deleted then recreated in between calls to display0(),
@@ -1034,7 +1249,11 @@ public class TrackPainter extends GlimpseDataPainter2D
 
                     int trackSize = track.getSize( );
 
-                    if ( track.isDataInserted( ) )
+                    if ( track.isDataInserted( ) && batchedRendering )
+                    {
+                        loadIntoSharedBuffer( gl, loaded, track );
+                    }
+                    else if ( track.isDataInserted( ) )
                     {
                         if ( !loaded.glBufferInitialized || loaded.glBufferMaxSize < trackSize )
                         {
@@ -1093,11 +1312,12 @@ public class TrackPainter extends GlimpseDataPainter2D
                 }
 
                 this.updatedTracks.clear( );
-                this.newData = false;
+                this.batchesDirty = true;
             }
             finally
             {
                 this.trackUpdateLock.unlock( );
+                notifyPendingTrackHeads( );
             }
 
             glHandleError( gl );
@@ -1109,58 +1329,65 @@ public class TrackPainter extends GlimpseDataPainter2D
 
         boolean labelOn = false;
 
-        for ( LoadedTrack loaded : loadedTracks.values( ) )
+        if ( batchedRendering )
         {
-            if ( !loaded.glBufferInitialized ) continue;
-
-            int glOffset = loaded.glSelectedOffset;
-            int glSize = loaded.glSelectedSize;
+            labelOn = paintBatched( gl );
+        }
+        else
+        {
+            for ( LoadedTrack loaded : loadedTracks.values( ) )
+            {
+                if ( !loaded.glBufferInitialized ) continue;
 
-            gl.glBindBuffer( GL2.GL_ARRAY_BUFFER, loaded.glBufferHandle );
-            gl.glVertexPointer( 2, GL2.GL_FLOAT, 0, 0 );
+                int glOffset = loaded.glSelectedOffset;
+                int glSize = loaded.glSelectedSize;
 
-            if ( loaded.linesOn )
-            {
-                gl.glColor4fv( loaded.lineColor, 0 );
-                gl.glLineWidth( loaded.lineWidth );
+                gl.glBindBuffer( GL2.GL_ARRAY_BUFFER, loaded.glBufferHandle );
+                gl.glVertexPointer( 2, GL2.GL_FLOAT, 0, 0 );
 
-                if ( loaded.stippleOn )
+                if ( loaded.linesOn )
                 {
-                    gl.glEnable( GL2.GL_LINE_STIPPLE );
-                    gl.glLineStipple( loaded.stippleFactor, loaded.stipplePattern );
-                }
+                    gl.glColor4fv( loaded.lineColor, 0 );
+                    gl.glLineWidth( loaded.lineWidth );
 
-                gl.glDrawArrays( GL2.GL_LINE_STRIP, glOffset, glSize );
+                    if ( loaded.stippleOn )
+                    {
+                        gl.glEnable( GL2.GL_LINE_STIPPLE );
+                        gl.glLineStipple( loaded.stippleFactor, loaded.stipplePattern );
+                    }
 
-                if ( loaded.stippleOn )
-                {
-                    gl.glDisable( GL2.GL_LINE_STIPPLE );
-                }
-            }
+                    gl.glDrawArrays( GL2.GL_LINE_STRIP, glOffset, glSize );
 
-            if ( loaded.pointsOn )
-            {
-                gl.glColor4fv( loaded.pointColor, 0 );
-                gl.glPointSize( loaded.pointSize );
-                gl.glDrawArrays( GL2.GL_POINTS, glOffset, glSize );
-            }
+                    if ( loaded.stippleOn )
+                    {
+                        gl.glDisable( GL2.GL_LINE_STIPPLE );
+                    }
+                }
 
-            if ( loaded.headPointOn )
-            {
-                gl.glColor4fv( loaded.headPointColor, 0 );
-                gl.glPointSize( loaded.headPointSize );
-                gl.glBegin( GL2.GL_POINTS );
-                try
+                if ( loaded.pointsOn )
                 {
-                    gl.glVertex2d( loaded.headPosX, loaded.headPosY );
+                    gl.glColor4fv( loaded.pointColor, 0 );
+                    gl.glPointSize( loaded.pointSize );
+                    gl.glDrawArrays( GL2.GL_POINTS, glOffset, glSize );
                 }
-                finally
+
+                if ( loaded.headPointOn )
                 {
-                    gl.glEnd( );
+                    gl.glColor4fv( loaded.headPointColor, 0 );
+                    gl.glPointSize( loaded.headPointSize );
+                    gl.glBegin( GL2.GL_POINTS );
+                    try
+                    {
+                        gl.glVertex2d( loaded.headPosX, loaded.headPosY );
+                    }
+                    finally
+                    {
+                        gl.glEnd( );
+                    }
                 }
-            }
 
-            if ( loaded.labelOn ) labelOn = true;
+                if ( loaded.labelOn ) labelOn = true;
+            }
         }
 
         // don't bother iterating through all the tracks again if none have labels turned on
@@ -1214,6 +1441,243 @@ public class TrackPainter extends GlimpseDataPainter2D
         }
     }
 
+    // must be called while holding trackUpdateLock
+    protected void loadIntoSharedBuffer( GL2 gl, LoadedTrack loaded, Track track )
+    {
+        int trackSize = track.getSize( );
+
+        if ( !loaded.sharedAllocated || loaded.sharedCapacity < trackSize )
+        {
+            // as with per-track buffers, don't reserve extra space the first time a track is
+            // loaded, but assume a track which has been updated once will be updated again
+            int capacity = trackSize;
+            if ( loaded.sharedAllocated )
+            {
+                capacity = Math.max( ( int ) ( loaded.sharedCapacity * 1.5 ), trackSize );
+                sharedAllocator.free( loaded.sharedOffset, loaded.sharedCapacity );
+                loaded.sharedAllocated = false;
+            }
+
+            loaded.sharedOffset = allocateShared( gl, capacity );
+            loaded.sharedCapacity = capacity;
+            loaded.sharedAllocated = true;
+
+            uploadShared( gl, track, loaded.sharedOffset, 0, trackSize );
+        }
+        else
+        {
+            uploadShared( gl, track, loaded.sharedOffset, track.getInsertOffset( ), trackSize );
+        }
+    }
+
+    // must be called while holding trackUpdateLock
+    protected int allocateShared( GL2 gl, int size )
+    {
+        int offset = sharedAllocator.allocate( size );
+
+        if ( offset < 0 )
+        {
+            int capacity = sharedAllocator.getCapacity( );
+            growSharedBuffer( gl, Math.max( SHARED_BUFFER_INITIAL_SIZE, Math.max( capacity * 2, capacity + size ) ) );
+            offset = sharedAllocator.allocate( size );
+        }
+
+        return offset;
+    }
+
+    // must be called while holding trackUpdateLock
+    protected void growSharedBuffer( GL2 gl, int newCapacity )
+    {
+        if ( sharedBufferInitialized )
+        {
+            gl.glDeleteBuffers( 1, new int[] { sharedBufferHandle }, 0 );
+        }
+
+        int[] bufferHandle = new int[1];
+        gl.glGenBuffers( 1, bufferHandle, 0 );
+        sharedBufferHandle = bufferHandle[0];
+        sharedBufferInitialized = true;
+
+        gl.glBindBuffer( GL2.GL_ARRAY_BUFFER, sharedBufferHandle );
+        gl.glBufferData( GL2.GL_ARRAY_BUFFER, ( long ) newCapacity * 2 * BYTES_PER_FLOAT, null, GL2.GL_DYNAMIC_DRAW );
+
+        sharedAllocator.grow( newCapacity );
+
+        // existing allocations keep their offsets, but the contents of the old
+        // device buffer are gone, so reload every allocated track from host data
+        for ( LoadedTrack loaded : loadedTracks.values( ) )
+        {
+            if ( !loaded.sharedAllocated ) continue;
+
+            Track track = tracks.get( loaded.trackId );
+            if ( track == null ) continue;
+
+            uploadShared( gl, track, loaded.sharedOffset, 0, Math.min( track.getSize( ), loaded.sharedCapacity ) );
+        }
+    }
+
+    // must be called while holding trackUpdateLock
+    protected void uploadShared( GL2 gl, Track track, int baseOffset, int fromIndex, int toIndex )
+    {
+        int count = toIndex - fromIndex;
+        if ( count <= 0 ) return;
+
+        ensureDataBufferSize( count );
+        dataBuffer.rewind( );
+        track.loadIntoBuffer( dataBuffer, fromIndex, toIndex );
+
+        gl.glBindBuffer( GL2.GL_ARRAY_BUFFER, sharedBufferHandle );
+        gl.glBufferSubData( GL2.GL_ARRAY_BUFFER, ( long ) ( baseOffset + fromIndex ) * 2 * BYTES_PER_FLOAT, count * 2 * BYTES_PER_FLOAT, dataBuffer.rewind( ) );
+    }
+
+    protected void disposeLoadedTrack( GL gl, LoadedTrack loaded )
+    {
+        if ( loaded.sharedAllocated )
+        {
+            sharedAllocator.free( loaded.sharedOffset, loaded.sharedCapacity );
+            loaded.sharedAllocated = false;
+        }
+
+        loaded.dispose( gl );
+    }
+
+    // groups tracks by style and builds the offset/count arrays for glMultiDrawArrays
+    protected void rebuildBatches( GL2 gl )
+    {
+        Map<DrawStyle, DrawBatch> lines = new LinkedHashMap<>( );
+        Map<DrawStyle, DrawBatch> points = new LinkedHashMap<>( );
+        Map<DrawStyle, DrawBatch> heads = new LinkedHashMap<>( );
+
+        for ( LoadedTrack loaded : loadedTracks.values( ) )
+        {
+            if ( !loaded.sharedAllocated || loaded.glSelectedSize <= 0 ) continue;
+
+            int first = loaded.sharedOffset + loaded.glSelectedOffset;
+            int count = loaded.glSelectedSize;
+
+            if ( loaded.linesOn )
+            {
+                DrawStyle style = new DrawStyle( loaded.lineColor, loaded.lineWidth, loaded.stippleOn, loaded.stippleFactor, loaded.stipplePattern );
+                getOrCreateBatch( lines, style ).addStrip( first, count );
+            }
+
+            if ( loaded.pointsOn )
+            {
+                DrawStyle style = new DrawStyle( loaded.pointColor, loaded.pointSize, false, 0, ( short ) 0 );
+                getOrCreateBatch( points, style ).addPoints( first, count );
+            }
+
+            if ( loaded.headPointOn )
+            {
+                DrawStyle style = new DrawStyle( loaded.headPointColor, loaded.headPointSize, false, 0, ( short ) 0 );
+                getOrCreateBatch( heads, style ).addHead( ( float ) loaded.headPosX, ( float ) loaded.headPosY );
+            }
+        }
+
+        this.lineBatches = lines.values( );
+        this.pointBatches = points.values( );
+        this.headBatches = heads.values( );
+
+        // lay out the head positions for each style contiguously in the head buffer
+        FloatsArray headXys = new FloatsArray( );
+        for ( DrawBatch batch : this.headBatches )
+        {
+            batch.headFirst = headXys.n / 2;
+            batch.headCount = batch.headXys.n / 2;
+            headXys.append( batch.headXys.a, 0, batch.headXys.n );
+        }
+
+        if ( !headBufferInitialized )
+        {
+            int[] bufferHandle = new int[1];
+            gl.glGenBuffers( 1, bufferHandle, 0 );
+            headBufferHandle = bufferHandle[0];
+            headBufferInitialized = true;
+        }
+
+        FloatBuffer headBuffer = ByteBuffer.allocateDirect( Math.max( 1, headXys.n ) * BYTES_PER_FLOAT ).order( ByteOrder.nativeOrder( ) ).asFloatBuffer( );
+        headBuffer.put( headXys.a, 0, headXys.n );
+
+        gl.glBindBuffer( GL2.GL_ARRAY_BUFFER, headBufferHandle );
+        gl.glBufferData( GL2.GL_ARRAY_BUFFER, headXys.n * BYTES_PER_FLOAT, headBuffer.rewind( ), GL2.GL_DYNAMIC_DRAW );
+    }
+
+    protected DrawBatch getOrCreateBatch( Map<DrawStyle, DrawBatch> batches, DrawStyle style )
+    {
+        DrawBatch batch = batches.get( style );
+        if ( batch == null )
+        {
+            batch = new DrawBatch( style );
+            batches.put( style, batch );
+        }
+
+        return batch;
+    }
+
+    // draws all tracks from the shared buffer, returns true if any track has its label turned on
+    protected boolean paintBatched( GL2 gl )
+    {
+        if ( batchesDirty )
+        {
+            rebuildBatches( gl );
+            batchesDirty = false;
+        }
+
+        if ( sharedBufferInitialized )
+        {
+            gl.glBindBuffer( GL2.GL_ARRAY_BUFFER, sharedBufferHandle );
+            gl.glVertexPointer( 2, GL2.GL_FLOAT, 0, 0 );
+
+            for ( DrawBatch batch : lineBatches )
+            {
+                DrawStyle style = batch.style;
+
+                gl.glColor4fv( style.color, 0 );
+                gl.glLineWidth( style.size );
+
+                if ( style.stippleOn )
+                {
+                    gl.glEnable( GL2.GL_LINE_STIPPLE );
+                    gl.glLineStipple( style.stippleFactor, style.stipplePattern );
+                }
+
+                gl.glMultiDrawArrays( GL2.GL_LINE_STRIP, batch.firsts.a, 0, batch.counts.a, 0, batch.firsts.n );
+
+                if ( style.stippleOn )
+                {
+                    gl.glDisable( GL2.GL_LINE_STIPPLE );
+                }
+            }
+
+            for ( DrawBatch batch : pointBatches )
+            {
+                gl.glColor4fv( batch.style.color, 0 );
+                gl.glPointSize( batch.style.size );
+                gl.glMultiDrawArrays( GL2.GL_POINTS, batch.firsts.a, 0, batch.counts.a, 0, batch.firsts.n );
+            }
+        }
+
+        if ( headBufferInitialized && !headBatches.isEmpty( ) )
+        {
+            gl.glBindBuffer( GL2.GL_ARRAY_BUFFER, headBufferHandle );
+            gl.glVertexPointer( 2, GL2.GL_FLOAT, 0, 0 );
+
+            for ( DrawBatch batch : headBatches )
+            {
+                gl.glColor4fv( batch.style.color, 0 );
+                gl.glPointSize( batch.style.size );
+                gl.glDrawArrays( GL2.GL_POINTS, batch.headFirst, batch.headCount );
+            }
+        }
+
+        for ( LoadedTrack loaded : loadedTracks.values( ) )
+        {
+            if ( loaded.labelOn ) return true;
+        }
+
+        return false;
+    }
+
     @Override
     public void dispose( GLContext context )
     {
@@ -1226,6 +1690,18 @@ public class TrackPainter extends GlimpseDataPainter2D
             {
                 track.dispose( gl );
             }
+
+            if ( sharedBufferInitialized )
+            {
+                gl.glDeleteBuffers( 1, new int[] { sharedBufferHandle }, 0 );
+                sharedBufferInitialized = false;
+            }
+
+            if ( headBufferInitialized )
+            {
+                gl.glDeleteBuffers( 1, new int[] { headBufferHandle }, 0 );
+                headBufferInitialized = false;
+            }
         }
         finally
         {
@@ -1245,6 +1721,37 @@ public class TrackPainter extends GlimpseDataPainter2D
     ///// of TrackPainter              /////
     ////////////////////////////////////////
 
+    /**
+     * A change to the painter's track data. Updates are queued without locking by
+     * the thread which produces them and applied in order while holding trackUpdateLock,
+     * usually by the gl display() thread.
+     */
+    protected static interface Update
+    {
+        public void apply( );
+    }
+
+    // An Update which modifies a single track, creating the track if necessary
+    private abstract class TrackUpdate implements Update
+    {
+        protected final Object trackId;
+
+        public TrackUpdate( Object trackId )
+        {
+            this.trackId = trackId;
+        }
+
+        @Override
+        public void apply( )
+        {
+            Track track = getOrCreateTrack( trackId );
+            apply( track );
+            updatedTracks.add( track );
+        }
+
+        protected abstract void apply( Track track );
+    }
+
     // A Track modified only on the gl display() thread
     // (so no locking is required when calling its methods
     // and accessing its data)
@@ -1279,6 +1786,12 @@ public class TrackPainter extends GlimpseDataPainter2D
         float[] headPointColor = new float[4];
         boolean headPointOn;
 
+        // batched rendering: true if space has been reserved for this track in the shared device buffer
+        boolean sharedAllocated = false;
+        // batched rendering: the vertex offset and size of this track's space in the shared device buffer
+        int sharedOffset;
+        int sharedCapacity;
+
         boolean glBufferInitialized = false;
         // a reference to the device buffer for this track
         int glBufferHandle;
@@ -1319,7 +1832,9 @@ public class TrackPainter extends GlimpseDataPainter2D
 
             this.glBufferCurrentSize = track.getSize( );
 
-            if ( glBufferCurrentSize == 0 || track.selectedSize == 0 || track.trackHead == null )
+            // the head is determined from full resolution data, so it may exist even if
+            // no vertices at the displayed level of detail fall within the selected time range
+            if ( track.trackHead == null )
             {
                 this.headPointOn = false;
                 this.labelOn = false;
@@ -1383,15 +1898,120 @@ public class TrackPainter extends GlimpseDataPainter2D
         }
     }
 
-    // A Track modified in the gl display() thread as well as
-    // by the user, all methods should be called while holding
-    // trackUpdateLock
+    // A line or point style shared by the tracks in a DrawBatch
+    private static class DrawStyle
+    {
+        final float[] color;
+        final float size;
+        final boolean stippleOn;
+        final int stippleFactor;
+        final short stipplePattern;
+
+        public DrawStyle( float[] color, float size, boolean stippleOn, int stippleFactor, short stipplePattern )
+        {
+            this.color = Arrays.copyOf( color, 4 );
+            this.size = size;
+            this.stippleOn = stippleOn;
+            this.stippleFactor = stippleOn ? stippleFactor : 0;
+            this.stipplePattern = stippleOn ? stipplePattern : 0;
+        }
+
+        @Override
+        public int hashCode( )
+        {
+            final int prime = 31;
+            int result = 1;
+            result = prime * result + Arrays.hashCode( color );
+            result = prime * result + Float.floatToIntBits( size );
+            result = prime * result + ( stippleOn ? 1231 : 1237 );
+            result = prime * result + stippleFactor;
+            result = prime * result + stipplePattern;
+            return result;
+        }
+
+        @Override
+        public boolean equals( Object obj )
+        {
+            if ( this == obj ) return true;
+            if ( obj == null ) return false;
+            if ( getClass( ) != obj.getClass( ) ) return false;
+            DrawStyle other = ( DrawStyle ) obj;
+            if ( !Arrays.equals( color, other.color ) ) return false;
+            if ( Float.floatToIntBits( size ) != Float.floatToIntBits( other.size ) ) return false;
+            if ( stippleOn != other.stippleOn ) return false;
+            if ( stippleFactor != other.stippleFactor ) return false;
+            if ( stipplePattern != other.stipplePattern ) return false;
+            return true;
+        }
+    }
+
+    // The vertex ranges (within the shared device buffer) of all tracks drawn with the same style
+    private static class DrawBatch
+    {
+        final DrawStyle style;
+
+        // arguments for glMultiDrawArrays
+        IntsArray firsts = new IntsArray( );
+        IntsArray counts = new IntsArray( );
+
+        // head point positions, and their location in the head device buffer
+        FloatsArray headXys = new FloatsArray( );
+        int headFirst;
+        int headCount;
+
+        public DrawBatch( DrawStyle style )
+        {
+            this.style = style;
+        }
+
+        public void addStrip( int first, int count )
+        {
+            // consecutive pieces share an endpoint so the line strip stays connected
+            while ( count > MAX_DRAW_COUNT )
+            {
+                firsts.append( first );
+                counts.append( MAX_DRAW_COUNT );
+                first += MAX_DRAW_COUNT - 1;
+                count -= MAX_DRAW_COUNT - 1;
+            }
+
+            firsts.append( first );
+            counts.append( count );
+        }
+
+        public void addPoints( int first, int count )
+        {
+            while ( count > MAX_DRAW_COUNT )
+            {
+                firsts.append( first );
+                counts.append( MAX_DRAW_COUNT );
+                first += MAX_DRAW_COUNT;
+                count -= MAX_DRAW_COUNT;
+            }
+
+            firsts.append( first );
+            counts.append( count );
+        }
+
+        public void addHead( float x, float y )
+        {
+            headXys.append( x );
+            headXys.append( y );
+        }
+    }
+
+    // A Track modified by queued Updates and read by the gl display()
+    // thread, all methods should be called while holding trackUpdateLock
     private class Track
     {
         // the unique identifier of the track
         Object trackId;
-        // the points making up the track
-        List<Point> points;
+        // the points making up the track, stored in parallel primitive arrays
+        TrackPoints points;
+        // decimated copies of the track for display when zoomed out (null if disabled)
+        TrackLevelOfDetail lod;
+        // the level of detail currently displayed (0 is full resolution)
+        int level;
         // the lowest index of the last change made to the track
         // when the track data is copied to a device buffer, all
         // data from here to the end of the track must be copied
@@ -1441,7 +2061,8 @@ public class TrackPainter extends GlimpseDataPainter2D
         public Track( Object trackId )
         {
             this.trackId = trackId;
-            this.points = new ArrayList<Point>( TRACK_SIZE_ESTIMATE );
+            this.points = new TrackPoints( TRACK_SIZE_ESTIMATE );
+            this.lod = newLevelOfDetail( );
         }
 
         public void setTimeRange( Point startPoint, Point endPoint, Point selectedPoint )
@@ -1457,6 +2078,7 @@ public class TrackPainter extends GlimpseDataPainter2D
         {
             if ( selectionStart == null || selectionEnd == null || selectionCurrent == null ) return;
 
+            // the track head is always determined from the full resolution data
             int startIndex = firstIndexBeforeTime( selectionStart ) + 1;
             int endIndex = firstIndexAfterTime( selectionEnd ) - 1;
             int selectedIndex = firstIndexAfterTime( selectionCurrent ) - 1;
@@ -1470,7 +2092,7 @@ public class TrackPainter extends GlimpseDataPainter2D
 
                 trackHead = null;
 
-                if ( previousTrackHead != null ) notifyTemporalSelectionListeners( Collections.singletonMap( trackId, trackHead ) );
+                if ( previousTrackHead != null ) pendingTrackHeads.put( trackId, trackHead );
             }
             else
             {
@@ -1480,14 +2102,49 @@ public class TrackPainter extends GlimpseDataPainter2D
                 if ( selectedIndex > endIndex ) selectedIndex = endIndex;
                 if ( selectedIndex < startIndex ) selectedIndex = startIndex;
 
-                trackHead = points.get( selectedIndex );
+                trackHead = points.getPoint( trackId, selectedIndex );
                 headPosX = trackHead.getX( );
                 headPosY = trackHead.getY( );
 
-                if ( !trackHead.equals( previousTrackHead ) ) notifyTemporalSelectionListeners( Collections.singletonMap( trackId, trackHead ) );
+                if ( !trackHead.equals( previousTrackHead ) ) pendingTrackHeads.put( trackId, trackHead );
+
+                // the range of vertices to draw is determined from the displayed level of detail
+                TrackPoints display = getDisplayPoints( );
+                if ( display != points )
+                {
+                    int displayStart = display.firstIndexBeforeTime( selectionStart.time ) + 1;
+                    int displayEnd = display.firstIndexAfterTime( selectionEnd.time ) - 1;
+
+                    selectedOffset = displayStart;
+                    selectedSize = Math.max( 0, displayEnd - displayStart + 1 );
+                }
             }
         }
 
+        public void setLevelOfDetail( TrackLevelOfDetail lod )
+        {
+            this.lod = lod;
+            if ( lod != null ) lod.update( points, 0 );
+
+            setDisplayLevel( 0 );
+        }
+
+        public void setDisplayLevel( int level )
+        {
+            this.level = lod == null ? 0 : Math.max( 0, Math.min( level, lod.getLevelCount( ) - 1 ) );
+
+            checkTimeRange( );
+
+            // the device buffer must be completely reloaded with the new level
+            insertIndex = 0;
+            dataInserted = getSize( ) > 0;
+        }
+
+        public TrackPoints getDisplayPoints( )
+        {
+            return lod == null ? points : lod.getLevel( points, level );
+        }
+
         public void setHeadPointColor( float r, float g, float b, float a )
         {
             headPointColor[0] = r;
@@ -1586,24 +2243,11 @@ public class TrackPainter extends GlimpseDataPainter2D
             if ( _points == null || _points.size( ) == 0 ) return;
 
             List<Point> sortedPoints = new ArrayList<Point>( _points );
-            Collections.sort( sortedPoints, comparator);
-            Point firstPoint = sortedPoints.get( 0 );
-
-            // add the point to the temporal and spatial indexes
-            int index = firstIndexAfterTime( firstPoint );
+            Collections.sort( sortedPoints, comparator );
 
-            if ( index == points.size( ) )
-            {
-                points.addAll( index, sortedPoints );
-            }
-            else
-            {
-                for ( Point point : sortedPoints )
-                {
-                    index = firstIndexAfterTime( firstPoint );
-                    points.add( index, point );
-                }
-            }
+            // add the points to the temporal and spatial indexes
+            // (out of order points are merged in bulk)
+            int index = points.addAll( sortedPoints );
 
             if ( spatialIndex != null )
             {
@@ -1611,26 +2255,32 @@ public class TrackPainter extends GlimpseDataPainter2D
                     spatialIndex.add( point );
             }
 
-            // determine if the new point resides inside the selected time range
-            checkTimeRange( );
-
-            // set flag indicating this track contains new data
-            insertIndex = 0;
-            dataInserted = true;
+            markInserted( index );
         }
 
         public void add( Point point )
         {
             // add the point to the temporal and spatial indexes
-            int index = firstIndexAfterTime( point );
-            points.add( index, point );
+            int index = points.add( point );
             if ( spatialIndex != null ) spatialIndex.add( point );
 
+            markInserted( index );
+        }
+
+        protected void markInserted( int index )
+        {
+            // update the decimated levels of detail from the first changed point
+            if ( lod != null )
+            {
+                lod.update( points, index );
+                if ( level > 0 ) index = lod.getModifiedIndex( level );
+            }
+
             // determine if the new point resides inside the selected time range
             checkTimeRange( );
 
             // set flag indicating this track contains new data
-            if ( !dataInserted || index < insertIndex )
+            if ( index < getSize( ) && ( !dataInserted || index < insertIndex ) )
             {
                 insertIndex = index;
                 dataInserted = true;
@@ -1650,34 +2300,19 @@ public class TrackPainter extends GlimpseDataPainter2D
             dataInserted = false;
             trackHead = null;
             points.clear( );
+            if ( lod != null ) lod.clear( );
 
             checkTimeRange( );
         }
 
         public int firstIndexAfterTime( Point point )
         {
-            int index = Collections.binarySearch( points, point, comparator );
-            if ( index < 0 ) index = - ( index + 1 );
-
-            while ( index < points.size() && points.get( index ).time == point.time )
-            {
-                index++;
-            }
-
-            return index;
+            return points.firstIndexAfterTime( point.time );
         }
 
         public int firstIndexBeforeTime( Point point )
         {
-            int index = Collections.binarySearch( points, point, comparator );
-            if ( index < 0 ) index = - ( index + 1 ) - 1;
-
-            while ( 0 <= index && points.get( index ).time == point.time )
-            {
-                index--;
-            }
-
-            return index;
+            return points.firstIndexBeforeTime( point.time );
         }
 
         public boolean isDataInserted( )
@@ -1707,14 +2342,17 @@ public class TrackPainter extends GlimpseDataPainter2D
 
         public void reset( )
         {
+            if ( lod != null ) lod.resetModified( );
+
             dataInserted = false;
             clearPending = false;
             deletePending = false;
         }
 
+        // the number of points at the displayed level of detail
         public int getSize( )
         {
-            return points.size( );
+            return getDisplayPoints( ).size( );
         }
 
         public Point getTrackHead( )
@@ -1724,10 +2362,7 @@ public class TrackPainter extends GlimpseDataPainter2D
 
         public void loadIntoBuffer( FloatBuffer buffer, int offset, int size )
         {
-            for ( int i = offset; i < size; i++ )
-            {
-                points.get( i ).loadIntoBuffer( buffer );
-            }
+            getDisplayPoints( ).loadIntoBuffer( buffer, offset, size );
         }
 
         @Override
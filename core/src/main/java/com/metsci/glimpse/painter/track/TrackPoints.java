@@ -0,0 +1,292 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.painter.track;
+
+import java.nio.FloatBuffer;
+import java.util.List;
+
+import com.metsci.glimpse.util.primitives.FloatsArray;
+import com.metsci.glimpse.util.primitives.LongsArray;
+import com.metsci.glimpse.util.primitives.ObjectsArray;
+
+/**
+ * Columnar storage for the fixes of a single track. Times, positions and point ids
+ * are kept in parallel arrays sorted by time, so a track with many thousands of
+ * fixes does not require a boxed {@link Point} per fix. Positions are stored
+ * interleaved (x0, y0, x1, y1, ...) so that a range of fixes can be copied into
+ * a vertex buffer with a single bulk put.
+ *
+ * Not thread safe: in {@link TrackPainter} all access happens while holding
+ * the painter's track update lock.
+ */
+public class TrackPoints
+{
+    protected final LongsArray times;
+    protected final FloatsArray xys;
+    protected final ObjectsArray pointIds;
+
+    public TrackPoints( int initialCapacity )
+    {
+        this.times = new LongsArray( initialCapacity );
+        this.xys = new FloatsArray( initialCapacity * 2 );
+        this.pointIds = new ObjectsArray( initialCapacity );
+    }
+
+    public int size( )
+    {
+        return times.n;
+    }
+
+    public boolean isEmpty( )
+    {
+        return times.n == 0;
+    }
+
+    public long getTime( int index )
+    {
+        return times.a[index];
+    }
+
+    public float getX( int index )
+    {
+        return xys.a[2 * index];
+    }
+
+    public float getY( int index )
+    {
+        return xys.a[2 * index + 1];
+    }
+
+    public Object getPointId( int index )
+    {
+        return pointIds.a[index];
+    }
+
+    /**
+     * Creates a new {@link Point} object for the fix at the given index. Points
+     * are not retained by this class, so repeated calls return distinct (but equal)
+     * objects.
+     */
+    public Point getPoint( Object trackId, int index )
+    {
+        return new Point( trackId, getPointId( index ), getX( index ), getY( index ), getTime( index ) );
+    }
+
+    /**
+     * Adds a single point, keeping the arrays sorted by time. Points with the same
+     * time as existing points are placed after them.
+     *
+     * @return the index at which the point was inserted
+     */
+    public int add( Point point )
+    {
+        int n = times.n;
+        long time = point.time;
+
+        // fast path: data arriving in time order is simply appended
+        if ( n == 0 || times.a[n - 1] <= time )
+        {
+            times.prepForAppend( 1 );
+            xys.prepForAppend( 2 );
+            pointIds.prepForAppend( 1 );
+            set( n, point );
+            return n;
+        }
+
+        int index = firstIndexAfterTime( time );
+        times.prepForInsert( index, 1 );
+        xys.prepForInsert( 2 * index, 2 );
+        pointIds.prepForInsert( index, 1 );
+        set( index, point );
+        return index;
+    }
+
+    /**
+     * Adds a list of points which must already be sorted by time. If all the new points
+     * fall after the existing data they are appended. Otherwise the new points are merged
+     * into the existing arrays in a single pass, rather than being inserted one at a time.
+     *
+     * @return the lowest index which was modified by this call
+     */
+    public int addAll( List<Point> sortedPoints )
+    {
+        int m = sortedPoints.size( );
+        int n = times.n;
+
+        if ( m == 0 ) return n;
+
+        long firstTime = sortedPoints.get( 0 ).time;
+        int start = firstIndexAfterTime( firstTime );
+
+        times.prepForAppend( m );
+        xys.prepForAppend( 2 * m );
+        pointIds.prepForAppend( m );
+
+        if ( start == n )
+        {
+            for ( int j = 0; j < m; j++ )
+            {
+                set( n + j, sortedPoints.get( j ) );
+            }
+        }
+        else
+        {
+            // merge from the back so that existing data is shifted at most once
+            long[] t = times.a;
+            float[] xy = xys.a;
+            Object[] ids = pointIds.a;
+
+            int i = n - 1;
+            int j = m - 1;
+            for ( int k = n + m - 1; j >= 0; k-- )
+            {
+                Point point = sortedPoints.get( j );
+
+                if ( i >= start && t[i] > point.time )
+                {
+                    t[k] = t[i];
+                    xy[2 * k] = xy[2 * i];
+                    xy[2 * k + 1] = xy[2 * i + 1];
+                    ids[k] = ids[i];
+                    i--;
+                }
+                else
+                {
+                    set( k, point );
+                    j--;
+                }
+            }
+        }
+
+        return start;
+    }
+
+    /**
+     * Appends a point without checking time order. The caller is responsible for
+     * ensuring the time is not less than the time of the last point.
+     */
+    public void append( long time, float x, float y, Object pointId )
+    {
+        int n = times.n;
+
+        times.prepForAppend( 1 );
+        xys.prepForAppend( 2 );
+        pointIds.prepForAppend( 1 );
+
+        times.a[n] = time;
+        xys.a[2 * n] = x;
+        xys.a[2 * n + 1] = y;
+        pointIds.a[n] = pointId;
+    }
+
+    /**
+     * Removes all points with index greater than or equal to size.
+     */
+    public void truncate( int size )
+    {
+        if ( size >= times.n ) return;
+
+        times.n = size;
+        xys.n = 2 * size;
+        pointIds.n = size;
+    }
+
+    public void clear( )
+    {
+        times.clear( );
+        xys.clear( );
+        pointIds.clear( );
+    }
+
+    /**
+     * @return the index of the first point with time strictly greater than the provided time
+     */
+    public int firstIndexAfterTime( long time )
+    {
+        long[] t = times.a;
+        int low = 0;
+        int high = times.n;
+
+        while ( low < high )
+        {
+            int mid = ( low + high ) >>> 1;
+            if ( t[mid] <= time )
+            {
+                low = mid + 1;
+            }
+            else
+            {
+                high = mid;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * @return the index of the last point with time strictly less than the provided time (-1 if none)
+     */
+    public int firstIndexBeforeTime( long time )
+    {
+        long[] t = times.a;
+        int low = 0;
+        int high = times.n;
+
+        while ( low < high )
+        {
+            int mid = ( low + high ) >>> 1;
+            if ( t[mid] < time )
+            {
+                low = mid + 1;
+            }
+            else
+            {
+                high = mid;
+            }
+        }
+
+        return low - 1;
+    }
+
+    /**
+     * Copies the interleaved x/y positions of points [fromIndex, toIndex) into the buffer.
+     */
+    public void loadIntoBuffer( FloatBuffer buffer, int fromIndex, int toIndex )
+    {
+        if ( toIndex <= fromIndex ) return;
+
+        buffer.put( xys.a, 2 * fromIndex, 2 * ( toIndex - fromIndex ) );
+    }
+
+    protected void set( int index, Point point )
+    {
+        times.a[index] = point.time;
+        xys.a[2 * index] = point.x;
+        xys.a[2 * index + 1] = point.y;
+        pointIds.a[index] = point.pointId;
+    }
+}
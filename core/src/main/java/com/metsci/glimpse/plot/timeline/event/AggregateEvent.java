@@ -26,6 +26,7 @@
  */
 package com.metsci.glimpse.plot.timeline.event;
 
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.Set;
 import java.util.UUID;
@@ -49,7 +50,7 @@ public class AggregateEvent extends Event
     protected Set<Event> children;
 
     // constructor used to create aggregate events
-    protected AggregateEvent( Set<Event> children, TimeStamp startTime, TimeStamp endTime )
+    protected AggregateEvent( Collection<? extends Event> children, TimeStamp startTime, TimeStamp endTime )
     {
         super( UUID.randomUUID( ), null, startTime, endTime );
 
@@ -0,0 +1,488 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.plot.timeline.event;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.media.opengl.GL2;
+
+import com.jogamp.common.nio.Buffers;
+import com.jogamp.opengl.util.awt.TextRenderer;
+import com.jogamp.opengl.util.texture.TextureCoords;
+import com.metsci.glimpse.axis.Axis1D;
+import com.metsci.glimpse.context.GlimpseBounds;
+import com.metsci.glimpse.support.atlas.TextureAtlas;
+import com.metsci.glimpse.support.atlas.support.ImageData;
+import com.metsci.glimpse.support.color.GlimpseColor;
+import com.metsci.glimpse.util.primitives.FloatsArray;
+
+/**
+ * <p>A {@link DefaultEventPainter} which produces the same visualization, but gathers
+ * the backgrounds, borders, icons, and labels of all the Events in a row and draws each
+ * with a constant number of OpenGL calls when the row is flushed. This makes panning
+ * and zooming timelines with tens of thousands of visible Events practical.</p>
+ * 
+ * <p>Backgrounds are drawn as one triangle array, borders as one line array per distinct
+ * border thickness, icons as one textured quad array, and labels inside a single
+ * {@code TextRenderer#beginRendering(int, int)} call. Because all backgrounds are drawn
+ * before all labels, overlapping Events within a row may layer differently than with
+ * the DefaultEventPainter.</p>
+ * 
+ * <p>To use, set a BatchedEventPainter as the default painter for a timeline:</p>
+ * 
+ * <pre>
+ * eventPlotInfo.setEventPainter( new BatchedEventPainter( ) );
+ * </pre>
+ */
+public class BatchedEventPainter extends DefaultEventPainter implements FlushableEventPainter
+{
+    // vertex positions are stored relative to timeOrigin to preserve float precision
+    protected double timeOrigin;
+    protected boolean horizontal;
+    protected boolean empty = true;
+
+    // the color DefaultEventPainter would have left current in OpenGL at this point in the
+    // row, used for icons painted without a color, or null if nothing has set a color yet
+    protected float[] currentColor;
+
+    // background triangles: x, y and r, g, b, a per vertex
+    protected FloatsArray fillVertices = new FloatsArray( );
+    protected FloatsArray fillColors = new FloatsArray( );
+
+    // border line segments, grouped by line thickness
+    protected List<LineGroup> lineGroups = new ArrayList<LineGroup>( );
+
+    // icon quads: x, y and r, g, b, a per vertex, plus the image for each quad
+    protected FloatsArray iconVertices = new FloatsArray( );
+    protected FloatsArray iconColors = new FloatsArray( );
+    protected List<ImageData> iconImages = new ArrayList<ImageData>( );
+    protected TextureAtlas iconAtlas;
+    protected boolean iconAtlasUpdated = false;
+
+    // labels: text, color, and position
+    protected List<String> labelTexts = new ArrayList<String>( );
+    protected List<float[]> labelColors = new ArrayList<float[]>( );
+    protected FloatsArray labelPositions = new FloatsArray( );
+    protected TextRenderer labelRenderer;
+
+    protected FloatBuffer vertexBuffer;
+    protected FloatBuffer colorBuffer;
+    protected FloatBuffer texCoordBuffer;
+
+    protected static class LineGroup
+    {
+        protected float thickness;
+        protected FloatsArray vertices = new FloatsArray( );
+        protected FloatsArray colors = new FloatsArray( );
+
+        protected LineGroup( float thickness )
+        {
+            this.thickness = thickness;
+        }
+    }
+
+    @Override
+    public void paint( GL2 gl, Event event, Event nextEvent, EventPlotInfo info, GlimpseBounds bounds, int posMin, int posMax )
+    {
+        if ( empty )
+        {
+            timeOrigin = info.getCommonAxis( ).getMin( );
+            horizontal = info.getStackedTimePlot( ).isTimeAxisHorizontal( );
+            empty = false;
+        }
+
+        super.paint( gl, event, nextEvent, info, bounds, posMin, posMax );
+    }
+
+    @Override
+    protected void paintBackground( GL2 gl, boolean horiz, double[] shape, int vertexCount, float[] color )
+    {
+        currentColor = color;
+
+        // triangulate the (convex) outline as a fan around its first vertex
+        for ( int i = 1; i < vertexCount - 1; i++ )
+        {
+            appendVertex( fillVertices, fillColors, horiz, shape, 0, color, color[3] );
+            appendVertex( fillVertices, fillColors, horiz, shape, i, color, color[3] );
+            appendVertex( fillVertices, fillColors, horiz, shape, i + 1, color, color[3] );
+        }
+    }
+
+    @Override
+    protected void paintBorder( GL2 gl, boolean horiz, double[] shape, int vertexCount, float[] color, float thickness )
+    {
+        currentColor = color;
+
+        LineGroup group = getLineGroup( thickness );
+
+        for ( int i = 0; i < vertexCount; i++ )
+        {
+            appendVertex( group.vertices, group.colors, horiz, shape, i, color, color[3] );
+            appendVertex( group.vertices, group.colors, horiz, shape, ( i + 1 ) % vertexCount, color, color[3] );
+        }
+    }
+
+    @Override
+    protected void beginIcons( GL2 gl, TextureAtlas atlas )
+    {
+        // icons loaded since the last frame only become available (and the default icon
+        // only becomes drawable) once the atlas has processed its queue of new images
+        if ( iconAtlas != atlas || !iconAtlasUpdated )
+        {
+            atlas.beginRendering( );
+            atlas.endRendering( );
+            iconAtlas = atlas;
+            iconAtlasUpdated = true;
+        }
+    }
+
+    @Override
+    protected void endIcons( GL2 gl, TextureAtlas atlas )
+    {
+        // icons are drawn when the batch is flushed
+    }
+
+    @Override
+    protected void paintIcon( GL2 gl, TextureAtlas atlas, Object icon, ImageData iconData, Axis1D axis, boolean horiz, double posTime, double posPerp, double scale, int iconSizePerp, float[] color, float alpha )
+    {
+        // replicates the quad placement of TextureAtlas#drawImageAxisX and #drawImageAxisY
+        double vppTime = 1.0 / axis.getPixelsPerValue( );
+        double vppX = horiz ? vppTime : 1.0;
+        double vppY = horiz ? 1.0 : vppTime;
+        double positionX = horiz ? posTime - timeOrigin : posPerp;
+        double positionY = horiz ? posPerp : posTime - timeOrigin;
+
+        int width = iconData.getBufferedWidth( );
+        int height = iconData.getBufferedHeight( );
+
+        float minX = ( float ) ( positionX - iconData.getBufferX( ) * vppX * scale );
+        float minY = ( float ) ( positionY - ( height - iconSizePerp - iconData.getBufferY( ) ) * vppY * scale );
+        float maxX = minX + ( float ) ( width * vppX * scale );
+        float maxY = minY + ( float ) ( height * vppY * scale );
+
+        iconVertices.append( minX );
+        iconVertices.append( minY );
+        iconVertices.append( maxX );
+        iconVertices.append( minY );
+        iconVertices.append( maxX );
+        iconVertices.append( maxY );
+        iconVertices.append( minX );
+        iconVertices.append( maxY );
+
+        if ( color == null )
+        {
+            // DefaultEventPainter leaves the current OpenGL color in effect
+            color = getCurrentColor( gl );
+            alpha = color[3];
+        }
+        else
+        {
+            currentColor = new float[] { color[0], color[1], color[2], alpha };
+        }
+
+        for ( int i = 0; i < 4; i++ )
+        {
+            appendColor( iconColors, color, alpha );
+        }
+
+        iconImages.add( iconData );
+        iconAtlas = atlas;
+    }
+
+    @Override
+    protected void paintLabel( GL2 gl, TextRenderer textRenderer, String text, float[] color, int width, int height, boolean horiz, int x, int y, double pivotX, double pivotY )
+    {
+        // the TextRenderer leaves the text color current
+        currentColor = color;
+
+        labelTexts.add( text );
+        labelColors.add( color );
+        labelRenderer = textRenderer;
+
+        if ( horiz )
+        {
+            labelPositions.append( x );
+            labelPositions.append( y );
+        }
+        else
+        {
+            // a rotation by 90 degrees about ( pivotX, pivotY ) is equivalent to a rotation about
+            // the origin followed by a translation, so all labels can share a single rotation
+            labelPositions.append( ( float ) ( x - pivotX + pivotY ) );
+            labelPositions.append( ( float ) ( y - pivotY - pivotX ) );
+        }
+    }
+
+    @Override
+    public void flush( GL2 gl, EventPlotInfo info, GlimpseBounds bounds )
+    {
+        if ( empty ) return;
+
+        try
+        {
+            gl.glMatrixMode( GL2.GL_MODELVIEW );
+            gl.glPushMatrix( );
+            try
+            {
+                if ( horizontal )
+                {
+                    gl.glTranslated( timeOrigin, 0, 0 );
+                }
+                else
+                {
+                    gl.glTranslated( 0, timeOrigin, 0 );
+                }
+
+                drawFills( gl );
+                drawBorders( gl );
+                drawIcons( gl );
+            }
+            finally
+            {
+                gl.glMatrixMode( GL2.GL_MODELVIEW );
+                gl.glPopMatrix( );
+            }
+
+            drawLabels( gl, bounds );
+        }
+        finally
+        {
+            clear( );
+        }
+    }
+
+    protected void drawFills( GL2 gl )
+    {
+        if ( fillVertices.n == 0 ) return;
+
+        gl.glEnableClientState( GL2.GL_VERTEX_ARRAY );
+        gl.glEnableClientState( GL2.GL_COLOR_ARRAY );
+        try
+        {
+            gl.glVertexPointer( 2, GL2.GL_FLOAT, 0, vertexBuffer( fillVertices ) );
+            gl.glColorPointer( 4, GL2.GL_FLOAT, 0, colorBuffer( fillColors ) );
+            gl.glDrawArrays( GL2.GL_TRIANGLES, 0, fillVertices.n / 2 );
+        }
+        finally
+        {
+            gl.glDisableClientState( GL2.GL_VERTEX_ARRAY );
+            gl.glDisableClientState( GL2.GL_COLOR_ARRAY );
+        }
+    }
+
+    protected void drawBorders( GL2 gl )
+    {
+        if ( lineGroups.isEmpty( ) ) return;
+
+        gl.glEnableClientState( GL2.GL_VERTEX_ARRAY );
+        gl.glEnableClientState( GL2.GL_COLOR_ARRAY );
+        try
+        {
+            for ( LineGroup group : lineGroups )
+            {
+                if ( group.vertices.n == 0 ) continue;
+
+                gl.glLineWidth( group.thickness );
+                gl.glVertexPointer( 2, GL2.GL_FLOAT, 0, vertexBuffer( group.vertices ) );
+                gl.glColorPointer( 4, GL2.GL_FLOAT, 0, colorBuffer( group.colors ) );
+                gl.glDrawArrays( GL2.GL_LINES, 0, group.vertices.n / 2 );
+            }
+        }
+        finally
+        {
+            gl.glDisableClientState( GL2.GL_VERTEX_ARRAY );
+            gl.glDisableClientState( GL2.GL_COLOR_ARRAY );
+        }
+    }
+
+    protected void drawIcons( GL2 gl )
+    {
+        if ( iconImages.isEmpty( ) ) return;
+
+        iconAtlas.beginRendering( );
+        try
+        {
+            // read texture coordinates only after beginRendering( ), since the atlas
+            // may have moved images while processing newly loaded images
+            int quads = iconImages.size( );
+            texCoordBuffer = ensureCapacity( texCoordBuffer, quads * 8 );
+            for ( int i = 0; i < quads; i++ )
+            {
+                TextureCoords texCoords = iconImages.get( i ).getTextureCoordinates( );
+                texCoordBuffer.put( texCoords.left( ) ).put( texCoords.bottom( ) );
+                texCoordBuffer.put( texCoords.right( ) ).put( texCoords.bottom( ) );
+                texCoordBuffer.put( texCoords.right( ) ).put( texCoords.top( ) );
+                texCoordBuffer.put( texCoords.left( ) ).put( texCoords.top( ) );
+            }
+            texCoordBuffer.flip( );
+
+            gl.glEnableClientState( GL2.GL_VERTEX_ARRAY );
+            gl.glEnableClientState( GL2.GL_COLOR_ARRAY );
+            gl.glEnableClientState( GL2.GL_TEXTURE_COORD_ARRAY );
+            try
+            {
+                gl.glVertexPointer( 2, GL2.GL_FLOAT, 0, vertexBuffer( iconVertices ) );
+                gl.glColorPointer( 4, GL2.GL_FLOAT, 0, colorBuffer( iconColors ) );
+                gl.glTexCoordPointer( 2, GL2.GL_FLOAT, 0, texCoordBuffer );
+                gl.glDrawArrays( GL2.GL_QUADS, 0, quads * 4 );
+            }
+            finally
+            {
+                gl.glDisableClientState( GL2.GL_VERTEX_ARRAY );
+                gl.glDisableClientState( GL2.GL_COLOR_ARRAY );
+                gl.glDisableClientState( GL2.GL_TEXTURE_COORD_ARRAY );
+            }
+        }
+        finally
+        {
+            iconAtlas.endRendering( );
+        }
+    }
+
+    protected void drawLabels( GL2 gl, GlimpseBounds bounds )
+    {
+        if ( labelTexts.isEmpty( ) ) return;
+
+        labelRenderer.beginRendering( bounds.getWidth( ), bounds.getHeight( ) );
+        try
+        {
+            if ( !horizontal )
+            {
+                gl.glMatrixMode( GL2.GL_PROJECTION );
+                gl.glRotated( 90, 0, 0, 1.0f );
+            }
+
+            int size = labelTexts.size( );
+            for ( int i = 0; i < size; i++ )
+            {
+                GlimpseColor.setColor( labelRenderer, labelColors.get( i ) );
+                labelRenderer.draw3D( labelTexts.get( i ), labelPositions.a[2 * i], labelPositions.a[2 * i + 1], 0, 1 );
+            }
+        }
+        finally
+        {
+            labelRenderer.endRendering( );
+        }
+    }
+
+    protected void clear( )
+    {
+        fillVertices.clear( );
+        fillColors.clear( );
+
+        for ( LineGroup group : lineGroups )
+        {
+            group.vertices.clear( );
+            group.colors.clear( );
+        }
+
+        iconVertices.clear( );
+        iconColors.clear( );
+        iconImages.clear( );
+        iconAtlasUpdated = false;
+
+        labelTexts.clear( );
+        labelColors.clear( );
+        labelPositions.clear( );
+        labelRenderer = null;
+
+        currentColor = null;
+        empty = true;
+    }
+
+    // must be called while painting, before the batch is flushed
+    protected float[] getCurrentColor( GL2 gl )
+    {
+        if ( currentColor == null )
+        {
+            // nothing in this batch has set a color, so read the color left by whatever was drawn before it
+            currentColor = new float[4];
+            gl.glGetFloatv( GL2.GL_CURRENT_COLOR, currentColor, 0 );
+        }
+
+        return currentColor;
+    }
+
+    protected LineGroup getLineGroup( float thickness )
+    {
+        for ( LineGroup group : lineGroups )
+        {
+            if ( group.thickness == thickness ) return group;
+        }
+
+        LineGroup group = new LineGroup( thickness );
+        lineGroups.add( group );
+        return group;
+    }
+
+    protected void appendVertex( FloatsArray vertices, FloatsArray colors, boolean horiz, double[] shape, int index, float[] color, float alpha )
+    {
+        double time = shape[2 * index] - timeOrigin;
+        double perp = shape[2 * index + 1];
+
+        vertices.append( ( float ) ( horiz ? time : perp ) );
+        vertices.append( ( float ) ( horiz ? perp : time ) );
+
+        appendColor( colors, color, alpha );
+    }
+
+    protected void appendColor( FloatsArray colors, float[] color, float alpha )
+    {
+        colors.append( color[0] );
+        colors.append( color[1] );
+        colors.append( color[2] );
+        colors.append( alpha );
+    }
+
+    protected FloatBuffer vertexBuffer( FloatsArray values )
+    {
+        vertexBuffer = ensureCapacity( vertexBuffer, values.n );
+        vertexBuffer.put( values.a, 0, values.n ).flip( );
+        return vertexBuffer;
+    }
+
+    protected FloatBuffer colorBuffer( FloatsArray values )
+    {
+        colorBuffer = ensureCapacity( colorBuffer, values.n );
+        colorBuffer.put( values.a, 0, values.n ).flip( );
+        return colorBuffer;
+    }
+
+    protected static FloatBuffer ensureCapacity( FloatBuffer buffer, int capacity )
+    {
+        if ( buffer == null || buffer.capacity( ) < capacity )
+        {
+            int oldCapacity = buffer == null ? 0 : buffer.capacity( );
+            buffer = Buffers.newDirectFloatBuffer( Math.max( capacity, 2 * oldCapacity ) );
+        }
+
+        buffer.clear( );
+        return buffer;
+    }
+}
@@ -34,6 +34,7 @@ import java.util.UUID;
 import javax.media.opengl.GL2;
 
 import com.jogamp.opengl.util.awt.TextRenderer;
+import com.metsci.glimpse.axis.Axis1D;
 import com.metsci.glimpse.axis.tagged.TaggedAxis1D;
 import com.metsci.glimpse.context.GlimpseBounds;
 import com.metsci.glimpse.plot.timeline.StackedTimePlot2D;
@@ -68,6 +69,9 @@ public class DefaultEventPainter implements EventPainter
     protected Object defaultIconId = DEFAULT_ICON;
     protected int maxIconRows = DEFAULT_NUM_ICONS_ROWS;
 
+    // scratch space for event outlines
+    protected double[] shape = new double[12];
+
     /**
      * Sets the default icon which is used when no icon is set for an aggregate event.
      * 
@@ -155,127 +159,47 @@ public class DefaultEventPainter implements EventPainter
 
         boolean horiz = plot.isTimeAxisHorizontal( );
         
+        // the outline of the event in ( time, perpendicular ) coordinates, either a box or,
+        // if the event extends off the edge of the screen, a box with arrow ends
+        double[] shape = this.shape;
+        int shapeVertices;
         if ( !offEdgeMin && !offEdgeMax )
         {
-            if ( event.isShowBackground( ) )
-            {
-                GlimpseColor.glColor( gl, event.getBackgroundColor( info, isSelected ) );
-                gl.glBegin( GL2.GL_QUADS );
-                try
-                {
-                    if ( horiz )
-                    {
-                        gl.glVertex2d( timeMin, posMin );
-                        gl.glVertex2d( timeMin, posMax );
-                        gl.glVertex2d( timeMax, posMax );
-                        gl.glVertex2d( timeMax, posMin );
-                    }
-                    else
-                    {
-                        gl.glVertex2d( posMin, timeMin );
-                        gl.glVertex2d( posMax, timeMin );
-                        gl.glVertex2d( posMax, timeMax );
-                        gl.glVertex2d( posMin, timeMax );
-                    }
-                }
-                finally
-                {
-                    gl.glEnd( );
-                }
-            }
-
-            if ( event.isShowBorder( ) )
-            {
-                GlimpseColor.glColor( gl, event.getBorderColor( info, isSelected ) );
-                gl.glLineWidth( event.getBorderThickness( info, isSelected ) );
-                gl.glBegin( GL2.GL_LINE_LOOP );
-                try
-                {
-                    if ( horiz )
-                    {
-                        gl.glVertex2d( timeMin, posMin );
-                        gl.glVertex2d( timeMin, posMax );
-                        gl.glVertex2d( timeMax, posMax );
-                        gl.glVertex2d( timeMax, posMin );
-                    }
-                    else
-                    {
-                        gl.glVertex2d( posMin, timeMin );
-                        gl.glVertex2d( posMax, timeMin );
-                        gl.glVertex2d( posMax, timeMax );
-                        gl.glVertex2d( posMin, timeMax );
-                    }
-                }
-                finally
-                {
-                    gl.glEnd( );
-                }
-            }
+            shape[0] = timeMin;
+            shape[1] = posMin;
+            shape[2] = timeMin;
+            shape[3] = posMax;
+            shape[4] = timeMax;
+            shape[5] = posMax;
+            shape[6] = timeMax;
+            shape[7] = posMin;
+            shapeVertices = 4;
         }
         else
         {
-            if ( event.isShowBackground( ) )
-            {
-                GlimpseColor.glColor( gl, event.getBackgroundColor( info, isSelected ) );
-                gl.glBegin( GL2.GL_POLYGON );
-                try
-                {
-                    if ( horiz )
-                    {
-                        gl.glVertex2d( arrowBaseMin, posMax );
-                        gl.glVertex2d( arrowBaseMax, posMax );
-                        gl.glVertex2d( timeMax, sizePerpCenter );
-                        gl.glVertex2d( arrowBaseMax, posMin );
-                        gl.glVertex2d( arrowBaseMin, posMin );
-                        gl.glVertex2d( timeMin, sizePerpCenter );
-                    }
-                    else
-                    {
-                        gl.glVertex2d( posMax, arrowBaseMin );
-                        gl.glVertex2d( posMax, arrowBaseMax );
-                        gl.glVertex2d( sizePerpCenter, timeMax );
-                        gl.glVertex2d( posMin, arrowBaseMax );
-                        gl.glVertex2d( posMin, arrowBaseMin );
-                        gl.glVertex2d( sizePerpCenter, timeMin );
-                    }
-                }
-                finally
-                {
-                    gl.glEnd( );
-                }
-            }
+            shape[0] = arrowBaseMin;
+            shape[1] = posMax;
+            shape[2] = arrowBaseMax;
+            shape[3] = posMax;
+            shape[4] = timeMax;
+            shape[5] = sizePerpCenter;
+            shape[6] = arrowBaseMax;
+            shape[7] = posMin;
+            shape[8] = arrowBaseMin;
+            shape[9] = posMin;
+            shape[10] = timeMin;
+            shape[11] = sizePerpCenter;
+            shapeVertices = 6;
+        }
 
-            if ( event.isShowBorder( ) )
-            {
-                GlimpseColor.glColor( gl, event.getBorderColor( info, isSelected ) );
-                gl.glLineWidth( event.getBorderThickness( info, isSelected ) );
-                gl.glBegin( GL2.GL_LINE_LOOP );
-                try
-                {
-                    if ( horiz )
-                    {
-                        gl.glVertex2d( arrowBaseMin, posMax );
-                        gl.glVertex2d( arrowBaseMax, posMax );
-                        gl.glVertex2d( timeMax, sizePerpCenter );
-                        gl.glVertex2d( arrowBaseMax, posMin );
-                        gl.glVertex2d( arrowBaseMin, posMin );
-                        gl.glVertex2d( timeMin, sizePerpCenter );
-                    }
-                    else
-                    {
-                        gl.glVertex2d( posMax, arrowBaseMin );
-                        gl.glVertex2d( posMax, arrowBaseMax );
-                        gl.glVertex2d( sizePerpCenter, timeMax );
-                        gl.glVertex2d( posMin, arrowBaseMax );
-                        gl.glVertex2d( posMin, arrowBaseMin );
-                        gl.glVertex2d( sizePerpCenter, timeMin );
-                    }
-                }
-                finally
-                {
-                    gl.glEnd( );
-                }
-            }
+        if ( event.isShowBackground( ) )
+        {
+            paintBackground( gl, horiz, shape, shapeVertices, event.getBackgroundColor( info, isSelected ) );
+        }
+
+        if ( event.isShowBorder( ) )
+        {
+            paintBorder( gl, horiz, shape, shapeVertices, event.getBorderColor( info, isSelected ), event.getBorderThickness( info, isSelected ) );
         }
         
         int totalIconSizePerpPixels = getIconSizePerpPixels( event, info, sizePerpPixels );
@@ -303,7 +227,7 @@ public class DefaultEventPainter implements EventPainter
                 event.iconEndTime = event.iconStartTime.add( totalIconWidthPixels / axis.getPixelsPerValue( ) );
 
                 TextureAtlas atlas = info.getTextureAtlas( );
-                atlas.beginRendering( );
+                beginIcons( gl, atlas );
                 try
                 {                    
                     Iterator<Event> iter = event.iterator( );
@@ -316,14 +240,18 @@ public class DefaultEventPainter implements EventPainter
                             {
                                 Event child = iter.next( );
                                 Object icon = child.getIconId( );
+                                float[] iconColor;
+                                float iconAlpha;
                                 if ( icon == null || !atlas.isImageLoaded( icon ) )
                                 {
-                                    GlimpseColor.glColor( gl, child.getBackgroundColor( info, isSelected ), 0.5f );
+                                    iconColor = child.getBackgroundColor( info, isSelected );
+                                    iconAlpha = 0.5f;
                                     icon = defaultIconId;
                                 }
                                 else
                                 {
-                                    GlimpseColor.glColor( gl, GlimpseColor.getWhite( ) );
+                                    iconColor = GlimpseColor.getWhite( );
+                                    iconAlpha = iconColor[3];
                                 }
                                 
                                 ImageData iconData = atlas.getImageData( icon );
@@ -337,14 +265,7 @@ public class DefaultEventPainter implements EventPainter
                                 double startY = sizePerpCenter - totalIconSizePerpPixels / 2.0;
                                 double y = startY + r * iconSizePerpPixels;
 
-                                if ( horiz )
-                                {
-                                    atlas.drawImageAxisX( gl, icon, axis, x, y, iconScale, iconScale, 0, iconSizePerp );
-                                }
-                                else
-                                {
-                                    atlas.drawImageAxisY( gl, icon, axis, y, x, iconScale, iconScale, 0, iconSizePerp );
-                                }
+                                paintIcon( gl, atlas, icon, iconData, axis, horiz, x, y, iconScale, iconSizePerp, iconColor, iconAlpha );
                             }
                             else
                             {
@@ -355,7 +276,7 @@ public class DefaultEventPainter implements EventPainter
                 }
                 finally
                 {
-                    atlas.endRendering( );
+                    endIcons( gl, atlas );
                 }
 
                 remainingSpace -= totalIconWidthPixels + buffer;
@@ -372,7 +293,7 @@ public class DefaultEventPainter implements EventPainter
             if ( event.isIconVisible )
             {
                 TextureAtlas atlas = info.getTextureAtlas( );                
-                atlas.beginRendering( );
+                beginIcons( gl, atlas );
                 try
                 {
                     Object icon = event.getIconId( );
@@ -407,21 +328,14 @@ public class DefaultEventPainter implements EventPainter
                     // the position of the bottom of the icon in pixels perpendicular to the time axis
                     double posPerp = sizePerpCenter - iconSizePerpPixels / 2.0;
                     
-                    if ( horiz )
-                    {
-                        atlas.drawImageAxisX( gl, icon, axis, posTime, posPerp, iconScale, iconScale, 0, iconSizePerp );
-                    }
-                    else
-                    {
-                        atlas.drawImageAxisY( gl, icon, axis, posPerp, posTime, iconScale, iconScale, 0, iconSizePerp );
-                    }
+                    paintIcon( gl, atlas, icon, iconData, axis, horiz, posTime, posPerp, iconScale, iconSizePerp, null, 0 );
                     
                     remainingSpace -= iconSizeTimeScaledPixels + buffer;
                     pixel += iconSizeTimeScaledPixels + buffer;
                 }
                 finally
                 {
-                    atlas.endRendering( );
+                    endIcons( gl, atlas );
                 }
             }
         }
@@ -454,67 +368,43 @@ public class DefaultEventPainter implements EventPainter
                 event.textEndTime = event.textStartTime.add( displayBounds.getWidth( ) / axis.getPixelsPerValue( ) );
 
                 // use this event's text color if it has been set
+                float[] textColor;
                 if ( event.getLabelColor( ) != null )
                 {
-                    GlimpseColor.setColor( textRenderer, event.getLabelColor( ) );
+                    textColor = event.getLabelColor( );
                 }
                 // otherwise, use the default no background color if the background is not showing
                 // and if a color has not been explicitly set for the EventPainter
                 else if ( !info.isTextColorSet( ) && !event.isShowBackground( ) )
                 {
-                    GlimpseColor.setColor( textRenderer, info.getTextColorNoBackground( ) );
+                    textColor = info.getTextColorNoBackground( );
                 }
                 // otherwise use the EventPainter's default text color
                 else
                 {
-                    GlimpseColor.setColor( textRenderer, info.getTextColor( ) );
+                    textColor = info.getTextColor( );
                 }
 
                 if ( horiz )
                 {
-                    textRenderer.beginRendering( width, height );
-                    try
-                    {
-                        // use the labelBounds for the height (if the text shortening removed a character which
-                        // hangs below the line, we don't want the text position to move)
-                        int pixelY = ( int ) ( sizePerpPixels / 2.0 - labelBounds.getHeight( ) * 0.3 + posMin );
-                        textRenderer.draw( displayText, pixel, pixelY );
-    
-                        remainingSpace -= displayBounds.getWidth( ) + buffer;
-                        pixel += displayBounds.getWidth( ) + buffer;
-                    }
-                    finally
-                    {
-                        textRenderer.endRendering( );
-                    }
+                    // use the labelBounds for the height (if the text shortening removed a character which
+                    // hangs below the line, we don't want the text position to move)
+                    int pixelY = ( int ) ( sizePerpPixels / 2.0 - labelBounds.getHeight( ) * 0.3 + posMin );
+                    paintLabel( gl, textRenderer, displayText, textColor, width, height, horiz, pixel, pixelY, 0, 0 );
                 }
                 else
                 {
-                    textRenderer.beginRendering( width, height );
-                    try
-                    {
-                        double shiftX = sizePerpPixels / 2.0 + posMin;
-                        int pixelX = ( int ) shiftX;
-                     
-                        double shiftY = pixel;
-                        int pixelY = ( int ) ( pixel - labelBounds.getHeight( ) * 0.34 );
-
-                        gl.glMatrixMode( GL2.GL_PROJECTION );
-                        
-                        gl.glTranslated( shiftX, shiftY, 0 );
-                        gl.glRotated( 90, 0, 0, 1.0f );
-                        gl.glTranslated( -shiftX, -shiftY, 0 );
-                        
-                        textRenderer.draw( displayText, pixelX, pixelY );
-    
-                        remainingSpace -= displayBounds.getWidth( ) + buffer;
-                        pixel += displayBounds.getWidth( ) + buffer;
-                    }
-                    finally
-                    {
-                        textRenderer.endRendering( );
-                    }
+                    double shiftX = sizePerpPixels / 2.0 + posMin;
+                    int pixelX = ( int ) shiftX;
+
+                    double shiftY = pixel;
+                    int pixelY = ( int ) ( pixel - labelBounds.getHeight( ) * 0.34 );
+
+                    paintLabel( gl, textRenderer, displayText, textColor, width, height, horiz, pixelX, pixelY, shiftX, shiftY );
                 }
+
+                remainingSpace -= displayBounds.getWidth( ) + buffer;
+                pixel += displayBounds.getWidth( ) + buffer;
             }
         }
         else
@@ -523,6 +413,126 @@ public class DefaultEventPainter implements EventPainter
         }
     }
     
+    /**
+     * Fills the outline of an event. The shape array contains vertexCount ( time, perpendicular )
+     * coordinate pairs describing a convex polygon.
+     */
+    protected void paintBackground( GL2 gl, boolean horiz, double[] shape, int vertexCount, float[] color )
+    {
+        GlimpseColor.glColor( gl, color );
+        gl.glBegin( vertexCount == 4 ? GL2.GL_QUADS : GL2.GL_POLYGON );
+        try
+        {
+            vertices( gl, horiz, shape, vertexCount );
+        }
+        finally
+        {
+            gl.glEnd( );
+        }
+    }
+
+    /**
+     * Outlines an event.
+     * 
+     * @see #paintBackground(GL2, boolean, double[], int, float[])
+     */
+    protected void paintBorder( GL2 gl, boolean horiz, double[] shape, int vertexCount, float[] color, float thickness )
+    {
+        GlimpseColor.glColor( gl, color );
+        gl.glLineWidth( thickness );
+        gl.glBegin( GL2.GL_LINE_LOOP );
+        try
+        {
+            vertices( gl, horiz, shape, vertexCount );
+        }
+        finally
+        {
+            gl.glEnd( );
+        }
+    }
+
+    protected void vertices( GL2 gl, boolean horiz, double[] shape, int vertexCount )
+    {
+        for ( int i = 0; i < vertexCount; i++ )
+        {
+            double time = shape[2 * i];
+            double perp = shape[2 * i + 1];
+
+            if ( horiz )
+            {
+                gl.glVertex2d( time, perp );
+            }
+            else
+            {
+                gl.glVertex2d( perp, time );
+            }
+        }
+    }
+
+    /**
+     * Called before the icons for an Event are painted. {@link #paintIcon} is only called
+     * between calls to beginIcons and {@link #endIcons}.
+     */
+    protected void beginIcons( GL2 gl, TextureAtlas atlas )
+    {
+        atlas.beginRendering( );
+    }
+
+    protected void endIcons( GL2 gl, TextureAtlas atlas )
+    {
+        atlas.endRendering( );
+    }
+
+    /**
+     * Paints an icon from the TextureAtlas with its left edge at posTime and its bottom edge
+     * at posPerp (in pixels). If color is non-null, the icon is modulated by color with its
+     * alpha replaced by alpha.
+     */
+    protected void paintIcon( GL2 gl, TextureAtlas atlas, Object icon, ImageData iconData, Axis1D axis, boolean horiz, double posTime, double posPerp, double scale, int iconSizePerp, float[] color, float alpha )
+    {
+        if ( color != null )
+        {
+            GlimpseColor.glColor( gl, color, alpha );
+        }
+
+        if ( horiz )
+        {
+            atlas.drawImageAxisX( gl, icon, axis, posTime, posPerp, scale, scale, 0, iconSizePerp );
+        }
+        else
+        {
+            atlas.drawImageAxisY( gl, icon, axis, posPerp, posTime, scale, scale, 0, iconSizePerp );
+        }
+    }
+
+    /**
+     * Paints an Event label at the given pixel position. For vertical time axes, the label
+     * is rotated 90 degrees about ( pivotX, pivotY ).
+     */
+    protected void paintLabel( GL2 gl, TextRenderer textRenderer, String text, float[] color, int width, int height, boolean horiz, int x, int y, double pivotX, double pivotY )
+    {
+        GlimpseColor.setColor( textRenderer, color );
+
+        textRenderer.beginRendering( width, height );
+        try
+        {
+            if ( !horiz )
+            {
+                gl.glMatrixMode( GL2.GL_PROJECTION );
+
+                gl.glTranslated( pivotX, pivotY, 0 );
+                gl.glRotated( 90, 0, 0, 1.0f );
+                gl.glTranslated( -pivotX, -pivotY, 0 );
+            }
+
+            textRenderer.draw( text, x, y );
+        }
+        finally
+        {
+            textRenderer.endRendering( );
+        }
+    }
+
     protected int getIconSizePerpPixels( Event event, EventPlotInfo info, int sizePerpPixels )
     {
         int iconSizePerpPixels;
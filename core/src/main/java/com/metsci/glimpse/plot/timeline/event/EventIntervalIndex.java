@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.plot.timeline.event;
+
+import java.util.List;
+
+import com.metsci.glimpse.support.interval.LongIntervalIndex;
+import com.metsci.glimpse.util.units.time.TimeStamp;
+
+/**
+ * A {@link LongIntervalIndex} of Events keyed by their start and end times in posix milliseconds.
+ * The keys are converted from TimeStamps once, when an Event is added, and queries through
+ * {@link #visit(TimeStamp, boolean, TimeStamp, boolean, IntervalVisitor)} allocate nothing.
+ * 
+ * <p>Replaces {@link EventIntervalQuadTree} for storing the Events of a timeline row.
+ * Unlike that class, an Event must be removed before it is added again.</p>
+ */
+public class EventIntervalIndex extends LongIntervalIndex<Event>
+{
+    @Override
+    public long getStartTimeMillis( Event v )
+    {
+        return v.getStartTime( ).toPosixMillis( );
+    }
+
+    @Override
+    public long getEndTimeMillis( Event v )
+    {
+        return v.getEndTime( ).toPosixMillis( );
+    }
+
+    /**
+     * @see #visit(long, boolean, long, boolean, IntervalVisitor)
+     */
+    public int visit( TimeStamp start, boolean startInclusive, TimeStamp end, boolean endInclusive, IntervalVisitor<Event> visitor )
+    {
+        return visit( start.toPosixMillis( ), startInclusive, end.toPosixMillis( ), endInclusive, visitor );
+    }
+
+    /**
+     * @see #get(long, boolean, long, boolean)
+     */
+    public List<Event> get( TimeStamp start, boolean startInclusive, TimeStamp end, boolean endInclusive )
+    {
+        return get( start.toPosixMillis( ), startInclusive, end.toPosixMillis( ), endInclusive );
+    }
+}
@@ -38,6 +38,7 @@ import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -49,6 +50,7 @@ import com.metsci.glimpse.event.mouse.GlimpseMouseEvent;
 import com.metsci.glimpse.plot.timeline.data.Epoch;
 import com.metsci.glimpse.plot.timeline.data.EventSelection;
 import com.metsci.glimpse.plot.timeline.data.EventSelection.Location;
+import com.metsci.glimpse.support.interval.LongIntervalIndex.IntervalVisitor;
 import com.metsci.glimpse.util.units.time.TimeStamp;
 
 /**
@@ -61,6 +63,7 @@ public class EventManager
     protected static final double BUFFER_MULTIPLIER = 2;
     protected static final double OVERLAP_HEURISTIC = 20.0;
     protected static final int PICK_BUFFER_PIXELS = 10;
+    protected static final int MAX_AGGREGATE_LEVELS = 8;
 
     protected EventPlotInfo info;
     protected ReentrantLock lock;
@@ -85,34 +88,71 @@ public class EventManager
         int index;
 
         // all Events in the Row
-        EventIntervalQuadTree events;
+        EventIntervalIndex events;
 
-        // all visible Events in the Row (some Events may be aggregated)
-        // will not be filled in if aggregation is not turned on (in that
-        // case it is unneeded because the events map can be queried instead)
-        EventIntervalQuadTree visibleAggregateEvents;
+        // aggregated views of the Row, built lazily for each zoom level
+        // which has been displayed and then kept up to date as Events
+        // are added and removed (only used if aggregation is turned on)
+        Map<Integer, AggregateLevel> aggregateLevels;
+
+        // the aggregate level used for the most recent visible Events calculation
+        AggregateLevel visibleAggregateLevel;
 
         // all visible Events (including aggregated events, if turned on)
         // sorted by starting timestamp
         List<Event> visibleEvents;
 
+        IntervalVisitor<Event> visibleEventsVisitor = new IntervalVisitor<Event>( )
+        {
+            @Override
+            public void visit( Event value, long start, long end )
+            {
+                visibleEvents.add( value );
+            }
+        };
+
         public Row( int index )
         {
             this.index = index;
-            this.visibleAggregateEvents = new EventIntervalQuadTree( );
-            this.events = new EventIntervalQuadTree( );
+            this.events = new EventIntervalIndex( );
+            this.visibleEvents = new ArrayList<Event>( );
+            this.aggregateLevels = new LinkedHashMap<Integer, AggregateLevel>( 16, 0.75f, true )
+            {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry( Map.Entry<Integer, AggregateLevel> eldest )
+                {
+                    return size( ) > MAX_AGGREGATE_LEVELS;
+                }
+            };
         }
 
         public void addEvent( Event event )
         {
-            this.events.add( event );
             rowMap.put( event.getId( ), this );
+
+            // the index does not keep set semantics, so guard against adding an Event twice
+            if ( this.events.contains( event ) ) return;
+
+            this.events.add( event );
+
+            for ( AggregateLevel level : aggregateLevels.values( ) )
+            {
+                level.addEvent( event );
+            }
         }
 
         public void removeEvent( Event event )
         {
-            this.events.remove( event );
             rowMap.remove( event.getId( ) );
+
+            if ( !this.events.remove( event ) ) return;
+
+            for ( AggregateLevel level : aggregateLevels.values( ) )
+            {
+                level.removeEvent( event );
+            }
         }
 
         public void calculateVisibleEvents( Axis1D axis, TimeStamp min, TimeStamp max )
@@ -129,142 +169,274 @@ public class EventManager
 
         public void calculateVisibleEventsAggregated( Axis1D axis, TimeStamp min, TimeStamp max )
         {
-            // calculate size of bin in system (time) units
-            double ppv = axis.getPixelsPerValue( );
-            double maxDuration = maxAggregateSize / ppv;
-            double maxGap = maxAggregateGap / ppv;
+            // the aggregates for this zoom level are already built (or are built once
+            // here and then maintained incrementally), so panning only selects them
+            this.visibleAggregateLevel = getAggregateLevel( axis.getPixelsPerValue( ) );
 
-            // expand the visible window slightly
-            // since we only aggregate visible Events, we don't want weird
-            // visual artifacts (aggregate groups appearing and disappearing)
-            // as Events scroll off the screen
-            TimeStamp expandedMin = min.subtract( maxDuration * BUFFER_MULTIPLIER );
-            TimeStamp expandedMax = max.add( maxDuration * BUFFER_MULTIPLIER );
+            this.visibleEvents.clear( );
+            this.visibleAggregateLevel.events.visit( min.toPosixMillis( ), max.toPosixMillis( ), visibleEventsVisitor );
+        }
 
-            List<Event> visible = calculateVisibleEventsNormal0( events, expandedMin, expandedMax );
+        protected AggregateLevel getAggregateLevel( double ppv )
+        {
+            // quantize the time per pixel to half-octave steps so that small changes
+            // in zoom level reuse the same aggregates
+            double millisPerPixel = 1000.0 / ppv;
+            int key = ( int ) Math.ceil( 2 * Math.log( millisPerPixel ) / Math.log( 2 ) );
 
-            EventIntervalQuadTree events = new EventIntervalQuadTree( );
+            AggregateLevel level = aggregateLevels.get( key );
 
-            Set<Event> children = new HashSet<Event>( );
-            TimeStamp childrenMin = null;
-            TimeStamp childrenMax = null;
-            for ( Event event : visible )
+            if ( level == null )
             {
-                // only aggregate small events
-                boolean isDurationSmall = event.getDuration( ) < maxDuration;
-
-                // only aggregate events with small gaps between them
-                double gap = childrenMax == null ? 0 : childrenMax.durationBefore( event.getStartTime( ) );
-                boolean isGapSmall = gap < maxGap;
+                double levelMillisPerPixel = Math.pow( 2, key / 2.0 );
+                long maxDuration = ( long ) Math.ceil( maxAggregateSize * levelMillisPerPixel );
+                long maxGap = ( long ) Math.ceil( maxAggregateGap * levelMillisPerPixel );
 
-                // if the gap is large, end the current aggregate group
-                if ( !isGapSmall )
-                {
-                    addAggregateEvent( events, children, childrenMin, childrenMax, min, max );
-                    children.clear( );
-                    childrenMin = null;
-                    childrenMax = null;
-                }
-
-                // if the event is small enough to be aggregated, add it to the child list
-                if ( isDurationSmall )
-                {
-                    children.add( event );
+                level = new AggregateLevel( maxDuration, maxGap );
+                level.build( events );
+                aggregateLevels.put( key, level );
+            }
 
-                    // events are in start time order, so this will never change after being set
-                    if ( childrenMin == null ) childrenMin = event.getStartTime( );
+            return level;
+        }
 
-                    if ( childrenMax == null || childrenMax.isBefore( event.getEndTime( ) ) ) childrenMax = event.getEndTime( );
-                }
-                // otherwise just add it to the result map
-                else
-                {
-                    if ( isVisible( event, min, max ) ) events.add( event );
-                }
-            }
+        protected boolean isVisible( Event event, TimeStamp min, TimeStamp max )
+        {
+            return ! ( event.getEndTime( ).isBefore( min ) || event.getStartTime( ).isAfter( max ) );
+        }
 
-            // add any remaining child events
-            addAggregateEvent( events, children, childrenMin, childrenMax, min, max );
+        public void calculateVisibleEventsNormal( TimeStamp min, TimeStamp max )
+        {
+            // the index visits Events in start time order, so no sort is needed
+            this.visibleEvents.clear( );
+            this.events.visit( min, true, max, true, visibleEventsVisitor );
+        }
 
-            this.visibleAggregateEvents = events;
-            this.visibleEvents = calculateVisibleEventsNormal0( events.getAll( ) );
+        public Collection<Event> getOverlappingEvents( Event event )
+        {
+            return this.events.get( event.getStartTime( ), false, event.getEndTime( ), false );
         }
 
-        protected void addAggregateEvent( EventIntervalQuadTree events, Set<Event> children, TimeStamp childrenMin, TimeStamp childrenMax, TimeStamp min, TimeStamp max )
+        public Collection<Event> getNearestVisibleEvents( TimeStamp timeStart, TimeStamp timeEnd )
         {
-            // if there is only one or zero events in the current group, just add a regular event
-            if ( children.size( ) <= 1 )
+            if ( aggregateNearbyEvents && this.visibleAggregateLevel != null )
             {
-                for ( Event child : children )
-                    if ( isVisible( child, min, max ) ) events.add( child );
+                return this.visibleAggregateLevel.events.get( timeStart, true, timeEnd, false );
             }
-            // otherwise create an aggregate group and add it to the result map
             else
             {
-                AggregateEvent aggregate = new AggregateEvent( children, childrenMin, childrenMax );
-
-                if ( isVisible( aggregate, min, max ) ) events.add( aggregate );
+                return this.events.get( timeStart, true, timeEnd, false );
             }
         }
 
-        protected boolean isVisible( Event event, TimeStamp min, TimeStamp max )
+        public boolean isEmpty( )
         {
-            return ! ( event.getEndTime( ).isBefore( min ) || event.getStartTime( ).isAfter( max ) );
+            return this.events.isEmpty( );
         }
 
-        protected List<Event> calculateVisibleEventsNormal0( EventIntervalQuadTree events, TimeStamp min, TimeStamp max )
+        public int size( )
         {
-            return calculateVisibleEventsNormal0( events.get( min, true, max, true ) );
+            return this.events.size( );
         }
 
-        protected List<Event> calculateVisibleEventsNormal0( Collection<Event> visible )
+        public int getIndex( )
         {
-            ArrayList<Event> visible_start_sorted = new ArrayList<Event>( visible.size( ) );
-            visible_start_sorted.addAll( visible );
-            Collections.sort( visible_start_sorted, Event.getStartTimeComparator( ) );
-            return visible_start_sorted;
+            return this.index;
         }
 
-        public void calculateVisibleEventsNormal( TimeStamp min, TimeStamp max )
+        public void setIndex( int index )
         {
-            this.visibleEvents = calculateVisibleEventsNormal0( this.events, min, max );
+            this.index = index;
         }
+    }
 
-        public Collection<Event> getOverlappingEvents( Event event )
+    /**
+     * The aggregated contents of a Row at one zoom level. Small Events (shorter than
+     * {@code maxDuration}) are grouped whenever their extents, padded by {@code maxGap}
+     * on the end, overlap. Since the groups do not depend on the order in which Events
+     * arrive, a level is built once and then patched locally as Events are added and removed.
+     */
+    protected static class AggregateLevel
+    {
+        protected long maxDuration;
+        protected long maxGap;
+
+        // large Events, ungrouped small Events, and AggregateEvents
+        protected EventIntervalIndex events;
+
+        // reused to collect the groups touched by an update
+        protected List<Event> touched;
+
+        protected IntervalVisitor<Event> touchedVisitor = new IntervalVisitor<Event>( )
         {
-            return this.events.get( event.getStartTime( ), false, event.getEndTime( ), false );
+            @Override
+            public void visit( Event value, long start, long end )
+            {
+                if ( isGroup( value, start, end ) ) touched.add( value );
+            }
+        };
+
+        public AggregateLevel( long maxDuration, long maxGap )
+        {
+            this.maxDuration = maxDuration;
+            this.maxGap = maxGap;
+            this.events = new EventIntervalIndex( );
+            this.touched = new ArrayList<Event>( );
         }
 
-        public Collection<Event> getNearestVisibleEvents( TimeStamp timeStart, TimeStamp timeEnd )
+        /**
+         * @param rowEvents all the Events in the Row
+         */
+        public void build( EventIntervalIndex rowEvents )
         {
-            if ( aggregateNearbyEvents )
+            events.clear( );
+
+            List<Event> small = new ArrayList<Event>( );
+            for ( Event event : rowEvents.get( Long.MIN_VALUE, Long.MAX_VALUE ) )
             {
-                return this.visibleAggregateEvents.get( timeStart, timeEnd );
+                if ( isSmall( event ) )
+                {
+                    small.add( event );
+                }
+                else
+                {
+                    events.add( event );
+                }
             }
-            else
+
+            addGroups( small );
+        }
+
+        public void addEvent( Event event )
+        {
+            if ( !isSmall( event ) )
             {
-                return this.events.get( timeStart, timeEnd );
+                events.add( event );
+                return;
             }
+
+            // find the groups whose padded extents overlap the padded event
+            long start = event.getStartTime( ).toPosixMillis( );
+            long end = event.getEndTime( ).toPosixMillis( );
+            touched.clear( );
+            events.visit( start - maxGap, false, end + maxGap, false, touchedVisitor );
+
+            // the new event joins all of them into a single group
+            List<Event> children = new ArrayList<Event>( );
+            children.add( event );
+            for ( Event group : touched )
+            {
+                events.remove( group );
+                addChildren( group, children );
+            }
+
+            addGroup( children );
         }
 
-        public boolean isEmpty( )
+        public void removeEvent( Event event )
         {
-            return this.events.isEmpty( );
+            if ( !isSmall( event ) )
+            {
+                events.remove( event );
+                return;
+            }
+
+            long start = event.getStartTime( ).toPosixMillis( );
+            long end = event.getEndTime( ).toPosixMillis( );
+            touched.clear( );
+            events.visit( start, end, touchedVisitor );
+
+            for ( Event group : touched )
+            {
+                if ( group.equals( event ) )
+                {
+                    events.remove( group );
+                    return;
+                }
+                else if ( group instanceof AggregateEvent && ( ( AggregateEvent ) group ).children.contains( event ) )
+                {
+                    // removing an event may split its group, so regroup the remaining children
+                    events.remove( group );
+
+                    List<Event> children = new ArrayList<Event>( group.getEventCount( ) );
+                    addChildren( group, children );
+                    children.remove( event );
+                    Collections.sort( children, Event.getStartTimeComparator( ) );
+
+                    addGroups( children );
+                    return;
+                }
+            }
         }
 
-        public int size( )
+        protected boolean isSmall( Event event )
         {
-            return this.events.size( );
+            return event.getEndTime( ).toPosixMillis( ) - event.getStartTime( ).toPosixMillis( ) < maxDuration;
         }
 
-        public int getIndex( )
+        protected boolean isGroup( Event event, long start, long end )
         {
-            return this.index;
+            return event instanceof AggregateEvent || end - start < maxDuration;
         }
 
-        public void setIndex( int index )
+        protected void addChildren( Event group, List<Event> children )
         {
-            this.index = index;
+            if ( group instanceof AggregateEvent )
+            {
+                children.addAll( ( ( AggregateEvent ) group ).children );
+            }
+            else
+            {
+                children.add( group );
+            }
+        }
+
+        /**
+         * @param sorted small Events sorted by start time
+         */
+        protected void addGroups( List<Event> sorted )
+        {
+            int groupStart = 0;
+            long groupEnd = 0;
+
+            for ( int i = 0; i < sorted.size( ); i++ )
+            {
+                Event event = sorted.get( i );
+
+                if ( i > groupStart && event.getStartTime( ).toPosixMillis( ) >= groupEnd + maxGap )
+                {
+                    addGroup( sorted.subList( groupStart, i ) );
+                    groupStart = i;
+                }
+
+                long end = event.getEndTime( ).toPosixMillis( );
+                if ( i == groupStart || end > groupEnd ) groupEnd = end;
+            }
+
+            if ( groupStart < sorted.size( ) )
+            {
+                addGroup( sorted.subList( groupStart, sorted.size( ) ) );
+            }
+        }
+
+        protected void addGroup( List<Event> children )
+        {
+            if ( children.size( ) == 1 )
+            {
+                events.add( children.get( 0 ) );
+            }
+            else
+            {
+                TimeStamp min = null;
+                TimeStamp max = null;
+                for ( Event child : children )
+                {
+                    if ( min == null || child.getStartTime( ).isBefore( min ) ) min = child.getStartTime( );
+                    if ( max == null || child.getEndTime( ).isAfter( max ) ) max = child.getEndTime( );
+                }
+
+                events.add( new AggregateEvent( children, min, max ) );
+            }
         }
     }
 
@@ -763,7 +935,12 @@ public class EventManager
         rows.clear( );
         rowMap.clear( );
 
-        for ( Event event : eventMap.values( ) )
+        // adding Events in start time order lets each Row append them to its index
+        // rather than buffering and merging out-of-order insertions
+        List<Event> events = new ArrayList<Event>( eventMap.values( ) );
+        Collections.sort( events, Event.getStartTimeComparator( ) );
+
+        for ( Event event : events )
         {
             addEvent0( event );
         }
@@ -206,6 +206,9 @@ public class EventPainterManager extends GlimpseDataPainter1D
 
             List<Row> rows = manager.getRows( );
 
+            // a batching painter accumulates events and draws each row at once
+            FlushableEventPainter batchPainter = defaultPainter instanceof FlushableEventPainter ? ( FlushableEventPainter ) defaultPainter : null;
+
             int size = rows.size( );
             for ( int i = 0; i < size; i++ )
             {
@@ -216,7 +219,7 @@ public class EventPainterManager extends GlimpseDataPainter1D
                 {
                     if ( prev != null )
                     {
-                        prev.paint( defaultPainter, gl, next, plot, bounds, posMin, posMax );
+                        paintEvent( gl, bounds, batchPainter, prev, next, posMin, posMax );
                     }
 
                     prev = next;
@@ -225,7 +228,12 @@ public class EventPainterManager extends GlimpseDataPainter1D
                 // paint last event
                 if ( prev != null )
                 {
-                    prev.paint( defaultPainter, gl, null, plot, bounds, posMin, posMax );
+                    paintEvent( gl, bounds, batchPainter, prev, null, posMin, posMax );
+                }
+
+                if ( batchPainter != null )
+                {
+                    batchPainter.flush( gl, plot, bounds );
                 }
 
                 posMin = posMax + buffer;
@@ -238,6 +246,18 @@ public class EventPainterManager extends GlimpseDataPainter1D
         }
     }
 
+    protected void paintEvent( GL2 gl, GlimpseBounds bounds, FlushableEventPainter batchPainter, Event event, Event nextEvent, int posMin, int posMax )
+    {
+        // events with their own painter draw immediately, so draw any batched events beneath them first
+        EventPainter eventPainter = event.getEventPainter( );
+        if ( batchPainter != null && eventPainter != null && eventPainter != batchPainter )
+        {
+            batchPainter.flush( gl, plot, bounds );
+        }
+
+        event.paint( defaultPainter, gl, nextEvent, plot, bounds, posMin, posMax );
+    }
+
     @Override
     public void setLookAndFeel( LookAndFeel laf )
     {
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.plot.timeline.event;
+
+import javax.media.opengl.GL2;
+
+import com.metsci.glimpse.context.GlimpseBounds;
+
+/**
+ * <p>An {@code EventPainter} which accumulates the Events passed to
+ * {@link #paint(GL2, Event, Event, EventPlotInfo, GlimpseBounds, int, int)} instead of
+ * drawing them immediately. The accumulated Events are drawn together when
+ * {@link #flush(GL2, EventPlotInfo, GlimpseBounds)} is called.</p>
+ * 
+ * <p>{@link EventPainterManager} flushes after each row of Events, and before painting
+ * any Event which has its own EventPainter, so that Events are layered as they would be
+ * by a non-batching EventPainter.</p>
+ * @see BatchedEventPainter
+ */
+public interface FlushableEventPainter extends EventPainter
+{
+    /**
+     * Draws and discards all Events accumulated since the last call to flush.
+     * 
+     * @param gl OpenGL handle
+     * @param info parent EventPlotInfo of the accumulated Events
+     * @param bounds width, height, and position of GlimpseLayout containing EventPlotInfo
+     */
+    public void flush( GL2 gl, EventPlotInfo info, GlimpseBounds bounds );
+}
@@ -72,6 +72,7 @@ import com.metsci.glimpse.support.atlas.shader.TextureAtlasIconShaderVertex;
 import com.metsci.glimpse.support.atlas.support.ImageData;
 import com.metsci.glimpse.support.atlas.support.TextureAtlasUpdateListener;
 import com.metsci.glimpse.support.selection.SpatialSelectionListener;
+import com.metsci.glimpse.util.primitives.IntsArray;
 import com.jogamp.common.nio.Buffers;
 import com.jogamp.opengl.util.texture.TextureCoords;
 
@@ -83,12 +84,13 @@ import com.jogamp.opengl.util.texture.TextureCoords;
  */
 //TODO: GLFloatBuffer dirties the entire array whenever a change is made, this means that
 //      the addition of a single icon to the group causes the entire group to be pushed
-//      to VRAM again. Either GLFloatBuffer needs to be smarter and use glSubBuffer or we
-//      need to do things manually with FloatBuffers.
+//      to VRAM again. Moving existing icons with updateIcons( ) only uploads the changed
+//      range, but additions still push the whole group. Use setIcons( ) to load large
+//      groups in one pass.
 //
-//TODO: Picking could also be done without OpenGL using the quadtree that GLFloatBuffer2D
-//      provides. However, this might be slower and take up more memory with lots of icons.
-//      It also doesn't easily handle not picking on transparent parts of icons.
+//NOTE: Picking can also be done without OpenGL using an IconPickIndex per group (see
+//      setSpatialIndexEnabled( boolean )). This takes up more memory with lots of icons
+//      and doesn't handle not picking on transparent parts of icons.
 //
 //TODO: The problem with the current color-based picking approach is that it really only handles
 //      picks at one location at a time (we could draw to a larger offscreen buffer,
@@ -138,6 +140,11 @@ public class IconPainter extends GlimpseDataPainter2D
     protected List<SpatialSelectionListener<PickResult>> pickListeners;
     protected Executor pickNotificationThread;
 
+    // fields related to cpu-side picking support
+    protected volatile boolean spatialIndexEnabled = false;
+    protected volatile float globalScale = 1.0f;
+    protected Collection<IconGroup> pickGroups;
+
     protected ReentrantLock lock;
 
     //@formatter:off
@@ -158,6 +165,7 @@ public class IconPainter extends GlimpseDataPainter2D
         this.pickResultBuffer = Buffers.newDirectByteBuffer( Buffers.SIZEOF_BYTE * COMPONENTS_PER_COLOR * ( WIDTH_BUFFER * 2 + 1 ) * ( HEIGHT_BUFFER * 2 + 1 ) );
         this.pickListeners = new CopyOnWriteArrayList<SpatialSelectionListener<PickResult>>( );
         this.pickNotificationThread = Executors.newSingleThreadExecutor( );
+        this.pickGroups = new CopyOnWriteArrayList<IconGroup>( );
 
         this.initialGroupSize = initialGroupSize;
     }
@@ -222,7 +230,14 @@ public class IconPainter extends GlimpseDataPainter2D
                 @Override
                 public void mouseMoved( GlimpseMouseEvent e )
                 {
-                    pickMouseEvent = e;
+                    if ( spatialIndexEnabled )
+                    {
+                        pickIndexed( e );
+                    }
+                    else
+                    {
+                        pickMouseEvent = e;
+                    }
                 }
             };
 
@@ -265,9 +280,144 @@ public class IconPainter extends GlimpseDataPainter2D
      */
     public void setGlobalScale( float scale )
     {
+        this.globalScale = scale;
         this.geometryShader.setGlobalScale( scale );
     }
 
+    /**
+     * Indicates whether icon groups maintain a CPU-side spatial index for picking.
+     */
+    public boolean isSpatialIndexEnabled( )
+    {
+        return this.spatialIndexEnabled;
+    }
+
+    /**
+     * Enables or disables a CPU-side spatial index of the icons in each group.
+     *
+     * When enabled, mouse picking (see {@link #setPickingEnabled(GlimpseLayout)}) queries the index
+     * on the pick notification thread instead of rendering icons into an offscreen buffer and reading
+     * it back on every repaint, and {@link #pick(Axis2D, double, double, int, GlimpseTargetStack)} and
+     * {@link #pickRegion(Axis2D, double, double, double, double, GlimpseTargetStack)} may be used
+     * for hover and rectangle-selection queries from any thread.
+     *
+     * Unlike the offscreen buffer approach, the index does not distinguish the transparent parts
+     * of icons. Enabling the index on a painter that already contains icons reads their placement
+     * back from the host-side buffers (which causes them to be uploaded to the device again).
+     */
+    public void setSpatialIndexEnabled( boolean enable )
+    {
+        this.lock.lock( );
+        try
+        {
+            if ( this.spatialIndexEnabled == enable ) return;
+
+            for ( IconGroup group : this.iconGroupMap.values( ) )
+            {
+                if ( enable )
+                {
+                    group.createPickIndex( );
+                }
+                else
+                {
+                    group.pickIndex = null;
+                }
+            }
+
+            this.spatialIndexEnabled = enable;
+        }
+        finally
+        {
+            this.lock.unlock( );
+        }
+    }
+
+    /**
+     * Returns the visible icons within {@code pixelTolerance} pixels of the given point, using
+     * the CPU-side spatial index. Does not use OpenGL, so it may be called from any thread.
+     *
+     * @param axis the axis the icons are painted on (used to convert between pixels and axis units)
+     * @param x the query point in axis space
+     * @param y the query point in axis space
+     * @param pixelTolerance the pick distance in pixels
+     * @param stack the target stack reported in the PickResults
+     * @throws IllegalStateException if the spatial index is not enabled
+     * @see #setSpatialIndexEnabled(boolean)
+     */
+    public Set<PickResult> pick( Axis2D axis, double x, double y, int pixelTolerance, GlimpseTargetStack stack )
+    {
+        return pick0( axis, x, x, y, y, pixelTolerance, true, stack );
+    }
+
+    /**
+     * Returns the visible icons whose screen footprint intersects the given axis space rectangle, using
+     * the CPU-side spatial index. Does not use OpenGL, so it may be called from any thread.
+     *
+     * @throws IllegalStateException if the spatial index is not enabled
+     * @see #pick(Axis2D, double, double, int, GlimpseTargetStack)
+     */
+    public Set<PickResult> pickRegion( Axis2D axis, double minX, double maxX, double minY, double maxY, GlimpseTargetStack stack )
+    {
+        return pick0( axis, minX, maxX, minY, maxY, 0, false, stack );
+    }
+
+    protected Set<PickResult> pick0( Axis2D axis, double minX, double maxX, double minY, double maxY, int pixelTolerance, boolean point, GlimpseTargetStack stack )
+    {
+        if ( !this.spatialIndexEnabled ) throw new IllegalStateException( "Spatial index is not enabled." );
+
+        double ppvX = axis.getAxisX( ).getPixelsPerValue( );
+        double ppvY = axis.getAxisY( ).getPixelsPerValue( );
+        float scale = this.globalScale;
+
+        Set<PickResult> results = new HashSet<PickResult>( );
+        IntsArray indices = new IntsArray( );
+
+        for ( IconGroup group : this.pickGroups )
+        {
+            IconPickIndex index = group.pickIndex;
+            if ( index == null || !group.isVisible( ) ) continue;
+
+            indices.n = 0;
+            if ( point )
+            {
+                index.search( minX, minY, ppvX, ppvY, scale, pixelTolerance, indices );
+            }
+            else
+            {
+                index.search( minX, maxX, minY, maxY, ppvX, ppvY, scale, pixelTolerance, indices );
+            }
+
+            for ( int i = 0; i < indices.n; i++ )
+            {
+                int iconIndex = indices.a[i];
+                results.add( new PickResult( group.getId( ), index.getIconId( iconIndex ), iconIndex, stack ) );
+            }
+        }
+
+        return results;
+    }
+
+    // answers a mouse pick from the spatial index on the pick notification thread
+    protected void pickIndexed( final GlimpseMouseEvent e )
+    {
+        this.pickNotificationThread.execute( new Runnable( )
+        {
+            @Override
+            public void run( )
+            {
+                Axis2D axis = e.getAxis2D( );
+                if ( axis == null || !spatialIndexEnabled ) return;
+
+                Set<PickResult> resultSet = pick( axis, e.getAxisCoordinatesX( ), e.getAxisCoordinatesY( ), Math.max( WIDTH_BUFFER, HEIGHT_BUFFER ), TargetStackUtil.newTargetStack( e.getTargetStack( ) ) );
+
+                for ( SpatialSelectionListener<PickResult> listener : pickListeners )
+                {
+                    listener.selectionChanged( resultSet );
+                }
+            }
+        } );
+    }
+
     /**
      * @see #addIconGroup( Object, TextureAtlas, int )
      */
@@ -292,7 +442,9 @@ public class IconPainter extends GlimpseDataPainter2D
             if ( group == null )
             {
                 group = new IconGroup( iconGroupId, atlas, initialSize );
+                if ( this.spatialIndexEnabled ) group.createPickIndex( );
                 this.iconGroupMap.put( iconGroupId, group );
+                this.pickGroups.add( group );
             }
             else
             {
@@ -472,6 +624,103 @@ public class IconPainter extends GlimpseDataPainter2D
         }
     }
 
+    /**
+     * Replaces all the icons in a group at once. Icon i is drawn using the texture atlas icon
+     * {@code iconIds[iconIdIndex[i]]} at positionX[i], positionY[i] with the given rotation and scale.
+     *
+     * Unlike repeated calls to {@code addIcon}, the group's buffers are sized once for the whole group
+     * and each buffer is filled in a single pass. As with {@code addIcons}, the arrays are read the next
+     * time the painter is drawn, so they should not be modified until then.
+     *
+     * @param iconGroupId the group to replace, which must already have been added with {@code addIconGroup}
+     * @param iconIds a table of icon identifiers in the group's texture atlas
+     * @param iconIdIndex for each icon, the index of its icon identifier in iconIds
+     * @param size the number of icons (the number of values to read from each array)
+     */
+    public void setIcons( Object iconGroupId, Object[] iconIds, int[] iconIdIndex, float[] positionX, float[] positionY, float[] rotation, float[] scale, int size )
+    {
+        this.lock.lock( );
+        try
+        {
+            IconGroup group = this.iconGroupMap.get( iconGroupId );
+            group.setIcons( new SetIconsSeparate( iconIds, iconIdIndex, positionX, positionY, rotation, scale, size ) );
+        }
+        finally
+        {
+            this.lock.unlock( );
+        }
+    }
+
+    /**
+     * Replaces all the icons in a group at once, with x/y/rotation/scale quadruplets (one per icon) packed
+     * into a caller-filled FloatBuffer starting at index 0. The FloatBuffer is read the next time the
+     * painter is drawn, so it should not be modified until then.
+     *
+     * @see #setIcons(Object, Object[], int[], float[], float[], float[], float[], int)
+     */
+    public void setIcons( Object iconGroupId, Object[] iconIds, int[] iconIdIndex, FloatBuffer positions, int size )
+    {
+        this.lock.lock( );
+        try
+        {
+            IconGroup group = this.iconGroupMap.get( iconGroupId );
+            group.setIcons( new SetIconsBuffer( iconIds, iconIdIndex, positions, size ) );
+        }
+        finally
+        {
+            this.lock.unlock( );
+        }
+    }
+
+    /**
+     * Moves an existing icon. Only the changed range of the group's placement buffer is
+     * uploaded the next time the painter is drawn.
+     *
+     * @param index the index of the icon within its group (icons are numbered in the order they were added)
+     */
+    public void updateIcon( Object iconGroupId, int index, float positionX, float positionY, float rotation, float scale )
+    {
+        updateIcons( iconGroupId, index, new float[] { positionX, positionY, rotation, scale }, 1 );
+    }
+
+    /**
+     * Changes the position, rotation and scale of the existing icons with indices
+     * [fromIndex, fromIndex+count). The values are copied, so the arrays may be reused
+     * immediately. Only the changed range of the group's placement buffer is uploaded
+     * the next time the painter is drawn.
+     */
+    public void updateIcons( Object iconGroupId, int fromIndex, float[] positionX, float[] positionY, float[] rotation, float[] scale, int count )
+    {
+        float[] positions = new float[count * 4];
+        for ( int i = 0; i < count; i++ )
+        {
+            positions[i * 4] = positionX[i];
+            positions[i * 4 + 1] = positionY[i];
+            positions[i * 4 + 2] = rotation[i];
+            positions[i * 4 + 3] = scale[i];
+        }
+
+        updateIcons( iconGroupId, fromIndex, positions, count );
+    }
+
+    /**
+     * Like {@link #updateIcons(Object, int, float[], float[], float[], float[], int)}, with the
+     * x/y/rotation/scale quadruplets packed into a single array. The array is not copied.
+     */
+    public void updateIcons( Object iconGroupId, int fromIndex, float[] positions, int count )
+    {
+        this.lock.lock( );
+        try
+        {
+            IconGroup group = this.iconGroupMap.get( iconGroupId );
+            group.queueChange( new UpdateIcons( fromIndex, positions, count ) );
+        }
+        finally
+        {
+            this.lock.unlock( );
+        }
+    }
+
     /**
      * Remove all the icons from the provided group.
      *
@@ -485,6 +734,7 @@ public class IconPainter extends GlimpseDataPainter2D
             IconGroup group = this.iconGroupMap.remove( iconGroupId );
             if ( group == null ) return;
 
+            this.pickGroups.remove( group );
             group.dispose( );
 
             TextureAtlas atlas = group.atlas;
@@ -577,7 +827,7 @@ public class IconPainter extends GlimpseDataPainter2D
             // dispose of any buffers queued for deletion
             disposeOldBuffers( gl );
 
-            if ( this.pickSupportEnabled )
+            if ( this.pickSupportEnabled && !this.spatialIndexEnabled )
             {
                 // allocate the offscreen pick buffer if it does not exist
                 if ( this.pickFrameBuffer == null )
@@ -970,14 +1220,27 @@ public class IconPainter extends GlimpseDataPainter2D
         }
     }
 
-    private abstract class AddIcons
+    private abstract class IconGroupChange
+    {
+        public abstract void apply( IconGroup group );
+    }
+
+    private abstract class AddIcons extends IconGroupChange
     {
         protected Object iconId;
 
+        public void apply( IconGroup group )
+        {
+            addIcons( group );
+        }
+
         public abstract int getSize( );
 
         public abstract void addPlacementValues( IconGroup group );
 
+        // returns the x, y, rotation or scale (component 0 to 3) of the i-th added icon
+        public abstract float getPlacementValue( int i, int component );
+
         public void addIcons( IconGroup group )
         {
             final int size = getSize( );
@@ -996,6 +1259,20 @@ public class IconPainter extends GlimpseDataPainter2D
                 group.iconIds.add( iconId );
             }
 
+            final float width = ( imageData.getWidth( ) + imageData.getBufferX( ) * 2 );
+            final float height = ( imageData.getHeight( ) + imageData.getBufferY( ) * 2 );
+            final float offsetX = ( imageData.getCenterX( ) + imageData.getBufferX( ) );
+            final float offsetY = ( imageData.getCenterY( ) + imageData.getBufferY( ) );
+
+            IconPickIndex pickIndex = group.pickIndex;
+            if ( pickIndex != null )
+            {
+                for ( int i = 0; i < size; i++ )
+                {
+                    pickIndex.add( iconId, getPlacementValue( i, 0 ), getPlacementValue( i, 1 ), getPlacementValue( i, 2 ), getPlacementValue( i, 3 ), width, height, offsetX, offsetY );
+                }
+            }
+
             group.pixelCoordsValues.mutate( new Mutator( )
             {
                 @Override
@@ -1004,11 +1281,6 @@ public class IconPainter extends GlimpseDataPainter2D
                     data.limit( currentSize * length );
                     data.position( ( currentSize - size ) * length );
 
-                    float width = ( imageData.getWidth( ) + imageData.getBufferX( ) * 2 );
-                    float height = ( imageData.getHeight( ) + imageData.getBufferY( ) * 2 );
-                    float offsetX = ( imageData.getCenterX( ) + imageData.getBufferX( ) );
-                    float offsetY = ( imageData.getCenterY( ) + imageData.getBufferY( ) );
-
                     for ( int i = 0; i < size; i++ )
                     {
                         data.put( width );
@@ -1092,6 +1364,21 @@ public class IconPainter extends GlimpseDataPainter2D
             return size;
         }
 
+        public float getPlacementValue( int i, int component )
+        {
+            switch ( component )
+            {
+                case 0:
+                    return positionX[i];
+                case 1:
+                    return positionY[i];
+                case 2:
+                    return rotation[i];
+                default:
+                    return scale[i];
+            }
+        }
+
         public void addPlacementValues( final IconGroup group )
         {
             group.iconPlacementValues.mutate( new Mutator( )
@@ -1135,6 +1422,11 @@ public class IconPainter extends GlimpseDataPainter2D
             return size;
         }
 
+        public float getPlacementValue( int i, int component )
+        {
+            return positions[i * 4 + component];
+        }
+
         public void addPlacementValues( final IconGroup group )
         {
             group.iconPlacementValues.mutate( new Mutator( )
@@ -1171,6 +1463,11 @@ public class IconPainter extends GlimpseDataPainter2D
             return vertexCount;
         }
 
+        public float getPlacementValue( int i, int component )
+        {
+            return positions.get( offset + i * 4 + component );
+        }
+
         public void addPlacementValues( final IconGroup group )
         {
             group.iconPlacementValues.mutate( new Mutator( )
@@ -1193,11 +1490,247 @@ public class IconPainter extends GlimpseDataPainter2D
         }
     }
 
+    private abstract class SetIcons extends IconGroupChange
+    {
+        protected Object[] iconIds;
+        protected int[] iconIdIndex;
+        protected int size;
+
+        public SetIcons( Object[] iconIds, int[] iconIdIndex, int size )
+        {
+            if ( iconIdIndex.length < size ) throw new IllegalArgumentException( String.format( "Size of iconIdIndex array must be at least %d. Found: %d.", size, iconIdIndex.length ) );
+
+            this.iconIds = iconIds;
+            this.iconIdIndex = iconIdIndex;
+            this.size = size;
+        }
+
+        // writes size x/y/rotation/scale quadruplets at the current position of data
+        public abstract void putPlacementValues( FloatBuffer data );
+
+        // returns the x, y, rotation or scale (component 0 to 3) of the i-th icon
+        public abstract float getPlacementValue( int i, int component );
+
+        public void apply( IconGroup group )
+        {
+            group.reset( size );
+            group.currentSize = size;
+
+            // look up each distinct icon in the atlas once
+            final ImageData[] imageData = new ImageData[iconIds.length];
+            for ( int i = 0; i < size; i++ )
+            {
+                int k = iconIdIndex[i];
+                if ( imageData[k] == null ) imageData[k] = group.getAtlas( ).getImageData( iconIds[k] );
+                group.iconIds.add( iconIds[k] );
+            }
+
+            group.iconPlacementValues.mutate( new Mutator( )
+            {
+                @Override
+                public void mutate( FloatBuffer data, int length )
+                {
+                    data.limit( size * length );
+                    data.position( 0 );
+                    putPlacementValues( data );
+                }
+            } );
+
+            group.pixelCoordsValues.mutate( new Mutator( )
+            {
+                @Override
+                public void mutate( FloatBuffer data, int length )
+                {
+                    data.limit( size * length );
+                    data.position( 0 );
+                    for ( int i = 0; i < size; i++ )
+                    {
+                        ImageData image = imageData[iconIdIndex[i]];
+                        data.put( image.getWidth( ) + image.getBufferX( ) * 2 );
+                        data.put( image.getHeight( ) + image.getBufferY( ) * 2 );
+                        data.put( image.getCenterX( ) + image.getBufferX( ) );
+                        data.put( image.getCenterY( ) + image.getBufferY( ) );
+                    }
+                }
+            } );
+
+            group.texCoordsValues.mutate( new Mutator( )
+            {
+                @Override
+                public void mutate( FloatBuffer data, int length )
+                {
+                    data.limit( size * length );
+                    data.position( 0 );
+                    for ( int i = 0; i < size; i++ )
+                    {
+                        TextureCoords texData = imageData[iconIdIndex[i]].getTextureCoordinates( );
+                        data.put( texData.left( ) );
+                        data.put( texData.right( ) );
+                        data.put( texData.top( ) );
+                        data.put( texData.bottom( ) );
+                    }
+                }
+            } );
+
+            group.pickColorValues.mutate( new GLByteBuffer.Mutator( )
+            {
+                @Override
+                public void mutate( ByteBuffer data, int length )
+                {
+                    // see AddIcons, the index is encoded as r/g/b color components
+                    data.limit( size * length );
+                    data.position( 0 );
+                    for ( int index = 0; index < size; index++ )
+                    {
+                        data.put( ( byte ) ( ( index & 0x00ff0000 ) >> 16 ) );
+                        data.put( ( byte ) ( ( index & 0x0000ff00 ) >> 8 ) );
+                        data.put( ( byte ) ( ( index & 0x000000ff ) ) );
+                    }
+                }
+            } );
+
+            if ( group.pickIndex != null )
+            {
+                IconPickIndex pickIndex = new IconPickIndex( size );
+                for ( int i = 0; i < size; i++ )
+                {
+                    ImageData image = imageData[iconIdIndex[i]];
+                    float width = image.getWidth( ) + image.getBufferX( ) * 2;
+                    float height = image.getHeight( ) + image.getBufferY( ) * 2;
+                    float offsetX = image.getCenterX( ) + image.getBufferX( );
+                    float offsetY = image.getCenterY( ) + image.getBufferY( );
+                    pickIndex.add( iconIds[iconIdIndex[i]], getPlacementValue( i, 0 ), getPlacementValue( i, 1 ), getPlacementValue( i, 2 ), getPlacementValue( i, 3 ), width, height, offsetX, offsetY );
+                }
+                group.pickIndex = pickIndex;
+            }
+        }
+    }
+
+    private final class SetIconsSeparate extends SetIcons
+    {
+        float[] positionX;
+        float[] positionY;
+        float[] rotation;
+        float[] scale;
+
+        public SetIconsSeparate( Object[] iconIds, int[] iconIdIndex, float[] positionX, float[] positionY, float[] rotation, float[] scale, int size )
+        {
+            super( iconIds, iconIdIndex, size );
+
+            if ( positionX.length < size || positionY.length < size || rotation.length < size || scale.length < size ) throw new IllegalArgumentException( String.format( "Size of positionX, positionY, rotation and scale arrays must be at least %d.", size ) );
+
+            this.positionX = positionX;
+            this.positionY = positionY;
+            this.rotation = rotation;
+            this.scale = scale;
+        }
+
+        public void putPlacementValues( FloatBuffer data )
+        {
+            for ( int i = 0; i < size; i++ )
+            {
+                data.put( positionX[i] );
+                data.put( positionY[i] );
+                data.put( rotation[i] );
+                data.put( scale[i] );
+            }
+        }
+
+        public float getPlacementValue( int i, int component )
+        {
+            switch ( component )
+            {
+                case 0:
+                    return positionX[i];
+                case 1:
+                    return positionY[i];
+                case 2:
+                    return rotation[i];
+                default:
+                    return scale[i];
+            }
+        }
+    }
+
+    private final class SetIconsBuffer extends SetIcons
+    {
+        FloatBuffer positions;
+
+        public SetIconsBuffer( Object[] iconIds, int[] iconIdIndex, FloatBuffer positions, int size )
+        {
+            super( iconIds, iconIdIndex, size );
+
+            this.positions = positions;
+        }
+
+        public void putPlacementValues( FloatBuffer data )
+        {
+            int limit = positions.limit( );
+            positions.limit( size * 4 );
+            positions.position( 0 );
+            data.put( positions );
+            positions.limit( limit );
+        }
+
+        public float getPlacementValue( int i, int component )
+        {
+            return positions.get( i * 4 + component );
+        }
+    }
+
+    private final class UpdateIcons extends IconGroupChange
+    {
+        int fromIndex;
+        float[] positions;
+        int count;
+
+        public UpdateIcons( int fromIndex, float[] positions, int count )
+        {
+            if ( positions.length < count * 4 ) throw new IllegalArgumentException( String.format( "Size of position array must be at least %d. Found: %d.", count * 4, positions.length ) );
+
+            this.fromIndex = fromIndex;
+            this.positions = positions;
+            this.count = count;
+        }
+
+        public void apply( IconGroup group )
+        {
+            final int from = Math.max( 0, fromIndex );
+            final int to = Math.min( group.getCurrentSize( ), fromIndex + count );
+
+            if ( from >= to )
+            {
+                logger.warning( "Ignoring update of icons " + fromIndex + " to " + ( fromIndex + count ) + " in icon-group " + group.getId( ) + " of size " + group.getCurrentSize( ) );
+                return;
+            }
+
+            group.iconPlacementValues.mutate( new Mutator( )
+            {
+                @Override
+                public void mutate( FloatBuffer data, int length )
+                {
+                    data.position( from * length );
+                    data.put( positions, ( from - fromIndex ) * length, ( to - from ) * length );
+                }
+            }, from, to );
+
+            IconPickIndex pickIndex = group.pickIndex;
+            if ( pickIndex != null )
+            {
+                for ( int i = from; i < to; i++ )
+                {
+                    int j = ( i - fromIndex ) * 4;
+                    pickIndex.update( i, positions[j], positions[j + 1], positions[j + 2], positions[j + 3] );
+                }
+            }
+        }
+    }
+
     private final class IconGroup
     {
         private Object id;
 
-        private boolean visible;
+        private volatile boolean visible;
 
         private int currentSize;
         private int maxSize;
@@ -1211,7 +1744,10 @@ public class IconPainter extends GlimpseDataPainter2D
 
         private GLByteBuffer pickColorValues;
 
-        private Collection<AddIcons> addQueue;
+        private Collection<IconGroupChange> addQueue;
+
+        // cpu-side spatial index used for picking, null if disabled
+        private volatile IconPickIndex pickIndex;
 
         public IconGroup( Object id, TextureAtlas atlas, int initialIconSpace )
         {
@@ -1227,7 +1763,7 @@ public class IconPainter extends GlimpseDataPainter2D
             this.texCoordsValues = new GLFloatBuffer( initialIconSpace, 4 );
             this.pickColorValues = new GLByteBuffer( initialIconSpace, 3 );
 
-            this.addQueue = new LinkedList<AddIcons>( );
+            this.addQueue = new LinkedList<IconGroupChange>( );
 
             this.currentSize = 0;
             this.maxSize = initialIconSpace;
@@ -1303,11 +1839,69 @@ public class IconPainter extends GlimpseDataPainter2D
             addIcons( iconId, new float[] { positionX }, new float[] { positionY }, new float[] { rotation }, new float[]{ scale } );
         }
 
+        public void createPickIndex( )
+        {
+            final IconPickIndex index = new IconPickIndex( currentSize );
+
+            iconPlacementValues.mutate( new Mutator( )
+            {
+                @Override
+                public void mutate( final FloatBuffer placement, int length )
+                {
+                    pixelCoordsValues.mutate( new Mutator( )
+                    {
+                        @Override
+                        public void mutate( FloatBuffer pixelCoords, int length )
+                        {
+                            for ( int i = 0; i < currentSize; i++ )
+                            {
+                                int j = i * 4;
+                                index.add( iconIds.get( i ), placement.get( j ), placement.get( j + 1 ), placement.get( j + 2 ), placement.get( j + 3 ), pixelCoords.get( j ), pixelCoords.get( j + 1 ), pixelCoords.get( j + 2 ), pixelCoords.get( j + 3 ) );
+                            }
+                        }
+                    } );
+                }
+            } );
+
+            this.pickIndex = index;
+        }
+
+        public void queueChange( IconGroupChange change )
+        {
+            this.addQueue.add( change );
+        }
+
+        public void setIcons( SetIcons setIcons )
+        {
+            // the new icons replace anything still waiting to be added
+            this.addQueue.clear( );
+            this.addQueue.add( setIcons );
+        }
+
+        // sizes the buffers to hold exactly size icons (without copying their contents) and empties the group
+        public void reset( int size )
+        {
+            if ( size > this.maxSize )
+            {
+                this.dispose( );
+
+                this.iconPlacementValues = new GLFloatBuffer( size, 4 );
+                this.pixelCoordsValues = new GLFloatBuffer( size, 4 );
+                this.texCoordsValues = new GLFloatBuffer( size, 4 );
+                this.pickColorValues = new GLByteBuffer( size, 3 );
+
+                this.maxSize = size;
+            }
+
+            this.iconIds.clear( );
+            this.currentSize = 0;
+        }
+
         public void addQueuedIcons( )
         {
-            for ( AddIcons addIcons : addQueue )
+            for ( IconGroupChange change : addQueue )
             {
-                addIcons.addIcons( this );
+                change.apply( this );
             }
 
             addQueue.clear( );
@@ -0,0 +1,342 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.support.atlas.painter;
+
+import static java.lang.Math.abs;
+import static java.lang.Math.cos;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.Math.sin;
+import static java.lang.Math.sqrt;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.metsci.glimpse.util.primitives.IntsArray;
+import com.metsci.glimpse.util.quadtree.QuadTreeInts;
+
+/**
+ * A CPU-side spatial index of the icons in one {@link IconPainter} icon group, used to
+ * answer picking queries without reading back from the GPU.
+ *
+ * Icons are indexed by their position in data (axis) space. Because icon sizes are fixed
+ * in pixels, the data space extent of an icon depends on the axis scale and the painter's
+ * global scale, so both are supplied with each query. Candidates are found by searching
+ * the quadtree around the query, padded by the largest icon extent, then tested exactly
+ * against the icon's rotated and scaled screen footprint (the same quad drawn by the
+ * icon geometry shader). Transparent parts of icons are not distinguished.
+ *
+ * Icon indices match the order in which icons were added to the group. All methods are
+ * thread safe, so queries can run off of the OpenGL thread.
+ */
+public class IconPickIndex
+{
+    protected static final int MAX_BUCKET_SIZE = 500;
+
+    // x, y, rotation, scale, width, height, offsetX, offsetY
+    protected static final int FLOATS_PER_ICON = 8;
+
+    protected ReentrantLock lock;
+
+    protected QuadTreeInts index;
+
+    protected float[] data;
+    protected Object[] iconIds;
+    protected int size;
+
+    // largest distance in pixels (before global scaling) from an icon's position to a corner of its quad
+    protected float maxExtent;
+
+    public IconPickIndex( int initialSize )
+    {
+        this.lock = new ReentrantLock( );
+        this.data = new float[max( 1, initialSize ) * FLOATS_PER_ICON];
+        this.iconIds = new Object[max( 1, initialSize )];
+        this.index = new QuadTreeInts( MAX_BUCKET_SIZE )
+        {
+            @Override
+            public final float x( int i )
+            {
+                return data[i * FLOATS_PER_ICON];
+            }
+
+            @Override
+            public final float y( int i )
+            {
+                return data[i * FLOATS_PER_ICON + 1];
+            }
+        };
+    }
+
+    /**
+     * Adds an icon to the index. The icon receives the next index (equal to {@link #size()}).
+     *
+     * @param iconId the icon identifier in the texture atlas
+     * @param x the icon position in axis space
+     * @param y the icon position in axis space
+     * @param rotation rotation around the icon position (CCW radians)
+     * @param scale the per-icon scale
+     * @param width the width in pixels of the icon image, including its border
+     * @param height the height in pixels of the icon image, including its border
+     * @param offsetX the distance in pixels from the left edge of the image to the icon position
+     * @param offsetY the distance in pixels from the bottom edge of the image to the icon position
+     */
+    public void add( Object iconId, float x, float y, float rotation, float scale, float width, float height, float offsetX, float offsetY )
+    {
+        lock.lock( );
+        try
+        {
+            if ( size == iconIds.length )
+            {
+                int newSize = max( size + 1, size * 2 );
+                data = Arrays.copyOf( data, newSize * FLOATS_PER_ICON );
+                iconIds = Arrays.copyOf( iconIds, newSize );
+            }
+
+            int i = size * FLOATS_PER_ICON;
+            data[i] = x;
+            data[i + 1] = y;
+            data[i + 2] = rotation;
+            data[i + 3] = scale;
+            data[i + 4] = width;
+            data[i + 5] = height;
+            data[i + 6] = offsetX;
+            data[i + 7] = offsetY;
+            iconIds[size] = iconId;
+
+            growMaxExtent( size );
+
+            index.add( size++ );
+        }
+        finally
+        {
+            lock.unlock( );
+        }
+    }
+
+    /**
+     * Changes the position, rotation and scale of an icon already in the index.
+     */
+    public void update( int i, float x, float y, float rotation, float scale )
+    {
+        lock.lock( );
+        try
+        {
+            if ( i < 0 || i >= size ) throw new IndexOutOfBoundsException( "Index: " + i + ", Size: " + size );
+
+            // remove before moving, the quadtree finds the icon by its current position
+            int j = i * FLOATS_PER_ICON;
+            if ( !Float.isNaN( data[j] ) && !Float.isNaN( data[j + 1] ) ) index.remove( i );
+
+            data[j] = x;
+            data[j + 1] = y;
+            data[j + 2] = rotation;
+            data[j + 3] = scale;
+
+            growMaxExtent( i );
+
+            index.add( i );
+        }
+        finally
+        {
+            lock.unlock( );
+        }
+    }
+
+    protected void growMaxExtent( int i )
+    {
+        int j = i * FLOATS_PER_ICON;
+        float scale = data[j + 3];
+        float width = data[j + 4];
+        float height = data[j + 5];
+        float offsetX = data[j + 6];
+        float offsetY = data[j + 7];
+
+        float extentX = max( abs( offsetX ), abs( width - offsetX ) );
+        float extentY = max( abs( offsetY ), abs( height - offsetY ) );
+        maxExtent = max( maxExtent, abs( scale ) * ( float ) sqrt( extentX * extentX + extentY * extentY ) );
+    }
+
+    public int size( )
+    {
+        lock.lock( );
+        try
+        {
+            return size;
+        }
+        finally
+        {
+            lock.unlock( );
+        }
+    }
+
+    public Object getIconId( int index )
+    {
+        lock.lock( );
+        try
+        {
+            return iconIds[index];
+        }
+        finally
+        {
+            lock.unlock( );
+        }
+    }
+
+    /**
+     * Finds the icons whose screen footprint lies within {@code tolerance} pixels of the given point.
+     *
+     * @param x the query point in axis space
+     * @param y the query point in axis space
+     * @param pixelsPerValueX the pixels per axis unit of the x axis
+     * @param pixelsPerValueY the pixels per axis unit of the y axis
+     * @param globalScale the icon painter's global scale
+     * @param tolerance the pick tolerance in pixels
+     * @param results the indices of the picked icons are appended to this array
+     * @return the number of picked icons
+     */
+    public int search( double x, double y, double pixelsPerValueX, double pixelsPerValueY, float globalScale, float tolerance, IntsArray results )
+    {
+        return search0( x, x, y, y, pixelsPerValueX, pixelsPerValueY, globalScale, tolerance, true, results );
+    }
+
+    /**
+     * Finds the icons whose screen footprint comes within {@code tolerance} pixels of the given axis
+     * space rectangle. Rotated icons are tested using the bounding box of their rotated quad.
+     *
+     * @see #search(double, double, double, double, float, float, IntsArray)
+     */
+    public int search( double minX, double maxX, double minY, double maxY, double pixelsPerValueX, double pixelsPerValueY, float globalScale, float tolerance, IntsArray results )
+    {
+        return search0( minX, maxX, minY, maxY, pixelsPerValueX, pixelsPerValueY, globalScale, tolerance, false, results );
+    }
+
+    protected int search0( double minX, double maxX, double minY, double maxY, double pixelsPerValueX, double pixelsPerValueY, float globalScale, float tolerance, boolean point, IntsArray results )
+    {
+        lock.lock( );
+        try
+        {
+            if ( size == 0 ) return 0;
+
+            double ppvX = abs( pixelsPerValueX );
+            double ppvY = abs( pixelsPerValueY );
+
+            // pad the query by the largest icon so that every candidate has its position inside the search box
+            double padPixels = maxExtent * abs( globalScale ) + tolerance;
+            double padX = padPixels / ppvX;
+            double padY = padPixels / ppvY;
+
+            int start = results.n;
+            int found = index.search( ( float ) ( minX - padX ), ( float ) ( maxX + padX ), ( float ) ( minY - padY ), ( float ) ( maxY + padY ), results );
+
+            // filter the candidates in place by their exact footprint
+            int n = start;
+            for ( int j = start; j < start + found; j++ )
+            {
+                int i = results.a[j];
+                if ( intersects( i, minX, maxX, minY, maxY, ppvX, ppvY, globalScale, tolerance, point ) )
+                {
+                    results.a[n++] = i;
+                }
+            }
+            results.n = n;
+
+            return n - start;
+        }
+        finally
+        {
+            lock.unlock( );
+        }
+    }
+
+    protected boolean intersects( int icon, double minX, double maxX, double minY, double maxY, double ppvX, double ppvY, float globalScale, float tolerance, boolean point )
+    {
+        int i = icon * FLOATS_PER_ICON;
+        float x = data[i];
+        float y = data[i + 1];
+        float rotation = data[i + 2];
+        float scale = data[i + 3] * globalScale;
+        float width = data[i + 4];
+        float height = data[i + 5];
+        float offsetX = data[i + 6];
+        float offsetY = data[i + 7];
+
+        if ( scale == 0 ) return false;
+
+        // query rectangle in pixels relative to the icon position
+        double qMinX = ( minX - x ) * ppvX - tolerance;
+        double qMaxX = ( maxX - x ) * ppvX + tolerance;
+        double qMinY = ( minY - y ) * ppvY - tolerance;
+        double qMaxY = ( maxY - y ) * ppvY + tolerance;
+
+        if ( point || rotation == 0 )
+        {
+            // rotate the query (a single point, or a rectangle when the icon is unrotated) into
+            // the icon frame, where the icon occupies [-offsetX, width-offsetX] x [-offsetY, height-offsetY]
+            double cx = ( qMinX + qMaxX ) / 2;
+            double cy = ( qMinY + qMaxY ) / 2;
+            double hx = ( qMaxX - qMinX ) / 2;
+            double hy = ( qMaxY - qMinY ) / 2;
+
+            double cosa = cos( rotation );
+            double sina = sin( rotation );
+            double u = ( cx * cosa + cy * sina ) / scale;
+            double v = ( -cx * sina + cy * cosa ) / scale;
+            double hu = ( hx * abs( cosa ) + hy * abs( sina ) ) / abs( scale );
+            double hv = ( hx * abs( sina ) + hy * abs( cosa ) ) / abs( scale );
+
+            return u + hu >= -offsetX && u - hu <= width - offsetX && v + hv >= -offsetY && v - hv <= height - offsetY;
+        }
+        else
+        {
+            // compare against the bounding box of the rotated icon quad
+            double cosa = cos( rotation );
+            double sina = sin( rotation );
+
+            double bMinX = Double.POSITIVE_INFINITY;
+            double bMaxX = Double.NEGATIVE_INFINITY;
+            double bMinY = Double.POSITIVE_INFINITY;
+            double bMaxY = Double.NEGATIVE_INFINITY;
+
+            for ( int corner = 0; corner < 4; corner++ )
+            {
+                double px = ( ( corner & 1 ) == 0 ? -offsetX : width - offsetX ) * scale;
+                double py = ( ( corner & 2 ) == 0 ? -offsetY : height - offsetY ) * scale;
+
+                double rx = px * cosa - py * sina;
+                double ry = px * sina + py * cosa;
+
+                bMinX = min( bMinX, rx );
+                bMaxX = max( bMaxX, rx );
+                bMinY = min( bMinY, ry );
+                bMaxY = max( bMaxY, ry );
+            }
+
+            return bMaxX >= qMinX && bMinX <= qMaxX && bMaxY >= qMinY && bMinY <= qMaxY;
+        }
+    }
+}
@@ -171,6 +171,8 @@ public class AttributedTextRenderer
     static final int kTotalBufferSizeBytesTex = kTotalBufferSizeCoordsTex * 4;
     static final int kSizeInBytes_OneVertices_VertexData = kCoordsPerVertVerts * 4;
     static final int kSizeInBytes_OneVertices_TexData = kCoordsPerVertTex * 4;
+    static final int kCoordsPerVertColor = 4;
+    static final int kSizeInBytes_OneVertices_ColorData = kCoordsPerVertColor * 4;
     private Font font;
     private boolean antialiased;
     private boolean useFractionalMetrics;
@@ -223,6 +225,25 @@ public class AttributedTextRenderer
     // Whether GL_LINEAR filtering is enabled for the backing store
     private boolean smoothing = true;
 
+    // Whether strings are laid out from cached glyph metrics and all
+    // glyph quads in a begin / end pair are drawn in one batch
+    private boolean glyphAtlasMode = false;
+
+    // The current color, premultiplied by alpha as in TextureRenderer,
+    // recorded per vertex when drawing batches
+    private float batchR = 1;
+    private float batchG = 1;
+    private float batchB = 1;
+    private float batchA = 1;
+    private float[] colorComponents = new float[4];
+
+    // Cache and drawing statistics
+    private long cacheHits;
+    private long cacheMisses;
+    private long evictions;
+    private int glyphsDrawn;
+    private int glyphsDrawnLastFrame;
+
     /** Creates a new TextRenderer with the given font, using no
         antialiasing or fractional metrics, and the default
         RenderDelegate. Equivalent to <code>TextRenderer(font, false,
@@ -454,7 +475,7 @@ public class AttributedTextRenderer
     */
     public void setColor( Color color ) throws GLException
     {
-        boolean noNeedForFlush = ( haveCachedColor && ( cachedColor != null ) && color.equals( cachedColor ) );
+        boolean noNeedForFlush = glyphAtlasMode || ( haveCachedColor && ( cachedColor != null ) && color.equals( cachedColor ) );
 
         if ( !noNeedForFlush )
         {
@@ -464,6 +485,9 @@ public class AttributedTextRenderer
         getBackingStore( ).setColor( color );
         haveCachedColor = true;
         cachedColor = color;
+
+        color.getRGBComponents( colorComponents );
+        setBatchColor( colorComponents[0], colorComponents[1], colorComponents[2], colorComponents[3] );
     }
 
     /** Changes the current color of this TextRenderer to the supplied
@@ -483,7 +507,7 @@ public class AttributedTextRenderer
     */
     public void setColor( float r, float g, float b, float a ) throws GLException
     {
-        boolean noNeedForFlush = ( haveCachedColor && ( cachedColor == null ) && ( r == cachedR ) && ( g == cachedG ) && ( b == cachedB ) && ( a == cachedA ) );
+        boolean noNeedForFlush = glyphAtlasMode || ( haveCachedColor && ( cachedColor == null ) && ( r == cachedR ) && ( g == cachedG ) && ( b == cachedB ) && ( a == cachedA ) );
 
         if ( !noNeedForFlush )
         {
@@ -497,6 +521,16 @@ public class AttributedTextRenderer
         cachedB = b;
         cachedA = a;
         cachedColor = null;
+
+        setBatchColor( r, g, b, a );
+    }
+
+    private void setBatchColor( float r, float g, float b, float a )
+    {
+        batchR = r * a;
+        batchG = g * a;
+        batchB = b * a;
+        batchA = a;
     }
 
     /** Draws the supplied CharSequence at the desired location using
@@ -759,6 +793,9 @@ public class AttributedTextRenderer
 
         inBeginEndPair = false;
 
+        glyphsDrawnLastFrame = glyphsDrawn;
+        glyphsDrawn = 0;
+
         GL2 gl = GLU.getCurrentGL( ).getGL2( );
 
         // Pop client attrib bits used by the pipelined quad renderer
@@ -824,6 +861,8 @@ public class AttributedTextRenderer
             }
         } );
 
+        evictions += deadRects.size( );
+
         for ( Iterator iter = deadRects.iterator( ); iter.hasNext( ); )
         {
             Rect r = ( Rect ) iter.next( );
@@ -866,7 +905,12 @@ public class AttributedTextRenderer
 
     private void internal_draw3D( CharSequence str, float x, float y, float z, float scaleFactor )
     {
-        List/*<Glyph>*/glyphs = mGlyphProducer.getGlyphs( str );
+        List/*<Glyph>*/glyphs = glyphAtlasMode ? mGlyphProducer.getCachedGlyphs( str ) : null;
+        if ( glyphs == null )
+        {
+            glyphs = mGlyphProducer.getGlyphs( str );
+        }
+
         for ( Iterator iter = glyphs.iterator( ); iter.hasNext( ); )
         {
             Glyph glyph = ( Glyph ) iter.next( );
@@ -899,8 +943,16 @@ public class AttributedTextRenderer
         // Look up the string on the backing store
         Rect rect = ( Rect ) stringLocations.get( str2.toString( ) );
 
-        if ( rect == null )
+        glyphsDrawn += str2.getIterator( ).getEndIndex( );
+
+        if ( rect != null )
+        {
+            cacheHits++;
+        }
+        else
         {
+            cacheMisses++;
+
             // Rasterize this string and place it on the backing store
             Graphics2D g = getGraphics2D( );
             Rectangle2D origBBox = preNormalize( renderDelegate.getBounds( str2, font, getFontRenderContext( ) ) );
@@ -970,8 +1022,16 @@ public class AttributedTextRenderer
         // Look up the string on the backing store
         Rect rect = ( Rect ) stringLocations.get( curStr );
 
-        if ( rect == null )
+        glyphsDrawn += curStr.length( );
+
+        if ( rect != null )
         {
+            cacheHits++;
+        }
+        else
+        {
+            cacheMisses++;
+
             // Rasterize this string and place it on the backing store
             Graphics2D g = getGraphics2D( );
             Rectangle2D origBBox = preNormalize( renderDelegate.getBounds( curStr, font, getFontRenderContext( ) ) );
@@ -1368,7 +1428,21 @@ public class AttributedTextRenderer
 
         public boolean additionFailed( Rect cause, int attemptNumber )
         {
+            if ( inBeginEndPair )
+            {
+                // Draw any outstanding glyphs, which in glyph atlas mode may
+                // refer to any entry on the backing store, before they are cleared
+                flush( );
+            }
+
             // Heavy hammer -- might consider doing something different
+            packer.visit( new RectVisitor( )
+            {
+                public void visit( Rect rect )
+                {
+                    evictions++;
+                }
+            } );
             packer.clear( );
             stringLocations.clear( );
             mGlyphProducer.clearAllCacheEntries( );
@@ -1655,8 +1729,15 @@ public class AttributedTextRenderer
             // This is the code path taken for individual glyphs
             if ( glyphRectForTextureMapping == null )
             {
+                cacheMisses++;
                 upload( );
             }
+            else
+            {
+                cacheHits++;
+            }
+
+            glyphsDrawn++;
 
             try
             {
@@ -1690,6 +1771,11 @@ public class AttributedTextRenderer
                 float tx2 = xScale * ( float ) ( texturex + width ) / ( float ) renderer.getWidth( );
                 float ty2 = yScale * ( 1.0f - ( ( float ) ( texturey + height ) / ( float ) renderer.getHeight( ) ) );
 
+                if ( glyphAtlasMode )
+                {
+                    mPipelinedQuadRenderer.glColor4f( batchR, batchG, batchB, batchA );
+                }
+
                 mPipelinedQuadRenderer.glTexCoord2f( tx1, ty1 );
                 mPipelinedQuadRenderer.glVertex3f( x, y, z );
                 mPipelinedQuadRenderer.glTexCoord2f( tx2, ty1 );
@@ -1789,6 +1875,56 @@ public class AttributedTextRenderer
             return glyphsOutput;
         }
 
+        // Lays the string out from cached glyphs (creating any missing
+        // single glyphs) without building a GlyphVector for the whole
+        // string. Returns null if the string needs the full layout.
+        public List/*<Glyph>*/getCachedGlyphs( CharSequence inString )
+        {
+            if ( font.hasLayoutAttributes( ) || DISABLE_GLYPH_CACHE )
+            {
+                return null;
+            }
+
+            glyphsOutput.clear( );
+            int length = inString.length( );
+            for ( int i = 0; i < length; i++ )
+            {
+                char unicodeID = inString.charAt( i );
+                if ( !isSimple( unicodeID ) )
+                {
+                    return null;
+                }
+
+                Glyph glyph = getGlyph( unicodeID );
+                if ( glyph == null )
+                {
+                    return null;
+                }
+
+                glyphsOutput.add( glyph );
+            }
+            return glyphsOutput;
+        }
+
+        // Whether the character lays out independently of its neighbors
+        private boolean isSimple( char unicodeID )
+        {
+            if ( unicodeID >= unicodes2Glyphs.length || Character.isISOControl( unicodeID ) )
+            {
+                return false;
+            }
+
+            switch ( Character.getType( unicodeID ) )
+            {
+                case Character.NON_SPACING_MARK:
+                case Character.ENCLOSING_MARK:
+                case Character.COMBINING_SPACING_MARK:
+                    return false;
+                default:
+                    return Character.getDirectionality( unicodeID ) == Character.DIRECTIONALITY_LEFT_TO_RIGHT || !Character.isLetter( unicodeID );
+            }
+        }
+
         public List/*<Glyph>*/getGlyphs( CharSequence inString )
         {
             glyphsOutput.clear( );
@@ -1935,15 +2071,23 @@ public class AttributedTextRenderer
         int mOutstandingGlyphsVerticesPipeline = 0;
         FloatBuffer mTexCoords;
         FloatBuffer mVertCoords;
+        FloatBuffer mColors;
         boolean usingVBOs;
         int mVBO_For_ResuableTileVertices;
         int mVBO_For_ResuableTileTexCoords;
+        int mVBO_For_ResuableTileColors;
+        // Number of vertices the client and VBO buffers can hold; grows
+        // in glyph atlas mode so that a whole frame is drawn at once
+        int mCapacityVerts = kTotalBufferSizeVerts;
+        int mVBOCapacityVerts = kTotalBufferSizeVerts;
+        boolean mHaveColors;
 
         Pipelined_QuadRenderer( )
         {
             GL2 gl = GLU.getCurrentGL( ).getGL2( );
             mVertCoords = Buffers.newDirectFloatBuffer( kTotalBufferSizeCoordsVerts );
             mTexCoords = Buffers.newDirectFloatBuffer( kTotalBufferSizeCoordsTex );
+            mColors = Buffers.newDirectFloatBuffer( kTotalBufferSizeVerts * kCoordsPerVertColor );
 
             usingVBOs = is15Available( gl );
 
@@ -1951,17 +2095,21 @@ public class AttributedTextRenderer
             {
                 try
                 {
-                    int[] vbos = new int[2];
-                    gl.glGenBuffers( 2, IntBuffer.wrap( vbos ) );
+                    int[] vbos = new int[3];
+                    gl.glGenBuffers( 3, IntBuffer.wrap( vbos ) );
 
                     mVBO_For_ResuableTileVertices = vbos[0];
                     mVBO_For_ResuableTileTexCoords = vbos[1];
+                    mVBO_For_ResuableTileColors = vbos[2];
 
                     gl.glBindBuffer( GL2.GL_ARRAY_BUFFER, mVBO_For_ResuableTileVertices );
                     gl.glBufferData( GL2.GL_ARRAY_BUFFER, kTotalBufferSizeBytesVerts, null, GL2.GL_STREAM_DRAW ); // stream draw because this is a single quad use pipeline
 
                     gl.glBindBuffer( GL2.GL_ARRAY_BUFFER, mVBO_For_ResuableTileTexCoords );
                     gl.glBufferData( GL2.GL_ARRAY_BUFFER, kTotalBufferSizeBytesTex, null, GL2.GL_STREAM_DRAW ); // stream draw because this is a single quad use pipeline
+
+                    gl.glBindBuffer( GL2.GL_ARRAY_BUFFER, mVBO_For_ResuableTileColors );
+                    gl.glBufferData( GL2.GL_ARRAY_BUFFER, kTotalBufferSizeVerts * kSizeInBytes_OneVertices_ColorData, null, GL2.GL_STREAM_DRAW );
                 }
                 catch ( Exception e )
                 {
@@ -1971,6 +2119,25 @@ public class AttributedTextRenderer
             }
         }
 
+        // Sets the color of the next four vertices (one quad)
+        public void glColor4f( float r, float g, float b, float a )
+        {
+            if ( !mHaveColors )
+            {
+                // Quads already in the pipeline use the current color
+                for ( int i = 0; i < mOutstandingGlyphsVerticesPipeline; i++ )
+                {
+                    mColors.put( batchR ).put( batchG ).put( batchB ).put( batchA );
+                }
+                mHaveColors = true;
+            }
+
+            for ( int i = 0; i < kVertsPerQuad; i++ )
+            {
+                mColors.put( r ).put( g ).put( b ).put( a );
+            }
+        }
+
         public void glTexCoord2f( float v, float v1 )
         {
             mTexCoords.put( v );
@@ -1985,12 +2152,36 @@ public class AttributedTextRenderer
 
             mOutstandingGlyphsVerticesPipeline++;
 
-            if ( mOutstandingGlyphsVerticesPipeline >= kTotalBufferSizeVerts )
+            if ( mOutstandingGlyphsVerticesPipeline >= mCapacityVerts )
             {
-                this.draw( );
+                if ( glyphAtlasMode )
+                {
+                    grow( );
+                }
+                else
+                {
+                    this.draw( );
+                }
             }
         }
 
+        // Doubles the capacity of the client-side buffers, keeping their contents
+        private void grow( )
+        {
+            mCapacityVerts *= 2;
+            mVertCoords = grow( mVertCoords, mCapacityVerts * kCoordsPerVertVerts );
+            mTexCoords = grow( mTexCoords, mCapacityVerts * kCoordsPerVertTex );
+            mColors = grow( mColors, mCapacityVerts * kCoordsPerVertColor );
+        }
+
+        private FloatBuffer grow( FloatBuffer buffer, int capacity )
+        {
+            FloatBuffer newBuffer = Buffers.newDirectFloatBuffer( capacity );
+            buffer.flip( );
+            newBuffer.put( buffer );
+            return newBuffer;
+        }
+
         private void draw( )
         {
             if ( useVertexArrays )
@@ -2014,6 +2205,22 @@ public class AttributedTextRenderer
 
                 mVertCoords.rewind( );
                 mTexCoords.rewind( );
+                mColors.rewind( );
+
+                if ( usingVBOs && mOutstandingGlyphsVerticesPipeline > mVBOCapacityVerts )
+                {
+                    // Orphan and enlarge the VBOs to hold the whole batch
+                    mVBOCapacityVerts = mCapacityVerts;
+
+                    gl.glBindBuffer( GL2.GL_ARRAY_BUFFER, mVBO_For_ResuableTileVertices );
+                    gl.glBufferData( GL2.GL_ARRAY_BUFFER, mVBOCapacityVerts * kSizeInBytes_OneVertices_VertexData, null, GL2.GL_STREAM_DRAW );
+
+                    gl.glBindBuffer( GL2.GL_ARRAY_BUFFER, mVBO_For_ResuableTileTexCoords );
+                    gl.glBufferData( GL2.GL_ARRAY_BUFFER, mVBOCapacityVerts * kSizeInBytes_OneVertices_TexData, null, GL2.GL_STREAM_DRAW );
+
+                    gl.glBindBuffer( GL2.GL_ARRAY_BUFFER, mVBO_For_ResuableTileColors );
+                    gl.glBufferData( GL2.GL_ARRAY_BUFFER, mVBOCapacityVerts * kSizeInBytes_OneVertices_ColorData, null, GL2.GL_STREAM_DRAW );
+                }
 
                 gl.glEnableClientState( GL2.GL_VERTEX_ARRAY );
 
@@ -2041,14 +2248,44 @@ public class AttributedTextRenderer
                     gl.glTexCoordPointer( 2, GL2.GL_FLOAT, 0, mTexCoords );
                 }
 
+                if ( mHaveColors )
+                {
+                    gl.glEnableClientState( GL2.GL_COLOR_ARRAY );
+
+                    if ( usingVBOs )
+                    {
+                        gl.glBindBuffer( GL2.GL_ARRAY_BUFFER, mVBO_For_ResuableTileColors );
+                        gl.glBufferSubData( GL2.GL_ARRAY_BUFFER, 0, mOutstandingGlyphsVerticesPipeline * kSizeInBytes_OneVertices_ColorData, mColors );
+                        gl.glColorPointer( 4, GL2.GL_FLOAT, 0, 0 );
+                    }
+                    else
+                    {
+                        gl.glColorPointer( 4, GL2.GL_FLOAT, 0, mColors );
+                    }
+                }
+
                 gl.glDrawArrays( GL2.GL_QUADS, 0, mOutstandingGlyphsVerticesPipeline );
 
+                if ( mHaveColors )
+                {
+                    gl.glDisableClientState( GL2.GL_COLOR_ARRAY );
+                    restoreColor( gl );
+                }
+
                 mVertCoords.rewind( );
                 mTexCoords.rewind( );
+                mColors.rewind( );
+                mHaveColors = false;
                 mOutstandingGlyphsVerticesPipeline = 0;
             }
         }
 
+        // The current color is undefined after drawing with a color array
+        private void restoreColor( GL2 gl )
+        {
+            gl.glColor4f( batchR, batchG, batchB, batchA );
+        }
+
         private void drawIMMEDIATE( )
         {
             if ( mOutstandingGlyphsVerticesPipeline > 0 )
@@ -2064,9 +2301,17 @@ public class AttributedTextRenderer
                     int numberOfQuads = mOutstandingGlyphsVerticesPipeline / 4;
                     mVertCoords.rewind( );
                     mTexCoords.rewind( );
+                    mColors.rewind( );
 
                     for ( int i = 0; i < numberOfQuads; i++ )
                     {
+                        if ( mHaveColors )
+                        {
+                            // all four vertices of a quad share a color
+                            gl.glColor4f( mColors.get( ), mColors.get( ), mColors.get( ), mColors.get( ) );
+                            mColors.position( mColors.position( ) + 3 * kCoordsPerVertColor );
+                        }
+
                         gl.glTexCoord2f( mTexCoords.get( ), mTexCoords.get( ) );
                         gl.glVertex3f( mVertCoords.get( ), mVertCoords.get( ), mVertCoords.get( ) );
 
@@ -2087,8 +2332,16 @@ public class AttributedTextRenderer
                 finally
                 {
                     gl.glEnd( );
+
+                    if ( mHaveColors )
+                    {
+                        restoreColor( gl );
+                    }
+
                     mVertCoords.rewind( );
                     mTexCoords.rewind( );
+                    mColors.rewind( );
+                    mHaveColors = false;
                     mOutstandingGlyphsVerticesPipeline = 0;
                 }
             }
@@ -2155,6 +2408,94 @@ public class AttributedTextRenderer
         }
     }
 
+    /**
+     * Sets whether the renderer runs in glyph atlas mode. In this mode,
+     * strings which do not need complex layout are laid out from the
+     * cached metrics of individual glyphs (without creating a
+     * GlyphVector for every string drawn), and the quads for all the
+     * glyphs drawn between {@link #beginRendering beginRendering} and
+     * {@link #endRendering endRendering} are written into one vertex
+     * buffer (with a per-vertex color, so that color changes do not
+     * flush) and drawn in one call. This avoids rasterizing and
+     * caching each distinct string, which suits labels that change
+     * every frame. Strings needing complex layout, and characters
+     * outside the glyph cache, are still cached as whole strings.
+     * As before, {@link #flush flush} must be called before changing
+     * OpenGL state such as the modelview matrix between draw calls.
+     * Defaults to false.
+     */
+    public void setGlyphAtlasMode( boolean glyphAtlasMode )
+    {
+        flushGlyphPipeline( );
+        this.glyphAtlasMode = glyphAtlasMode;
+    }
+
+    /**
+     * Indicates whether the renderer runs in glyph atlas mode.
+     * Defaults to false.
+     */
+    public boolean getGlyphAtlasMode( )
+    {
+        return glyphAtlasMode;
+    }
+
+    /**
+     * Returns the number of glyphs and strings which were drawn from
+     * the backing store without being rasterized.
+     */
+    public long getCacheHits( )
+    {
+        return cacheHits;
+    }
+
+    /**
+     * Returns the number of glyphs and strings which had to be
+     * rasterized onto the backing store before being drawn.
+     */
+    public long getCacheMisses( )
+    {
+        return cacheMisses;
+    }
+
+    /**
+     * Returns the fraction of glyph and string draws which were
+     * cache hits, or NaN if nothing has been drawn.
+     */
+    public double getCacheHitRate( )
+    {
+        long total = cacheHits + cacheMisses;
+        return total == 0 ? Double.NaN : cacheHits / ( double ) total;
+    }
+
+    /**
+     * Returns the number of glyphs and strings removed from the
+     * backing store to make room for others.
+     */
+    public long getEvictions( )
+    {
+        return evictions;
+    }
+
+    /**
+     * Returns the number of characters drawn during the most recent
+     * {@link #beginRendering beginRendering} / {@link #endRendering
+     * endRendering} pair.
+     */
+    public int getGlyphsDrawnLastFrame( )
+    {
+        return glyphsDrawnLastFrame;
+    }
+
+    /**
+     * Resets the cache hit, miss and eviction counters.
+     */
+    public void resetCounters( )
+    {
+        cacheHits = 0;
+        cacheMisses = 0;
+        evictions = 0;
+    }
+
     /**
      * Sets whether vertex arrays are being used internally for
      * rendering, or whether text is rendered using the OpenGL
@@ -0,0 +1,628 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.support.interval;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An index of values with long [start, end] time intervals, kept in primitive arrays
+ * sorted by start time.
+ *
+ * <p>Each block of {@link #BLOCK_SIZE} consecutive entries is summarized by the largest
+ * end time it contains, and a segment tree over the blocks allows a query to skip every
+ * block which ends before the query window. A query therefore costs roughly O(log n + k) for k
+ * results and, when made through {@link #visit(long, long, IntervalVisitor)}, allocates
+ * nothing. Results are always produced in order of increasing start time.</p>
+ *
+ * <p>Values arriving in start time order are appended to the sorted arrays. Other values go
+ * into a small sorted buffer of pending entries which queries merge into their results,
+ * and removed values leave gaps which queries skip. Once there are more than about sqrt(n)
+ * pending entries or gaps, they are merged into the sorted arrays in a single O(n) pass, so
+ * adding or removing a value in any order costs amortized O(sqrt(n)) rather than an O(n)
+ * array shift. The block summaries are kept up to date by each modification, so queries
+ * never change the state of the index. Building a large index is fastest when values are
+ * added in start time order or through {@link #addAll(Collection)}.</p>
+ *
+ * <p>Unlike {@link IntervalQuadTree}, this class does not keep a set of its values:
+ * a value must not be added again without first being removed. The start and end times
+ * of a value must not change while it is in the index.</p>
+ */
+public abstract class LongIntervalIndex<V>
+{
+    public static interface IntervalVisitor<V>
+    {
+        void visit( V value, long start, long end );
+    }
+
+    protected static final int BLOCK_SIZE = 32;
+    protected static final int INITIAL_CAPACITY = 16;
+    protected static final int MIN_BUFFER_SIZE = 64;
+
+    // entries sorted by start time (removed entries have null values until the next merge)
+    protected long[] starts;
+    protected long[] ends;
+    protected Object[] values;
+    protected int mainSize;
+    protected int removedCount;
+
+    // recently added entries which did not fit at the end of the main arrays,
+    // sorted by start time and merged into the main arrays once there are enough of them
+    protected long[] pendingStarts;
+    protected long[] pendingEnds;
+    protected Object[] pendingValues;
+    protected int pendingSize;
+
+    // segment tree over blocks of BLOCK_SIZE main entries, storing the maximum end time
+    // in each subtree (leaves start at index treeLeaves)
+    protected long[] treeMaxEnd;
+    protected int treeLeaves;
+    // number of leading leaves which may hold entries (the rest hold Long.MIN_VALUE)
+    protected int treeBlocks;
+    // main entries at or after this index have changed since the tree was last updated
+    protected int dirtyFrom;
+
+    public LongIntervalIndex( )
+    {
+        this.starts = new long[INITIAL_CAPACITY];
+        this.ends = new long[INITIAL_CAPACITY];
+        this.values = new Object[INITIAL_CAPACITY];
+        this.pendingStarts = new long[INITIAL_CAPACITY];
+        this.pendingEnds = new long[INITIAL_CAPACITY];
+        this.pendingValues = new Object[INITIAL_CAPACITY];
+        this.treeMaxEnd = new long[] { Long.MIN_VALUE, Long.MIN_VALUE };
+        this.treeLeaves = 1;
+        this.treeBlocks = 0;
+        this.mainSize = 0;
+        this.removedCount = 0;
+        this.pendingSize = 0;
+        this.dirtyFrom = 0;
+    }
+
+    public abstract long getStartTimeMillis( V v );
+
+    public abstract long getEndTimeMillis( V v );
+
+    public int size( )
+    {
+        return mainSize - removedCount + pendingSize;
+    }
+
+    public boolean isEmpty( )
+    {
+        return size( ) == 0;
+    }
+
+    public void clear( )
+    {
+        Arrays.fill( values, 0, mainSize, null );
+        Arrays.fill( pendingValues, 0, pendingSize, null );
+        mainSize = 0;
+        removedCount = 0;
+        pendingSize = 0;
+        dirtyFrom = 0;
+        updateTree( );
+    }
+
+    public void add( V value )
+    {
+        long start = getStartTimeMillis( value );
+        long end = getEndTimeMillis( value );
+
+        // values arriving in start time order are appended directly
+        if ( pendingSize == 0 && ( mainSize == 0 || starts[mainSize - 1] <= start ) )
+        {
+            ensureCapacity( mainSize + 1 );
+            starts[mainSize] = start;
+            ends[mainSize] = end;
+            values[mainSize] = value;
+            mainSize++;
+            appendToTree( end );
+            return;
+        }
+
+        // otherwise insert into the pending entries, after any with the same start
+        int i = firstIndexAfter( pendingStarts, pendingSize, start );
+
+        if ( pendingSize == pendingStarts.length )
+        {
+            int newCapacity = pendingSize * 2;
+            pendingStarts = Arrays.copyOf( pendingStarts, newCapacity );
+            pendingEnds = Arrays.copyOf( pendingEnds, newCapacity );
+            pendingValues = Arrays.copyOf( pendingValues, newCapacity );
+        }
+
+        int moved = pendingSize - i;
+        if ( moved > 0 )
+        {
+            System.arraycopy( pendingStarts, i, pendingStarts, i + 1, moved );
+            System.arraycopy( pendingEnds, i, pendingEnds, i + 1, moved );
+            System.arraycopy( pendingValues, i, pendingValues, i + 1, moved );
+        }
+
+        pendingStarts[i] = start;
+        pendingEnds[i] = end;
+        pendingValues[i] = value;
+        pendingSize++;
+
+        if ( pendingSize > bufferSize( ) ) merge( );
+    }
+
+    /**
+     * Adds many values at once. The values are sorted together and merged into the index
+     * in a single pass, which is much faster than adding them one at a time in random order.
+     */
+    @SuppressWarnings( "unchecked" )
+    public void addAll( Collection<? extends V> newValues )
+    {
+        int count = newValues.size( );
+        if ( count == 0 ) return;
+
+        int capacity = pendingSize + count;
+        if ( capacity > pendingStarts.length )
+        {
+            pendingStarts = Arrays.copyOf( pendingStarts, capacity );
+            pendingEnds = Arrays.copyOf( pendingEnds, capacity );
+            pendingValues = Arrays.copyOf( pendingValues, capacity );
+        }
+
+        int n = pendingSize;
+        for ( V value : newValues )
+        {
+            pendingValues[n++] = value;
+        }
+
+        // a stable sort keeps the new values after existing pending values with the same start
+        Arrays.sort( pendingValues, 0, n, new Comparator<Object>( )
+        {
+            @Override
+            public int compare( Object o1, Object o2 )
+            {
+                return Long.compare( getStartTimeMillis( ( V ) o1 ), getStartTimeMillis( ( V ) o2 ) );
+            }
+        } );
+
+        for ( int i = 0; i < n; i++ )
+        {
+            V value = ( V ) pendingValues[i];
+            pendingStarts[i] = getStartTimeMillis( value );
+            pendingEnds[i] = getEndTimeMillis( value );
+        }
+
+        pendingSize = n;
+        merge( );
+    }
+
+    /**
+     * @return true if the value was found and removed
+     */
+    public boolean remove( V value )
+    {
+        long start = getStartTimeMillis( value );
+
+        int i = find( pendingStarts, pendingValues, pendingSize, start, value, true );
+        if ( i < 0 )
+        {
+            int j = find( starts, values, mainSize, start, value, true );
+            if ( j >= 0 ) return removeMain( j );
+
+            i = find( pendingStarts, pendingValues, pendingSize, start, value, false );
+            if ( i < 0 )
+            {
+                j = find( starts, values, mainSize, start, value, false );
+                return j >= 0 && removeMain( j );
+            }
+        }
+
+        int moved = pendingSize - i - 1;
+        if ( moved > 0 )
+        {
+            System.arraycopy( pendingStarts, i + 1, pendingStarts, i, moved );
+            System.arraycopy( pendingEnds, i + 1, pendingEnds, i, moved );
+            System.arraycopy( pendingValues, i + 1, pendingValues, i, moved );
+        }
+
+        pendingSize--;
+        pendingValues[pendingSize] = null;
+
+        return true;
+    }
+
+    protected boolean removeMain( int i )
+    {
+        // leave a gap, which queries skip, rather than shifting the arrays
+        // (the block summaries may overestimate end times until the next merge)
+        values[i] = null;
+        removedCount++;
+
+        if ( removedCount > bufferSize( ) ) merge( );
+
+        return true;
+    }
+
+    /**
+     * @return true if the value is in the index (its start time must not have changed since it was added)
+     */
+    public boolean contains( V value )
+    {
+        long start = getStartTimeMillis( value );
+
+        return find( pendingStarts, pendingValues, pendingSize, start, value, true ) >= 0 ||
+                find( starts, values, mainSize, start, value, true ) >= 0 ||
+                find( pendingStarts, pendingValues, pendingSize, start, value, false ) >= 0 ||
+                find( starts, values, mainSize, start, value, false ) >= 0;
+    }
+
+    // checks identity or equality among the entries with the same start time
+    protected static int find( long[] starts, Object[] values, int size, long start, Object value, boolean identity )
+    {
+        for ( int i = firstIndexAtOrAfter( starts, size, start ); i < size && starts[i] == start; i++ )
+        {
+            if ( identity ? values[i] == value : value.equals( values[i] ) ) return i;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Passes each value whose interval overlaps [start, end] (inclusive) to the visitor,
+     * in order of increasing start time.
+     *
+     * @return the number of values visited
+     */
+    @SuppressWarnings( "unchecked" )
+    public int visit( long start, long end, IntervalVisitor<V> visitor )
+    {
+        if ( start > end ) return 0;
+
+        int count = 0;
+
+        // only entries before these indices start early enough to overlap
+        int pendingTo = firstIndexAfter( pendingStarts, pendingSize, end );
+        int p = 0;
+
+        if ( mainSize > 0 )
+        {
+            int to = firstIndexAfter( starts, mainSize, end );
+
+            for ( int b = nextBlock( 0, start ); b * BLOCK_SIZE < to; b = nextBlock( b + 1, start ) )
+            {
+                int blockEnd = Math.min( to, ( b + 1 ) * BLOCK_SIZE );
+                for ( int i = b * BLOCK_SIZE; i < blockEnd; i++ )
+                {
+                    if ( ends[i] < start || values[i] == null ) continue;
+
+                    // pending entries were added later, so they follow main entries with the same start
+                    for ( ; p < pendingTo && pendingStarts[p] < starts[i]; p++ )
+                    {
+                        if ( pendingEnds[p] >= start )
+                        {
+                            visitor.visit( ( V ) pendingValues[p], pendingStarts[p], pendingEnds[p] );
+                            count++;
+                        }
+                    }
+
+                    visitor.visit( ( V ) values[i], starts[i], ends[i] );
+                    count++;
+                }
+            }
+        }
+
+        for ( ; p < pendingTo; p++ )
+        {
+            if ( pendingEnds[p] >= start )
+            {
+                visitor.visit( ( V ) pendingValues[p], pendingStarts[p], pendingEnds[p] );
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * @see #visit(long, long, IntervalVisitor)
+     */
+    public int visit( long start, boolean startInclusive, long end, boolean endInclusive, IntervalVisitor<V> visitor )
+    {
+        // query bounds are inclusive by default -- adjust by 1 millisecond to make non-inclusive
+        if ( !startInclusive && start != Long.MAX_VALUE ) start += 1;
+        if ( !endInclusive && end != Long.MIN_VALUE ) end -= 1;
+
+        return visit( start, end, visitor );
+    }
+
+    /**
+     * @return all values whose interval overlaps [start, end] (inclusive), in order of increasing start time
+     */
+    public List<V> get( long start, long end )
+    {
+        final List<V> results = new ArrayList<V>( );
+
+        visit( start, end, new IntervalVisitor<V>( )
+        {
+            @Override
+            public void visit( V value, long start, long end )
+            {
+                results.add( value );
+            }
+        } );
+
+        return results;
+    }
+
+    /**
+     * @see #get(long, long)
+     */
+    public List<V> get( long start, boolean startInclusive, long end, boolean endInclusive )
+    {
+        if ( !startInclusive && start != Long.MAX_VALUE ) start += 1;
+        if ( !endInclusive && end != Long.MIN_VALUE ) end -= 1;
+
+        return get( start, end );
+    }
+
+    /**
+     * Adds each value whose interval overlaps [start, end] (inclusive) to the results collection.
+     *
+     * @return the number of values added
+     */
+    public int get( long start, long end, final Collection<? super V> results )
+    {
+        return visit( start, end, new IntervalVisitor<V>( )
+        {
+            @Override
+            public void visit( V value, long start, long end )
+            {
+                results.add( value );
+            }
+        } );
+    }
+
+    // first block at or after b whose maximum end time is at least start (or treeLeaves if there is none)
+    protected int nextBlock( int b, long start )
+    {
+        if ( b >= treeLeaves ) return treeLeaves;
+
+        // move up and to the right until reaching a subtree which contains a match
+        int node = treeLeaves + b;
+        while ( treeMaxEnd[node] < start )
+        {
+            while ( ( node & 1 ) == 1 )
+            {
+                if ( node == 1 ) return treeLeaves;
+                node >>>= 1;
+            }
+            node++;
+        }
+
+        // then descend to its leftmost matching leaf
+        while ( node < treeLeaves )
+        {
+            node = 2 * node;
+            if ( treeMaxEnd[node] < start ) node++;
+        }
+
+        return node - treeLeaves;
+    }
+
+    // merges the pending entries into the main arrays and closes the gaps left by removed entries
+    protected void merge( )
+    {
+        if ( removedCount > 0 )
+        {
+            int j = 0;
+            for ( int i = 0; i < mainSize; i++ )
+            {
+                if ( values[i] == null )
+                {
+                    dirtyFrom = Math.min( dirtyFrom, j );
+                }
+                else
+                {
+                    starts[j] = starts[i];
+                    ends[j] = ends[i];
+                    values[j] = values[i];
+                    j++;
+                }
+            }
+
+            Arrays.fill( values, j, mainSize, null );
+            mainSize = j;
+            removedCount = 0;
+        }
+
+        if ( pendingSize > 0 )
+        {
+            ensureCapacity( mainSize + pendingSize );
+
+            // merge from the back, placing pending entries after main entries with the same start
+            int i = mainSize - 1;
+            int k = mainSize + pendingSize - 1;
+            for ( int p = pendingSize - 1; p >= 0; k-- )
+            {
+                if ( i >= 0 && starts[i] > pendingStarts[p] )
+                {
+                    starts[k] = starts[i];
+                    ends[k] = ends[i];
+                    values[k] = values[i];
+                    i--;
+                }
+                else
+                {
+                    starts[k] = pendingStarts[p];
+                    ends[k] = pendingEnds[p];
+                    values[k] = pendingValues[p];
+                    p--;
+                }
+            }
+
+            dirtyFrom = Math.min( dirtyFrom, i + 1 );
+            mainSize += pendingSize;
+
+            Arrays.fill( pendingValues, 0, pendingSize, null );
+            pendingSize = 0;
+        }
+
+        updateTree( );
+    }
+
+    // the number of pending or removed entries allowed before merging, which balances
+    // the cost of merging against the cost of scanning pending entries in each query
+    protected int bufferSize( )
+    {
+        return Math.max( MIN_BUFFER_SIZE, ( int ) Math.sqrt( mainSize ) );
+    }
+
+    // brings the block summaries up to date after an entry with the given end time was
+    // appended to the main arrays, touching only the leaf and ancestors which change
+    protected void appendToTree( long end )
+    {
+        int b = ( mainSize - 1 ) / BLOCK_SIZE;
+        if ( b >= treeLeaves || dirtyFrom < mainSize - 1 )
+        {
+            dirtyFrom = Math.min( dirtyFrom, mainSize - 1 );
+            updateTree( );
+            return;
+        }
+
+        treeBlocks = Math.max( treeBlocks, b + 1 );
+        dirtyFrom = mainSize;
+
+        for ( int node = treeLeaves + b; node >= 1 && treeMaxEnd[node] < end; node >>>= 1 )
+        {
+            treeMaxEnd[node] = end;
+        }
+    }
+
+    // brings the block summaries up to date with main entries at or after dirtyFrom
+    protected void updateTree( )
+    {
+        int blocks = ( mainSize + BLOCK_SIZE - 1 ) / BLOCK_SIZE;
+        if ( dirtyFrom >= mainSize && blocks == treeBlocks ) return;
+
+        int from = Math.min( dirtyFrom / BLOCK_SIZE, blocks );
+        int to = Math.max( blocks, treeBlocks );
+
+        if ( blocks > treeLeaves )
+        {
+            int leaves = treeLeaves;
+            while ( leaves < blocks )
+                leaves *= 2;
+
+            treeLeaves = leaves;
+            treeMaxEnd = new long[2 * leaves];
+            Arrays.fill( treeMaxEnd, Long.MIN_VALUE );
+            from = 0;
+            to = blocks;
+        }
+
+        // blocks past the end of the entries (after removals are merged) are emptied
+        for ( int b = from; b < to; b++ )
+        {
+            long maxEnd = Long.MIN_VALUE;
+            int blockEnd = Math.min( mainSize, ( b + 1 ) * BLOCK_SIZE );
+            for ( int i = b * BLOCK_SIZE; i < blockEnd; i++ )
+            {
+                maxEnd = Math.max( maxEnd, ends[i] );
+            }
+            treeMaxEnd[treeLeaves + b] = maxEnd;
+        }
+
+        // recompute the ancestors of the changed leaves, level by level
+        if ( from < to )
+        {
+            int lo = ( treeLeaves + from ) >>> 1;
+            int hi = ( treeLeaves + to - 1 ) >>> 1;
+            while ( lo >= 1 )
+            {
+                for ( int node = lo; node <= hi; node++ )
+                {
+                    treeMaxEnd[node] = Math.max( treeMaxEnd[2 * node], treeMaxEnd[2 * node + 1] );
+                }
+                lo >>>= 1;
+                hi >>>= 1;
+            }
+        }
+
+        treeBlocks = blocks;
+        dirtyFrom = mainSize;
+    }
+
+    // index of the first entry with start greater than the given time
+    protected static int firstIndexAfter( long[] starts, int size, long time )
+    {
+        int lo = 0;
+        int hi = size;
+        while ( lo < hi )
+        {
+            int mid = ( lo + hi ) >>> 1;
+            if ( starts[mid] <= time )
+            {
+                lo = mid + 1;
+            }
+            else
+            {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // index of the first entry with start greater than or equal to the given time
+    protected static int firstIndexAtOrAfter( long[] starts, int size, long time )
+    {
+        int lo = 0;
+        int hi = size;
+        while ( lo < hi )
+        {
+            int mid = ( lo + hi ) >>> 1;
+            if ( starts[mid] < time )
+            {
+                lo = mid + 1;
+            }
+            else
+            {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    protected void ensureCapacity( int capacity )
+    {
+        if ( capacity <= starts.length ) return;
+
+        int newCapacity = Math.max( capacity, starts.length * 2 );
+        starts = Arrays.copyOf( starts, newCapacity );
+        ends = Arrays.copyOf( ends, newCapacity );
+        values = Arrays.copyOf( values, newCapacity );
+    }
+}
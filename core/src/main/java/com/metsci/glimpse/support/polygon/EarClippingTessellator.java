@@ -0,0 +1,944 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+/*
+ * The triangulation in this file is a Java port of earcut (https://github.com/mapbox/earcut),
+ * which is distributed under the following license:
+ *
+ * ISC License
+ *
+ * Copyright (c) 2016, Mapbox
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose
+ * with or without fee is hereby granted, provided that the above copyright notice
+ * and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND ISC DISCLAIMS ALL WARRANTIES WITH REGARD TO
+ * THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS.
+ * IN NO EVENT SHALL ISC BE LIABLE FOR ANY SPECIAL, DIRECT, INDIRECT, OR
+ * CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA
+ * OR PROFITS, WHETHER IN AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION,
+ * ARISING OUT OF OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.metsci.glimpse.support.polygon;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+import com.metsci.glimpse.support.polygon.Polygon.Loop;
+import com.metsci.glimpse.util.primitives.FloatsArray;
+
+/**
+ * A pure Java alternative to {@link PolygonTessellator} which triangulates polygons
+ * by ear clipping.
+ *
+ * <p>Like the GLU tessellator used by {@link PolygonTessellator}, this class uses the
+ * odd winding rule: a loop which lies inside an odd number of other loops is a hole,
+ * regardless of its orientation or its {@link Polygon.Interior} side. Holes are joined
+ * to their enclosing loop by bridge edges before clipping, and degenerate or
+ * self-touching loops are handled by removing collinear points, curing small local
+ * self-intersections and, as a last resort, splitting the remaining loop along a
+ * valid diagonal. For large loops, candidate ears are tested only against vertices
+ * nearby on a z-order curve.</p>
+ *
+ * <p>Triangles are written to primitive float arrays and handed to the accumulator
+ * in a single call. The tessellator keeps no state between calls, so a single
+ * instance may be used from many threads at once.</p>
+ *
+ * <p>The algorithm and most method names follow Mapbox's earcut library, from which
+ * this class is ported (see the license notice at the top of this file).</p>
+ */
+public class EarClippingTessellator implements Tessellator
+{
+    // loops with more vertices than this use a z-order curve to speed up ear tests
+    protected static final int HASH_THRESHOLD = 80;
+
+    @Override
+    public int tessellate( Polygon poly, VertexAccumulator accumulator )
+    {
+        float[] triangles = tessellate( poly );
+
+        int nVertices = triangles.length / 2;
+        if ( nVertices > 0 ) accumulator.addVertices( triangles, nVertices );
+
+        return nVertices / 3;
+    }
+
+    /**
+     * @return the vertices of the triangles covering the polygon as x,y pairs, three vertices per triangle
+     */
+    public float[] tessellate( Polygon poly )
+    {
+        List<Ring> rings = new ArrayList<Ring>( );
+
+        Iterator<Loop> iter = poly.getIterator( );
+        while ( iter.hasNext( ) )
+        {
+            Ring ring = Ring.fromLoop( iter.next( ) );
+            if ( ring != null ) rings.add( ring );
+        }
+
+        // odd winding rule: rings inside an odd number of other rings are holes
+        for ( Ring ring : rings )
+        {
+            for ( Ring other : rings )
+            {
+                if ( other != ring && other.contains( ring.xy[0], ring.xy[1] ) ) ring.depth++;
+            }
+        }
+
+        FloatsArray triangles = new FloatsArray( );
+
+        int vertexIndex = 0;
+        for ( Ring outer : rings )
+        {
+            if ( outer.depth % 2 != 0 ) continue;
+
+            Node outerNode = linkedList( outer, true, vertexIndex );
+            vertexIndex += outer.n;
+
+            if ( outerNode == null || outerNode.next == outerNode.prev ) continue;
+
+            int nVertices = outer.n;
+
+            List<Node> holes = new ArrayList<Node>( );
+            for ( Ring hole : rings )
+            {
+                if ( hole.depth != outer.depth + 1 || !outer.contains( hole.xy[0], hole.xy[1] ) ) continue;
+
+                Node holeNode = linkedList( hole, false, vertexIndex );
+                vertexIndex += hole.n;
+                nVertices += hole.n;
+
+                if ( holeNode == null ) continue;
+                if ( holeNode == holeNode.next ) holeNode.steiner = true;
+
+                holes.add( leftmost( holeNode ) );
+            }
+
+            outerNode = eliminateHoles( holes, outerNode );
+
+            // holes lie inside the outer ring, so its bounds cover everything
+            double invSize = 0;
+            if ( nVertices > HASH_THRESHOLD )
+            {
+                double size = Math.max( outer.maxX - outer.minX, outer.maxY - outer.minY );
+                invSize = size != 0 ? 32767 / size : 0;
+            }
+
+            earcutLinked( outerNode, triangles, outer.minX, outer.minY, invSize, 0 );
+        }
+
+        return triangles.copyOf( );
+    }
+
+    //////////////////////////////////////////////////
+    //  Setup
+    //////////////////////////////////////////////////
+
+    /**
+     * Creates a circular doubly linked list from the ring's vertices, ordered
+     * counter-clockwise if ccw is true and clockwise otherwise.
+     */
+    protected static Node linkedList( Ring ring, boolean ccw, int indexBase )
+    {
+        Node last = null;
+
+        if ( ( ring.area > 0 ) == ccw )
+        {
+            for ( int i = 0; i < ring.n; i++ )
+            {
+                last = insertNode( indexBase + i, ring.xy[2 * i], ring.xy[2 * i + 1], last );
+            }
+        }
+        else
+        {
+            for ( int i = ring.n - 1; i >= 0; i-- )
+            {
+                last = insertNode( indexBase + i, ring.xy[2 * i], ring.xy[2 * i + 1], last );
+            }
+        }
+
+        if ( last != null && equals( last, last.next ) )
+        {
+            removeNode( last );
+            last = last.next;
+        }
+
+        return last;
+    }
+
+    protected static Node leftmost( Node start )
+    {
+        Node p = start;
+        Node leftmost = start;
+        do
+        {
+            if ( p.x < leftmost.x || ( p.x == leftmost.x && p.y < leftmost.y ) ) leftmost = p;
+            p = p.next;
+        }
+        while ( p != start );
+
+        return leftmost;
+    }
+
+    /**
+     * Links every hole into the outer ring, working from the leftmost hole rightward.
+     */
+    protected static Node eliminateHoles( List<Node> holes, Node outerNode )
+    {
+        Collections.sort( holes, new Comparator<Node>( )
+        {
+            @Override
+            public int compare( Node a, Node b )
+            {
+                int c = Double.compare( a.x, b.x );
+                return c != 0 ? c : Double.compare( a.y, b.y );
+            }
+        } );
+
+        for ( Node hole : holes )
+        {
+            outerNode = eliminateHole( hole, outerNode );
+        }
+
+        return outerNode;
+    }
+
+    protected static Node eliminateHole( Node hole, Node outerNode )
+    {
+        Node bridge = findHoleBridge( hole, outerNode );
+        if ( bridge == null ) return outerNode;
+
+        Node bridgeReverse = splitPolygon( bridge, hole );
+
+        // remove collinear points around the cuts
+        Node filteredBridge = filterPoints( bridge, bridge.next );
+        filterPoints( bridgeReverse, bridgeReverse.next );
+
+        return outerNode == bridge ? filteredBridge : outerNode;
+    }
+
+    /**
+     * Finds a vertex of the outer ring which can be connected to the hole's leftmost
+     * vertex without crossing any edges (David Eberly's algorithm).
+     */
+    protected static Node findHoleBridge( Node hole, Node outerNode )
+    {
+        double hx = hole.x;
+        double hy = hole.y;
+        double qx = Double.NEGATIVE_INFINITY;
+        Node m = null;
+
+        // find the nearest segment crossed by a ray cast left from the hole vertex,
+        // the segment's endpoint with lesser x is a potential connection point
+        Node p = outerNode;
+        do
+        {
+            if ( hy <= p.y && hy >= p.next.y && p.next.y != p.y )
+            {
+                double x = p.x + ( hy - p.y ) * ( p.next.x - p.x ) / ( p.next.y - p.y );
+                if ( x <= hx && x > qx )
+                {
+                    qx = x;
+                    if ( x == hx )
+                    {
+                        if ( hy == p.y ) return p;
+                        if ( hy == p.next.y ) return p.next;
+                    }
+                    m = p.x < p.next.x ? p : p.next;
+                }
+            }
+            p = p.next;
+        }
+        while ( p != outerNode );
+
+        if ( m == null ) return null;
+
+        // the hole touches the outer segment, connect to its leftmost endpoint
+        if ( hx == qx ) return m;
+
+        // if any vertices lie inside the triangle formed by the hole vertex, the ray
+        // intersection and the endpoint, connect instead to the one making the smallest
+        // angle with the ray
+        Node stop = m;
+        double mx = m.x;
+        double my = m.y;
+        double tanMin = Double.POSITIVE_INFINITY;
+
+        p = m;
+        do
+        {
+            if ( hx >= p.x && p.x >= mx && hx != p.x && pointInTriangle( hy < my ? hx : qx, hy, mx, my, hy < my ? qx : hx, hy, p.x, p.y ) )
+            {
+                double tan = Math.abs( hy - p.y ) / ( hx - p.x );
+
+                if ( locallyInside( p, hole ) && ( tan < tanMin || ( tan == tanMin && ( p.x > m.x || ( p.x == m.x && sectorContainsSector( m, p ) ) ) ) ) )
+                {
+                    m = p;
+                    tanMin = tan;
+                }
+            }
+            p = p.next;
+        }
+        while ( p != stop );
+
+        return m;
+    }
+
+    // true if the sector at vertex m contains the sector at vertex p (both having the same coordinates)
+    protected static boolean sectorContainsSector( Node m, Node p )
+    {
+        return cross( m.prev, m, p.prev ) > 0 && cross( p.next, m, m.next ) > 0;
+    }
+
+    //////////////////////////////////////////////////
+    //  Ear clipping
+    //////////////////////////////////////////////////
+
+    /**
+     * Clips ears from the ring until one triangle remains. If a full pass finds no ears, the ring
+     * is cleaned up (pass 1), then local self-intersections are cured (pass 2), and finally the
+     * ring is split in two along a diagonal and each half is clipped separately.
+     */
+    protected static void earcutLinked( Node ear, FloatsArray triangles, double minX, double minY, double invSize, int pass )
+    {
+        if ( ear == null ) return;
+
+        if ( pass == 0 && invSize != 0 ) indexCurve( ear, minX, minY, invSize );
+
+        Node stop = ear;
+
+        while ( ear.prev != ear.next )
+        {
+            Node prev = ear.prev;
+            Node next = ear.next;
+
+            if ( invSize != 0 ? isEarHashed( ear, minX, minY, invSize ) : isEar( ear ) )
+            {
+                addTriangle( triangles, prev, ear, next );
+
+                removeNode( ear );
+
+                // skipping the next vertex leads to fewer sliver triangles
+                ear = next.next;
+                stop = next.next;
+
+                continue;
+            }
+
+            ear = next;
+
+            // a full loop without finding an ear
+            if ( ear == stop )
+            {
+                if ( pass == 0 )
+                {
+                    earcutLinked( filterPoints( ear, null ), triangles, minX, minY, invSize, 1 );
+                }
+                else if ( pass == 1 )
+                {
+                    ear = cureLocalIntersections( filterPoints( ear, null ), triangles );
+                    earcutLinked( ear, triangles, minX, minY, invSize, 2 );
+                }
+                else
+                {
+                    splitEarcut( ear, triangles, minX, minY, invSize );
+                }
+
+                break;
+            }
+        }
+    }
+
+    protected static boolean isEar( Node ear )
+    {
+        Node a = ear.prev;
+        Node b = ear;
+        Node c = ear.next;
+
+        // a reflex vertex can't be an ear
+        if ( cross( a, b, c ) <= 0 ) return false;
+
+        // no reflex vertex may lie inside the candidate ear
+        Node p = ear.next.next;
+        while ( p != ear.prev )
+        {
+            if ( pointInTriangle( a.x, a.y, b.x, b.y, c.x, c.y, p.x, p.y ) && cross( p.prev, p, p.next ) <= 0 ) return false;
+            p = p.next;
+        }
+
+        return true;
+    }
+
+    protected static boolean isEarHashed( Node ear, double minX, double minY, double invSize )
+    {
+        Node a = ear.prev;
+        Node b = ear;
+        Node c = ear.next;
+
+        if ( cross( a, b, c ) <= 0 ) return false;
+
+        // bounding box of the triangle
+        double minTX = Math.min( a.x, Math.min( b.x, c.x ) );
+        double minTY = Math.min( a.y, Math.min( b.y, c.y ) );
+        double maxTX = Math.max( a.x, Math.max( b.x, c.x ) );
+        double maxTY = Math.max( a.y, Math.max( b.y, c.y ) );
+
+        // only vertices with z-order values in the box's range can lie inside it
+        int minZ = zOrder( minTX, minTY, minX, minY, invSize );
+        int maxZ = zOrder( maxTX, maxTY, minX, minY, invSize );
+
+        Node p = ear.prevZ;
+        Node n = ear.nextZ;
+
+        // look in both directions along the curve at once
+        while ( p != null && p.z >= minZ && n != null && n.z <= maxZ )
+        {
+            if ( p != ear.prev && p != ear.next && pointInTriangle( a.x, a.y, b.x, b.y, c.x, c.y, p.x, p.y ) && cross( p.prev, p, p.next ) <= 0 ) return false;
+            p = p.prevZ;
+
+            if ( n != ear.prev && n != ear.next && pointInTriangle( a.x, a.y, b.x, b.y, c.x, c.y, n.x, n.y ) && cross( n.prev, n, n.next ) <= 0 ) return false;
+            n = n.nextZ;
+        }
+
+        while ( p != null && p.z >= minZ )
+        {
+            if ( p != ear.prev && p != ear.next && pointInTriangle( a.x, a.y, b.x, b.y, c.x, c.y, p.x, p.y ) && cross( p.prev, p, p.next ) <= 0 ) return false;
+            p = p.prevZ;
+        }
+
+        while ( n != null && n.z <= maxZ )
+        {
+            if ( n != ear.prev && n != ear.next && pointInTriangle( a.x, a.y, b.x, b.y, c.x, c.y, n.x, n.y ) && cross( n.prev, n, n.next ) <= 0 ) return false;
+            n = n.nextZ;
+        }
+
+        return true;
+    }
+
+    /**
+     * Clips off small self-intersections, where two edges one vertex apart cross each other.
+     */
+    protected static Node cureLocalIntersections( Node start, FloatsArray triangles )
+    {
+        Node p = start;
+        do
+        {
+            Node a = p.prev;
+            Node b = p.next.next;
+
+            if ( !equals( a, b ) && intersects( a, p, p.next, b ) && locallyInside( a, b ) && locallyInside( b, a ) )
+            {
+                addTriangle( triangles, a, p, b );
+
+                removeNode( p );
+                removeNode( p.next );
+
+                p = start = b;
+            }
+            p = p.next;
+        }
+        while ( p != start );
+
+        return filterPoints( p, null );
+    }
+
+    /**
+     * Splits the ring in two along a valid diagonal and clips each half separately.
+     */
+    protected static void splitEarcut( Node start, FloatsArray triangles, double minX, double minY, double invSize )
+    {
+        Node a = start;
+        do
+        {
+            Node b = a.next.next;
+            while ( b != a.prev )
+            {
+                if ( a.i != b.i && isValidDiagonal( a, b ) )
+                {
+                    Node c = splitPolygon( a, b );
+
+                    // remove collinear points around the cut
+                    a = filterPoints( a, a.next );
+                    c = filterPoints( c, c.next );
+
+                    earcutLinked( a, triangles, minX, minY, invSize, 0 );
+                    earcutLinked( c, triangles, minX, minY, invSize, 0 );
+                    return;
+                }
+                b = b.next;
+            }
+            a = a.next;
+        }
+        while ( a != start );
+    }
+
+    protected static void addTriangle( FloatsArray triangles, Node a, Node b, Node c )
+    {
+        int n = triangles.n;
+        triangles.prepForAppend( 6 );
+
+        float[] t = triangles.a;
+
+        t[n] = ( float ) a.x;
+        t[n + 1] = ( float ) a.y;
+        t[n + 2] = ( float ) b.x;
+        t[n + 3] = ( float ) b.y;
+        t[n + 4] = ( float ) c.x;
+        t[n + 5] = ( float ) c.y;
+    }
+
+    //////////////////////////////////////////////////
+    //  Linked list operations
+    //////////////////////////////////////////////////
+
+    /**
+     * Removes duplicate and collinear points between start and end (the whole ring if end is null).
+     */
+    protected static Node filterPoints( Node start, Node end )
+    {
+        if ( start == null ) return start;
+        if ( end == null ) end = start;
+
+        Node p = start;
+        boolean again;
+        do
+        {
+            again = false;
+
+            if ( !p.steiner && ( equals( p, p.next ) || cross( p.prev, p, p.next ) == 0 ) )
+            {
+                removeNode( p );
+                p = end = p.prev;
+                if ( p == p.next ) break;
+                again = true;
+            }
+            else
+            {
+                p = p.next;
+            }
+        }
+        while ( again || p != end );
+
+        return end;
+    }
+
+    /**
+     * Links vertex a to vertex b with a pair of bridge edges, splitting the ring in two
+     * if a and b are on the same ring or joining the rings otherwise.
+     *
+     * @return the copy of b, which is on the other side of the split from a
+     */
+    protected static Node splitPolygon( Node a, Node b )
+    {
+        Node a2 = new Node( a.i, a.x, a.y );
+        Node b2 = new Node( b.i, b.x, b.y );
+        Node an = a.next;
+        Node bp = b.prev;
+
+        a.next = b;
+        b.prev = a;
+
+        a2.next = an;
+        an.prev = a2;
+
+        b2.next = a2;
+        a2.prev = b2;
+
+        bp.next = b2;
+        b2.prev = bp;
+
+        return b2;
+    }
+
+    protected static Node insertNode( int i, double x, double y, Node last )
+    {
+        Node p = new Node( i, x, y );
+
+        if ( last == null )
+        {
+            p.prev = p;
+            p.next = p;
+        }
+        else
+        {
+            p.next = last.next;
+            p.prev = last;
+            last.next.prev = p;
+            last.next = p;
+        }
+
+        return p;
+    }
+
+    protected static void removeNode( Node p )
+    {
+        p.next.prev = p.prev;
+        p.prev.next = p.next;
+
+        if ( p.prevZ != null ) p.prevZ.nextZ = p.nextZ;
+        if ( p.nextZ != null ) p.nextZ.prevZ = p.prevZ;
+    }
+
+    //////////////////////////////////////////////////
+    //  Z-order curve
+    //////////////////////////////////////////////////
+
+    /**
+     * Links the ring's vertices in z-order, in a second list through prevZ and nextZ.
+     */
+    protected static void indexCurve( Node start, double minX, double minY, double invSize )
+    {
+        Node p = start;
+        do
+        {
+            p.z = zOrder( p.x, p.y, minX, minY, invSize );
+            p.prevZ = p.prev;
+            p.nextZ = p.next;
+            p = p.next;
+        }
+        while ( p != start );
+
+        p.prevZ.nextZ = null;
+        p.prevZ = null;
+
+        sortLinked( p );
+    }
+
+    /**
+     * Sorts the z-order list with a bottom up merge sort.
+     */
+    protected static Node sortLinked( Node list )
+    {
+        int inSize = 1;
+        int numMerges;
+
+        do
+        {
+            Node p = list;
+            Node tail = null;
+            list = null;
+            numMerges = 0;
+
+            while ( p != null )
+            {
+                numMerges++;
+
+                Node q = p;
+                int pSize = 0;
+                for ( int i = 0; i < inSize; i++ )
+                {
+                    pSize++;
+                    q = q.nextZ;
+                    if ( q == null ) break;
+                }
+
+                int qSize = inSize;
+
+                while ( pSize > 0 || ( qSize > 0 && q != null ) )
+                {
+                    Node e;
+                    if ( pSize != 0 && ( qSize == 0 || q == null || p.z <= q.z ) )
+                    {
+                        e = p;
+                        p = p.nextZ;
+                        pSize--;
+                    }
+                    else
+                    {
+                        e = q;
+                        q = q.nextZ;
+                        qSize--;
+                    }
+
+                    if ( tail != null )
+                    {
+                        tail.nextZ = e;
+                    }
+                    else
+                    {
+                        list = e;
+                    }
+
+                    e.prevZ = tail;
+                    tail = e;
+                }
+
+                p = q;
+            }
+
+            tail.nextZ = null;
+            inSize *= 2;
+        }
+        while ( numMerges > 1 );
+
+        return list;
+    }
+
+    /**
+     * @return the z-order (Morton code) of a point, from its coordinates scaled to 15 bits
+     */
+    protected static int zOrder( double x, double y, double minX, double minY, double invSize )
+    {
+        int ix = ( int ) ( ( x - minX ) * invSize );
+        int iy = ( int ) ( ( y - minY ) * invSize );
+
+        ix = ( ix | ( ix << 8 ) ) & 0x00FF00FF;
+        ix = ( ix | ( ix << 4 ) ) & 0x0F0F0F0F;
+        ix = ( ix | ( ix << 2 ) ) & 0x33333333;
+        ix = ( ix | ( ix << 1 ) ) & 0x55555555;
+
+        iy = ( iy | ( iy << 8 ) ) & 0x00FF00FF;
+        iy = ( iy | ( iy << 4 ) ) & 0x0F0F0F0F;
+        iy = ( iy | ( iy << 2 ) ) & 0x33333333;
+        iy = ( iy | ( iy << 1 ) ) & 0x55555555;
+
+        return ix | ( iy << 1 );
+    }
+
+    //////////////////////////////////////////////////
+    //  Geometry
+    //////////////////////////////////////////////////
+
+    /**
+     * @return twice the signed area of triangle abc, positive if a, b, c turn counter-clockwise
+     */
+    protected static double cross( Node a, Node b, Node c )
+    {
+        return ( b.x - a.x ) * ( c.y - a.y ) - ( b.y - a.y ) * ( c.x - a.x );
+    }
+
+    protected static boolean equals( Node p1, Node p2 )
+    {
+        return p1.x == p2.x && p1.y == p2.y;
+    }
+
+    // true if p lies inside or on the edge of the counter-clockwise triangle abc
+    protected static boolean pointInTriangle( double ax, double ay, double bx, double by, double cx, double cy, double px, double py )
+    {
+        return ( cx - px ) * ( ay - py ) >= ( ax - px ) * ( cy - py ) && ( ax - px ) * ( by - py ) >= ( bx - px ) * ( ay - py ) && ( bx - px ) * ( cy - py ) >= ( cx - px ) * ( by - py );
+    }
+
+    // true if a diagonal between a and b lies inside the ring and crosses no edges
+    protected static boolean isValidDiagonal( Node a, Node b )
+    {
+        if ( a.next.i == b.i || a.prev.i == b.i || intersectsPolygon( a, b ) ) return false;
+
+        // does not create opposite-facing sectors, or is a zero-length diagonal between two reflex vertices
+        boolean inside = locallyInside( a, b ) && locallyInside( b, a ) && middleInside( a, b ) && ( cross( a.prev, a, b.prev ) != 0 || cross( a, b.prev, b ) != 0 );
+        boolean zeroLength = equals( a, b ) && cross( a.prev, a, a.next ) < 0 && cross( b.prev, b, b.next ) < 0;
+
+        return inside || zeroLength;
+    }
+
+    // true if segments p1q1 and p2q2 intersect
+    protected static boolean intersects( Node p1, Node q1, Node p2, Node q2 )
+    {
+        int o1 = sign( cross( p1, q1, p2 ) );
+        int o2 = sign( cross( p1, q1, q2 ) );
+        int o3 = sign( cross( p2, q2, p1 ) );
+        int o4 = sign( cross( p2, q2, q1 ) );
+
+        if ( o1 != o2 && o3 != o4 ) return true;
+
+        // collinear cases
+        if ( o1 == 0 && onSegment( p1, p2, q1 ) ) return true;
+        if ( o2 == 0 && onSegment( p1, q2, q1 ) ) return true;
+        if ( o3 == 0 && onSegment( p2, p1, q2 ) ) return true;
+        if ( o4 == 0 && onSegment( p2, q1, q2 ) ) return true;
+
+        return false;
+    }
+
+    // for collinear points p, q, r, true if q lies on segment pr
+    protected static boolean onSegment( Node p, Node q, Node r )
+    {
+        return q.x <= Math.max( p.x, r.x ) && q.x >= Math.min( p.x, r.x ) && q.y <= Math.max( p.y, r.y ) && q.y >= Math.min( p.y, r.y );
+    }
+
+    protected static int sign( double v )
+    {
+        return v > 0 ? 1 : ( v < 0 ? -1 : 0 );
+    }
+
+    // true if segment ab intersects any edge of the ring not touching a or b
+    protected static boolean intersectsPolygon( Node a, Node b )
+    {
+        Node p = a;
+        do
+        {
+            if ( p.i != a.i && p.next.i != a.i && p.i != b.i && p.next.i != b.i && intersects( p, p.next, a, b ) ) return true;
+            p = p.next;
+        }
+        while ( p != a );
+
+        return false;
+    }
+
+    // true if the diagonal from a toward b starts off inside the ring
+    protected static boolean locallyInside( Node a, Node b )
+    {
+        if ( cross( a.prev, a, a.next ) > 0 )
+        {
+            return cross( a, b, a.next ) <= 0 && cross( a, a.prev, b ) <= 0;
+        }
+        else
+        {
+            return cross( a, b, a.prev ) > 0 || cross( a, a.next, b ) > 0;
+        }
+    }
+
+    // true if the midpoint of diagonal ab is inside the ring
+    protected static boolean middleInside( Node a, Node b )
+    {
+        Node p = a;
+        boolean inside = false;
+        double px = ( a.x + b.x ) / 2;
+        double py = ( a.y + b.y ) / 2;
+        do
+        {
+            if ( ( ( p.y > py ) != ( p.next.y > py ) ) && p.next.y != p.y && ( px < ( p.next.x - p.x ) * ( py - p.y ) / ( p.next.y - p.y ) + p.x ) ) inside = !inside;
+            p = p.next;
+        }
+        while ( p != a );
+
+        return inside;
+    }
+
+    /**
+     * A loop's vertices, with repeated points removed, along with its signed area and bounds.
+     */
+    protected static class Ring
+    {
+        double[] xy;
+        int n;
+        // positive for counter-clockwise rings
+        double area;
+        double minX = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        // number of other rings which contain this ring
+        int depth;
+
+        /**
+         * @return a Ring for the loop, or null if the loop has no area
+         */
+        static Ring fromLoop( Loop loop )
+        {
+            int size = loop.size( );
+
+            Ring ring = new Ring( );
+            ring.xy = new double[2 * size];
+
+            for ( int i = 0; i < size; i++ )
+            {
+                double x = loop.getX( i );
+                double y = loop.getY( i );
+
+                if ( Double.isNaN( x ) || Double.isNaN( y ) ) continue;
+
+                // skip consecutive repeated points
+                if ( ring.n > 0 && ring.xy[2 * ring.n - 2] == x && ring.xy[2 * ring.n - 1] == y ) continue;
+
+                ring.xy[2 * ring.n] = x;
+                ring.xy[2 * ring.n + 1] = y;
+                ring.n++;
+
+                ring.minX = Math.min( ring.minX, x );
+                ring.maxX = Math.max( ring.maxX, x );
+                ring.minY = Math.min( ring.minY, y );
+                ring.maxY = Math.max( ring.maxY, y );
+            }
+
+            // drop an explicit closing point
+            if ( ring.n > 1 && ring.xy[0] == ring.xy[2 * ring.n - 2] && ring.xy[1] == ring.xy[2 * ring.n - 1] ) ring.n--;
+
+            if ( ring.n < 3 ) return null;
+
+            double area = 0;
+            for ( int i = 0, j = ring.n - 1; i < ring.n; j = i++ )
+            {
+                area += ( ring.xy[2 * j] - ring.xy[2 * i] ) * ( ring.xy[2 * j + 1] + ring.xy[2 * i + 1] );
+            }
+            ring.area = area / 2;
+
+            return ring.area != 0 ? ring : null;
+        }
+
+        // even-odd point in ring test
+        boolean contains( double x, double y )
+        {
+            if ( x < minX || x > maxX || y < minY || y > maxY ) return false;
+
+            boolean inside = false;
+            for ( int i = 0, j = n - 1; i < n; j = i++ )
+            {
+                double xi = xy[2 * i];
+                double yi = xy[2 * i + 1];
+                double xj = xy[2 * j];
+                double yj = xy[2 * j + 1];
+
+                if ( ( yi > y ) != ( yj > y ) && x < ( xj - xi ) * ( y - yi ) / ( yj - yi ) + xi ) inside = !inside;
+            }
+
+            return inside;
+        }
+    }
+
+    /**
+     * A vertex in a ring's circular doubly linked list.
+     */
+    protected static final class Node
+    {
+        // index of the input vertex (shared by bridge copies)
+        final int i;
+        final double x;
+        final double y;
+
+        Node prev;
+        Node next;
+
+        // position on the z-order curve, and neighbors in z-order
+        int z;
+        Node prevZ;
+        Node nextZ;
+
+        // true for single-vertex holes, which filterPoints must not remove
+        boolean steiner;
+
+        Node( int i, double x, double y )
+        {
+            this.i = i;
+            this.x = x;
+            this.y = y;
+        }
+    }
+}
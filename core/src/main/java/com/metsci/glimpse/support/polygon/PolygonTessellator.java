@@ -35,7 +35,7 @@ import javax.media.opengl.glu.GLUtessellatorCallback;
 
 import com.metsci.glimpse.support.polygon.Polygon.Loop;
 
-public class PolygonTessellator
+public class PolygonTessellator implements Tessellator
 {
     private final GLUtessellator tess;
     private final TessellatorCallback tessCallback;
@@ -55,6 +55,7 @@ public class PolygonTessellator
         GLU.gluTessCallback( tess, GLU.GLU_TESS_ERROR, tessCallback );
     }
 
+    @Override
     public final int tessellate( Polygon poly, VertexAccumulator accumulator ) throws TessellationException
     {
         tessCallback.reset( accumulator );
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.support.projection;
+
+/**
+ * A {@link Projection} which can also compute the physical coordinates of many
+ * data positions in one call.
+ */
+public interface BulkProjection extends Projection
+{
+    /**
+     * Bulk equivalent of {@link #getVertexXY(double, double, float[])}. Computes the
+     * physical coordinates of count data positions and stores them as interleaved
+     * (x, y) pairs in resultXY, starting at outOffset.<p>
+     *
+     * Implementations should avoid per-point allocations, so that large grids of
+     * vertices can be projected cheaply.<p>
+     *
+     * @param dataFractionX relative x indices (from 0.0 to 1.0) into the data array
+     * @param dataFractionY relative y indices (from 0.0 to 1.0) into the data array
+     * @param inOffset index of the first position in dataFractionX and dataFractionY
+     * @param resultXY output parameter to be populated with interleaved physical coords
+     * @param outOffset index in resultXY at which to store the x coordinate of the first result
+     * @param count number of positions to project
+     */
+    public void getVerticesXY( double[] dataFractionX, double[] dataFractionY, int inOffset, float[] resultXY, int outOffset, int count );
+}
@@ -36,7 +36,7 @@ import com.metsci.glimpse.axis.Axis2D;
  * @author ulman
  *
  */
-public class FlatProjection implements Projection, InvertibleProjection
+public class FlatProjection implements BulkProjection, InvertibleProjection
 {
     protected double minX, maxX, minY, maxY;
     protected double minTexX, maxTexX, minTexY, maxTexY;
@@ -88,6 +88,19 @@ public class FlatProjection implements Projection, InvertibleProjection
         resultXY[1] = ( float ) ( minY + diffY * texFracNormY );
     }
 
+    @Override
+    public void getVerticesXY( double[] textureFractionX, double[] textureFractionY, int inOffset, float[] resultXY, int outOffset, int count )
+    {
+        for ( int i = 0; i < count; i++ )
+        {
+            float texFracNormX = ( float ) ( ( textureFractionX[inOffset + i] - minTexX ) / diffTexX );
+            float texFracNormY = ( float ) ( ( textureFractionY[inOffset + i] - minTexY ) / diffTexY );
+
+            resultXY[outOffset + 2 * i] = ( float ) ( minX + diffX * texFracNormX );
+            resultXY[outOffset + 2 * i + 1] = ( float ) ( minY + diffY * texFracNormY );
+        }
+    }
+
     @Override
     public void getVertexXYZ( double textureFractionX, double textureFractionY, float[] resultXYZ )
     {
@@ -35,7 +35,7 @@ package com.metsci.glimpse.support.projection;
  *
  * @author ulman
  */
-public class GenericProjection implements Projection
+public class GenericProjection implements BulkProjection
 {
     protected double[][] coordsX;
     protected double[][] coordsY;
@@ -59,6 +59,16 @@ public class GenericProjection implements Projection
         resultXY[1] = ( float ) getVertex( coordsY, dataFractionX, dataFractionY );
     }
 
+    @Override
+    public void getVerticesXY( double[] dataFractionX, double[] dataFractionY, int inOffset, float[] resultXY, int outOffset, int count )
+    {
+        for ( int i = 0; i < count; i++ )
+        {
+            resultXY[outOffset + 2 * i] = ( float ) getVertex( coordsX, dataFractionX[inOffset + i], dataFractionY[inOffset + i] );
+            resultXY[outOffset + 2 * i + 1] = ( float ) getVertex( coordsY, dataFractionX[inOffset + i], dataFractionY[inOffset + i] );
+        }
+    }
+
     @Override
     public void getVertexXYZ( double textureFractionX, double textureFractionY, float[] resultXYZ )
     {
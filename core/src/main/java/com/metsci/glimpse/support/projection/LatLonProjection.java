@@ -29,6 +29,7 @@ package com.metsci.glimpse.support.projection;
 import static java.lang.Math.floor;
 
 import com.metsci.glimpse.util.geo.LatLonGeo;
+import com.metsci.glimpse.util.geo.projection.BulkProjections;
 import com.metsci.glimpse.util.geo.projection.GeoProjection;
 import com.metsci.glimpse.util.vector.Vector2d;
 
@@ -38,7 +39,7 @@ import com.metsci.glimpse.util.vector.Vector2d;
  *
  * @author ulman
  */
-public class LatLonProjection implements Projection, InvertibleProjection
+public class LatLonProjection implements BulkProjection, InvertibleProjection
 {
     public static final double SIZE_DOWNSAMPLE = 0.1;
 
@@ -50,6 +51,16 @@ public class LatLonProjection implements Projection, InvertibleProjection
 
     protected boolean latIsX;
 
+    // per thread working arrays for getVerticesXY, reused between calls
+    protected static final ThreadLocal<double[][]> verticesScratch = new ThreadLocal<double[][]>( )
+    {
+        @Override
+        protected double[][] initialValue( )
+        {
+            return new double[4][0];
+        }
+    };
+
     public LatLonProjection( GeoProjection projection, double minLat, double maxLat, double minLon, double maxLon, boolean latIsX )
     {
         this.latIsX = latIsX;
@@ -77,6 +88,52 @@ public class LatLonProjection implements Projection, InvertibleProjection
         resultXY[1] = ( float ) xy.getY( );
     }
 
+    @Override
+    public void getVerticesXY( double[] textureFractionX, double[] textureFractionY, int inOffset, float[] resultXY, int outOffset, int count )
+    {
+        double[][] scratch = getScratch( count );
+        double[] lats = scratch[0];
+        double[] lons = scratch[1];
+        double[] xs = scratch[2];
+        double[] ys = scratch[3];
+
+        for ( int i = 0; i < count; i++ )
+        {
+            double lat0 = minLat + diffLat * ( latIsX ? textureFractionX[inOffset + i] : textureFractionY[inOffset + i] );
+            double lon0 = minLon + diffLon * ( !latIsX ? textureFractionX[inOffset + i] : textureFractionY[inOffset + i] );
+
+            int poleCrosses = ( int ) floor( ( lat0 + 90 ) / 180 );
+            boolean latWrapped = ( poleCrosses % 2 != 0 );
+            lats[i] = ( latWrapped ? -1 : 1 ) * ( lat0 - 180 * poleCrosses );
+            lons[i] = ( latWrapped ? 180 : 0 ) + lon0;
+        }
+
+        BulkProjections.project( projection, lats, lons, 0, xs, ys, 0, count );
+
+        for ( int i = 0; i < count; i++ )
+        {
+            resultXY[outOffset + 2 * i] = ( float ) xs[i];
+            resultXY[outOffset + 2 * i + 1] = ( float ) ys[i];
+        }
+    }
+
+    // the calling thread's lat, lon, x and y arrays, grown if they hold fewer than count values
+    protected static double[][] getScratch( int count )
+    {
+        double[][] scratch = verticesScratch.get( );
+
+        if ( scratch[0].length < count )
+        {
+            int length = Math.max( count, 2 * scratch[0].length );
+            for ( int i = 0; i < scratch.length; i++ )
+            {
+                scratch[i] = new double[length];
+            }
+        }
+
+        return scratch;
+    }
+
     @Override
     public void getVertexXYZ( double textureFractionX, double textureFractionY, float[] resultXYZ )
     {
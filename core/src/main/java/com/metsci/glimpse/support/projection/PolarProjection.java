@@ -34,7 +34,7 @@ import com.metsci.glimpse.util.units.Azimuth;
  *
  * @author ulman
  */
-public class PolarProjection implements Projection, InvertibleProjection
+public class PolarProjection implements BulkProjection, InvertibleProjection
 {
     protected double minRange, maxRange, startTheta, endTheta;
 
@@ -140,6 +140,22 @@ public class PolarProjection implements Projection, InvertibleProjection
         resultXY[1] = ( float ) ( range * Math.sin( theta ) + centerY );
     }
 
+    @Override
+    public void getVerticesXY( double[] textureFractionX, double[] textureFractionY, int inOffset, float[] resultXY, int outOffset, int count )
+    {
+        double[] textureIndexRange = rangeIsX ? textureFractionX : textureFractionY;
+        double[] textureIndexTheta = !rangeIsX ? textureFractionX : textureFractionY;
+
+        for ( int i = 0; i < count; i++ )
+        {
+            double theta = Azimuth.fromNavDeg( startTheta + diffTheta * textureIndexTheta[inOffset + i] );
+            double range = minRange + diffRange * textureIndexRange[inOffset + i];
+
+            resultXY[outOffset + 2 * i] = ( float ) ( range * Math.cos( theta ) + centerX );
+            resultXY[outOffset + 2 * i + 1] = ( float ) ( range * Math.sin( theta ) + centerY );
+        }
+    }
+
     @Override
     public void getVertexXYZ( double textureFractionX, double textureFractionY, float[] resultXYZ )
     {
@@ -46,6 +46,8 @@ public class ByteTextureProjected2D extends TextureProjected2D
 {
     private static final Logger logger = Logger.getLogger( ShortTextureProjected2D.class.getName( ) );
 
+    protected static final PixelLayout BYTE_LAYOUT = new PixelLayout( GL2.GL_LUMINANCE_INTEGER, GL2.GL_BYTE, 1 );
+
     public ByteTextureProjected2D( int dataSizeX, int dataSizeY )
     {
         this( dataSizeX, dataSizeY, false );
@@ -92,6 +94,12 @@ public class ByteTextureProjected2D extends TextureProjected2D
         return dataSizeX * dataSizeY;
     }
 
+    @Override
+    protected PixelLayout getPixelLayout( )
+    {
+        return BYTE_LAYOUT;
+    }
+
     @Override
     protected float getData( int index )
     {
@@ -139,11 +147,37 @@ public class ByteTextureProjected2D extends TextureProjected2D
         }
     }
 
+    /**
+     * Like {@link #mutate(MutatorByte2D)}, but for mutators which report the regions of the
+     * texture they change. Only the reported regions are uploaded to the device.
+     */
+    public void mutate( RegionMutatorByte2D mutator )
+    {
+        lock.lock( );
+        try
+        {
+            data.rewind( );
+            mutator.mutate( data, dataSizeX, dataSizeY, dirtyRegionTracker );
+        }
+        finally
+        {
+            lock.unlock( );
+        }
+    }
+
     public static interface MutatorByte2D
     {
         public void mutate( ByteBuffer data, int dataSizeX, int dataSizeY );
     }
 
+    public static interface RegionMutatorByte2D
+    {
+        /**
+         * Changes data in place, reporting each changed region to dirty.
+         */
+        public void mutate( ByteBuffer data, int dataSizeX, int dataSizeY, DirtyRegions dirty );
+    }
+
     public static class SetDataMutator implements MutatorByte2D
     {
         public byte[][] data;
@@ -53,6 +53,8 @@ public class ColorTextureProjected2D extends FloatTextureProjected2D
 
     public static final int FLOATS_PER_PIXEL = 4;
 
+    protected static final PixelLayout RGBA_FLOAT_LAYOUT = new PixelLayout( GL2.GL_RGBA, GL2.GL_FLOAT, FLOATS_PER_PIXEL * BYTES_PER_FLOAT );
+
     public ColorTextureProjected2D( )
     {
         this( 0, 0, false );
@@ -105,6 +107,12 @@ public class ColorTextureProjected2D extends FloatTextureProjected2D
         gl.glPixelStorei( GL2.GL_UNPACK_ROW_LENGTH, 0 );
     }
 
+    @Override
+    protected PixelLayout getPixelLayout( )
+    {
+        return RGBA_FLOAT_LAYOUT;
+    }
+
     public void setData( InputStream in ) throws IOException
     {
         setData( ImageIO.read( in ) );
@@ -46,6 +46,8 @@ public class FloatTextureProjected2D extends TextureProjected2D
 {
     private static final Logger logger = Logger.getLogger( FloatTextureProjected2D.class.getName( ) );
 
+    protected static final PixelLayout FLOAT_LAYOUT = new PixelLayout( GL2.GL_LUMINANCE, GL2.GL_FLOAT, BYTES_PER_FLOAT );
+
     public FloatTextureProjected2D( int dataSizeX, int dataSizeY )
     {
         this( dataSizeX, dataSizeY, false );
@@ -92,6 +94,12 @@ public class FloatTextureProjected2D extends TextureProjected2D
         return dataSizeX * dataSizeY * BYTES_PER_FLOAT;
     }
 
+    @Override
+    protected PixelLayout getPixelLayout( )
+    {
+        return FLOAT_LAYOUT;
+    }
+
     @Override
     protected float getData( int index )
     {
@@ -146,6 +154,9 @@ public class FloatTextureProjected2D extends TextureProjected2D
         lock.lock( );
         try
         {
+            // mutators expect data in order
+            unroll( );
+
             data.rewind( );
             mutator.mutate( data.asFloatBuffer( ), dataSizeX, dataSizeY );
             makeDirty( );
@@ -156,11 +167,133 @@ public class FloatTextureProjected2D extends TextureProjected2D
         }
     }
 
+    /**
+     * Like {@link #mutate(MutatorFloat2D)}, but for mutators which report the regions of the
+     * texture they change. Only the reported regions are uploaded to the device.
+     */
+    public void mutate( RegionMutatorFloat2D mutator )
+    {
+        lock.lock( );
+        try
+        {
+            // mutators expect data in order
+            unroll( );
+
+            data.rewind( );
+            mutator.mutate( data.asFloatBuffer( ), dataSizeX, dataSizeY, dirtyRegionTracker );
+        }
+        finally
+        {
+            lock.unlock( );
+        }
+    }
+
+    /**
+     * Appends a row to a waterfall display. The first row of the texture (at y index 0) is
+     * dropped, the remaining rows scroll down by one, and the given values become the last
+     * row (at y index dataSizeY-1).
+     *
+     * Rather than moving any data, the texture is treated as a circular buffer: the new row
+     * overwrites the oldest, only that row is uploaded, and the texture coordinates are offset
+     * so that drawing starts from the oldest row. Each update therefore costs O(dataSizeX)
+     * instead of O(dataSizeX*dataSizeY). This requires dataSizeY to fit within a single
+     * OpenGL texture (see {@link #getMaxGLTextureSize(GL)}); otherwise the data is rotated
+     * back into order and re-uploaded each time the texture is prepared.
+     *
+     * @param values the new row, of length dataSizeX (times the number of floats per texel,
+     *        for textures with more than one)
+     */
+    public void appendRow( float[] values )
+    {
+        lock.lock( );
+        try
+        {
+            int floatsPerPixel = getPixelLayout( ).getBytesPerPixel( ) / BYTES_PER_FLOAT;
+            int rowFloats = dataSizeX * floatsPerPixel;
+
+            if ( values.length != rowFloats )
+            {
+                logWarning( logger, "Incorrectly sized row passed to appendRow. Expected %d. Got %d.", rowFloats, values.length );
+                return;
+            }
+
+            if ( dataSizeY == 0 ) return;
+
+            // the oldest row, whose columns may themselves be rolled
+            int y = rollOffsetY;
+            int rollFloats = rollOffsetX * floatsPerPixel;
+
+            FloatBuffer buffer = data.asFloatBuffer( );
+            buffer.position( y * rowFloats + rollFloats );
+            buffer.put( values, 0, rowFloats - rollFloats );
+            buffer.position( y * rowFloats );
+            buffer.put( values, rowFloats - rollFloats, rollFloats );
+
+            makeDirty( 0, y, dataSizeX, y + 1 );
+            roll( 0, 1 );
+        }
+        finally
+        {
+            lock.unlock( );
+        }
+    }
+
+    /**
+     * Appends a column to a waterfall display which scrolls along the x axis. Like
+     * {@link #appendRow(float[])}, but the first column (at x index 0) is dropped and the given
+     * values become the last column (at x index dataSizeX-1).
+     *
+     * @param values the new column, of length dataSizeY (times the number of floats per texel,
+     *        for textures with more than one)
+     */
+    public void appendColumn( float[] values )
+    {
+        lock.lock( );
+        try
+        {
+            int floatsPerPixel = getPixelLayout( ).getBytesPerPixel( ) / BYTES_PER_FLOAT;
+
+            if ( values.length != dataSizeY * floatsPerPixel )
+            {
+                logWarning( logger, "Incorrectly sized column passed to appendColumn. Expected %d. Got %d.", dataSizeY * floatsPerPixel, values.length );
+                return;
+            }
+
+            if ( dataSizeX == 0 ) return;
+
+            // the oldest column, whose rows may themselves be rolled
+            int x = rollOffsetX;
+
+            FloatBuffer buffer = data.asFloatBuffer( );
+            for ( int i = 0; i < dataSizeY; i++ )
+            {
+                int y = ( i + rollOffsetY ) % dataSizeY;
+                buffer.position( ( y * dataSizeX + x ) * floatsPerPixel );
+                buffer.put( values, i * floatsPerPixel, floatsPerPixel );
+            }
+
+            makeDirty( x, 0, x + 1, dataSizeY );
+            roll( 1, 0 );
+        }
+        finally
+        {
+            lock.unlock( );
+        }
+    }
+
     public static interface MutatorFloat2D
     {
         public void mutate( FloatBuffer data, int dataSizeX, int dataSizeY );
     }
 
+    public static interface RegionMutatorFloat2D
+    {
+        /**
+         * Changes data in place, reporting each changed region to dirty.
+         */
+        public void mutate( FloatBuffer data, int dataSizeX, int dataSizeY, DirtyRegions dirty );
+    }
+
     public static class SetDataMutator implements MutatorFloat2D
     {
         public float[][] dataf;
@@ -48,6 +48,8 @@ public class ShortTextureProjected2D extends TextureProjected2D
 
     public static final int BYTES_PER_SHORT = 2;
 
+    protected static final PixelLayout SHORT_LAYOUT = new PixelLayout( GL2.GL_LUMINANCE_INTEGER, GL2.GL_SHORT, BYTES_PER_SHORT );
+
     public ShortTextureProjected2D( int dataSizeX, int dataSizeY )
     {
         this( dataSizeX, dataSizeY, false );
@@ -94,6 +96,12 @@ public class ShortTextureProjected2D extends TextureProjected2D
         return dataSizeX * dataSizeY * BYTES_PER_SHORT;
     }
 
+    @Override
+    protected PixelLayout getPixelLayout( )
+    {
+        return SHORT_LAYOUT;
+    }
+
     @Override
     protected float getData( int index )
     {
@@ -141,11 +149,37 @@ public class ShortTextureProjected2D extends TextureProjected2D
         }
     }
 
+    /**
+     * Like {@link #mutate(MutatorShort2D)}, but for mutators which report the regions of the
+     * texture they change. Only the reported regions are uploaded to the device.
+     */
+    public void mutate( RegionMutatorShort2D mutator )
+    {
+        lock.lock( );
+        try
+        {
+            data.rewind( );
+            mutator.mutate( data.asShortBuffer( ), dataSizeX, dataSizeY, dirtyRegionTracker );
+        }
+        finally
+        {
+            lock.unlock( );
+        }
+    }
+
     public static interface MutatorShort2D
     {
         public void mutate( ShortBuffer data, int dataSizeX, int dataSizeY );
     }
 
+    public static interface RegionMutatorShort2D
+    {
+        /**
+         * Changes data in place, reporting each changed region to dirty.
+         */
+        public void mutate( ShortBuffer data, int dataSizeX, int dataSizeY, DirtyRegions dirty );
+    }
+
     public static class SetDataMutator implements MutatorShort2D
     {
         public short[][] data;
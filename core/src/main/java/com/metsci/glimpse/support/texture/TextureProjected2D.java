@@ -42,6 +42,7 @@ import com.jogamp.common.nio.Buffers;
 import com.metsci.glimpse.gl.texture.DrawableTexture;
 import com.metsci.glimpse.support.projection.InvertibleProjection;
 import com.metsci.glimpse.support.projection.Projection;
+import com.metsci.glimpse.util.primitives.IntsArray;
 
 public abstract class TextureProjected2D implements DrawableTexture
 {
@@ -49,6 +50,9 @@ public abstract class TextureProjected2D implements DrawableTexture
     public static final int VERTICES_PER_QUAD = 4;
     public static final int BYTES_PER_FLOAT = 4;
 
+    // dirty regions beyond this count are collapsed into their bounding box
+    public static final int MAX_DIRTY_REGIONS = 16;
+
     private static final Logger logger = Logger.getLogger( TextureProjected2D.class.getName( ) );
 
     // projection defining the mapping from texel (texture index) to vertex coordinate
@@ -99,8 +103,27 @@ public abstract class TextureProjected2D implements DrawableTexture
 
     protected boolean dirty;
 
+    // regions of texels changed since the last upload, as (minX, minY, maxX, maxY) quadruples
+    // with exclusive maxima, uploaded with glTexSubImage2D unless the whole texture is dirty
+    protected IntsArray dirtyRegions;
+
+    // receives the regions reported by region mutators
+    protected DirtyRegions dirtyRegionTracker;
+
+    // whether sub-image uploads are staged through a pixel buffer object
+    protected boolean usePixelBuffer;
+    protected int pixelBufferHandle;
+
     protected boolean projectionDirty;
 
+    // in rolling mode, the column and row of data holding the first (oldest) column and
+    // row of the texture, which is treated as a circular buffer along the rolled axes
+    protected int rollOffsetX;
+    protected int rollOffsetY;
+
+    // whether the texture coordinates, which apply the roll offsets, must be recomputed
+    protected boolean texCoordsDirty;
+
     protected int dataSizeX;
     protected int dataSizeY;
 
@@ -112,6 +135,18 @@ public abstract class TextureProjected2D implements DrawableTexture
         this.dataSizeX = dataSizeX;
         this.dataSizeY = dataSizeY;
         this.data = newByteBuffer( );
+
+        this.dirtyRegions = new IntsArray( );
+        this.dirtyRegionTracker = new DirtyRegions( )
+        {
+            @Override
+            public void add( int minX, int minY, int maxX, int maxY )
+            {
+                makeDirty( minX, minY, maxX, maxY );
+            }
+        };
+
+        this.pixelBufferHandle = -1;
     }
 
     protected abstract void prepare_setData( GL2 gl );
@@ -157,7 +192,10 @@ public abstract class TextureProjected2D implements DrawableTexture
         {
             if ( indexX < 0 || indexY < 0 || indexX >= dataSizeX || indexY >= dataSizeY ) return 0.0f;
 
-            return getData( indexY * dataSizeX + indexX );
+            int x = ( indexX + rollOffsetX ) % dataSizeX;
+            int y = ( indexY + rollOffsetY ) % dataSizeY;
+
+            return getData( y * dataSizeX + x );
         }
         finally
         {
@@ -176,10 +214,122 @@ public abstract class TextureProjected2D implements DrawableTexture
         this.dirty = true;
     }
 
+    /**
+     * Indicates that only the texels in [minX, maxX) x [minY, maxY) have changed. Unless the
+     * whole texture is already dirty, only the changed regions of the affected tiles are
+     * uploaded (using glTexSubImage2D) the next time the texture is prepared.
+     */
+    public void makeDirty( int minX, int minY, int maxX, int maxY )
+    {
+        lock.lock( );
+        try
+        {
+            minX = Math.max( minX, 0 );
+            minY = Math.max( minY, 0 );
+            maxX = Math.min( maxX, dataSizeX );
+            maxY = Math.min( maxY, dataSizeY );
+
+            if ( minX >= maxX || minY >= maxY ) return;
+
+            addDirtyRegion( minX, minY, maxX, maxY );
+        }
+        finally
+        {
+            lock.unlock( );
+        }
+    }
+
+    protected void addDirtyRegion( int minX, int minY, int maxX, int maxY )
+    {
+        // absorb regions which the new one can be combined with at no extra cost, such
+        // as adjacent rows of equal width, repeating since the grown region may reach others
+        boolean merged = true;
+        while ( merged )
+        {
+            merged = false;
+
+            int[] a = dirtyRegions.a;
+            for ( int i = 0; i < dirtyRegions.n; i += 4 )
+            {
+                int unionMinX = Math.min( minX, a[i] );
+                int unionMinY = Math.min( minY, a[i + 1] );
+                int unionMaxX = Math.max( maxX, a[i + 2] );
+                int unionMaxY = Math.max( maxY, a[i + 3] );
+
+                long unionArea = area( unionMinX, unionMinY, unionMaxX, unionMaxY );
+                if ( unionArea <= area( minX, minY, maxX, maxY ) + area( a[i], a[i + 1], a[i + 2], a[i + 3] ) )
+                {
+                    minX = unionMinX;
+                    minY = unionMinY;
+                    maxX = unionMaxX;
+                    maxY = unionMaxY;
+
+                    dirtyRegions.removeRange( i, i + 4 );
+                    merged = true;
+                    break;
+                }
+            }
+        }
+
+        dirtyRegions.append( new int[] { minX, minY, maxX, maxY } );
+
+        if ( dirtyRegions.n > 4 * MAX_DIRTY_REGIONS )
+        {
+            int[] a = dirtyRegions.a;
+            for ( int i = 0; i < dirtyRegions.n; i += 4 )
+            {
+                minX = Math.min( minX, a[i] );
+                minY = Math.min( minY, a[i + 1] );
+                maxX = Math.max( maxX, a[i + 2] );
+                maxY = Math.max( maxY, a[i + 3] );
+            }
+
+            dirtyRegions.clear( );
+            dirtyRegions.append( new int[] { minX, minY, maxX, maxY } );
+        }
+    }
+
+    protected static long area( int minX, int minY, int maxX, int maxY )
+    {
+        return ( long ) ( maxX - minX ) * ( maxY - minY );
+    }
+
     @Override
     public boolean isDirty( )
     {
-        return dirty || projectionDirty;
+        return dirty || projectionDirty || texCoordsDirty || !dirtyRegions.isEmpty( );
+    }
+
+    /**
+     * If true, changed regions are copied into a pixel buffer object and transferred
+     * to the textures from there, letting the driver perform the transfer asynchronously
+     * instead of blocking until it has copied the data. Ignored if pixel buffer objects
+     * are not supported. Off by default.
+     */
+    public void setUsePixelBuffer( boolean usePixelBuffer )
+    {
+        lock.lock( );
+        try
+        {
+            this.usePixelBuffer = usePixelBuffer;
+        }
+        finally
+        {
+            lock.unlock( );
+        }
+    }
+
+    public boolean isUsePixelBuffer( )
+    {
+        lock.lock( );
+        try
+        {
+            return usePixelBuffer;
+        }
+        finally
+        {
+            lock.unlock( );
+        }
     }
 
     @Override
@@ -216,6 +366,13 @@ public abstract class TextureProjected2D implements DrawableTexture
                 allocate_genBuffers( gl );
             }
 
+            // texture coordinates can only wrap around within a single texture, so data
+            // rolled along an axis split across several textures is put back in order
+            if ( glAllocated && isRolledAcrossTextures( ) )
+            {
+                unroll( );
+            }
+
             gl.glActiveTexture( getGLTextureUnit( texUnit ) );
 
             prepare_glState( gl );
@@ -224,13 +381,31 @@ public abstract class TextureProjected2D implements DrawableTexture
             {
                 prepare_setData( gl );
                 dirty = false;
+                dirtyRegions.clear( );
+            }
+            else if ( glAllocated && !dirtyRegions.isEmpty( ) )
+            {
+                if ( getPixelLayout( ) != null )
+                {
+                    prepare_setSubData( gl );
+                }
+                else
+                {
+                    prepare_setData( gl );
+                }
+                dirtyRegions.clear( );
             }
 
             if ( glAllocated && projectionDirty )
             {
                 prepare_setCoords( gl );
                 projectionDirty = false;
-
+                texCoordsDirty = false;
+            }
+            else if ( glAllocated && texCoordsDirty )
+            {
+                prepare_setTexCoords( gl );
+                texCoordsDirty = false;
             }
 
             return !isDirty( );
@@ -301,6 +476,12 @@ public abstract class TextureProjected2D implements DrawableTexture
         {
             gl.glDeleteBuffers( texCoordHandles.length, texCoordHandles, 0 );
         }
+
+        if ( pixelBufferHandle != -1 )
+        {
+            gl.glDeleteBuffers( 1, new int[] { pixelBufferHandle }, 0 );
+            pixelBufferHandle = -1;
+        }
     }
 
     protected int getTextureType( )
@@ -398,6 +579,140 @@ public abstract class TextureProjected2D implements DrawableTexture
         makeProjectionDirty( );
     }
 
+    /**
+     * Describes the layout of the pixels in data. Subclasses which supply one get changed
+     * regions uploaded with glTexSubImage2D, and may {@link #roll(int, int)}. Without one
+     * (the default, for textures whose data is handled elsewhere) the whole texture is
+     * uploaded whenever any region changes.
+     */
+    protected PixelLayout getPixelLayout( )
+    {
+        return null;
+    }
+
+    protected void prepare_setSubData( GL2 gl )
+    {
+        PixelLayout layout = getPixelLayout( );
+        int rowBytes = dataSizeX * layout.getBytesPerPixel( );
+        int[] a = dirtyRegions.a;
+        int n = dirtyRegions.n;
+
+        // the pixel buffer holds the full rows of each dirty region, one region after another
+        long[] regionOffsets = null;
+        if ( usePixelBuffer && isPixelBufferSupported( gl ) )
+        {
+            regionOffsets = prepare_fillPixelBuffer( gl, rowBytes );
+        }
+
+        gl.glPixelStorei( GL2.GL_UNPACK_ALIGNMENT, 1 );
+        gl.glPixelStorei( GL2.GL_UNPACK_ROW_LENGTH, dataSizeX );
+
+        for ( int r = 0; r < n; r += 4 )
+        {
+            int minX = a[r];
+            int minY = a[r + 1];
+            int maxX = a[r + 2];
+            int maxY = a[r + 3];
+
+            for ( int i = 0; i < numTextures; i++ )
+            {
+                int tileMinX = Math.max( minX, texStartsX[i] );
+                int tileMinY = Math.max( minY, texStartsY[i] );
+                int tileMaxX = Math.min( maxX, texStartsX[i] + texSizesX[i] );
+                int tileMaxY = Math.min( maxY, texStartsY[i] + texSizesY[i] );
+
+                if ( tileMinX >= tileMaxX || tileMinY >= tileMaxY ) continue;
+
+                gl.glBindTexture( getTextureType( ), textureHandles[i] );
+                gl.glPixelStorei( GL2.GL_UNPACK_SKIP_PIXELS, tileMinX );
+
+                int offsetX = tileMinX - texStartsX[i];
+                int offsetY = tileMinY - texStartsY[i];
+                int sizeX = tileMaxX - tileMinX;
+                int sizeY = tileMaxY - tileMinY;
+
+                // as in prepare_setData, rows are skipped by offsetting into the data rather than
+                // with GL_UNPACK_SKIP_ROWS
+                if ( regionOffsets != null )
+                {
+                    long offset = regionOffsets[r / 4] + ( long ) ( tileMinY - minY ) * rowBytes;
+                    gl.glTexSubImage2D( GL2.GL_TEXTURE_2D, 0, offsetX, offsetY, sizeX, sizeY, layout.getFormat( ), layout.getType( ), offset );
+                }
+                else
+                {
+                    ByteBuffer pixels = data.duplicate( );
+                    pixels.limit( pixels.capacity( ) ).position( tileMinY * rowBytes );
+                    gl.glTexSubImage2D( GL2.GL_TEXTURE_2D, 0, offsetX, offsetY, sizeX, sizeY, layout.getFormat( ), layout.getType( ), pixels );
+                }
+            }
+        }
+
+        if ( regionOffsets != null )
+        {
+            gl.glBindBuffer( GL2.GL_PIXEL_UNPACK_BUFFER, 0 );
+        }
+
+        gl.glPixelStorei( GL2.GL_UNPACK_SKIP_PIXELS, 0 );
+        gl.glPixelStorei( GL2.GL_UNPACK_SKIP_ROWS, 0 );
+        gl.glPixelStorei( GL2.GL_UNPACK_ROW_LENGTH, 0 );
+    }
+
+    /**
+     * Copies the rows of each dirty region into the pixel buffer and leaves it bound to
+     * GL_PIXEL_UNPACK_BUFFER. Returns the byte offset of each region within the pixel
+     * buffer, or null (with nothing bound) if the pixel buffer could not be mapped.
+     */
+    protected long[] prepare_fillPixelBuffer( GL2 gl, int rowBytes )
+    {
+        int[] a = dirtyRegions.a;
+        int n = dirtyRegions.n;
+
+        long[] regionOffsets = new long[n / 4];
+        long size = 0;
+        for ( int r = 0; r < n; r += 4 )
+        {
+            regionOffsets[r / 4] = size;
+            size += ( long ) ( a[r + 3] - a[r + 1] ) * rowBytes;
+        }
+
+        if ( pixelBufferHandle == -1 )
+        {
+            int[] handle = new int[1];
+            gl.glGenBuffers( 1, handle, 0 );
+            pixelBufferHandle = handle[0];
+        }
+
+        gl.glBindBuffer( GL2.GL_PIXEL_UNPACK_BUFFER, pixelBufferHandle );
+
+        // reallocating detaches the storage still being read by earlier transfers, so
+        // the driver need not wait for them before the buffer is mapped
+        gl.glBufferData( GL2.GL_PIXEL_UNPACK_BUFFER, size, null, GL2.GL_STREAM_DRAW );
+        ByteBuffer mapped = gl.glMapBuffer( GL2.GL_PIXEL_UNPACK_BUFFER, GL2.GL_WRITE_ONLY );
+
+        if ( mapped == null )
+        {
+            gl.glBindBuffer( GL2.GL_PIXEL_UNPACK_BUFFER, 0 );
+            return null;
+        }
+
+        ByteBuffer rows = data.duplicate( );
+        for ( int r = 0; r < n; r += 4 )
+        {
+            rows.limit( a[r + 3] * rowBytes ).position( a[r + 1] * rowBytes );
+            mapped.put( rows );
+            rows.limit( rows.capacity( ) );
+        }
+
+        gl.glUnmapBuffer( GL2.GL_PIXEL_UNPACK_BUFFER );
+
+        return regionOffsets;
+    }
+
+    protected static boolean isPixelBufferSupported( GL gl )
+    {
+        return gl.isExtensionAvailable( "GL_VERSION_2_1" ) || gl.isExtensionAvailable( "GL_ARB_pixel_buffer_object" );
+    }
+
     public static int getMaxGLTextureSize( GL gl )
     {
         int[] result = new int[1];
@@ -425,12 +740,29 @@ public abstract class TextureProjected2D implements DrawableTexture
             putVerticesCoords( i, texStartsX[i], texStartsY[i], texSizesX[i], texSizesY[i], temp );
             gl.glBindBuffer( GL2.GL_ARRAY_BUFFER, vertexCoordHandles[i] );
             gl.glBufferData( GL2.GL_ARRAY_BUFFER, projectFloats * BYTES_PER_FLOAT, coordBuffer.rewind( ), GL2.GL_STATIC_DRAW );
+        }
+
+        prepare_setTexCoords( gl );
+    }
+
+    protected void prepare_setTexCoords( GL gl )
+    {
+        for ( int i = 0; i < numTextures; i++ )
+        {
+            int projectFloats = texQuadCounts[i] * VERTICES_PER_QUAD * 2;
+            if ( coordBuffer == null || coordBuffer.capacity( ) < projectFloats ) coordBuffer = Buffers.newDirectFloatBuffer( projectFloats );
 
             coordBuffer.rewind( );
             putVerticesTexCoords( i, texStartsX[i], texStartsY[i], texSizesX[i], texSizesY[i] );
             gl.glBindBuffer( GL2.GL_ARRAY_BUFFER, texCoordHandles[i] );
             gl.glBufferData( GL2.GL_ARRAY_BUFFER, projectFloats * BYTES_PER_FLOAT, coordBuffer.rewind( ), GL2.GL_STATIC_DRAW );
+
+            // the wrap mode depends on whether the texture is rolled
+            gl.glBindTexture( getTextureType( ), textureHandles[i] );
+            prepare_setTexParameters( gl );
         }
+
+        gl.glBindBuffer( GL2.GL_ARRAY_BUFFER, 0 );
     }
 
     protected void putVerticesCoords( int texIndex, int texStartX, int texStartY, int texSizeX, int texSizeY, float[] temp )
@@ -498,7 +830,11 @@ public abstract class TextureProjected2D implements DrawableTexture
 
     protected void putVertexTexCoords( int texIndex, double texFracX, double texFracY )
     {
-        coordBuffer.put( ( float ) texFracX ).put( ( float ) texFracY );
+        // in rolling mode the coordinates start at the oldest data and wrap around past the edge
+        double rollFracX = rollOffsetX / ( double ) texSizesX[texIndex];
+        double rollFracY = rollOffsetY / ( double ) texSizesY[texIndex];
+
+        coordBuffer.put( ( float ) ( texFracX + rollFracX ) ).put( ( float ) ( texFracY + rollFracY ) );
     }
 
     protected void prepare_setTexParameters( GL gl )
@@ -506,8 +842,79 @@ public abstract class TextureProjected2D implements DrawableTexture
         gl.glTexParameteri( GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_MAG_FILTER, GL2.GL_NEAREST );
         gl.glTexParameteri( GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_MIN_FILTER, GL2.GL_NEAREST );
 
-        gl.glTexParameteri( GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_WRAP_S, GL2.GL_CLAMP );
-        gl.glTexParameteri( GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_WRAP_T, GL2.GL_CLAMP );
+        gl.glTexParameteri( GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_WRAP_S, rollOffsetX != 0 ? GL2.GL_REPEAT : GL2.GL_CLAMP );
+        gl.glTexParameteri( GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_WRAP_T, rollOffsetY != 0 ? GL2.GL_REPEAT : GL2.GL_CLAMP );
+    }
+
+    protected boolean isRolledAcrossTextures( )
+    {
+        return ( rollOffsetX != 0 && textureCountX > 1 ) || ( rollOffsetY != 0 && textureCountY > 1 );
+    }
+
+    /**
+     * Scrolls a rolling texture by the given number of columns and rows. The first columns
+     * and rows of the texture become its last, without moving any data: the texture is drawn
+     * starting from the new roll offsets instead. Only textures with a
+     * {@link #getPixelLayout() pixel layout} can roll, since putting rolled data back
+     * in order requires knowing its pixel size.
+     */
+    protected void roll( int columns, int rows )
+    {
+        if ( getPixelLayout( ) == null )
+        {
+            throw new UnsupportedOperationException( "roll() requires a pixel layout, which " + getClass( ).getSimpleName( ) + " does not supply." );
+        }
+
+        if ( columns != 0 ) rollOffsetX = ( rollOffsetX + columns ) % dataSizeX;
+        if ( rows != 0 ) rollOffsetY = ( rollOffsetY + rows ) % dataSizeY;
+
+        texCoordsDirty = true;
+    }
+
+    /**
+     * Rotates data back into order, so that the first column and row of the texture are the
+     * first in data, and clears the roll offsets. This dirties the whole texture.
+     */
+    protected void unroll( )
+    {
+        if ( rollOffsetX == 0 && rollOffsetY == 0 ) return;
+
+        int pixelBytes = getPixelLayout( ).getBytesPerPixel( );
+        int rowBytes = dataSizeX * pixelBytes;
+
+        if ( rollOffsetY != 0 )
+        {
+            int shift = rollOffsetY * rowBytes;
+            rotate( data, 0, dataSizeY * rowBytes, shift, new byte[shift] );
+        }
+
+        if ( rollOffsetX != 0 )
+        {
+            int shift = rollOffsetX * pixelBytes;
+            byte[] temp = new byte[shift];
+            for ( int y = 0; y < dataSizeY; y++ )
+            {
+                rotate( data, y * rowBytes, rowBytes, shift, temp );
+            }
+        }
+
+        rollOffsetX = 0;
+        rollOffsetY = 0;
+
+        makeDirty( );
+        texCoordsDirty = true;
+    }
+
+    // moves the first shift bytes of [start, start + length) to the end of the range
+    protected static void rotate( ByteBuffer buffer, int start, int length, int shift, byte[] temp )
+    {
+        ByteBuffer range = buffer.duplicate( );
+        range.limit( start + length ).position( start );
+        range = range.slice( );
+
+        range.get( temp, 0, shift );
+        range.compact( );
+        range.put( temp, 0, shift );
     }
 
     protected ByteBuffer newByteBuffer( )
@@ -559,6 +966,9 @@ public abstract class TextureProjected2D implements DrawableTexture
 
             this.glAllocated = false;
 
+            this.rollOffsetX = 0;
+            this.rollOffsetY = 0;
+
             if ( this.data == null || this.data.capacity( ) < getRequiredCapacityBytes( ) ) this.data = newByteBuffer( );
 
             makeDirty( );
@@ -596,4 +1006,46 @@ public abstract class TextureProjected2D implements DrawableTexture
             lock.unlock( );
         }
     }
+
+    /**
+     * Receives the regions of texels changed by a region mutator, such as
+     * {@link FloatTextureProjected2D.RegionMutatorFloat2D}. Each region spans
+     * [minX, maxX) x [minY, maxY).
+     */
+    public static interface DirtyRegions
+    {
+        public void add( int minX, int minY, int maxX, int maxY );
+    }
+
+    /**
+     * The format, type and size of one pixel of a texture's data, as passed to glTexSubImage2D.
+     */
+    public static class PixelLayout
+    {
+        protected final int format;
+        protected final int type;
+        protected final int bytesPerPixel;
+
+        public PixelLayout( int format, int type, int bytesPerPixel )
+        {
+            this.format = format;
+            this.type = type;
+            this.bytesPerPixel = bytesPerPixel;
+        }
+
+        public int getFormat( )
+        {
+            return format;
+        }
+
+        public int getType( )
+        {
+            return type;
+        }
+
+        public int getBytesPerPixel( )
+        {
+            return bytesPerPixel;
+        }
+    }
 }
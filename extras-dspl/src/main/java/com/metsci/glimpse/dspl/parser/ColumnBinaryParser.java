@@ -29,10 +29,15 @@ package com.metsci.glimpse.dspl.parser;
 import static com.metsci.glimpse.dspl.parser.util.ParserUtils.*;
 import static com.metsci.glimpse.util.GeneralUtils.*;
 
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channel;
 import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
@@ -47,6 +52,7 @@ import javax.xml.bind.JAXBException;
 import com.metsci.glimpse.dspl.parser.SimpleBinaryParser.HeaderInformation;
 import com.metsci.glimpse.dspl.parser.column.CompactInternStringTableColumn;
 import com.metsci.glimpse.dspl.parser.column.CompactStringTableColumn;
+import com.metsci.glimpse.dspl.parser.column.MappedTableColumn;
 import com.metsci.glimpse.dspl.parser.column.SimpleTableColumn;
 import com.metsci.glimpse.dspl.parser.column.SliceColumnType;
 import com.metsci.glimpse.dspl.parser.column.TableColumn;
@@ -67,9 +73,22 @@ import com.metsci.glimpse.dspl.util.DsplHelper;
 import com.metsci.glimpse.util.io.datapipe.ReadableDataChannel;
 import com.metsci.glimpse.util.io.datapipe.WritableDataChannel;
 
+/**
+ * Reads and writes the columnar .bin format used for DSPL table caches.
+ *
+ * <p>Version 2 files ({@link #MAGIC_V2}) follow the column ids in the header with a directory
+ * giving the byte offset and length of each column. When read from a file, each column is memory
+ * mapped and decoded only on first access (see {@link MappedTableColumn}), so opening a large
+ * table is fast and only the columns actually used occupy the heap. Version 1 files ({@link #MAGIC}),
+ * which have no directory, are still read eagerly. New files are always written as version 2.</p>
+ *
+ * <p>Because columns read from a file keep mappings of it, a file which has been read must not be
+ * overwritten in place (see {@link MappedTableColumn}).</p>
+ */
 public class ColumnBinaryParser implements TableParser, TableWriter
 {
     public static final int MAGIC = 0x1234CDEF;
+    public static final int MAGIC_V2 = 0x1234CDF2;
     public static final String ENCODING = "UTF-8";
 
     protected SimpleParserFactory factory;
@@ -92,17 +111,12 @@ public class ColumnBinaryParser implements TableParser, TableWriter
 
         try
         {
-            // each .bin file must start with the correct magic number identifier
-            dataChannel.writeInt( MAGIC );
-
             Collection<String> dimensionConceptIds = data.getDimensionColumnIds( );
             Collection<String> metricConceptIds = data.getMetricColumnIds( );
 
-            // count the number of columns to write out
-            // constant columns have their value specified in the dspl metadata, so they are not counted
-            int numColumns = 0;
             int numRows = data.getNumRows( );
 
+            // constant columns have their value specified in the dspl metadata, so they are not written
             List<TableColumn> columnList = new ArrayList<TableColumn>( );
 
             for ( String dimensionConceptId : dimensionConceptIds )
@@ -112,7 +126,6 @@ public class ColumnBinaryParser implements TableParser, TableWriter
                 if ( !column.isConstant( ) )
                 {
                     columnList.add( column );
-                    numColumns++;
                 }
             }
 
@@ -123,40 +136,10 @@ public class ColumnBinaryParser implements TableParser, TableWriter
                 if ( !column.isConstant( ) )
                 {
                     columnList.add( column );
-                    numColumns++;
-                }
-            }
-
-            // write the number of rows and columns in the data set
-            dataChannel.writeInt( numColumns );
-            dataChannel.writeInt( numRows );
-
-            // write the header information for non-constant columns
-            for ( String dimensionConceptId : dimensionConceptIds )
-            {
-                TableColumn column = data.getDimensionColumn( dimensionConceptId );
-
-                if ( !column.isConstant( ) )
-                {
-                    dataChannel.writeString( column.getColumn( ).getId( ) );
                 }
             }
 
-            for ( String metricConceptId : metricConceptIds )
-            {
-                TableColumn column = data.getMetricColumn( metricConceptId );
-
-                if ( !column.isConstant( ) )
-                {
-                    dataChannel.writeString( column.getColumn( ).getId( ) );
-                }
-            }
-
-            for ( int j = 0; j < numColumns; j++ )
-            {
-                TableColumn column = columnList.get( j );
-                write( column, dataChannel );
-            }
+            write( columnList, numRows, dataChannel );
         }
         finally
         {
@@ -177,16 +160,11 @@ public class ColumnBinaryParser implements TableParser, TableWriter
 
         try
         {
-            // each .bin file must start with the correct magic number identifier
-            dataChannel.writeInt( MAGIC );
-
             Collection<String> conceptIds = data.getColumnIds( );
 
-            // count the number of columns to write out
-            // constant columns have their value specified in the dspl metadata, so they are not counted
-            int numColumns = 0;
             int numRows = data.getNumRows( );
 
+            // constant columns have their value specified in the dspl metadata, so they are not written
             List<TableColumn> columnList = new ArrayList<TableColumn>( );
 
             for ( String conceptId : conceptIds )
@@ -196,30 +174,10 @@ public class ColumnBinaryParser implements TableParser, TableWriter
                 if ( !column.isConstant( ) )
                 {
                     columnList.add( column );
-                    numColumns++;
                 }
             }
 
-            // write the number of rows and columns in the data set
-            dataChannel.writeInt( numColumns );
-            dataChannel.writeInt( numRows );
-
-            // write the header information for non-constant columns
-            for ( String conceptId : conceptIds )
-            {
-                TableColumn column = data.getColumn( conceptId );
-
-                if ( !column.isConstant( ) )
-                {
-                    dataChannel.writeString( column.getColumn( ).getId( ) );
-                }
-            }
-
-            for ( int j = 0; j < numColumns; j++ )
-            {
-                TableColumn column = columnList.get( j );
-                write( column, dataChannel );
-            }
+            write( columnList, numRows, dataChannel );
         }
         finally
         {
@@ -235,6 +193,80 @@ public class ColumnBinaryParser implements TableParser, TableWriter
 
     }
 
+    /**
+     * Writes the header, column directory, and data of a version 2 file. The directory holds the
+     * absolute byte offset and length of each column so that readers can map only the columns they use.
+     */
+    protected void write( List<TableColumn> columnList, int numRows, WritableDataChannel dataChannel ) throws DsplException, IOException
+    {
+        int numColumns = columnList.size( );
+
+        String[] columnIds = new String[numColumns];
+        long headerSize = 12 + 16L * numColumns;
+        for ( int j = 0; j < numColumns; j++ )
+        {
+            columnIds[j] = columnList.get( j ).getColumn( ).getId( );
+            headerSize += 4 + columnIds[j].getBytes( ENCODING ).length;
+        }
+
+        // each .bin file must start with the correct magic number identifier
+        dataChannel.writeInt( MAGIC_V2 );
+
+        // write the number of rows and columns in the data set
+        dataChannel.writeInt( numColumns );
+        dataChannel.writeInt( numRows );
+
+        // write the header information for non-constant columns
+        for ( int j = 0; j < numColumns; j++ )
+        {
+            dataChannel.writeString( columnIds[j] );
+        }
+
+        // write the column directory, columns are stored contiguously after the header
+        long offset = headerSize;
+        for ( int j = 0; j < numColumns; j++ )
+        {
+            long length = getEncodedSize( columnList.get( j ) );
+            dataChannel.writeLong( offset );
+            dataChannel.writeLong( length );
+            offset += length;
+        }
+
+        for ( int j = 0; j < numColumns; j++ )
+        {
+            write( columnList.get( j ), dataChannel );
+        }
+    }
+
+    /**
+     * @return the number of bytes {@link #write(TableColumn, WritableDataChannel)} will write for the column
+     */
+    protected long getEncodedSize( TableColumn column ) throws DsplException, IOException
+    {
+        String columnFormat = column.getColumn( ).getFormat( );
+        long size = column.getSize( );
+
+        switch ( column.getType( ) )
+        {
+        case STRING:
+            if ( columnFormat != null && columnFormat.contentEquals( "intern" ) )
+                return getInternStringArraySize( column.getStringData( ) );
+            else
+                return getStringArraySize( column.getStringData( ) );
+        case FLOAT:
+        case INTEGER:
+            return 4 * size;
+        case BOOLEAN:
+            return size;
+        case DATE:
+            return 8 * size;
+        case CONCEPT:
+            return getStringArraySize( column.getStringData( ) );
+        default:
+            throw new DsplException( "Unknown Type %s provided.", column.getType( ) );
+        }
+    }
+
     protected void write( TableColumn column, WritableDataChannel dataChannel ) throws DsplException, IOException
     {
         String columnFormat = column.getColumn( ).getFormat( );
@@ -283,7 +315,7 @@ public class ColumnBinaryParser implements TableParser, TableWriter
     @Override
     public PropertyTableData parse( Concept concept, InputStream stream ) throws IOException, JAXBException, DsplException
     {
-        return parse( concept, Channels.newChannel( stream ) );
+        return parse( concept, newChannel( stream ) );
     }
 
     @Override
@@ -295,51 +327,16 @@ public class ColumnBinaryParser implements TableParser, TableWriter
         {
             BinaryTableParserInfo info = newParserInfo( concept, dataChannel );
 
-            Concept[] concepts = info.getConcepts( );
             Column[] columns = info.getColumns( );
-            DataType[] types = info.getDataTypes( );
             int numRows = info.getNumRows( );
 
             Map<String, TableColumn> map = new HashMap<String, TableColumn>( );
 
+            TableColumn[] columnData = readColumns( info, dataChannel );
+
             for ( int i = 0; i < info.getNumColumns( ); i++ )
             {
-                DataType type = types[i];
-                Column column = columns[i];
-                Concept columnConcept = concepts[i];
-                String columnFormat = column.getFormat( );
-
-                TableColumn columnData = null;
-
-                switch ( type )
-                {
-                case STRING:
-                    if ( columnFormat != null && columnFormat.contentEquals( "intern" ) )
-                        columnData = readInternStringArray( dataChannel, column, columnConcept, new String[numRows] );
-                    else
-                        columnData = readStringArray( dataChannel, column, columnConcept, new String[numRows] );
-                    break;
-
-                case FLOAT:
-                    columnData = new SimpleTableColumn( column, columnConcept, type, dataChannel.readFloatArray( new float[numRows] ), numRows );
-                    break;
-                case INTEGER:
-                    columnData = new SimpleTableColumn( column, columnConcept, type, dataChannel.readIntArray( new int[numRows] ), numRows );
-                    break;
-                case BOOLEAN:
-                    columnData = new SimpleTableColumn( column, columnConcept, type, dataChannel.readBooleanArray( new boolean[numRows] ), numRows );
-                    break;
-                case DATE:
-                    columnData = new SimpleTableColumn( column, columnConcept, type, dataChannel.readLongArray( new long[numRows] ), numRows );
-                    break;
-                case CONCEPT:
-                    columnData = readStringArray( dataChannel, column, columnConcept, new String[numRows] );
-                    break;
-                default:
-                    throw new DsplException( "Unknown Type %s provided for Column %s.", type, info.getColumnIds( )[i] );
-                }
-
-                map.put( column.getId( ), columnData );
+                map.put( columns[i].getId( ), columnData[i] );
             }
 
             map.putAll( getConstantTableColumns( concept, info, factory, numRows ) );
@@ -355,7 +352,7 @@ public class ColumnBinaryParser implements TableParser, TableWriter
     @Override
     public SliceTableData parse( Slice slice, InputStream stream ) throws IOException, JAXBException, DsplException
     {
-        return parse( slice, Channels.newChannel( stream ) );
+        return parse( slice, newChannel( stream ) );
     }
 
     @Override
@@ -367,9 +364,7 @@ public class ColumnBinaryParser implements TableParser, TableWriter
         {
             BinaryTableParserInfo info = newParserInfo( slice, dataChannel );
 
-            Concept[] concepts = info.getConcepts( );
             Column[] columns = info.getColumns( );
-            DataType[] types = info.getDataTypes( );
             SliceColumnType[] sliceColumnTypes = info.getSliceColumnTypes( );
             int numRows = info.getNumRows( );
 
@@ -377,15 +372,11 @@ public class ColumnBinaryParser implements TableParser, TableWriter
             Map<String, TableColumn> metricMap = new HashMap<String, TableColumn>( );
             Map<String, TableColumn> map = null;
 
+            TableColumn[] columnData = readColumns( info, dataChannel );
+
             for ( int i = 0; i < info.getNumColumns( ); i++ )
             {
-                DataType type = types[i];
-                Column column = columns[i];
-                Concept columnConcept = concepts[i];
-                SliceColumnType sliceType = sliceColumnTypes[i];
-                String columnFormat = column.getFormat( );
-
-                switch ( sliceType )
+                switch ( sliceColumnTypes[i] )
                 {
                 case Dimension:
                     map = dimensionMap;
@@ -395,37 +386,7 @@ public class ColumnBinaryParser implements TableParser, TableWriter
                     break;
                 }
 
-                TableColumn columnData = null;
-
-                switch ( type )
-                {
-                case STRING:
-                    if ( columnFormat != null && columnFormat.contentEquals( "intern" ) )
-                        columnData = readInternStringArray( dataChannel, column, columnConcept, new String[numRows] );
-                    else
-                        columnData = readStringArray( dataChannel, column, columnConcept, new String[numRows] );
-                    break;
-
-                case FLOAT:
-                    columnData = new SimpleTableColumn( column, columnConcept, type, dataChannel.readFloatArray( new float[numRows] ), numRows );
-                    break;
-                case INTEGER:
-                    columnData = new SimpleTableColumn( column, columnConcept, type, dataChannel.readIntArray( new int[numRows] ), numRows );
-                    break;
-                case BOOLEAN:
-                    columnData = new SimpleTableColumn( column, columnConcept, type, dataChannel.readBooleanArray( new boolean[numRows] ), numRows );
-                    break;
-                case DATE:
-                    columnData = new SimpleTableColumn( column, columnConcept, type, dataChannel.readLongArray( new long[numRows] ), numRows );
-                    break;
-                case CONCEPT:
-                    columnData = readStringArray( dataChannel, column, columnConcept, new String[numRows] );
-                    break;
-                default:
-                    throw new DsplException( "Unknown Type %s provided for Column %s.", type, info.getColumnIds( )[i] );
-                }
-
-                map.put( column.getId( ), columnData );
+                map.put( columns[i].getId( ), columnData[i] );
             }
 
             dimensionMap.putAll( getConstantTableColumns( slice, info, factory, SliceColumnType.Dimension, numRows ) );
@@ -439,49 +400,178 @@ public class ColumnBinaryParser implements TableParser, TableWriter
         }
     }
 
+    /**
+     * File streams are read through their FileChannel so that version 2 columns can be memory mapped.
+     */
+    protected ReadableByteChannel newChannel( InputStream stream )
+    {
+        if ( stream instanceof FileInputStream )
+            return ( ( FileInputStream ) stream ).getChannel( );
+        else
+            return Channels.newChannel( stream );
+    }
+
+    protected TableColumn[] readColumns( BinaryTableParserInfo info, ReadableDataChannel dataChannel ) throws IOException, DsplException
+    {
+        int numColumns = info.getNumColumns( );
+        TableColumn[] columnData = new TableColumn[numColumns];
+
+        // version 1 files contain no column directory, so every column is read eagerly in order
+        if ( info.getColumnOffsets( ) == null )
+        {
+            for ( int i = 0; i < numColumns; i++ )
+            {
+                columnData[i] = readColumn( info, i, dataChannel );
+            }
+
+            return columnData;
+        }
+
+        long[] offsets = info.getColumnOffsets( );
+        long[] lengths = info.getColumnLengths( );
+
+        for ( int i = 0; i < numColumns; i++ )
+        {
+            if ( lengths[i] > Integer.MAX_VALUE ) throw new DsplException( "Column %s is too large to map (%d bytes).", info.getColumnIds( )[i], lengths[i] );
+        }
+
+        Channel channel = dataChannel.getChannel( );
+
+        // file data is mapped, so opening the table costs nothing until a column is accessed
+        // mapped regions remain valid after the channel is closed
+        if ( channel instanceof FileChannel )
+        {
+            FileChannel fileChannel = ( FileChannel ) channel;
+
+            for ( int i = 0; i < numColumns; i++ )
+            {
+                ByteBuffer buffer = fileChannel.map( MapMode.READ_ONLY, offsets[i], lengths[i] );
+                columnData[i] = newMappedColumn( info, i, buffer );
+            }
+        }
+        // other channels cannot be mapped, so the column bytes are copied to the heap (but still decoded lazily)
+        else
+        {
+            long position = info.getHeaderSize( );
+
+            for ( int i = 0; i < numColumns; i++ )
+            {
+                if ( offsets[i] < position ) throw new DsplException( "Column %s overlaps the previous column.", info.getColumnIds( )[i] );
+
+                if ( offsets[i] > position ) dataChannel.readByteArray( new byte[( int ) ( offsets[i] - position )] );
+
+                byte[] data = new byte[( int ) lengths[i]];
+                dataChannel.readByteArray( data );
+                columnData[i] = newMappedColumn( info, i, ByteBuffer.wrap( data ) );
+
+                position = offsets[i] + lengths[i];
+            }
+        }
+
+        return columnData;
+    }
+
+    protected TableColumn newMappedColumn( BinaryTableParserInfo info, int i, ByteBuffer buffer )
+    {
+        Column column = info.getColumns( )[i];
+        String columnFormat = column.getFormat( );
+        boolean intern = columnFormat != null && columnFormat.contentEquals( "intern" );
+
+        return new MappedTableColumn( column, info.getConcepts( )[i], info.getDataTypes( )[i], info.getNumRows( ), buffer, intern );
+    }
+
+    protected TableColumn readColumn( BinaryTableParserInfo info, int i, ReadableDataChannel dataChannel ) throws IOException, DsplException
+    {
+        DataType type = info.getDataTypes( )[i];
+        Column column = info.getColumns( )[i];
+        Concept columnConcept = info.getConcepts( )[i];
+        String columnFormat = column.getFormat( );
+        int numRows = info.getNumRows( );
+
+        switch ( type )
+        {
+        case STRING:
+            if ( columnFormat != null && columnFormat.contentEquals( "intern" ) )
+                return readInternStringArray( dataChannel, column, columnConcept, new String[numRows] );
+            else
+                return readStringArray( dataChannel, column, columnConcept, new String[numRows] );
+
+        case FLOAT:
+            return new SimpleTableColumn( column, columnConcept, type, dataChannel.readFloatArray( new float[numRows] ), numRows );
+        case INTEGER:
+            return new SimpleTableColumn( column, columnConcept, type, dataChannel.readIntArray( new int[numRows] ), numRows );
+        case BOOLEAN:
+            return new SimpleTableColumn( column, columnConcept, type, dataChannel.readBooleanArray( new boolean[numRows] ), numRows );
+        case DATE:
+            return new SimpleTableColumn( column, columnConcept, type, dataChannel.readLongArray( new long[numRows] ), numRows );
+        case CONCEPT:
+            return readStringArray( dataChannel, column, columnConcept, new String[numRows] );
+        default:
+            throw new DsplException( "Unknown Type %s provided for Column %s.", type, info.getColumnIds( )[i] );
+        }
+    }
+
     @Override
     public boolean isCachable( )
     {
         return false;
     }
 
-    protected HeaderInformation parseFirstLine( ReadableDataChannel dataChannel ) throws IOException, JAXBException, DsplException
+    protected BinaryHeaderInformation parseFirstLine( ReadableDataChannel dataChannel ) throws IOException, JAXBException, DsplException
     {
         int magic = dataChannel.readInt( );
 
-        if ( magic != MAGIC )
+        if ( magic != MAGIC && magic != MAGIC_V2 )
         {
-            throw new DsplException( "File does not contain proper header code: %s", Integer.toHexString( MAGIC ) );
+            throw new DsplException( "File does not contain proper header code: %s or %s", Integer.toHexString( MAGIC ), Integer.toHexString( MAGIC_V2 ) );
         }
 
         int numColumns = dataChannel.readInt( );
         int numRowsPerColumn = dataChannel.readInt( );
 
         String[] headerStrings = new String[numColumns];
+        long headerSize = 12;
 
         for ( int i = 0; i < numColumns; i++ )
         {
             headerStrings[i] = dataChannel.readString( );
+            headerSize += 4 + headerStrings[i].getBytes( ENCODING ).length;
         }
 
-        return new HeaderInformation( numColumns, numRowsPerColumn, headerStrings );
+        if ( magic == MAGIC )
+        {
+            return new BinaryHeaderInformation( numColumns, numRowsPerColumn, headerStrings, headerSize, null, null );
+        }
+
+        long[] columnOffsets = new long[numColumns];
+        long[] columnLengths = new long[numColumns];
+
+        for ( int i = 0; i < numColumns; i++ )
+        {
+            columnOffsets[i] = dataChannel.readLong( );
+            columnLengths[i] = dataChannel.readLong( );
+        }
+
+        headerSize += 16L * numColumns;
+
+        return new BinaryHeaderInformation( numColumns, numRowsPerColumn, headerStrings, headerSize, columnOffsets, columnLengths );
     }
 
     protected BinaryTableParserInfo newParserInfo( Concept concept, ReadableDataChannel dataChannel ) throws IOException, JAXBException, DsplException
     {
-        HeaderInformation header = parseFirstLine( dataChannel );
+        BinaryHeaderInformation header = parseFirstLine( dataChannel );
         String[] columnIds = header.getHeaderNames( );
         Concept[] concepts = getConcepts( columnIds, concept );
         Column[] columns = getColumns( columnIds, concept.getTable( ) );
         DataType[] types = getTypes( concepts, columns );
         TableColumnParser[] parsers = getParsers( factory, columns, types );
 
-        return new BinaryTableParserInfo( header.getNumColumns( ), header.getNumRowsPerColumn( ), columnIds, concepts, null, columns, types, parsers );
+        return new BinaryTableParserInfo( header, columnIds, concepts, null, columns, types, parsers );
     }
 
     protected BinaryTableParserInfo newParserInfo( Slice slice, ReadableDataChannel dataChannel ) throws IOException, JAXBException, DsplException
     {
-        HeaderInformation header = parseFirstLine( dataChannel );
+        BinaryHeaderInformation header = parseFirstLine( dataChannel );
         String[] columnIds = header.getHeaderNames( );
         int numColumns = header.getNumColumns( );
         Concept[] concepts = new Concept[numColumns];
@@ -491,7 +581,7 @@ public class ColumnBinaryParser implements TableParser, TableWriter
         DataType[] types = getTypes( concepts, columns );
         TableColumnParser[] parsers = getParsers( factory, columns, types );
 
-        return new BinaryTableParserInfo( header.getNumColumns( ), header.getNumRowsPerColumn( ), columnIds, concepts, sliceColumnTypes, columns, types, parsers );
+        return new BinaryTableParserInfo( header, columnIds, concepts, sliceColumnTypes, columns, types, parsers );
     }
 
     protected TableColumnParser[] getParsers( ParserFactory factory, Column[] columns, DataType[] types ) throws DsplException
@@ -508,17 +598,57 @@ public class ColumnBinaryParser implements TableParser, TableWriter
         return parsers;
     }
 
+    /**
+     * Header of a .bin file. The column offsets and lengths are null for version 1 files.
+     */
+    public static class BinaryHeaderInformation extends HeaderInformation
+    {
+        protected long headerSize;
+        protected long[] columnOffsets;
+        protected long[] columnLengths;
+
+        public BinaryHeaderInformation( int numColumns, int numRowsPerColumn, String[] headerNames, long headerSize, long[] columnOffsets, long[] columnLengths )
+        {
+            super( numColumns, numRowsPerColumn, headerNames );
+
+            this.headerSize = headerSize;
+            this.columnOffsets = columnOffsets;
+            this.columnLengths = columnLengths;
+        }
+
+        public long getHeaderSize( )
+        {
+            return headerSize;
+        }
+
+        public long[] getColumnOffsets( )
+        {
+            return columnOffsets;
+        }
+
+        public long[] getColumnLengths( )
+        {
+            return columnLengths;
+        }
+    }
+
     protected class BinaryTableParserInfo extends TableParserInfo
     {
         protected int numColumns;
         protected int numRows;
+        protected long headerSize;
+        protected long[] columnOffsets;
+        protected long[] columnLengths;
 
-        public BinaryTableParserInfo( int numColumns, int numRows, String[] columnIds, Concept[] concepts, SliceColumnType[] sliceColumnTypes, Column[] columns, DataType[] types, TableColumnParser[] parsers )
+        public BinaryTableParserInfo( BinaryHeaderInformation header, String[] columnIds, Concept[] concepts, SliceColumnType[] sliceColumnTypes, Column[] columns, DataType[] types, TableColumnParser[] parsers )
         {
             super( columnIds, concepts, sliceColumnTypes, columns, types, parsers );
 
-            this.numColumns = numColumns;
-            this.numRows = numRows;
+            this.numColumns = header.getNumColumns( );
+            this.numRows = header.getNumRowsPerColumn( );
+            this.headerSize = header.getHeaderSize( );
+            this.columnOffsets = header.getColumnOffsets( );
+            this.columnLengths = header.getColumnLengths( );
         }
 
         public int getNumColumns( )
@@ -530,6 +660,21 @@ public class ColumnBinaryParser implements TableParser, TableWriter
         {
             return numRows;
         }
+
+        public long getHeaderSize( )
+        {
+            return headerSize;
+        }
+
+        public long[] getColumnOffsets( )
+        {
+            return columnOffsets;
+        }
+
+        public long[] getColumnLengths( )
+        {
+            return columnLengths;
+        }
     }
 
     protected void writeInternStringArray( WritableDataChannel dataChannel, String[] array ) throws IOException
@@ -558,6 +703,19 @@ public class ColumnBinaryParser implements TableParser, TableWriter
         dataChannel.writeIntArray( index );
     }
 
+    protected long getInternStringArraySize( String[] array ) throws IOException
+    {
+        TreeSet<String> unique = newTreeSet( );
+        for ( String string : array )
+            if ( string != null ) unique.add( string );
+
+        long size = 4 + 4L * array.length;
+        for ( String string : unique )
+            size += 4 + string.getBytes( ENCODING ).length;
+
+        return size;
+    }
+
     protected TableColumn readInternStringArray( ReadableDataChannel dataChannel, Column column, Concept concept, String[] array ) throws IOException
     {
         int nUnique = dataChannel.readInt( );
@@ -642,6 +800,15 @@ public class ColumnBinaryParser implements TableParser, TableWriter
         }
     }
 
+    protected long getStringArraySize( String[] array ) throws IOException
+    {
+        long size = 4 + 4L * array.length;
+        for ( String s : array )
+            if ( s != null ) size += s.getBytes( ENCODING ).length;
+
+        return size;
+    }
+
     protected TableColumn readStringArray( ReadableDataChannel dataChannel, Column column, Concept concept, String[] array ) throws IOException
     {
         int byteCount = dataChannel.readInt( );
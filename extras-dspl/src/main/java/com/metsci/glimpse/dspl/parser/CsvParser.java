@@ -34,8 +34,14 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.logging.Logger;
 
 import javax.xml.bind.JAXBException;
@@ -59,17 +65,31 @@ import com.metsci.glimpse.dspl.schema.Slice;
 import com.metsci.glimpse.dspl.schema.Table.Column;
 import com.metsci.glimpse.dspl.util.DsplException;
 import com.metsci.glimpse.dspl.util.DsplHelper;
+import com.metsci.glimpse.util.concurrent.ConcurrencyUtils;
+import com.metsci.glimpse.util.primitives.BooleansArray;
+import com.metsci.glimpse.util.primitives.FloatsArray;
+import com.metsci.glimpse.util.primitives.IntsArray;
+import com.metsci.glimpse.util.primitives.LongsArray;
 
 /**
  * The standard DSPL CSV parser capable of parsing CSV files which correspond to Google's
  * rules for CSV table files.
  *
+ * <p>The input is read in chunks of about {@link #CHUNK_SIZE} chars, split on line boundaries.
+ * When every column parser is a {@link ChunkedCSVTableColumnParser}, chunks are parsed in
+ * parallel on a shared fork/join pool, each into its own set of column parsers, which are then
+ * appended to the table's parsers in file order. Tokens are parsed directly from the chunk's
+ * chars, so numeric and boolean columns create no intermediate Strings.</p>
+ *
  * @author ulman
  */
 public class CsvParser implements TableParser
 {
     public static final Logger logger = Logger.getLogger( CsvParser.class.getName( ) );
 
+    public static final int CHUNK_SIZE = 1 << 20;
+
+
     protected ParserFactory factory;
     protected DsplParser dsplParser;
 
@@ -155,35 +175,277 @@ public class CsvParser implements TableParser
     protected void parse( BufferedReader in, TableParserInfo info ) throws IOException, DsplException
     {
         CSVTableColumnParser[] parsers = ( CSVTableColumnParser[] ) info.getParsers( );
+        int splitLimit = getSplitLimit( info );
 
-        int size = parsers.length;
-        String line = null;
+        LineChunkReader reader = new LineChunkReader( in, CHUNK_SIZE );
+        if ( !reader.next( ) ) return;
 
-        while ( ( line = in.readLine( ) ) != null )
+        // small inputs, and parsers which cannot be appended to one another, are parsed on this thread
+        if ( reader.isLastChunk( ) || !isChunkable( parsers ) )
         {
-            if ( line.isEmpty( ) ) continue;
-            
-            String[] tokens = splitLine( line );
+            IntsArray bounds = new IntsArray( 2 * parsers.length );
+            do
+            {
+                parseChunk( reader.chars, reader.length, splitLimit, parsers, bounds );
+            }
+            while ( reader.next( ) );
 
-            if ( tokens.length == size )
+            return;
+        }
+
+        // bound the number of chunks held in memory at once
+        ForkJoinPool pool = ConcurrencyUtils.getSharedForkJoinPool( );
+        int maxPendingChunks = 2 * pool.getParallelism( ) + 1;
+
+        Deque<ChunkTask> pending = new ArrayDeque<ChunkTask>( );
+        try
+        {
+            do
             {
-                for ( int i = 0; i < size; i++ )
+                ChunkTask task = new ChunkTask( reader.chars, reader.length, splitLimit, info );
+                pool.execute( task );
+                pending.add( task );
+
+                if ( pending.size( ) >= maxPendingChunks )
                 {
-                    parsers[i].addData( tokens[i] );
+                    appendChunk( parsers, pending.poll( ).getChunkParsers( ) );
                 }
             }
+            while ( reader.next( ) );
+
+            while ( !pending.isEmpty( ) )
+            {
+                appendChunk( parsers, pending.poll( ).getChunkParsers( ) );
+            }
+        }
+        finally
+        {
+            // after an error, abandon the chunks still being parsed
+            for ( ChunkTask task : pending )
+            {
+                task.cancel( true );
+            }
+        }
+    }
+
+    /**
+     * @return the maximum number of tokens to split each line into
+     */
+    protected int getSplitLimit( TableParserInfo info )
+    {
+        return Integer.MAX_VALUE;
+    }
+
+    protected void parseChunk( char[] chars, int length, int splitLimit, CSVTableColumnParser[] parsers, IntsArray bounds ) throws IOException, DsplException
+    {
+        int lineStart = 0;
+        while ( lineStart < length )
+        {
+            int lineEnd = lineStart;
+            while ( lineEnd < length && chars[lineEnd] != '\n' && chars[lineEnd] != '\r' )
+            {
+                lineEnd++;
+            }
+
+            // as with BufferedReader.readLine, \r\n separates lines, leaving an empty line which is skipped
+            if ( lineEnd > lineStart )
+            {
+                parseLine( chars, lineStart, lineEnd, splitLimit, parsers, bounds );
+            }
+
+            lineStart = lineEnd + 1;
+        }
+    }
+
+    protected void parseLine( char[] chars, int from, int to, int splitLimit, CSVTableColumnParser[] parsers, IntsArray bounds ) throws IOException, DsplException
+    {
+        int size = parsers.length;
+        int count = splitLine( chars, from, to, splitLimit, bounds );
+
+        if ( count == size )
+        {
+            for ( int i = 0; i < size; i++ )
+            {
+                addData( parsers[i], chars, bounds.a[2 * i], bounds.a[2 * i + 1] );
+            }
+        }
+        else
+        {
+            String line = new String( chars, from, to - from );
+
+            if ( dsplParser.isFailOnErrorMode( ) )
+            {
+                throw new DsplException( "Encountered row of incorrect size (expected %d found %d): [%s]", size, count, line );
+            }
             else
             {
-                if ( dsplParser.isFailOnErrorMode( ) )
+                logWarning( logger, "Skipping row of incorrect size (expected %d found %d): [%s]", size, count, line );
+            }
+        }
+    }
+
+    protected static void addData( CSVTableColumnParser parser, char[] chars, int from, int to ) throws DsplException
+    {
+        if ( parser instanceof ChunkedCSVTableColumnParser )
+        {
+            ( ( ChunkedCSVTableColumnParser ) parser ).addData( chars, from, to );
+        }
+        else
+        {
+            parser.addData( new String( chars, from, to - from ) );
+        }
+    }
+
+    protected static boolean isChunkable( CSVTableColumnParser[] parsers )
+    {
+        for ( CSVTableColumnParser parser : parsers )
+        {
+            if ( !( parser instanceof ChunkedCSVTableColumnParser ) ) return false;
+        }
+
+        return true;
+    }
+
+    protected static void appendChunk( CSVTableColumnParser[] parsers, CSVTableColumnParser[] chunk )
+    {
+        for ( int i = 0; i < parsers.length; i++ )
+        {
+            ( ( ChunkedCSVTableColumnParser ) parsers[i] ).append( ( ChunkedCSVTableColumnParser ) chunk[i] );
+        }
+    }
+
+    /**
+     * Parses one chunk of lines into a new set of column parsers.
+     */
+    protected class ChunkTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        protected char[] chars;
+        protected int length;
+        protected int splitLimit;
+        protected TableParserInfo info;
+
+        protected CSVTableColumnParser[] parsers;
+        protected Exception exception;
+
+        public ChunkTask( char[] chars, int length, int splitLimit, TableParserInfo info )
+        {
+            this.chars = chars;
+            this.length = length;
+            this.splitLimit = splitLimit;
+            this.info = info;
+        }
+
+        @Override
+        protected void compute( )
+        {
+            try
+            {
+                CSVTableColumnParser[] parsers = getParsers( factory, info.getColumns( ), info.getDataTypes( ) );
+                parseChunk( chars, length, splitLimit, parsers, new IntsArray( 2 * parsers.length ) );
+                this.parsers = parsers;
+            }
+            catch ( IOException e )
+            {
+                this.exception = e;
+            }
+            catch ( DsplException e )
+            {
+                this.exception = e;
+            }
+
+            // the chunk's chars are no longer needed
+            this.chars = null;
+        }
+
+        /**
+         * Waits for the chunk to be parsed, rethrowing whatever stopped it from being parsed.
+         */
+        public CSVTableColumnParser[] getChunkParsers( ) throws IOException, DsplException
+        {
+            join( );
+
+            if ( exception instanceof IOException ) throw ( IOException ) exception;
+            if ( exception instanceof DsplException ) throw ( DsplException ) exception;
+
+            return parsers;
+        }
+    }
+
+    /**
+     * Reads chars in chunks which end on line boundaries. Each chunk is read into a new array,
+     * so it can be handed off to another thread.
+     */
+    protected static class LineChunkReader
+    {
+        protected Reader in;
+        protected int chunkSize;
+
+        // chars read past the end of the last line of the previous chunk
+        protected char[] carry;
+        protected boolean endOfInput;
+
+        // the current chunk
+        public char[] chars;
+        public int length;
+
+        public LineChunkReader( Reader in, int chunkSize )
+        {
+            this.in = in;
+            this.chunkSize = chunkSize;
+            this.carry = new char[0];
+        }
+
+        /**
+         * Reads the next chunk into chars[0, length).
+         *
+         * @return false if there are no chars left to read
+         */
+        public boolean next( ) throws IOException
+        {
+            char[] buffer = Arrays.copyOf( carry, Math.max( chunkSize, 2 * carry.length ) );
+            int n = carry.length;
+            carry = new char[0];
+
+            while ( true )
+            {
+                while ( n < buffer.length && !endOfInput )
                 {
-                    throw new DsplException( "Encountered row of incorrect size (expected %d found %d): [%s]", size, tokens.length, line );
+                    int read = in.read( buffer, n, buffer.length - n );
+                    if ( read < 0 )
+                        endOfInput = true;
+                    else
+                        n += read;
                 }
-                else
+
+                int end = n;
+                if ( !endOfInput )
                 {
-                	logWarning( logger,  "Skipping row of incorrect size (expected %d found %d): [%s]", size, tokens.length, line );
+                    // end the chunk after its last line terminator
+                    while ( end > 0 && buffer[end - 1] != '\n' && buffer[end - 1] != '\r' )
+                    {
+                        end--;
+                    }
                 }
+
+                if ( end > 0 || endOfInput )
+                {
+                    carry = Arrays.copyOfRange( buffer, end, n );
+                    chars = buffer;
+                    length = end;
+                    return end > 0;
+                }
+
+                // a single line longer than the buffer
+                buffer = Arrays.copyOf( buffer, 2 * buffer.length );
             }
         }
+
+        public boolean isLastChunk( )
+        {
+            return endOfInput && carry.length == 0;
+        }
     }
 
     protected String[] parseFirstLine( BufferedReader in ) throws IOException, JAXBException
@@ -224,6 +486,25 @@ public class CsvParser implements TableParser
         public void addGap( );
     }
 
+    /**
+     * A CSVTableColumnParser which can parse tokens straight from a char array, and which can
+     * append the data of another parser of the same column, allowing chunks of a table to be
+     * parsed in parallel.
+     */
+    public interface ChunkedCSVTableColumnParser extends CSVTableColumnParser
+    {
+        /**
+         * Equivalent to addData( new String( chars, from, to - from ) ).
+         */
+        public void addData( char[] chars, int from, int to ) throws DsplException;
+
+        /**
+         * Appends all of the data parsed by chunk, which was created by the same ParserFactory
+         * for the same column.
+         */
+        public void append( ChunkedCSVTableColumnParser chunk );
+    }
+
     public class CSVParserFactory extends SimpleParserFactory
     {
         @Override
@@ -263,7 +544,7 @@ public class CsvParser implements TableParser
         }
     }
 
-    protected class CSVStringColumnParser extends StringColumnParser implements CSVTableColumnParser
+    protected class CSVStringColumnParser extends StringColumnParser implements ChunkedCSVTableColumnParser
     {
         @Override
         public void addData( String token )
@@ -271,6 +552,18 @@ public class CsvParser implements TableParser
             data.add( parse( token ) );
         }
 
+        @Override
+        public void addData( char[] chars, int from, int to )
+        {
+            data.add( new String( chars, from, to - from ) );
+        }
+
+        @Override
+        public void append( ChunkedCSVTableColumnParser chunk )
+        {
+            data.addAll( ( ( CSVStringColumnParser ) chunk ).data );
+        }
+
         @Override
         public void addGap( )
         {
@@ -278,8 +571,36 @@ public class CsvParser implements TableParser
         }
     }
 
-    protected class CSVIntegerColumnParser extends IntegerColumnParser implements CSVTableColumnParser
+    protected class CSVIntegerColumnParser extends IntegerColumnParser implements ChunkedCSVTableColumnParser
     {
+        @Override
+        public void addData( char[] chars, int from, int to ) throws DsplException
+        {
+            if ( from == to )
+            {
+                addGap( );
+            }
+            else
+            {
+                try
+                {
+                    data.append( parseInt( chars, from, to ) );
+                }
+                catch ( NumberFormatException e )
+                {
+                    // report the problem as for a String token
+                    addData( new String( chars, from, to - from ) );
+                }
+            }
+        }
+
+        @Override
+        public void append( ChunkedCSVTableColumnParser chunk )
+        {
+            IntsArray chunkData = ( ( CSVIntegerColumnParser ) chunk ).data;
+            data.append( chunkData.a, 0, chunkData.n );
+        }
+
         @Override
         public void addData( String token ) throws DsplException
         {
@@ -316,8 +637,36 @@ public class CsvParser implements TableParser
         }
     }
 
-    protected class CSVFloatColumnParser extends FloatColumnParser implements CSVTableColumnParser
+    protected class CSVFloatColumnParser extends FloatColumnParser implements ChunkedCSVTableColumnParser
     {
+        @Override
+        public void addData( char[] chars, int from, int to ) throws DsplException
+        {
+            if ( from == to )
+            {
+                addGap( );
+            }
+            else
+            {
+                try
+                {
+                    data.append( parseFloat( chars, from, to ) );
+                }
+                catch ( NumberFormatException e )
+                {
+                    // report the problem as for a String token
+                    addData( new String( chars, from, to - from ) );
+                }
+            }
+        }
+
+        @Override
+        public void append( ChunkedCSVTableColumnParser chunk )
+        {
+            FloatsArray chunkData = ( ( CSVFloatColumnParser ) chunk ).data;
+            data.append( chunkData.a, 0, chunkData.n );
+        }
+
         @Override
         public void addData( String token ) throws DsplException
         {
@@ -354,8 +703,28 @@ public class CsvParser implements TableParser
         }
     }
 
-    protected class CSVBooleanColumnParser extends BooleanColumnParser implements CSVTableColumnParser
+    protected class CSVBooleanColumnParser extends BooleanColumnParser implements ChunkedCSVTableColumnParser
     {
+        @Override
+        public void addData( char[] chars, int from, int to )
+        {
+            if ( from == to )
+            {
+                addGap( );
+            }
+            else
+            {
+                data.append( parseBoolean( chars, from, to ) );
+            }
+        }
+
+        @Override
+        public void append( ChunkedCSVTableColumnParser chunk )
+        {
+            BooleansArray chunkData = ( ( CSVBooleanColumnParser ) chunk ).data;
+            data.append( chunkData.a, 0, chunkData.n );
+        }
+
         @Override
         public void addData( String token ) throws DsplException
         {
@@ -392,11 +761,53 @@ public class CsvParser implements TableParser
         }
     }
 
-    protected class CSVDateColumnParser extends DateColumnParser implements CSVTableColumnParser
+    protected class CSVDateColumnParser extends DateColumnParser implements ChunkedCSVTableColumnParser
     {
+        // dates often repeat on consecutive rows, so the last date parsed is reused without parsing it again
+        protected char[] lastToken;
+        protected long lastMillis;
+
         public CSVDateColumnParser( Column column )
         {
             super( column );
+
+            this.lastToken = new char[0];
+        }
+
+        @Override
+        public void addData( char[] chars, int from, int to ) throws DsplException
+        {
+            if ( from == to )
+            {
+                addGap( );
+            }
+            else if ( regionEquals( chars, from, to, lastToken ) )
+            {
+                data.append( lastMillis );
+            }
+            else
+            {
+                String token = new String( chars, from, to - from );
+
+                try
+                {
+                    lastMillis = dateFormat.parseMillis( token );
+                    lastToken = Arrays.copyOfRange( chars, from, to );
+                    data.append( lastMillis );
+                }
+                catch ( IllegalArgumentException e )
+                {
+                    // report the problem as for a String token
+                    addData( token );
+                }
+            }
+        }
+
+        @Override
+        public void append( ChunkedCSVTableColumnParser chunk )
+        {
+            LongsArray chunkData = ( ( CSVDateColumnParser ) chunk ).data;
+            data.append( chunkData.a, 0, chunkData.n );
         }
 
         @Override
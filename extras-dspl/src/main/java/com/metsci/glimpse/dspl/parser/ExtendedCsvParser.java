@@ -41,6 +41,7 @@ import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.Iterator;
 import java.util.List;
@@ -70,6 +71,7 @@ import com.metsci.glimpse.dspl.schema.Table.Column;
 import com.metsci.glimpse.dspl.util.DsplException;
 import com.metsci.glimpse.util.primitives.BytesArray;
 import com.metsci.glimpse.util.primitives.IntsArray;
+import com.metsci.glimpse.util.primitives.LongsArray;
 
 public class ExtendedCsvParser extends CsvParser implements MultipleFileTableParser
 {
@@ -86,34 +88,32 @@ public class ExtendedCsvParser extends CsvParser implements MultipleFileTablePar
         return new ExtendedCSVParserFactory( );
     }
 
+    // extends the default parsing semantics to include a possible "remainder" format
+    // for the last column, indicating that that column should get all extra tokens as one string
     @Override
-    protected void parse( BufferedReader in, TableParserInfo info ) throws IOException, DsplException
+    protected int getSplitLimit( TableParserInfo info )
     {
-        CSVTableColumnParser[] parsers = ( CSVTableColumnParser[] ) info.getParsers( );
         Column[] columns = info.getColumns( );
+        int size = columns.length;
 
-        int size = parsers.length;
-        String line = null;
-
-        // extends the default parsing semantics to include a possible "remainder" format
-        // for the last column, indicating that that column should get all extra tokens as one string
         String trailingFormat = columns[size - 1].getFormat( );
         boolean allowExtraTrailingTokens = ( trailingFormat != null && trailingFormat.equals( "remainder" ) );
-        int splitLimit = allowExtraTrailingTokens ? size : Integer.MAX_VALUE;
+        return allowExtraTrailingTokens ? size : Integer.MAX_VALUE;
+    }
 
-        while ( ( line = in.readLine( ) ) != null )
-        {
-            if ( line.isEmpty( ) ) continue;
-            
-            String[] tokens = splitLine( line, splitLimit );
+    // short rows are filled out with gaps, rather than rejected
+    @Override
+    protected void parseLine( char[] chars, int from, int to, int splitLimit, CSVTableColumnParser[] parsers, IntsArray bounds ) throws IOException, DsplException
+    {
+        int size = parsers.length;
+        int count = splitLine( chars, from, to, splitLimit, bounds );
 
-            for ( int i = 0; i < size; i++ )
-            {
-                if ( i < tokens.length )
-                    parsers[i].addData( tokens[i] );
-                else
-                    parsers[i].addGap( );
-            }
+        for ( int i = 0; i < size; i++ )
+        {
+            if ( i < count )
+                addData( parsers[i], chars, bounds.a[2 * i], bounds.a[2 * i + 1] );
+            else
+                parsers[i].addGap( );
         }
     }
 
@@ -335,7 +335,7 @@ public class ExtendedCsvParser extends CsvParser implements MultipleFileTablePar
         }
     }
 
-    protected static class CSVCompactStringColumnParser implements CSVTableColumnParser
+    protected static class CSVCompactStringColumnParser implements ChunkedCSVTableColumnParser
     {
         protected BytesArray allStrings;
         protected IntsArray offsets;
@@ -371,6 +371,27 @@ public class ExtendedCsvParser extends CsvParser implements MultipleFileTablePar
             }
         }
 
+        @Override
+        public void addData( char[] chars, int from, int to )
+        {
+            addData( new String( chars, from, to - from ) );
+        }
+
+        @Override
+        public void append( ChunkedCSVTableColumnParser chunk )
+        {
+            CSVCompactStringColumnParser other = ( CSVCompactStringColumnParser ) chunk;
+
+            int shift = allStrings.n;
+            offsets.ensureCapacity( offsets.n + other.offsets.n );
+            for ( int i = 0; i < other.offsets.n; i++ )
+            {
+                offsets.append( other.offsets.a[i] + shift );
+            }
+
+            allStrings.append( other.allStrings.a, 0, other.allStrings.n );
+        }
+
         @Override
         public void addGap( )
         {
@@ -378,7 +399,7 @@ public class ExtendedCsvParser extends CsvParser implements MultipleFileTablePar
         }
     }
 
-    protected static class CSVCompactInternStringColumnParser implements CSVTableColumnParser
+    protected static class CSVCompactInternStringColumnParser implements ChunkedCSVTableColumnParser
     {
         protected Object2IntOpenHashMap<String> indexByString;
         protected IntsArray indexByRow;
@@ -408,14 +429,50 @@ public class ExtendedCsvParser extends CsvParser implements MultipleFileTablePar
             indexByRow.append( index );
         }
 
+        @Override
+        public void addData( char[] chars, int from, int to )
+        {
+            addData( new String( chars, from, to - from ) );
+        }
+
+        @Override
+        public void append( ChunkedCSVTableColumnParser chunk )
+        {
+            CSVCompactInternStringColumnParser other = ( CSVCompactInternStringColumnParser ) chunk;
+
+            // visit the chunk's strings in the order they first appeared, so that new strings get
+            // the same indices as if the chunk's rows had been added one at a time
+            String[] otherStrings = other.getUniqueStrings( );
+            int[] indexRemap = new int[otherStrings.length];
+            for ( int i = 0; i < otherStrings.length; i++ )
+            {
+                String value = otherStrings[i];
+
+                int index = indexByString.getInt( value );
+                if ( index == -1 )
+                {
+                    index = indexByString.size( );
+                    indexByString.put( value, index );
+                }
+
+                indexRemap[i] = index;
+            }
+
+            indexByRow.ensureCapacity( indexByRow.n + other.indexByRow.n );
+            for ( int i = 0; i < other.indexByRow.n; i++ )
+            {
+                int index = other.indexByRow.a[i];
+                indexByRow.append( index == -1 ? -1 : indexRemap[index] );
+            }
+        }
+
         @Override
         public void addGap( )
         {
             indexByRow.append( -1 );
         }
 
-        @Override
-        public TableColumn createTableColumn( Column column, Concept concept, DataType type )
+        protected String[] getUniqueStrings( )
         {
             // This seems a little dangerous, but works because we're careful
             // to put each integer on [0,size) into the map exactly once
@@ -426,6 +483,14 @@ public class ExtendedCsvParser extends CsvParser implements MultipleFileTablePar
                 uniqueStrings[index] = entry.getKey( );
             }
 
+            return uniqueStrings;
+        }
+
+        @Override
+        public TableColumn createTableColumn( Column column, Concept concept, DataType type )
+        {
+            String[] uniqueStrings = getUniqueStrings( );
+
             return new CompactInternStringTableColumn( column, concept, indexByRow.n, uniqueStrings, indexByRow.copyOf( ) );
         }
 
@@ -436,15 +501,56 @@ public class ExtendedCsvParser extends CsvParser implements MultipleFileTablePar
         }
     }
 
-    protected class ExtendedCSVDateColumnParser extends DateColumnParser implements CSVTableColumnParser
+    protected class ExtendedCSVDateColumnParser extends DateColumnParser implements ChunkedCSVTableColumnParser
     {
         protected DateFormat alternateDateFormat;
 
+        // dates often repeat on consecutive rows, so the last date parsed is reused without parsing it again
+        protected char[] lastToken;
+        protected long lastMillis;
+
         public ExtendedCSVDateColumnParser( Column column )
         {
             super( column );
 
             this.alternateDateFormat = new SimpleDateFormat( format );
+            this.lastToken = new char[0];
+        }
+
+        @Override
+        public void addData( char[] chars, int from, int to ) throws DsplException
+        {
+            if ( from == to )
+            {
+                addGap( );
+            }
+            else if ( regionEquals( chars, from, to, lastToken ) )
+            {
+                data.append( lastMillis );
+            }
+            else
+            {
+                String token = new String( chars, from, to - from );
+
+                try
+                {
+                    lastMillis = parse( token );
+                    lastToken = Arrays.copyOfRange( chars, from, to );
+                    data.append( lastMillis );
+                }
+                catch ( Exception e )
+                {
+                    // report the problem as for a String token
+                    addData( token );
+                }
+            }
+        }
+
+        @Override
+        public void append( ChunkedCSVTableColumnParser chunk )
+        {
+            LongsArray chunkData = ( ( ExtendedCSVDateColumnParser ) chunk ).data;
+            data.append( chunkData.a, 0, chunkData.n );
         }
 
         @Override
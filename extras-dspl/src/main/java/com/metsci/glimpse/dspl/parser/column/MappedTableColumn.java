@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.dspl.parser.column;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+
+import com.metsci.glimpse.dspl.schema.Concept;
+import com.metsci.glimpse.dspl.schema.DataType;
+import com.metsci.glimpse.dspl.schema.Table.Column;
+
+/**
+ * A TableColumn backed by a region of a (usually memory mapped) ByteBuffer in the
+ * column layout written by {@link com.metsci.glimpse.dspl.parser.ColumnBinaryParser}.
+ *
+ * <p>Nothing is decoded until the column is first accessed. Individual numeric and boolean
+ * values are read directly from the buffer, so touching a few rows does not page in the whole
+ * column. The first call which needs the full column (an array getter, or any String access)
+ * decodes it onto the heap, after which the buffer is released.</p>
+ *
+ * <p>While a column holds a mapping, the file behind it must not be truncated or rewritten in
+ * place: on Linux, reading a truncated region of a mapping raises SIGBUS (surfacing as an
+ * InternalError), and on Windows a mapped file cannot be written or replaced at all. Replace
+ * such files by writing a new file and renaming it over the old one, as
+ * {@link com.metsci.glimpse.dspl.parser.util.DsplCacheHelper} does.</p>
+ */
+public class MappedTableColumn extends AbstractTableColumn
+{
+    public static final String ENCODING = "UTF-8";
+
+    protected ByteBuffer buffer;
+    protected boolean intern;
+
+    protected TableColumn data;
+
+    /**
+     * @param buffer the column's bytes, from position zero (the buffer is not modified)
+     * @param intern whether a STRING column was written with the "intern" format
+     */
+    public MappedTableColumn( Column column, Concept concept, DataType type, int size, ByteBuffer buffer, boolean intern )
+    {
+        super( column, concept, type, size );
+
+        this.buffer = buffer;
+        this.intern = intern;
+    }
+
+    @Override
+    public boolean isConstant( )
+    {
+        return false;
+    }
+
+    public synchronized boolean isLoaded( )
+    {
+        return data != null;
+    }
+
+    protected synchronized ByteBuffer getBuffer( )
+    {
+        return buffer;
+    }
+
+    /**
+     * Decodes the whole column onto the heap, if that has not already happened.
+     */
+    public synchronized TableColumn getData( )
+    {
+        if ( data == null )
+        {
+            data = load( buffer.duplicate( ) );
+            buffer = null;
+        }
+
+        return data;
+    }
+
+    protected TableColumn load( ByteBuffer in )
+    {
+        switch ( type )
+        {
+        case FLOAT:
+        {
+            float[] array = new float[size];
+            in.asFloatBuffer( ).get( array );
+            return new SimpleTableColumn( column, concept, type, array, size );
+        }
+        case INTEGER:
+        {
+            int[] array = new int[size];
+            in.asIntBuffer( ).get( array );
+            return new SimpleTableColumn( column, concept, type, array, size );
+        }
+        case BOOLEAN:
+        {
+            boolean[] array = new boolean[size];
+            for ( int i = 0; i < size; i++ )
+            {
+                array[i] = in.get( i ) != 0;
+            }
+            return new SimpleTableColumn( column, concept, type, array, size );
+        }
+        case DATE:
+        {
+            long[] array = new long[size];
+            in.asLongBuffer( ).get( array );
+            return new SimpleTableColumn( column, concept, type, array, size );
+        }
+        case STRING:
+            if ( intern ) return loadInternStrings( in );
+            return loadStrings( in );
+        case CONCEPT:
+            return loadStrings( in );
+        default:
+            throw new UnsupportedOperationException( String.format( "Unknown Type %s for Column %s.", type, column.getId( ) ) );
+        }
+    }
+
+    protected TableColumn loadStrings( ByteBuffer in )
+    {
+        int byteCount = in.getInt( );
+
+        int[] stringStartIndices = new int[size];
+        in.asIntBuffer( ).get( stringStartIndices );
+        in.position( in.position( ) + size * 4 );
+
+        byte[] stringData = new byte[byteCount];
+        in.get( stringData );
+
+        return new CompactStringTableColumn( column, concept, size, decode( stringData ), stringStartIndices );
+    }
+
+    protected TableColumn loadInternStrings( ByteBuffer in )
+    {
+        int nUnique = in.getInt( );
+
+        String[] uniqueStrings = new String[nUnique];
+        for ( int i = 0; i < nUnique; i++ )
+        {
+            int stringSize = in.getInt( );
+            if ( stringSize == 0 ) continue;
+
+            byte[] stringData = new byte[stringSize];
+            in.get( stringData );
+            uniqueStrings[i] = decode( stringData ).intern( );
+        }
+
+        int[] indexForRow = new int[size];
+        in.asIntBuffer( ).get( indexForRow );
+
+        return new CompactInternStringTableColumn( column, concept, size, uniqueStrings, indexForRow );
+    }
+
+    protected static String decode( byte[] data )
+    {
+        try
+        {
+            return new String( data, ENCODING );
+        }
+        catch ( UnsupportedEncodingException e )
+        {
+            throw new RuntimeException( e );
+        }
+    }
+
+    @Override
+    public String[] getStringData( )
+    {
+        return getData( ).getStringData( );
+    }
+
+    @Override
+    public int[] getIntegerData( )
+    {
+        return getData( ).getIntegerData( );
+    }
+
+    @Override
+    public float[] getFloatData( )
+    {
+        return getData( ).getFloatData( );
+    }
+
+    @Override
+    public boolean[] getBooleanData( )
+    {
+        return getData( ).getBooleanData( );
+    }
+
+    @Override
+    public long[] getDateData( )
+    {
+        return getData( ).getDateData( );
+    }
+
+    @Override
+    public String getStringData( int i )
+    {
+        return getData( ).getStringData( i );
+    }
+
+    @Override
+    public int getIntegerData( int i )
+    {
+        ByteBuffer buffer = getBuffer( );
+        if ( buffer == null || type != DataType.INTEGER ) return getData( ).getIntegerData( i );
+
+        checkIndex( i );
+        return buffer.getInt( i * 4 );
+    }
+
+    @Override
+    public float getFloatData( int i )
+    {
+        ByteBuffer buffer = getBuffer( );
+        if ( buffer == null || type != DataType.FLOAT ) return getData( ).getFloatData( i );
+
+        checkIndex( i );
+        return buffer.getFloat( i * 4 );
+    }
+
+    @Override
+    public boolean getBooleanData( int i )
+    {
+        ByteBuffer buffer = getBuffer( );
+        if ( buffer == null || type != DataType.BOOLEAN ) return getData( ).getBooleanData( i );
+
+        checkIndex( i );
+        return buffer.get( i ) != 0;
+    }
+
+    @Override
+    public long getDateData( int i )
+    {
+        ByteBuffer buffer = getBuffer( );
+        if ( buffer == null || type != DataType.DATE ) return getData( ).getDateData( i );
+
+        checkIndex( i );
+        return buffer.getLong( i * 8 );
+    }
+
+    protected void checkIndex( int i )
+    {
+        if ( i < 0 || i >= size ) throw new ArrayIndexOutOfBoundsException( i );
+    }
+}
@@ -26,6 +26,8 @@
  */
 package com.metsci.glimpse.dspl.parser.util;
 
+import static com.metsci.glimpse.util.logging.LoggerUtils.*;
+
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
@@ -37,6 +39,8 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.List;
@@ -107,7 +111,6 @@ public class DsplCacheHelper
                 PropertyTableData tableData = parser.parse( concept );
 
                 File cacheFile = getCacheFile( concept );
-                FileOutputStream cacheFileStream = new FileOutputStream( cacheFile );
 
                 String cacheFormat = getExtension( cacheFile );
 
@@ -115,8 +118,29 @@ public class DsplCacheHelper
 
                 if ( cacheParser instanceof TableWriter )
                 {
-                    ( ( TableWriter ) cacheParser ).write( concept, tableData, cacheFileStream.getChannel( ) );
-                    writeHash( concept, calculatedHash );
+                    // write beside the cache file, which may be mapped by tables loaded from it earlier
+                    File tempFile = newTempCacheFile( cacheFile );
+                    boolean written = false;
+                    try
+                    {
+                        FileOutputStream cacheFileStream = new FileOutputStream( tempFile );
+                        try
+                        {
+                            ( ( TableWriter ) cacheParser ).write( concept, tableData, cacheFileStream.getChannel( ) );
+                        }
+                        finally
+                        {
+                            cacheFileStream.close( );
+                        }
+                        written = true;
+                    }
+                    finally
+                    {
+                        // a partly written cache file is never moved into place
+                        if ( !written ) tempFile.delete( );
+                    }
+
+                    if ( replaceCacheFile( tempFile, cacheFile ) ) writeHash( concept, calculatedHash );
                 }
                 else
                 {
@@ -176,7 +200,6 @@ public class DsplCacheHelper
                 SliceTableData tableData = parser.parse( slice );
 
                 File cacheFile = getCacheFile( slice );
-                OutputStream cacheFileStream = new FileOutputStream( cacheFile );
 
                 String cacheFormat = getExtension( cacheFile );
 
@@ -184,8 +207,29 @@ public class DsplCacheHelper
 
                 if ( cacheParser instanceof TableWriter )
                 {
-                    ( ( TableWriter ) cacheParser ).write( slice, tableData, cacheFileStream );
-                    writeHash( slice, calculatedHash );
+                    // write beside the cache file, which may be mapped by tables loaded from it earlier
+                    File tempFile = newTempCacheFile( cacheFile );
+                    boolean written = false;
+                    try
+                    {
+                        OutputStream cacheFileStream = new FileOutputStream( tempFile );
+                        try
+                        {
+                            ( ( TableWriter ) cacheParser ).write( slice, tableData, cacheFileStream );
+                        }
+                        finally
+                        {
+                            cacheFileStream.close( );
+                        }
+                        written = true;
+                    }
+                    finally
+                    {
+                        // a partly written cache file is never moved into place
+                        if ( !written ) tempFile.delete( );
+                    }
+
+                    if ( replaceCacheFile( tempFile, cacheFile ) ) writeHash( slice, calculatedHash );
                 }
                 else
                 {
@@ -209,6 +253,34 @@ public class DsplCacheHelper
         }
     }
 
+    protected static File newTempCacheFile( File cacheFile ) throws IOException
+    {
+        return File.createTempFile( CACHE_FILE, ".tmp", cacheFile.getParentFile( ) );
+    }
+
+    /**
+     * Moves a newly written cache file into place. Tables read from a cache file keep memory mappings
+     * of it (see {@link com.metsci.glimpse.dspl.parser.column.MappedTableColumn}), so an existing cache
+     * file must never be rewritten in place: truncating a mapped file crashes readers of the mapping.
+     * Replacing the file by rename leaves existing mappings on the old contents. Where the platform
+     * does not allow a mapped file to be replaced (Windows), the old cache is kept, the new one is
+     * discarded, and false is returned so that the cache hash is not updated.
+     */
+    protected static boolean replaceCacheFile( File tempFile, File cacheFile ) throws IOException
+    {
+        try
+        {
+            Files.move( tempFile.toPath( ), cacheFile.toPath( ), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+            return true;
+        }
+        catch ( IOException e )
+        {
+            logWarning( logger, "Unable to replace dspl cache file %s, it may be in use.", e, cacheFile );
+            tempFile.delete( );
+            return false;
+        }
+    }
+
     public static File getCacheDirectory( Concept concept ) throws DsplException, JAXBException, IOException
     {
         return getCacheDirectory( concept.getDataSet( ), concept.getTable( ), concept.getId( ) );
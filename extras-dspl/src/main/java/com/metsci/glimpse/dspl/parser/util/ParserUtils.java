@@ -469,6 +469,118 @@ public class ParserUtils
         }
     }
 
+    // powers of ten which are exactly representable as floats
+    private static final float[] FLOAT_POWERS_OF_TEN = { 1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f };
+
+    /**
+     * Parses chars[from, to) exactly as {@link Integer#parseInt(String)} would. Plain decimals
+     * of up to nine digits are parsed without creating a String.
+     */
+    public static int parseInt( char[] chars, int from, int to )
+    {
+        int i = from;
+        boolean negative = false;
+        if ( i < to && ( chars[i] == '-' || chars[i] == '+' ) )
+        {
+            negative = chars[i] == '-';
+            i++;
+        }
+
+        // nine digits cannot overflow an int
+        if ( i < to && to - i <= 9 )
+        {
+            int value = 0;
+            for ( ; i < to; i++ )
+            {
+                int digit = chars[i] - '0';
+                if ( digit < 0 || digit > 9 ) break;
+                value = value * 10 + digit;
+            }
+
+            if ( i == to ) return negative ? -value : value;
+        }
+
+        return Integer.parseInt( new String( chars, from, to - from ) );
+    }
+
+    /**
+     * Parses chars[from, to) exactly as {@link Float#parseFloat(String)} would. Plain decimals
+     * (without exponents) with at most seven significant digits and ten fraction digits are parsed
+     * without creating a String: their digits and the power of ten they are divided by are both
+     * exact floats, so a single division gives the correctly rounded result.
+     */
+    public static float parseFloat( char[] chars, int from, int to )
+    {
+        int i = from;
+        boolean negative = false;
+        if ( i < to && ( chars[i] == '-' || chars[i] == '+' ) )
+        {
+            negative = chars[i] == '-';
+            i++;
+        }
+
+        int mantissa = 0;
+        int significantDigits = 0;
+        int fractionDigits = 0;
+        boolean anyDigits = false;
+        boolean point = false;
+
+        for ( ; i < to; i++ )
+        {
+            char c = chars[i];
+            if ( c >= '0' && c <= '9' )
+            {
+                anyDigits = true;
+                if ( mantissa != 0 || c != '0' ) significantDigits++;
+                if ( significantDigits > 7 ) break;
+
+                mantissa = mantissa * 10 + ( c - '0' );
+                if ( point ) fractionDigits++;
+            }
+            else if ( c == '.' && !point )
+            {
+                point = true;
+            }
+            else
+            {
+                break;
+            }
+        }
+
+        if ( i == to && anyDigits && fractionDigits < FLOAT_POWERS_OF_TEN.length )
+        {
+            float value = mantissa / FLOAT_POWERS_OF_TEN[fractionDigits];
+            return negative ? -value : value;
+        }
+
+        return Float.parseFloat( new String( chars, from, to - from ) );
+    }
+
+    /**
+     * Parses chars[from, to) as {@link Boolean#parseBoolean(String)} would.
+     */
+    public static boolean parseBoolean( char[] chars, int from, int to )
+    {
+        if ( to - from != 4 ) return false;
+
+        return Character.toLowerCase( chars[from] ) == 't' && Character.toLowerCase( chars[from + 1] ) == 'r' && Character.toLowerCase( chars[from + 2] ) == 'u' && Character.toLowerCase( chars[from + 3] ) == 'e';
+    }
+
+    /**
+     * @return whether chars[from, to) holds the same characters as token
+     */
+    public static boolean regionEquals( char[] chars, int from, int to, char[] token )
+    {
+        if ( to - from != token.length ) return false;
+
+        for ( int i = 0; i < token.length; i++ )
+        {
+            if ( chars[from + i] != token[i] ) return false;
+        }
+
+        return true;
+    }
+
     // convert the header of the csv table file into concepts
     // normally the header strings are simply interpreted as concept ids
     // however the ConceptTableMapping can provide different names
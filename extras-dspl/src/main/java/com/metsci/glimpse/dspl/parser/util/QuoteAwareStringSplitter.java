@@ -29,8 +29,8 @@ package com.metsci.glimpse.dspl.parser.util;
 import static com.metsci.glimpse.dspl.parser.util.QuoteAwareStringSplitter.ParseMode.*;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+
+import com.metsci.glimpse.util.primitives.IntsArray;
 
 public class QuoteAwareStringSplitter
 {
@@ -60,38 +60,64 @@ public class QuoteAwareStringSplitter
     public static String[] splitLine( String s, char split, int limit ) throws IOException
     {
         final char[] line = s.toCharArray( );
-        final int lineLength = s.length( );
 
-        List<String> items = new ArrayList<String>( 20 );
+        IntsArray bounds = new IntsArray( 40 );
+        int count = splitLine( line, 0, line.length, split, limit, bounds );
+
+        String[] items = new String[count];
+        for ( int i = 0; i < count; i++ )
+        {
+            items[i] = s.substring( bounds.a[2 * i], bounds.a[2 * i + 1] );
+        }
+
+        return items;
+    }
+
+    public static int splitLine( char[] line, int from, int to, int limit, IntsArray bounds ) throws IOException
+    {
+        return splitLine( line, from, to, COMMA, limit, bounds );
+    }
+
+    /**
+     * Splits the line stored in line[from, to) in the same way as {@link #splitLine(String, char, int)},
+     * but without creating Strings: the start (inclusive) and end (exclusive) index into line of each
+     * item are appended to bounds, which is cleared first.
+     *
+     * @return the number of items
+     */
+    public static int splitLine( char[] line, int from, int to, char split, int limit, IntsArray bounds ) throws IOException
+    {
+        bounds.clear( );
 
-        int itemStartPos = 0;
+        int count = 0;
+        int itemStartPos = from;
         ParseMode mode = DEFAULT;
-        for ( int linePos = 0; linePos < lineLength; linePos++ )
+        for ( int linePos = from; linePos < to; linePos++ )
         {
-            if ( items.size( ) == limit - 1 )
+            if ( count == limit - 1 )
             {
-                linePos = lineLength - 1;
+                linePos = to - 1;
             }
 
             char c = line[linePos];
 
-            if ( linePos == lineLength - 1 )
+            if ( linePos == to - 1 )
             {
                 if ( c == QUOTE )
                 {
-                    items.add( s.substring( itemStartPos, linePos ) );
+                    count = addItem( bounds, itemStartPos, linePos );
                 }
                 else if ( c == split )
                 {
-                    items.add( s.substring( itemStartPos, linePos ) );
-                    if ( items.size( ) < limit )
+                    count = addItem( bounds, itemStartPos, linePos );
+                    if ( count < limit )
                     {
-                        items.add( s.substring( 0, 0 ) );
+                        count = addItem( bounds, to, to );
                     }
                 }
                 else
                 {
-                    items.add( s.substring( itemStartPos, linePos + 1 ) );
+                    count = addItem( bounds, itemStartPos, linePos + 1 );
                 }
                 break;
             }
@@ -102,7 +128,7 @@ public class QuoteAwareStringSplitter
             case BETWEEN_QUOTES:
                 if ( c == QUOTE )
                 {
-                    items.add( s.substring( itemStartPos, linePos ) );
+                    count = addItem( bounds, itemStartPos, linePos );
                     mode = AFTER_END_QUOTE_BEFORE_COMMA;
                     itemStartPos = linePos + 1;
                 }
@@ -119,7 +145,7 @@ public class QuoteAwareStringSplitter
             case AFTER_END_QUOTE_BEFORE_COMMA:
                 if ( c == QUOTE )
                 {
-                    throw new IOException( String.format( "Unable to parse: \"%s\"", s ) );
+                    throw new IOException( String.format( "Unable to parse: \"%s\"", new String( line, from, to - from ) ) );
                 }
                 else if ( c == split )
                 {
@@ -140,7 +166,7 @@ public class QuoteAwareStringSplitter
                 }
                 else if ( c == split )
                 {
-                    items.add( s.substring( itemStartPos, linePos ) );
+                    count = addItem( bounds, itemStartPos, linePos );
                     itemStartPos = linePos + 1;
                 }
                 else
@@ -150,11 +176,18 @@ public class QuoteAwareStringSplitter
                 break;
 
             default:
-                throw new RuntimeException( String.format( "Unexpected state while parsing: \"%s\"", s ) );
+                throw new RuntimeException( String.format( "Unexpected state while parsing: \"%s\"", new String( line, from, to - from ) ) );
 
             }
         }
 
-        return items.toArray( new String[0] );
+        return count;
+    }
+
+    protected static int addItem( IntsArray bounds, int start, int end )
+    {
+        bounds.append( start );
+        bounds.append( end );
+        return bounds.n / 2;
     }
 }
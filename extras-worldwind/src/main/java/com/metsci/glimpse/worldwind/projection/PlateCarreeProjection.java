@@ -26,19 +26,55 @@
  */
 package com.metsci.glimpse.worldwind.projection;
 
+import java.nio.DoubleBuffer;
+
 import com.metsci.glimpse.util.geo.LatLonGeo;
+import com.metsci.glimpse.util.geo.projection.BulkGeoProjection;
+import com.metsci.glimpse.util.geo.projection.BulkProjections;
 import com.metsci.glimpse.util.geo.projection.GeoProjection;
 import com.metsci.glimpse.util.geo.projection.KinematicVector2d;
 import com.metsci.glimpse.util.vector.Vector2d;
 
-public class PlateCarreeProjection implements GeoProjection
+public class PlateCarreeProjection implements BulkGeoProjection
 {
+    protected static final double piOver180 = Math.PI / 180d;
+    protected static final double invPiOver180 = 1d / piOver180;
+
     @Override
     public Vector2d project( LatLonGeo latLon )
     {
         return new Vector2d( latLon.getLonDeg( ), latLon.getLatDeg( ) );
     }
 
+    @Override
+    public void project( double[] latDeg, double[] lonDeg, int inOffset, double[] xOut, double[] yOut, int outOffset, int count )
+    {
+        BulkProjections.project( kernel, latDeg, lonDeg, inOffset, xOut, yOut, outOffset, count );
+    }
+
+    @Override
+    public void project( DoubleBuffer latLonDeg, DoubleBuffer xyOut, int count )
+    {
+        BulkProjections.project( kernel, latLonDeg, xyOut, count );
+    }
+
+    protected final BulkProjections.RangeKernel kernel = new BulkProjections.RangeKernel( )
+    {
+        @Override
+        public void project( double[] latDeg, int latOffset, double[] lonDeg, int lonOffset, int inStride, double[] xOut, int xOffset, double[] yOut, int yOffset, int outStride, int from, int to )
+        {
+            for ( int i = from; i < to; i++ )
+            {
+                // round trip through radians to normalize exactly as LatLonGeo does
+                double lat = LatLonGeo.normalizeLat( latDeg[latOffset + i * inStride] * piOver180 );
+                double lon = LatLonGeo.normalizeLon( lonDeg[lonOffset + i * inStride] * piOver180 );
+
+                xOut[xOffset + i * outStride] = lon * invPiOver180;
+                yOut[yOffset + i * outStride] = lat * invPiOver180;
+            }
+        }
+    };
+
     @Override
     public LatLonGeo unproject( double x, double y )
     {
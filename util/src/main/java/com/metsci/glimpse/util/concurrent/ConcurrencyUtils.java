@@ -26,11 +26,90 @@
  */
 package com.metsci.glimpse.util.concurrent;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.locks.ReentrantLock;
 
 public class ConcurrencyUtils
 {
 
+    private static class SharedForkJoinPoolHolder
+    {
+        static final ForkJoinPool pool = new ForkJoinPool( );
+    }
+
+    /**
+     * Returns a fork/join pool, with one worker per available processor, for splitting bulk
+     * computations across threads. The pool is created on first use and shared by all callers,
+     * so that concurrent bulk computations do not each start a full set of workers. Its workers
+     * are daemon threads.
+     */
+    public static ForkJoinPool getSharedForkJoinPool( )
+    {
+        return SharedForkJoinPoolHolder.pool;
+    }
+
+    /**
+     * Work on the indices in [from, to) of a larger range, which may be split across threads.
+     */
+    public static interface RangeAction
+    {
+        void run( int from, int to );
+    }
+
+    /**
+     * Runs action over the indices in [0, count). Ranges shorter than parallelThreshold are run on
+     * the calling thread in a single call. Longer ranges are split in halves on the
+     * {@link #getSharedForkJoinPool() shared pool}, into about four pieces per worker but none
+     * shorter than parallelThreshold / 4, and this method returns once every piece has run.
+     * The pieces are disjoint, so action may write per-index results without synchronization.
+     */
+    public static void invokeRange( RangeAction action, int count, int parallelThreshold )
+    {
+        if ( count < parallelThreshold )
+        {
+            action.run( 0, count );
+        }
+        else
+        {
+            ForkJoinPool pool = getSharedForkJoinPool( );
+            int leafSize = Math.max( parallelThreshold / 4, count / ( 4 * pool.getParallelism( ) ) );
+            pool.invoke( new RangeTask( action, 0, count, leafSize ) );
+        }
+    }
+
+    private static class RangeTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final RangeAction action;
+        private final int from;
+        private final int to;
+        private final int leafSize;
+
+        public RangeTask( RangeAction action, int from, int to, int leafSize )
+        {
+            this.action = action;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+        }
+
+        @Override
+        protected void compute( )
+        {
+            if ( to - from > leafSize )
+            {
+                int mid = ( from + to ) >>> 1;
+                invokeAll( new RangeTask( action, from, mid, leafSize ), new RangeTask( action, mid, to, leafSize ) );
+            }
+            else
+            {
+                action.run( from, to );
+            }
+        }
+    }
+
     public static void requireLock( ReentrantLock lock )
     {
         if ( !lock.isHeldByCurrentThread( ) )
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.util.geo.projection;
+
+
+import java.nio.DoubleBuffer;
+
+
+/**
+ * A {@link GeoProjection} which can also project arrays and buffers of primitive coordinates
+ * without allocating a LatLonGeo and Vector2d per point. Callers holding a plain GeoProjection
+ * can use {@link BulkProjections#project(GeoProjection, double[], double[], int, double[], double[], int, int)},
+ * which falls back to projecting one point at a time.
+ */
+public interface BulkGeoProjection extends GeoProjection
+{
+
+    /**
+     * Bulk equivalent of {@link #project(com.metsci.glimpse.util.geo.LatLonGeo)}, which allocates no objects per point.
+     * Large inputs are split across cores (see {@link BulkProjections}).
+     *
+     * @param  latDeg     latitudes in degrees
+     * @param  lonDeg     longitudes in degrees
+     * @param  inOffset   index of the first point in latDeg and lonDeg
+     * @param  xOut       receives projected x positions
+     * @param  yOut       receives projected y positions
+     * @param  outOffset  index at which the first result is stored in xOut and yOut
+     * @param  count      number of points to project
+     */
+    void project(double[] latDeg, double[] lonDeg, int inOffset, double[] xOut, double[] yOut, int outOffset, int count);
+
+    /**
+     * Bulk equivalent of {@link #project(com.metsci.glimpse.util.geo.LatLonGeo)} for interleaved (lat, lon) pairs in
+     * degrees, read starting at the position of latLonDeg. Interleaved (x, y) results are
+     * written starting at the position of xyOut. The positions of both buffers are advanced.
+     *
+     * @param  latLonDeg  interleaved latitudes and longitudes in degrees
+     * @param  xyOut      receives interleaved projected positions
+     * @param  count      number of points to project
+     */
+    void project(DoubleBuffer latLonDeg, DoubleBuffer xyOut, int count);
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.util.geo.projection;
+
+import java.nio.DoubleBuffer;
+import java.nio.ReadOnlyBufferException;
+
+import com.metsci.glimpse.util.concurrent.ConcurrencyUtils;
+import com.metsci.glimpse.util.concurrent.ConcurrencyUtils.RangeAction;
+import com.metsci.glimpse.util.geo.LatLonGeo;
+import com.metsci.glimpse.util.vector.Vector2d;
+
+/**
+ * Support for bulk projection methods, such as
+ * {@link BulkGeoProjection#project(double[], double[], int, double[], double[], int, int)},
+ * which project primitive coordinate arrays without allocating an object per point.
+ *
+ * <p>Inputs of at least {@link #PARALLEL_THRESHOLD} points are split into ranges which
+ * are projected in parallel on a shared fork/join pool.</p>
+ *
+ * <p>Buffers without an accessible array are copied through a small per thread scratch
+ * array, {@link #CHUNK_SIZE} points at a time, so no temporary arrays proportional to the
+ * number of points are allocated.</p>
+ */
+public class BulkProjections
+{
+    public static final int PARALLEL_THRESHOLD = 32768;
+
+    /**
+     * Number of points copied at a time between a buffer without an accessible array
+     * (such as a direct buffer) and the scratch arrays the kernel works on.
+     */
+    public static final int CHUNK_SIZE = 1024;
+
+    // input pairs followed by output pairs, one chunk of each
+    protected static final ThreadLocal<double[]> chunkScratch = new ThreadLocal<double[]>( )
+    {
+        @Override
+        protected double[] initialValue( )
+        {
+            return new double[4 * CHUNK_SIZE];
+        }
+    };
+
+
+    /**
+     * Projects the points with indices in [from, to) from strided input arrays into strided
+     * output arrays. The i-th input point is ( in1[in1Offset + i*inStride], in2[in2Offset + i*inStride] )
+     * and its result is stored at out1[out1Offset + i*outStride], out2[out2Offset + i*outStride].
+     * The two input (or output) arrays may be the same array, in which case the coordinates are
+     * interleaved.
+     */
+    public static interface RangeKernel
+    {
+        void project( double[] in1, int in1Offset, double[] in2, int in2Offset, int inStride, double[] out1, int out1Offset, double[] out2, int out2Offset, int outStride, int from, int to );
+    }
+
+    /**
+     * Projects count points with projection, using its bulk method if it is a
+     * {@link BulkGeoProjection}, and projecting one point at a time otherwise.
+     */
+    public static void project( GeoProjection projection, double[] latDeg, double[] lonDeg, int inOffset, double[] xOut, double[] yOut, int outOffset, int count )
+    {
+        if ( projection instanceof BulkGeoProjection )
+        {
+            ( ( BulkGeoProjection ) projection ).project( latDeg, lonDeg, inOffset, xOut, yOut, outOffset, count );
+            return;
+        }
+
+        for ( int i = 0; i < count; i++ )
+        {
+            Vector2d xy = projection.project( LatLonGeo.fromDeg( latDeg[inOffset + i], lonDeg[inOffset + i] ) );
+            xOut[outOffset + i] = xy.getX( );
+            yOut[outOffset + i] = xy.getY( );
+        }
+    }
+
+    /**
+     * Applies kernel to count points read from separate input arrays and written to separate
+     * output arrays.
+     */
+    public static void project( RangeKernel kernel, double[] in1, double[] in2, int inOffset, double[] out1, double[] out2, int outOffset, int count )
+    {
+        checkRange( in1, inOffset, count, 1 );
+        checkRange( in2, inOffset, count, 1 );
+        checkRange( out1, outOffset, count, 1 );
+        checkRange( out2, outOffset, count, 1 );
+
+        run( kernel, in1, inOffset, in2, inOffset, 1, out1, outOffset, out2, outOffset, 1, count );
+    }
+
+    /**
+     * Applies kernel to count interleaved coordinate pairs read from in (starting at its position)
+     * and writes interleaved results into out (starting at its position). The positions of both
+     * buffers are advanced past the pairs read and written.
+     */
+    public static void project( final RangeKernel kernel, DoubleBuffer in, DoubleBuffer out, int count )
+    {
+        if ( in.remaining( ) < 2 * count || out.remaining( ) < 2 * count )
+        {
+            throw new IndexOutOfBoundsException( String.format( "Buffers must have %d values remaining", 2 * count ) );
+        }
+
+        if ( out.isReadOnly( ) )
+        {
+            throw new ReadOnlyBufferException( );
+        }
+
+        if ( in.hasArray( ) && out.hasArray( ) )
+        {
+            double[] inArray = in.array( );
+            int inOffset = in.arrayOffset( ) + in.position( );
+            double[] outArray = out.array( );
+            int outOffset = out.arrayOffset( ) + out.position( );
+
+            run( kernel, inArray, inOffset, inArray, inOffset + 1, 2, outArray, outOffset, outArray, outOffset + 1, 2, count );
+        }
+        else
+        {
+            final DoubleBuffer in0 = in;
+            final DoubleBuffer out0 = out;
+            final int inPosition = in.position( );
+            final int outPosition = out.position( );
+
+            ConcurrencyUtils.invokeRange( new RangeAction( )
+            {
+                @Override
+                public void run( int from, int to )
+                {
+                    projectChunks( kernel, in0, inPosition, out0, outPosition, from, to );
+                }
+            }, count, PARALLEL_THRESHOLD );
+        }
+
+        in.position( in.position( ) + 2 * count );
+        out.position( out.position( ) + 2 * count );
+    }
+
+    protected static void run( final RangeKernel kernel, final double[] in1, final int in1Offset, final double[] in2, final int in2Offset, final int inStride, final double[] out1, final int out1Offset, final double[] out2, final int out2Offset, final int outStride, int count )
+    {
+        ConcurrencyUtils.invokeRange( new RangeAction( )
+        {
+            @Override
+            public void run( int from, int to )
+            {
+                kernel.project( in1, in1Offset, in2, in2Offset, inStride, out1, out1Offset, out2, out2Offset, outStride, from, to );
+            }
+        }, count, PARALLEL_THRESHOLD );
+    }
+
+    // projects the pairs with indices in [from, to) a chunk at a time, through the calling thread's scratch array
+    protected static void projectChunks( RangeKernel kernel, DoubleBuffer in, int inPosition, DoubleBuffer out, int outPosition, int from, int to )
+    {
+        double[] scratch = chunkScratch.get( );
+        int outOffset = 2 * CHUNK_SIZE;
+
+        DoubleBuffer src = in.duplicate( );
+        src.position( inPosition + 2 * from );
+        DoubleBuffer dst = out.duplicate( );
+        dst.position( outPosition + 2 * from );
+
+        for ( int i = from; i < to; i += CHUNK_SIZE )
+        {
+            int n = Math.min( CHUNK_SIZE, to - i );
+            src.get( scratch, 0, 2 * n );
+            kernel.project( scratch, 0, scratch, 1, 2, scratch, outOffset, scratch, outOffset + 1, 2, 0, n );
+            dst.put( scratch, outOffset, 2 * n );
+        }
+    }
+
+    protected static void checkRange( double[] array, int offset, int count, int stride )
+    {
+        if ( offset < 0 || count < 0 || ( count > 0 && offset + ( long ) ( count - 1 ) * stride >= array.length ) )
+        {
+            throw new IndexOutOfBoundsException( String.format( "%d values from offset %d exceed array length %d", count, offset, array.length ) );
+        }
+    }
+}
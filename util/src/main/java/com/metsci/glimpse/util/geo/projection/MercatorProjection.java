@@ -26,6 +26,8 @@
  */
 package com.metsci.glimpse.util.geo.projection;
 
+import java.nio.DoubleBuffer;
+
 import com.metsci.glimpse.util.geo.LatLonGeo;
 import com.metsci.glimpse.util.geo.projection.GeoProjection;
 import com.metsci.glimpse.util.geo.projection.KinematicVector2d;
@@ -39,8 +41,10 @@ import static java.lang.Math.*;
  *
  * @author ulman
  */
-public class MercatorProjection implements GeoProjection
+public class MercatorProjection implements BulkGeoProjection
 {
+    protected static final double piOver180 = PI / 180d;
+
     protected final double originLon;
 
     public MercatorProjection( double originLongitudeDeg )
@@ -65,6 +69,34 @@ public class MercatorProjection implements GeoProjection
         return new Vector2d( x, y );
     }
 
+    @Override
+    public void project( double[] latDeg, double[] lonDeg, int inOffset, double[] xOut, double[] yOut, int outOffset, int count )
+    {
+        BulkProjections.project( kernel, latDeg, lonDeg, inOffset, xOut, yOut, outOffset, count );
+    }
+
+    @Override
+    public void project( DoubleBuffer latLonDeg, DoubleBuffer xyOut, int count )
+    {
+        BulkProjections.project( kernel, latLonDeg, xyOut, count );
+    }
+
+    protected final BulkProjections.RangeKernel kernel = new BulkProjections.RangeKernel( )
+    {
+        @Override
+        public void project( double[] latDeg, int latOffset, double[] lonDeg, int lonOffset, int inStride, double[] xOut, int xOffset, double[] yOut, int yOffset, int outStride, int from, int to )
+        {
+            for ( int i = from; i < to; i++ )
+            {
+                double lat = LatLonGeo.normalizeLat( latDeg[latOffset + i * inStride] * piOver180 );
+                double lon = LatLonGeo.normalizeLon( lonDeg[lonOffset + i * inStride] * piOver180 );
+
+                xOut[xOffset + i * outStride] = Angle.normalizeAnglePi( lon - originLon );
+                yOut[yOffset + i * outStride] = log( ( sin( lat ) + 1 ) / cos( lat ) );
+            }
+        }
+    };
+
     @Override
     public LatLonGeo unproject( double x, double y )
     {
@@ -27,6 +27,7 @@
 package com.metsci.glimpse.util.geo.projection;
 
 import java.io.Serializable;
+import java.nio.DoubleBuffer;
 
 import com.metsci.glimpse.util.geo.LatLonGeo;
 import com.metsci.glimpse.util.geo.datum.DatumSphereWgs84;
@@ -41,11 +42,12 @@ import com.metsci.glimpse.util.vector.Vector3d;
  *
  * @author moskowitz
  */
-public final class TangentPlane implements GeoProjection, Serializable
+public final class TangentPlane implements BulkGeoProjection, Serializable
 {
     public static final long serialVersionUID = -6802219476339525122L;
     private static final Vector2d defaultTangentPointOnPlane = new Vector2d( 0.0, 0.0 );
     private static final double earthRadius = DatumSphereWgs84.Constants.avgGeodesicRadius;
+    private static final double piOver180 = Math.PI / 180d;
 
     // reference LatLon at point of tangency as a LatLon instance and also represented as point on
     // unit sphere (Earth units: radius of earth = 1.0)
@@ -117,6 +119,59 @@ public final class TangentPlane implements GeoProjection, Serializable
         return ns;
     }
 
+    @Override
+    public void project( double[] latDeg, double[] lonDeg, int inOffset, double[] xOut, double[] yOut, int outOffset, int count )
+    {
+        BulkProjections.project( new ProjectKernel( ), latDeg, lonDeg, inOffset, xOut, yOut, outOffset, count );
+    }
+
+    @Override
+    public void project( DoubleBuffer latLonDeg, DoubleBuffer xyOut, int count )
+    {
+        BulkProjections.project( new ProjectKernel( ), latLonDeg, xyOut, count );
+    }
+
+    /**
+     * Equivalent of {@link #project(LatLonGeo)} for ranges of primitive coordinates, with the
+     * reference point and local axes unpacked into primitive constants.
+     */
+    private final class ProjectKernel implements BulkProjections.RangeKernel
+    {
+        private final double rx = _refPointOnUnitSphere.getX( );
+        private final double ry = _refPointOnUnitSphere.getY( );
+        private final double rz = _refPointOnUnitSphere.getZ( );
+        private final double ex = _localEast.getX( );
+        private final double ey = _localEast.getY( );
+        private final double ez = _localEast.getZ( );
+        private final double nx = _localNorth.getX( );
+        private final double ny = _localNorth.getY( );
+        private final double nz = _localNorth.getZ( );
+        private final double tx = _tangentPointOnPlane.getX( );
+        private final double ty = _tangentPointOnPlane.getY( );
+
+        @Override
+        public void project( double[] latDeg, int latOffset, double[] lonDeg, int lonOffset, int inStride, double[] xOut, int xOffset, double[] yOut, int yOffset, int outStride, int from, int to )
+        {
+            for ( int i = from; i < to; i++ )
+            {
+                double latRad = LatLonGeo.normalizeLat( latDeg[latOffset + i * inStride] * piOver180 );
+                double lonRad = LatLonGeo.normalizeLon( lonDeg[lonOffset + i * inStride] * piOver180 );
+
+                double cosLat = Math.cos( latRad );
+                double px = cosLat * Math.cos( lonRad );
+                double py = cosLat * Math.sin( lonRad );
+                double pz = Math.sin( latRad );
+
+                double div = 1 + ( ( px * rx ) + ( py * ry ) + ( pz * rz ) );
+                double x = 2 * ( ( px * ex ) + ( py * ey ) + ( pz * ez ) ) / div;
+                double y = 2 * ( ( px * nx ) + ( py * ny ) + ( pz * nz ) ) / div;
+
+                xOut[xOffset + i * outStride] = earthRadius * x + tx;
+                yOut[yOffset + i * outStride] = earthRadius * y + ty;
+            }
+        }
+    }
+
     /**
      * Converts from LatLon to a point on the unit sphere (ECEF-r).
      */
@@ -26,6 +26,8 @@
  */
 package com.metsci.glimpse.util.geo.util;
 
+import com.metsci.glimpse.util.concurrent.ConcurrencyUtils;
+import com.metsci.glimpse.util.concurrent.ConcurrencyUtils.RangeAction;
 import com.metsci.glimpse.util.geo.LatLonGeo;
 import com.metsci.glimpse.util.geo.LatLonRect;
 import com.metsci.glimpse.util.geo.datum.Datum;
@@ -40,6 +42,12 @@ public final class SpheroidUtil
     private static final double piOverTwo  = pi / 2d;
     private static final double twoPi      = pi * 2d;
 
+    /**
+     * Batches of at least this many geodesics are solved in parallel.
+     */
+    public static final int PARALLEL_THRESHOLD = 4096;
+
+
 
     /**
      * Projects a geodetic latitude onto a geocentric latitude
@@ -189,14 +197,120 @@ public final class SpheroidUtil
      * @return final position and initial azimuth of geodesic back to starting position
      */
     public static PositionAzimuth forward( Datum datum, LatLonGeo from, double dist, double azimuth )
+    {
+        double[] result = new double[3];
+        forward( new GeodesicConstants( datum ), from.getLatRad( ), from.getLonRad( ), dist, Azimuth.toNavRad( azimuth ), result );
+
+        /// package and ship results
+        return new PositionAzimuth( LatLonGeo.fromRad( result[0], result[1], from.getAltitude( ) ),
+                                  Azimuth.fromNavRad( result[2] ) );
+    }
+
+    /**
+     * Batch version of {@link #forward(Datum, LatLonGeo, double, double)}, from one starting
+     * position along many geodesics (e.g. the vertices of a range ring).
+     *
+     * <p>Results match the scalar method exactly. Latitudes and longitudes are in radians,
+     * azimuths are in system units (see {@link Azimuth}). Large batches are solved in parallel.</p>
+     *
+     * @param datum underlying datum for geodesics
+     * @param fromLatRad starting latitude
+     * @param fromLonRad starting longitude
+     * @param dist distances to travel
+     * @param azimuth initial azimuths of geodesics
+     * @param inOffset index of the first geodesic in dist and azimuth
+     * @param latRadOut receives final latitudes
+     * @param lonRadOut receives final longitudes
+     * @param backAzimuthOut receives initial azimuths back to the starting position, may be null
+     * @param outOffset index at which to store the first result
+     * @param count number of geodesics
+     */
+    public static void forward( Datum datum, final double fromLatRad, final double fromLonRad,
+                                final double[] dist, final double[] azimuth, final int inOffset,
+                                final double[] latRadOut, final double[] lonRadOut, final double[] backAzimuthOut, final int outOffset,
+                                int count )
+    {
+        final GeodesicConstants constants = new GeodesicConstants( datum );
+        final double lat1 = LatLonGeo.normalizeLat( fromLatRad );
+        final double lon1 = LatLonGeo.normalizeLon( fromLonRad );
+
+        ConcurrencyUtils.invokeRange( new RangeAction( )
+        {
+            @Override
+            public void run( int from, int to )
+            {
+                double[] result = new double[3];
+                for( int i = from; i < to; i++ )
+                {
+                    forward( constants, lat1, lon1, dist[inOffset+i], Azimuth.toNavRad( azimuth[inOffset+i] ), result );
+                    putForwardResult( result, latRadOut, lonRadOut, backAzimuthOut, outOffset+i );
+                }
+            }
+        }, count, PARALLEL_THRESHOLD );
+    }
+
+    /**
+     * Batch version of {@link #forward(Datum, LatLonGeo, double, double)}, which solves the
+     * i-th geodesic from the i-th starting position.
+     *
+     * <p>Results match the scalar method exactly. Latitudes and longitudes are in radians,
+     * azimuths are in system units (see {@link Azimuth}). Large batches are solved in parallel.</p>
+     *
+     * @param datum underlying datum for geodesics
+     * @param fromLatRad starting latitudes
+     * @param fromLonRad starting longitudes
+     * @param dist distances to travel
+     * @param azimuth initial azimuths of geodesics
+     * @param inOffset index of the first geodesic in fromLatRad, fromLonRad, dist and azimuth
+     * @param latRadOut receives final latitudes
+     * @param lonRadOut receives final longitudes
+     * @param backAzimuthOut receives initial azimuths back to the starting positions, may be null
+     * @param outOffset index at which to store the first result
+     * @param count number of geodesics
+     */
+    public static void forward( Datum datum, final double[] fromLatRad, final double[] fromLonRad,
+                                final double[] dist, final double[] azimuth, final int inOffset,
+                                final double[] latRadOut, final double[] lonRadOut, final double[] backAzimuthOut, final int outOffset,
+                                int count )
+    {
+        final GeodesicConstants constants = new GeodesicConstants( datum );
+
+        ConcurrencyUtils.invokeRange( new RangeAction( )
+        {
+            @Override
+            public void run( int from, int to )
+            {
+                double[] result = new double[3];
+                for( int i = from; i < to; i++ )
+                {
+                    final double lat1 = LatLonGeo.normalizeLat( fromLatRad[inOffset+i] );
+                    final double lon1 = LatLonGeo.normalizeLon( fromLonRad[inOffset+i] );
+                    forward( constants, lat1, lon1, dist[inOffset+i], Azimuth.toNavRad( azimuth[inOffset+i] ), result );
+                    putForwardResult( result, latRadOut, lonRadOut, backAzimuthOut, outOffset+i );
+                }
+            }
+        }, count, PARALLEL_THRESHOLD );
+    }
+
+    private static void putForwardResult( double[] result, double[] latRadOut, double[] lonRadOut, double[] backAzimuthOut, int i )
+    {
+        // normalize as LatLonGeo.fromRad does
+        latRadOut[i] = LatLonGeo.normalizeLat( result[0] );
+        lonRadOut[i] = LatLonGeo.normalizeLon( result[1] );
+        if( backAzimuthOut != null )
+            backAzimuthOut[i] = Azimuth.fromNavRad( result[2] );
+    }
+
+    /**
+     * Solves the geodetic direct problem for a starting position, distance and initial
+     * azimuth (from north, in radians). Stores end latitude, end longitude and the backward
+     * azimuth (from north, in radians) in result.
+     */
+    private static void forward( GeodesicConstants constants, double GLAT1, double GLON1, double S, double FAZ, double[] result )
     {
         /// map our args onto Fortran args
-        final double GLAT1 = from.getLatRad( );            // start north lat (rad)
-        final double GLON1 = from.getLonRad( );            // start east lon (rad)
-        final double S     = dist;                         // distance to move
-        final double FAZ   = Azimuth.toNavRad( azimuth );  // initial azimuth
-        final double A     = datum.getEquatorialRadius( );
-        final double F     = datum.getFlattening( );
+        final double A     = constants.A;
+        final double F     = constants.F;
 
         /// the results end up here
         double BAZ;    // backward azimuth
@@ -206,7 +320,7 @@ public final class SpheroidUtil
         /// specify tolerance
         final double EPS = 0.5e-13;
 
-        double R  = 1.0 - F;
+        double R  = constants.R;
         double TU = R * Math.sin(GLAT1) / Math.cos(GLAT1);
         double SF = Math.sin(FAZ);
         double CF = Math.cos(FAZ);
@@ -257,9 +371,9 @@ public final class SpheroidUtil
         GLON2 = GLON1+X-(1-C)*D*F;
         BAZ   = Math.atan2(SA,BAZ)+pi;
 
-        /// package and ship results
-        return new PositionAzimuth( LatLonGeo.fromRad( GLAT2, GLON2, from.getAltitude( ) ),
-                                  Azimuth.fromNavRad( BAZ ) );
+        result[0] = GLAT2;
+        result[1] = GLON2;
+        result[2] = BAZ;
     }
 
     /**
@@ -286,15 +400,118 @@ public final class SpheroidUtil
      */
     public static DistanceAzimuth inverse( Datum datum, LatLonGeo from, LatLonGeo to )
     {
-        // map our args onto Fortran args
-        final double A   = datum.getEquatorialRadius( );
-        final double F   = datum.getFlattening( );
-        final double ESQ = datum.getEccentricitySquared( );
+        double[] result = new double[2];
+        inverse( new GeodesicConstants( datum ), from.getLatRad( ), from.getLonRad( ), to.getLatRad( ), to.getLonRad( ), result );
 
-        final double P1  =  from.getLatRad( );
-        final double E1  =  from.getLonRad( );
-        final double P2  =  to.getLatRad( );
-              double E2  =  to.getLonRad( );
+        return new DistanceAzimuth( result[0], Azimuth.fromNavRad( result[1] ) );
+    }
+
+    /**
+     * Batch version of {@link #inverse(Datum, LatLonGeo, LatLonGeo)}, from one start
+     * position to many end positions (e.g. from ownship to every contact).
+     *
+     * <p>Results match the scalar method exactly. Latitudes and longitudes are in radians,
+     * azimuths are in system units (see {@link Azimuth}). Large batches are solved in parallel.</p>
+     *
+     * @param datum datum on which to invert geodesics
+     * @param fromLatRad start latitude
+     * @param fromLonRad start longitude
+     * @param toLatRad end latitudes
+     * @param toLonRad end longitudes
+     * @param inOffset index of the first end position in toLatRad and toLonRad
+     * @param distOut receives distances between points, may be null
+     * @param azimuthOut receives initial geodesic azimuths from start to end, may be null
+     * @param outOffset index at which to store the first result
+     * @param count number of end positions
+     */
+    public static void inverse( Datum datum, final double fromLatRad, final double fromLonRad,
+                                final double[] toLatRad, final double[] toLonRad, final int inOffset,
+                                final double[] distOut, final double[] azimuthOut, final int outOffset,
+                                int count )
+    {
+        final GeodesicConstants constants = new GeodesicConstants( datum );
+        final double lat1 = LatLonGeo.normalizeLat( fromLatRad );
+        final double lon1 = LatLonGeo.normalizeLon( fromLonRad );
+
+        ConcurrencyUtils.invokeRange( new RangeAction( )
+        {
+            @Override
+            public void run( int from, int to )
+            {
+                double[] result = new double[2];
+                for( int i = from; i < to; i++ )
+                {
+                    final double lat2 = LatLonGeo.normalizeLat( toLatRad[inOffset+i] );
+                    final double lon2 = LatLonGeo.normalizeLon( toLonRad[inOffset+i] );
+                    inverse( constants, lat1, lon1, lat2, lon2, result );
+                    putInverseResult( result, distOut, azimuthOut, outOffset+i );
+                }
+            }
+        }, count, PARALLEL_THRESHOLD );
+    }
+
+    /**
+     * Batch version of {@link #inverse(Datum, LatLonGeo, LatLonGeo)}, which solves the
+     * geodesic from the i-th start position to the i-th end position.
+     *
+     * <p>Results match the scalar method exactly. Latitudes and longitudes are in radians,
+     * azimuths are in system units (see {@link Azimuth}). Large batches are solved in parallel.</p>
+     *
+     * @param datum datum on which to invert geodesics
+     * @param fromLatRad start latitudes
+     * @param fromLonRad start longitudes
+     * @param toLatRad end latitudes
+     * @param toLonRad end longitudes
+     * @param inOffset index of the first geodesic in the input arrays
+     * @param distOut receives distances between points, may be null
+     * @param azimuthOut receives initial geodesic azimuths from start to end, may be null
+     * @param outOffset index at which to store the first result
+     * @param count number of geodesics
+     */
+    public static void inverse( Datum datum, final double[] fromLatRad, final double[] fromLonRad,
+                                final double[] toLatRad, final double[] toLonRad, final int inOffset,
+                                final double[] distOut, final double[] azimuthOut, final int outOffset,
+                                int count )
+    {
+        final GeodesicConstants constants = new GeodesicConstants( datum );
+
+        ConcurrencyUtils.invokeRange( new RangeAction( )
+        {
+            @Override
+            public void run( int from, int to )
+            {
+                double[] result = new double[2];
+                for( int i = from; i < to; i++ )
+                {
+                    final double lat1 = LatLonGeo.normalizeLat( fromLatRad[inOffset+i] );
+                    final double lon1 = LatLonGeo.normalizeLon( fromLonRad[inOffset+i] );
+                    final double lat2 = LatLonGeo.normalizeLat( toLatRad[inOffset+i] );
+                    final double lon2 = LatLonGeo.normalizeLon( toLonRad[inOffset+i] );
+                    inverse( constants, lat1, lon1, lat2, lon2, result );
+                    putInverseResult( result, distOut, azimuthOut, outOffset+i );
+                }
+            }
+        }, count, PARALLEL_THRESHOLD );
+    }
+
+    private static void putInverseResult( double[] result, double[] distOut, double[] azimuthOut, int i )
+    {
+        if( distOut != null )
+            distOut[i] = result[0];
+        if( azimuthOut != null )
+            azimuthOut[i] = Azimuth.fromNavRad( result[1] );
+    }
+
+    /**
+     * Solves the geodetic inverse problem between two positions. Stores the distance and
+     * the initial azimuth from start to end (from north, in radians) in result.
+     */
+    private static void inverse( GeodesicConstants constants, double P1, double E1, double P2, double E2, double[] result )
+    {
+        // map our args onto Fortran args
+        final Datum  datum = constants.datum;
+        final double A     = constants.A;
+        final double F     = constants.F;
 
         // outputs get filled in here
         double AZ1;
@@ -310,7 +527,7 @@ public final class SpheroidUtil
         if( Math.abs( E2 - E1 ) < TOL1 )
         {
             E2 = E2 + TOL1;
-            S = Math.abs( meridionalDistance( datum, from.getLatRad(), to.getLatRad() ) );
+            S = Math.abs( meridionalDistance( datum, P1, P2 ) );
 
             if( P2 > P1 )
             {
@@ -323,12 +540,14 @@ public final class SpheroidUtil
                 AZ2 = 0;
             }
 
-            return new DistanceAzimuth( S, Azimuth.fromNavRad( AZ1 ) );
+            result[0] = S;
+            result[1] = AZ1;
+            return;
         }
 
         final double DLON = LatLonGeo.normalizeLon( E2 - E1 );
         double SS = Math.abs( DLON );
-        double ALIMIT = pi * (1 - F);
+        double ALIMIT = constants.ALIMIT;
 
         /// TEST FOR ANTI-NODAL DISTANCE
         while( SS >= ALIMIT )
@@ -345,31 +564,35 @@ public final class SpheroidUtil
                 AZ1 = 0;
                 AZ2 = 0;
                 S   = 0;
-                return new DistanceAzimuth( S, Azimuth.fromNavRad( AZ1 ) );
+                result[0] = S;
+                result[1] = AZ1;
+                return;
             }
 
             // COMPUTE AZIMUTH TO ANTI-NODAL POINT
-            ResultOfInverseLiftOff result = inverseLiftOff( datum, DLON );
+            ResultOfInverseLiftOff liftOff = inverseLiftOff( datum, DLON );
 
-                   AZ1  = result.AZ1;
-                   AZ2  = result.AZ2;
-//          double AA   = result.A0;
-//          double BB   = result.B0;
-            double SMS  = result.SMS;
+                   AZ1  = liftOff.AZ1;
+                   AZ2  = liftOff.AZ2;
+//          double AA   = liftOff.A0;
+//          double BB   = liftOff.B0;
+            double SMS  = liftOff.SMS;
 
             // COMPUTE EQUATORIAL DISTANCE & GEODETIC
             double EQU  = A * Math.abs( DLON );
                      S  = EQU - SMS;
 
-            return new DistanceAzimuth( S, Azimuth.fromNavRad( AZ1 ) );
+            result[0] = S;
+            result[1] = AZ1;
+            return;
         }
 
-        double F0    = 1-F;
-        double B     = A*F0;
-        double EPSQ  = ESQ / (1 - ESQ);
-        double F2    = F*F;
-        double F3    = F*F2;
-        double F4    = F*F3;
+        double F0    = constants.R;
+        double B     = constants.B;
+        double EPSQ  = constants.EPSQ;
+        double F2    = constants.F2;
+        double F3    = constants.F3;
+        double F4    = constants.F4;
 
         /// LONGITUDE DIFFERENCE
         double AB     = E2-E1;
@@ -464,7 +687,42 @@ public final class SpheroidUtil
             AZ2 = pi-Math.atan2(sina2,sina2/tana2);
         }
 
-        return new DistanceAzimuth( S, Azimuth.fromNavRad( AZ1 ) );
+        result[0] = S;
+        result[1] = AZ1;
+    }
+
+    /**
+     * Datum constants used by the geodesic solvers, computed once per call (or once per
+     * batch) rather than once per geodesic.
+     */
+    private static final class GeodesicConstants
+    {
+        private final Datum  datum;
+        private final double A;      // equatorial radius
+        private final double F;      // flattening
+        private final double R;      // 1 - flattening
+        private final double B;      // polar radius
+        private final double EPSQ;   // second eccentricity squared
+        private final double F2;
+        private final double F3;
+        private final double F4;
+        private final double ALIMIT; // anti-nodal longitude difference
+
+        private GeodesicConstants( Datum datum )
+        {
+            final double ESQ = datum.getEccentricitySquared( );
+
+            this.datum  = datum;
+            this.A      = datum.getEquatorialRadius( );
+            this.F      = datum.getFlattening( );
+            this.R      = 1.0 - F;
+            this.B      = A*(1-F);
+            this.EPSQ   = ESQ / (1 - ESQ);
+            this.F2     = F*F;
+            this.F3     = F*F2;
+            this.F4     = F*F3;
+            this.ALIMIT = pi * (1 - F);
+        }
     }
 
     /**
@@ -0,0 +1,372 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.util.quadtree;
+
+import static com.metsci.glimpse.util.quadtree.QuadTree.truncInf;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+
+/**
+ * A spatio-temporal index: like {@link QuadTreeXys}, but dividing space along
+ * a third (time) dimension as well. Each leaf bucket holds values whose x, y and
+ * time fall within the leaf's bounds, so a query which is bounded in both space
+ * and time only visits buckets which overlap the query box, rather than scanning
+ * every value in the spatial region and then filtering by time.
+ *
+ * Dividers are chosen from the mean of the bucket contents when a bucket fills,
+ * so the tree adapts to the distribution of the data and no time bucket width
+ * needs to be chosen in advance. Values may be added and removed incrementally.
+ *
+ * Values inserted into an {@code OctTreeXyts} must be instances of the {@link Xyt}
+ * interface, and their coordinates must not change while they are in the tree.
+ */
+public class OctTreeXyts<V extends Xyt>
+{
+
+    protected static interface Node<V extends Xyt>
+    {
+        LeafNode<V> leaf(float x, float y, long t);
+
+        void search(float xMin, float xMax, float yMin, float yMax, long tMin, long tMax, FilterObject<V> vFilter, Collection<V> results);
+    }
+
+
+    protected static class InternalNode<V extends Xyt> implements Node<V>
+    {
+        public final float xDivider;
+        public final float yDivider;
+        public final long tDivider;
+
+        /**
+         * Indexed using {@link OctTreeXyts#octant(float, float, long, float, float, long)}
+         */
+        @SuppressWarnings("unchecked")
+        public final Node<V>[] children = new Node[8];
+
+        public InternalNode(float xDivider, float yDivider, long tDivider)
+        {
+            this.xDivider = xDivider;
+            this.yDivider = yDivider;
+            this.tDivider = tDivider;
+        }
+
+        @Override
+        public LeafNode<V> leaf(float x, float y, long t)
+        {
+            int o = octant(xDivider, yDivider, tDivider, x, y, t);
+            return children[o].leaf(x, y, t);
+        }
+
+        @Override
+        public void search(float xMin, float xMax, float yMin, float yMax, long tMin, long tMax, FilterObject<V> vFilter, Collection<V> results)
+        {
+            boolean includeSmallX = (xMin < xDivider);
+            boolean includeLargeX = (xMax >= xDivider);
+            boolean includeSmallY = (yMin < yDivider);
+            boolean includeLargeY = (yMax >= yDivider);
+            boolean includeSmallT = (tMin < tDivider);
+            boolean includeLargeT = (tMax >= tDivider);
+
+            for (int o = 0; o < 8; o++)
+            {
+                boolean x = ((o & 1) == 0 ? includeSmallX : includeLargeX);
+                boolean y = ((o & 2) == 0 ? includeSmallY : includeLargeY);
+                boolean t = ((o & 4) == 0 ? includeSmallT : includeLargeT);
+
+                if (x && y && t) children[o].search(xMin, xMax, yMin, yMax, tMin, tMax, vFilter, results);
+            }
+        }
+    }
+
+
+    protected static class LeafNode<V extends Xyt> implements Node<V>
+    {
+        public final Collection<V> bucket;
+
+        // Used to check whether a leaf is too small to split,
+        // and to choose dividers when splitting this leaf
+        public final float xMin;
+        public final float xMax;
+        public final float yMin;
+        public final float yMax;
+        public final long tMin;
+        public final long tMax;
+
+        // Used to replace this leaf with a replacement node
+        public final Node<V>[] referringArray;
+        public final int referringIndex;
+
+        // The bucket size above which a split is attempted. Raised when the
+        // contents cannot be split (for instance, many identical points), so
+        // that inserts into such a leaf do not each rescan the bucket
+        public int splitSize;
+
+        protected LeafNode(Collection<V> bucket, Node<V>[] referringArray, int referringIndex, int splitSize, float xMin, float xMax, float yMin, float yMax, long tMin, long tMax)
+        {
+            this.bucket = bucket;
+            this.splitSize = splitSize;
+
+            this.xMin = xMin;
+            this.xMax = xMax;
+            this.yMin = yMin;
+            this.yMax = yMax;
+            this.tMin = tMin;
+            this.tMax = tMax;
+
+            this.referringArray = referringArray;
+            this.referringIndex = referringIndex;
+        }
+
+        @Override
+        public LeafNode<V> leaf(float x, float y, long t)
+        {
+            return this;
+        }
+
+        @Override
+        public void search(float xMin, float xMax, float yMin, float yMax, long tMin, long tMax, FilterObject<V> vFilter, Collection<V> results)
+        {
+            boolean xAll = (xMin <= this.xMin && this.xMax <= xMax);
+            boolean yAll = (yMin <= this.yMin && this.yMax <= yMax);
+            boolean tAll = (tMin <= this.tMin && this.tMax <= tMax);
+
+            if (xAll && yAll && tAll && vFilter == null)
+            {
+                results.addAll(bucket);
+                return;
+            }
+
+            for (V v : bucket)
+            {
+                if (!xAll)
+                {
+                    float x = v.x();
+                    if (x < xMin || x > xMax) continue;
+                }
+
+                if (!yAll)
+                {
+                    float y = v.y();
+                    if (y < yMin || y > yMax) continue;
+                }
+
+                if (!tAll)
+                {
+                    long t = v.t();
+                    if (t < tMin || t > tMax) continue;
+                }
+
+                if (vFilter != null && !vFilter.include(v)) continue;
+
+                results.add(v);
+            }
+        }
+    }
+
+
+    /**
+     * Bit 0 set for large-x, bit 1 set for large-y, bit 2 set for large-t.
+     */
+    public static int octant(float xDivider, float yDivider, long tDivider, float x, float y, long t)
+    {
+        int h = (x < xDivider ? 0 : 1);
+        int v = (y < yDivider ? 0 : 2);
+        int d = (t < tDivider ? 0 : 4);
+        return (h | v | d);
+    }
+
+
+
+    protected final int maxBucketSize;
+
+    @SuppressWarnings("unchecked")
+    protected final Node<V>[] root = new Node[1];
+
+    protected int size;
+
+
+    public OctTreeXyts(int maxBucketSize)
+    {
+        this.maxBucketSize = maxBucketSize;
+        clear();
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public void clear()
+    {
+        root[0] = new LeafNode<V>(new ArrayList<V>(), root, 0, maxBucketSize, Float.NEGATIVE_INFINITY, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.POSITIVE_INFINITY, Long.MIN_VALUE, Long.MAX_VALUE);
+        size = 0;
+    }
+
+    /**
+     * If {@code v.x()} or {@code v.y()} returns {@code NaN}, this method returns
+     * immediately without adding {@code v} to the tree.
+     */
+    public void add(V v)
+    {
+        float x = v.x();
+        if (Float.isNaN(x)) return;
+
+        float y = v.y();
+        if (Float.isNaN(y)) return;
+
+        LeafNode<V> leaf = root[0].leaf(x, y, v.t());
+        leaf.bucket.add(v);
+        size++;
+
+        if (leaf.bucket.size() > leaf.splitSize) splitLeaf(leaf);
+    }
+
+    /**
+     * Removes a value equal to {@code v}. The coordinates of {@code v} are used to
+     * find the bucket containing it, so there is no need to rebuild the tree.
+     */
+    public void remove(V v)
+    {
+        LeafNode<V> leaf = root[0].leaf(v.x(), v.y(), v.t());
+        if (leaf.bucket.remove(v))
+        {
+            size--;
+
+            // Once an unsplittable leaf has shrunk, split it normally again
+            if (leaf.bucket.size() <= maxBucketSize) leaf.splitSize = maxBucketSize;
+        }
+    }
+
+    /**
+     * Bounds are inclusive in all three dimensions.
+     */
+    public Collection<V> search(float xMin, float xMax, float yMin, float yMax, long tMin, long tMax)
+    {
+        Collection<V> results = new ArrayList<V>();
+        search(xMin, xMax, yMin, yMax, tMin, tMax, null, results);
+        return results;
+    }
+
+    /**
+     * Bounds are inclusive in all three dimensions. If {@code vFilter} is non-null,
+     * only values it includes are appended to {@code results}.
+     *
+     * @return The number of elements appended to {@code results}.
+     */
+    public int search(float xMin, float xMax, float yMin, float yMax, long tMin, long tMax, FilterObject<V> vFilter, Collection<V> results)
+    {
+        if (tMin > tMax) return 0;
+
+        int nBefore = results.size();
+        root[0].search(xMin, xMax, yMin, yMax, tMin, tMax, vFilter, results);
+        return results.size() - nBefore;
+    }
+
+    /**
+     * Replaces the leaf with an internal node and eight leaves. If the leaf cannot be
+     * split, its split size is doubled instead, so the work of repeated failed attempts
+     * is amortized over the inserts in between.
+     */
+    protected void splitLeaf(LeafNode<V> leaf)
+    {
+        // 2 * machine epsilon for 32-bit floats
+        float minDividerSpacing = (float) Math.pow(2.0, -23.0);
+        boolean xSplittable = (leaf.xMax - leaf.xMin > minDividerSpacing);
+        boolean ySplittable = (leaf.yMax - leaf.yMin > minDividerSpacing);
+        boolean tSplittable = (leaf.tMin == Long.MIN_VALUE || leaf.tMax == Long.MAX_VALUE || leaf.tMax - leaf.tMin > 1);
+        if (!xSplittable && !ySplittable && !tSplittable)
+        {
+            leaf.splitSize = 2 * leaf.bucket.size();
+            return;
+        }
+
+
+
+        // Find new dividers (bucket means)
+
+        Collection<V> bucket = leaf.bucket;
+        double oneOverSize = 1.0 / bucket.size();
+        double xMean = 0;
+        double yMean = 0;
+        double tMean = 0;
+        for (V v : bucket)
+        {
+            xMean += truncInf(v.x()) * oneOverSize;
+            yMean += truncInf(v.y()) * oneOverSize;
+            tMean += v.t() * oneOverSize;
+        }
+
+        // If a dimension is too small to split, use its min as the divider,
+        // so everything falls on the large side (see QuadTree.splitLeaf)
+        float xDivider = (xSplittable ? truncInf((float) xMean) : leaf.xMin);
+        float yDivider = (ySplittable ? truncInf((float) yMean) : leaf.yMin);
+        long tDivider = (tSplittable ? Math.max(leaf.tMin, Math.min(leaf.tMax, Math.round(tMean))) : leaf.tMin);
+
+
+
+        // Replace leaf with new subtree
+
+        @SuppressWarnings("unchecked")
+        Collection<V>[] newBuckets = new Collection[8];
+        for (int o = 0; o < 8; o++) newBuckets[o] = new ArrayList<V>();
+
+        int numNonEmpty = 0;
+        for (V v : bucket)
+        {
+            int o = octant(xDivider, yDivider, tDivider, v.x(), v.y(), v.t());
+            if (newBuckets[o].isEmpty()) numNonEmpty++;
+            newBuckets[o].add(v);
+        }
+
+        // If everything fell on the same side of all three dividers, splitting
+        // would only add an extra level, so keep the existing leaf
+        if (numNonEmpty <= 1)
+        {
+            leaf.splitSize = 2 * bucket.size();
+            return;
+        }
+
+        InternalNode<V> newInternal = new InternalNode<V>(xDivider, yDivider, tDivider);
+        Node<V>[] c = newInternal.children;
+        for (int o = 0; o < 8; o++)
+        {
+            boolean largeX = ((o & 1) != 0);
+            boolean largeY = ((o & 2) != 0);
+            boolean largeT = ((o & 4) != 0);
+
+            c[o] = new LeafNode<V>(newBuckets[o], c, o, maxBucketSize,
+                                   largeX ? xDivider : leaf.xMin, largeX ? leaf.xMax : xDivider,
+                                   largeY ? yDivider : leaf.yMin, largeY ? leaf.yMax : yDivider,
+                                   largeT ? tDivider : leaf.tMin, largeT ? leaf.tMax : tDivider);
+        }
+
+        leaf.referringArray[leaf.referringIndex] = newInternal;
+    }
+
+}